@@ -0,0 +1,82 @@
+package com.example.crypto.benchmark;
+
+import com.example.crypto.model.CandleInterval;
+import com.example.crypto.model.CorrelationMatrix;
+import com.example.crypto.model.PriceSeries;
+import com.example.crypto.model.ReturnGrid;
+import com.example.crypto.model.SymbolData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uncached cost of a correlation matrix over every symbol of a dataset generated by {@link Dataset}: aligning the
+ * returns on the grid, and the pairwise correlations with the given number of fork-join workers, where 1 stands for
+ * a container with a CPU quota of one core or less.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class CorrelationBenchmark {
+
+    @Param({"500x10000"})
+    public String dataset;
+
+    /**
+     * 1h gives 167 grid points over the default dataset, 5m gives 2000.
+     */
+    @Param({"1h", "5m"})
+    public String interval;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private List<SymbolData> symbols;
+    private CandleInterval candleInterval;
+    private ReturnGrid grid;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        Dataset.quietLogging();
+        symbols = new ArrayList<>();
+        for (PriceSeries series : Dataset.parse(dataset).generator().generate()) {
+            symbols.add(SymbolData.of(series));
+        }
+        candleInterval = CandleInterval.parse(interval);
+        grid = ReturnGrid.of(symbols, candleInterval, null, null, Integer.MAX_VALUE);
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public ReturnGrid align() {
+        return ReturnGrid.of(symbols, candleInterval, null, null, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public CorrelationMatrix correlate() {
+        return CorrelationMatrix.of(grid, pool);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.crypto.benchmark;
+
+import com.example.crypto.model.DatasetSnapshot;
+import com.example.crypto.model.PriceSeries;
+import com.example.crypto.service.CryptoDataLoader;
+import com.example.crypto.support.SyntheticDataGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing throughput of the loader: one data file through {@link CryptoDataLoader#loadCryptoData(String,
+ * java.io.InputStream)}, and a cold scan of the whole directory by a fresh loader, which parses every file and
+ * publishes the snapshot. The files are written once per trial by {@link SyntheticDataGenerator}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class CryptoDataLoaderBenchmark {
+
+    /**
+     * {@code SYMBOLSxROWS}; each dataset writes roughly 30 bytes per row to disk.
+     */
+    @Param({"5x100", "500x10000", "5000x1000", "5x1000000"})
+    public String dataset;
+
+    private Path directory;
+    private byte[] file;
+
+    @Setup
+    public void setUp() throws IOException {
+        Dataset.quietLogging();
+        directory = Files.createTempDirectory("crypto-jmh");
+        Dataset.parse(dataset).generator().writeTo(directory);
+        file = Files.readAllBytes(directory.resolve(SyntheticDataGenerator.symbolName(0) + "_values.csv"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public PriceSeries loadCryptoData() {
+        return new CryptoDataLoader().loadCryptoData(SyntheticDataGenerator.symbolName(0), new ByteArrayInputStream(file));
+    }
+
+    @Benchmark
+    public DatasetSnapshot scanCryptoDirectory() {
+        CryptoDataLoader loader = new CryptoDataLoader();
+        ReflectionTestUtils.setField(loader, "cryptoFolderPath", directory.toString());
+        loader.scanCryptoDirectory();
+        return loader.getSnapshot();
+    }
+}
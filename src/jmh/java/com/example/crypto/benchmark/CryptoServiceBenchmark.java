@@ -0,0 +1,121 @@
+package com.example.crypto.benchmark;
+
+import com.example.crypto.model.Candle;
+import com.example.crypto.model.CryptoStatistics;
+import com.example.crypto.model.DatasetSnapshot;
+import com.example.crypto.model.PriceSeries;
+import com.example.crypto.model.SymbolData;
+import com.example.crypto.service.CryptoDataLoader;
+import com.example.crypto.service.CryptoService;
+import com.example.crypto.support.SyntheticDataGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query throughput of the service over an in-memory snapshot generated by {@link SyntheticDataGenerator}: the
+ * statistics of one symbol over its whole history and over the middle half, the precomputed ranking, a windowed
+ * top 10, the highest normalized range of the middle day, and hourly candles of the middle half and
+ * minute candles of the middle day.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class CryptoServiceBenchmark {
+
+    /**
+     * {@code SYMBOLSxROWS}; each row takes 16 bytes of heap, plus the daily rollups and candles.
+     */
+    @Param({"5x100", "500x10000", "5000x1000", "50x1000000"})
+    public String dataset;
+
+    private CryptoService cryptoService;
+    private String symbol;
+    private Instant from;
+    private Instant to;
+    private LocalDate date;
+    private Instant dayStart;
+
+    @Setup
+    public void setUp() {
+        Dataset.quietLogging();
+        Dataset parsed = Dataset.parse(dataset);
+        List<SymbolData> symbols = new ArrayList<>(parsed.symbols());
+        for (PriceSeries series : parsed.generator().generate()) {
+            symbols.add(SymbolData.of(series));
+        }
+        DatasetSnapshot snapshot = DatasetSnapshot.empty().withSymbols(symbols);
+        CryptoDataLoader dataLoader = new CryptoDataLoader() {
+            @Override
+            public DatasetSnapshot getSnapshot() {
+                return snapshot;
+            }
+        };
+        cryptoService = new CryptoService(dataLoader, new SimpleMeterRegistry());
+        symbol = SyntheticDataGenerator.symbolName(0);
+        from = parsed.at(0.25);
+        to = parsed.at(0.75);
+        date = parsed.at(0.5).atZone(ZoneOffset.UTC).toLocalDate();
+        dayStart = date.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    @Benchmark
+    public CryptoStatistics calculateStatistics() {
+        return cryptoService.calculateStatistics(symbol);
+    }
+
+    @Benchmark
+    public CryptoStatistics calculateStatisticsWindow() {
+        return cryptoService.calculateStatistics(symbol, from, to);
+    }
+
+    @Benchmark
+    public List<CryptoStatistics> getAllCryptoStatistics() {
+        return cryptoService.getAllCryptoStatistics();
+    }
+
+    @Benchmark
+    public List<CryptoStatistics> getAllCryptoStatisticsWindowTop10() {
+        return cryptoService.getAllCryptoStatistics(from, to, 10);
+    }
+
+    @Benchmark
+    public List<CryptoStatistics> getAllCryptoStatisticsByVolatilityTop10() {
+        return cryptoService.getAllCryptoStatistics(null, null, 10, "volatility");
+    }
+
+    @Benchmark
+    public String getHighestNormalizedCrypto() {
+        return cryptoService.getHighestNormalizedCrypto(date);
+    }
+
+    @Benchmark
+    public List<Candle> getCandlesHourly() {
+        return cryptoService.getCandles(symbol, "1h", from, to);
+    }
+
+    @Benchmark
+    public List<Candle> getCandlesMinute() {
+        return cryptoService.getCandles(symbol, "1m", dayStart, dayStart.plus(Duration.ofDays(1)));
+    }
+}
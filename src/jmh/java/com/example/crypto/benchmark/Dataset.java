@@ -0,0 +1,45 @@
+package com.example.crypto.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.example.crypto.support.SyntheticDataGenerator;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+
+/**
+ * A benchmark dataset parameter of the form {@code SYMBOLSxROWS}, e.g. {@code 500x10000}, with one tick per
+ * minute from the start of 2022.
+ */
+record Dataset(int symbols, int rows) {
+
+    static final long START_MILLIS = Instant.parse("2022-01-01T00:00:00Z").toEpochMilli();
+    static final long TICK_MILLIS = 60_000L;
+
+    static Dataset parse(String dataset) {
+        int separator = dataset.indexOf('x');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid dataset, expected SYMBOLSxROWS: " + dataset);
+        }
+        return new Dataset(Integer.parseInt(dataset.substring(0, separator)), Integer.parseInt(dataset.substring(separator + 1)));
+    }
+
+    SyntheticDataGenerator generator() {
+        return new SyntheticDataGenerator().symbols(symbols).ticksPerSymbol(rows)
+                .tickIntervalMillis(TICK_MILLIS).startMillis(START_MILLIS);
+    }
+
+    /**
+     * Instant of the tick at the given fraction of the history.
+     */
+    Instant at(double fraction) {
+        return Instant.ofEpochMilli(START_MILLIS + (long) (rows * fraction) * TICK_MILLIS);
+    }
+
+    /**
+     * The application logs every query at DEBUG; benchmarks measure the work rather than the console.
+     */
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger("com.example.crypto")).setLevel(Level.WARN);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.crypto.benchmark;
+
+import com.example.crypto.model.IngestResult;
+import com.example.crypto.service.CryptoDataLoader;
+import com.example.crypto.service.TickIngestor;
+import com.example.crypto.support.SyntheticDataGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one pushed batch of {@code batch} ticks spread over {@code symbols} symbols of a dataset generated by
+ * {@link Dataset}, from parsing the body to the ticks being synced to the tick log and published; ticks per second is
+ * {@code batch} divided by the time per operation. Every batch continues where the previous one ended, so the
+ * ingested series keep growing in order as they would in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class TickIngestBenchmark {
+
+    @Param({"500x10000"})
+    public String dataset;
+
+    @Param({"json", "csv"})
+    public String format;
+
+    @Param({"10000"})
+    public int batch;
+
+    @Param({"50"})
+    public int symbols;
+
+    /**
+     * Whether the ticks are synced to a tick log, or only published.
+     */
+    @Param({"true"})
+    public boolean durable;
+
+    private Path directory;
+    private CryptoDataLoader loader;
+    private TickIngestor ingestor;
+    private MediaType contentType;
+    private long nextTimestamp;
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws IOException {
+        Dataset.quietLogging();
+        Dataset parsed = Dataset.parse(dataset);
+        directory = Files.createTempDirectory("crypto-jmh");
+        Path data = directory.resolve("data");
+        parsed.generator().writeTo(data);
+        loader = new CryptoDataLoader();
+        ReflectionTestUtils.setField(loader, "cryptoFolderPath", data.toString());
+        loader.scanCryptoDirectory();
+        ingestor = new TickIngestor(loader, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(ingestor, "logPath", durable ? directory.resolve("ticks.log").toString() : "");
+        ingestor.init();
+        contentType = format.equals("csv") ? MediaType.parseMediaType("text/csv") : MediaType.APPLICATION_JSON;
+        nextTimestamp = Dataset.START_MILLIS + parsed.rows() * Dataset.TICK_MILLIS;
+    }
+
+    @Setup(Level.Invocation)
+    public void nextBody() {
+        StringBuilder text = new StringBuilder(batch * 64);
+        boolean json = format.equals("json");
+        text.append(json ? "[" : "timestamp,symbol,price\n");
+        for (int i = 0; i < batch; i++) {
+            String symbol = SyntheticDataGenerator.symbolName(i % symbols);
+            double price = 100 + (i % 997) * 0.01;
+            if (json) {
+                text.append(i == 0 ? "" : ",").append("{\"timestamp\":").append(nextTimestamp)
+                        .append(",\"symbol\":\"").append(symbol).append("\",\"price\":").append(price).append('}');
+            } else {
+                text.append(nextTimestamp).append(',').append(symbol).append(',').append(price).append('\n');
+            }
+            if (i % symbols == symbols - 1) {
+                nextTimestamp += 1_000;
+            }
+        }
+        text.append(json ? "]" : "");
+        body = text.toString().getBytes(StandardCharsets.UTF_8);
+        nextTimestamp += 1_000;
+    }
+
+    @TearDown
+    public void tearDown() {
+        ingestor.shutdown();
+        FileSystemUtils.deleteRecursively(directory.toFile());
+    }
+
+    @Benchmark
+    public IngestResult ingest() {
+        return ingestor.ingest(new ByteArrayInputStream(body), contentType);
+    }
+}
@@ -1,7 +1,15 @@
 package com.example.crypto.config;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.caffeine.CaffeineProxyManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.FilterConfig;
@@ -10,18 +18,54 @@ import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
 import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
 
 import java.io.IOException;
 import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Per-client-address token buckets.
+ * <p>
+ * Buckets live in a Caffeine cache bounded to {@code rate.limit.max-clients} addresses. An idle bucket is evicted
+ * once it has refilled completely, when dropping it loses nothing, and the least recently used buckets are evicted
+ * first when the bound is reached, so a scan from many addresses cannot grow the heap.
+ * <p>
+ * Each request consumes the cost of the first {@code rate.limit.costs} pattern matching its path, or 1, so
+ * expensive queries draw the bucket down faster than cheap lookups; a cost of 0 exempts the path, e.g. metrics
+ * scrapes. Rejected requests get a 429 with a {@code Retry-After} of the seconds until enough tokens are back.
+ * <p>
+ * Pushes to the {@code rate.limit.ingest.paths} draw one token each from a separate per-address bucket instead, refilled
+ * continuously at {@code rate.limit.ingest.requests-per-second}: a producer pushes many times a second, which the
+ * query budget is not sized for, and the ingestor bounds concurrent pushes itself.
+ * <p>
+ * Setting {@code rate.limit.enabled=false} leaves the filter out entirely, e.g. for load tests.
+ */
 @Component
+@ConditionalOnProperty(name = "rate.limit.enabled", havingValue = "true", matchIfMissing = true)
 public class RateLimitingFilter implements Filter {
 
-    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private CaffeineProxyManager<String> buckets;
+    private BucketConfiguration configuration;
+    private final List<EndpointCost> costs = new ArrayList<>();
+    private CaffeineProxyManager<String> ingestBuckets;
+    private BucketConfiguration ingestConfiguration;
+    private final List<PathPattern> ingestPatterns = new ArrayList<>();
+
+    private final MeterRegistry meterRegistry;
+    private final Counter accepted;
+    private final Counter rejected;
 
     // Configurable properties for rate limiting
     @Value("${rate.limit.requests}")
@@ -30,6 +74,101 @@ public class RateLimitingFilter implements Filter {
     @Value("${rate.limit.duration.minutes}")
     private int refillDuration;
 
+    @Value("${rate.limit.max-clients:100000}")
+    private long maxClients;
+
+    /**
+     * Comma-separated {@code pattern=cost} entries, e.g. {@code /api/crypto/{symbol}/prices=10}.
+     */
+    @Value("${rate.limit.costs:}")
+    private List<String> endpointCosts;
+
+    @Value("${rate.limit.ingest.paths:/api/crypto/ticks}")
+    private List<String> ingestPaths;
+
+    @Value("${rate.limit.ingest.requests-per-second:50}")
+    private int ingestRequestsPerSecond;
+
+    private record EndpointCost(PathPattern pattern, int cost) {
+    }
+
+    /**
+     * Records into the application's registry, or a private one where metrics are not configured, e.g. in web
+     * slice tests.
+     */
+    @Autowired
+    public RateLimitingFilter(ObjectProvider<MeterRegistry> meterRegistry) {
+        this(meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    RateLimitingFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.accepted = requests(meterRegistry, "accepted");
+        this.rejected = requests(meterRegistry, "rejected");
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("crypto.ratelimit.requests")
+                .description("Requests checked against the rate limit")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void initBuckets() {
+        configuration = BucketConfiguration.builder()
+                .addLimit(Bandwidth.builder()
+                        .capacity(maxRequests)
+                        .refillIntervally(maxRequests, Duration.ofMinutes(refillDuration))
+                        .build())
+                .build();
+        ingestConfiguration = BucketConfiguration.builder()
+                .addLimit(Bandwidth.builder()
+                        .capacity(ingestRequestsPerSecond)
+                        .refillGreedy(ingestRequestsPerSecond, Duration.ofSeconds(1))
+                        .build())
+                .build();
+        buckets = boundedBuckets();
+        ingestBuckets = boundedBuckets();
+        Gauge.builder("crypto.ratelimit.clients", this, RateLimitingFilter::trackedClients)
+                .description("Rate limit buckets currently held, one per client address and kind")
+                .register(meterRegistry);
+
+        costs.clear();
+        for (String entry : endpointCosts) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.lastIndexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid rate.limit.costs entry, expected pattern=cost: " + entry);
+            }
+            int cost = Integer.parseInt(entry.substring(separator + 1).trim());
+            if (cost < 0 || cost > maxRequests) {
+                throw new IllegalArgumentException("Rate limit cost must be between 0 and " + maxRequests + ": " + entry);
+            }
+            costs.add(new EndpointCost(PathPatternParser.defaultInstance.parse(entry.substring(0, separator).trim()), cost));
+        }
+        ingestPatterns.clear();
+        for (String path : ingestPaths) {
+            if (!path.isBlank()) {
+                ingestPatterns.add(PathPatternParser.defaultInstance.parse(path.trim()));
+            }
+        }
+    }
+
+    /**
+     * Buckets of up to {@code rate.limit.max-clients} addresses. Maintenance runs on the calling thread, so the size
+     * bound holds at every request.
+     * <p>
+     * The idle bound relies on {@link CaffeineProxyManager}'s expiry: each entry expires once its bucket would have
+     * refilled completely, plus the given keep-after-refill duration. Zero drops an idle address as soon as its
+     * bucket is full again, so no separate idle timeout is configured.
+     */
+    private CaffeineProxyManager<String> boundedBuckets() {
+        return new CaffeineProxyManager<>(Caffeine.newBuilder().maximumSize(maxClients).executor(Runnable::run), Duration.ZERO);
+    }
+
     @Override
     public void init(FilterConfig filterConfig) {
         // No initialization needed
@@ -42,14 +181,28 @@ public class RateLimitingFilter implements Filter {
         HttpServletRequest httpServletRequest = (HttpServletRequest) request;
         HttpServletResponse httpServletResponse = (HttpServletResponse) response;
 
+        PathContainer path = pathOf(httpServletRequest);
         String ipAddress = httpServletRequest.getRemoteAddr();
+        ConsumptionProbe probe;
+        if (isIngestion(path)) {
+            probe = ingestBuckets.builder().build(ipAddress, () -> ingestConfiguration).tryConsumeAndReturnRemaining(1);
+        } else {
+            int cost = costOf(path);
+            if (cost == 0) {
+                chain.doFilter(request, response);
+                return;
+            }
+            probe = buckets.builder().build(ipAddress, () -> configuration).tryConsumeAndReturnRemaining(cost);
+        }
 
-        Bucket bucket = buckets.computeIfAbsent(ipAddress, this::newBucket);
-
-        if (bucket.tryConsume(1)) {
+        if (probe.isConsumed()) {
+            accepted.increment();
             chain.doFilter(request, response);
         } else {
-            httpServletResponse.setStatus(HttpServletResponse.SC_REQUEST_TIMEOUT);
+            rejected.increment();
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(probe.getNanosToWaitForRefill() + 999_999_999));
+            httpServletResponse.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            httpServletResponse.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
             httpServletResponse.getWriter().write("Too many requests");
         }
     }
@@ -59,13 +212,42 @@ public class RateLimitingFilter implements Filter {
         // No teardown needed
     }
 
-    private Bucket newBucket(String ipAddress) {
-        Bandwidth limit = Bandwidth.builder()
-                .capacity(maxRequests)
-                .refillIntervally(maxRequests, Duration.ofMinutes(refillDuration))
-                .build();
-        return Bucket.builder()
-                .addLimit(limit)
-                .build();
+    int costOf(HttpServletRequest request) {
+        return costOf(pathOf(request));
+    }
+
+    private int costOf(PathContainer path) {
+        for (EndpointCost cost : costs) {
+            if (cost.pattern().matches(path)) {
+                return cost.cost();
+            }
+        }
+        return 1;
+    }
+
+    boolean isIngestion(HttpServletRequest request) {
+        return isIngestion(pathOf(request));
+    }
+
+    private boolean isIngestion(PathContainer path) {
+        for (PathPattern pattern : ingestPatterns) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static PathContainer pathOf(HttpServletRequest request) {
+        return PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    /**
+     * Number of buckets currently held, for queries and pushes together.
+     */
+    long trackedClients() {
+        buckets.getCache().cleanUp();
+        ingestBuckets.getCache().cleanUp();
+        return buckets.getCache().estimatedSize() + ingestBuckets.getCache().estimatedSize();
     }
-}
\ No newline at end of file
+}
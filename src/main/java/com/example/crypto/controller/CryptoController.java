@@ -1,18 +1,39 @@
 package com.example.crypto.controller;
 
+import com.example.crypto.model.BulkStatistics;
+import com.example.crypto.model.Candle;
+import com.example.crypto.model.CorrelationMatrix;
 import com.example.crypto.model.CryptoStatistics;
+import com.example.crypto.model.DailyOhlc;
+import com.example.crypto.model.DatasetSnapshot;
+import com.example.crypto.model.IngestResult;
+import com.example.crypto.model.PricePage;
+import com.example.crypto.model.Revision;
 import com.example.crypto.service.CryptoService;
+import com.example.crypto.service.TickIngestor;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -20,47 +41,270 @@ import java.util.List;
 @RequestMapping("/api/crypto")
 public class CryptoController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final CryptoService cryptoService;
+    private final TickIngestor tickIngestor;
+    private final EncodedResponseCache responseCache;
 
-    public CryptoController(CryptoService cryptoService) {
+    public CryptoController(CryptoService cryptoService, TickIngestor tickIngestor, EncodedResponseCache responseCache) {
         this.cryptoService = cryptoService;
+        this.tickIngestor = tickIngestor;
+        this.responseCache = responseCache;
     }
 
     @Operation(summary = "Get cryptos sorted by normalized range",
-            description = "Returns a descending sorted list of all cryptocurrencies, based on their normalized range (i.e., (max-min)/min).")
+            description = "Returns a descending sorted list of all cryptocurrencies, based on their normalized range (i.e., (max-min)/min), over their whole history or a [from, to) time window, optionally limited to the top entries. Over the whole history they can be sorted by moving average deviation (highest first), or by volatility or maximum drawdown (lowest first) instead.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "List of cryptocurrencies with their statistics"),
+            @ApiResponse(responseCode = "200", description = "List of cryptocurrencies with their statistics",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            array = @ArraySchema(schema = @Schema(implementation = CryptoStatistics.class)))),
+            @ApiResponse(responseCode = "304", description = "Not modified since the revision in If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Invalid time window, limit or sortBy, or sortBy other than normalizedRange with a time window"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/normalized")
-    public List<CryptoStatistics> getAllCryptoStatistics() {
-        return cryptoService.getAllCryptoStatistics();
+    public ResponseEntity<byte[]> getAllCryptoStatistics(
+            @Parameter(description = "Start of the time window, inclusive", example = "2022-01-01T00:00:00Z")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @Parameter(description = "End of the time window, exclusive", example = "2022-01-08T00:00:00Z")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @Parameter(description = "Maximum number of cryptocurrencies to return", example = "10")
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @Parameter(description = "Metric to sort by: normalizedRange (default), sma or ema highest first, volatility or maxDrawdown lowest first. "
+                    + "sma and ema sort by the newest price relative to the moving average.", example = "volatility")
+            @RequestParam(value = "sortBy", required = false) String sortBy,
+            WebRequest request) {
+        DatasetSnapshot snapshot = cryptoService.getSnapshot();
+        Revision revision = snapshot.getRevision();
+        if (notModified(request, revision)) {
+            return null;
+        }
+        String key = "normalized/" + from + "/" + to + "/" + limit;
+        return responseCache.json(revision, sortBy == null ? key : key + "/" + sortBy, request,
+                () -> cryptoService.getAllCryptoStatistics(snapshot, from, to, limit, sortBy));
     }
 
     @Operation(summary = "Get statistics for a specific crypto",
-            description = "Returns the oldest, newest, minimum, and maximum prices for the specified cryptocurrency.")
+            description = "Returns the oldest, newest, minimum, and maximum prices for the specified cryptocurrency, over its whole history or a [from, to) time window.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Cryptocurrency statistics"),
-            @ApiResponse(responseCode = "404", description = "Crypto not found"),
-            @ApiResponse(responseCode = "400", description = "Invalid symbol format")
+            @ApiResponse(responseCode = "200", description = "Cryptocurrency statistics",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = CryptoStatistics.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified since the revision in If-None-Match"),
+            @ApiResponse(responseCode = "404", description = "Crypto not found or no data in the time window"),
+            @ApiResponse(responseCode = "400", description = "Invalid symbol format or time window")
     })
     @GetMapping("/{symbol}/statistics")
-    public CryptoStatistics getCryptoStatistics(
-            @Parameter(description = "Symbol of the cryptocurrency (e.g., BTC, ETH)") @PathVariable String symbol) {
-        return cryptoService.calculateStatistics(symbol);
+    public ResponseEntity<byte[]> getCryptoStatistics(
+            @Parameter(description = "Symbol of the cryptocurrency (e.g., BTC, ETH)") @PathVariable String symbol,
+            @Parameter(description = "Start of the time window, inclusive", example = "2022-01-01T00:00:00Z")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @Parameter(description = "End of the time window, exclusive", example = "2022-01-08T00:00:00Z")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            WebRequest request) {
+        DatasetSnapshot snapshot = cryptoService.getSnapshot();
+        if (notModified(request, snapshot.revisionOf(symbol.toUpperCase()))) {
+            return null;
+        }
+        return responseCache.json(snapshot.getRevision(), "statistics/" + symbol.toUpperCase() + "/" + from + "/" + to, request,
+                () -> cryptoService.calculateStatistics(snapshot, symbol, from, to));
+    }
+
+    @Operation(summary = "Get statistics for several cryptos",
+            description = "Returns the statistics of every requested cryptocurrency in one response, over their whole history or a [from, to) time window. Unavailable symbols are listed in 'errors' instead of failing the request.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statistics of the available cryptocurrencies and errors for the others"),
+            @ApiResponse(responseCode = "304", description = "Not modified since the revision in If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Invalid symbol list or time window")
+    })
+    @GetMapping("/statistics")
+    public BulkStatistics getBulkStatistics(
+            @Parameter(description = "Comma-separated symbols of the cryptocurrencies", example = "BTC,ETH")
+            @RequestParam("symbols") List<String> symbols,
+            @Parameter(description = "Start of the time window, inclusive", example = "2022-01-01T00:00:00Z")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @Parameter(description = "End of the time window, exclusive", example = "2022-01-08T00:00:00Z")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            WebRequest request) {
+        DatasetSnapshot snapshot = cryptoService.getSnapshot();
+        if (notModified(request, snapshot.getRevision())) {
+            return null;
+        }
+        return cryptoService.calculateStatistics(snapshot, symbols, from, to);
+    }
+
+    @Operation(summary = "Export the prices of a specific crypto",
+            description = "Streams the ticks of the specified cryptocurrency in a [from, to) time window as newline-delimited JSON. With a limit, the response stops after that many ticks and the X-Next-Cursor header holds the cursor to pass for the next page.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Ticks of the cryptocurrency, one JSON object per line"),
+            @ApiResponse(responseCode = "304", description = "Not modified since the revision in If-None-Match"),
+            @ApiResponse(responseCode = "404", description = "Crypto not found"),
+            @ApiResponse(responseCode = "400", description = "Invalid time window, cursor or limit")
+    })
+    @GetMapping(value = "/{symbol}/prices", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getPrices(
+            @Parameter(description = "Symbol of the cryptocurrency (e.g., BTC, ETH)") @PathVariable String symbol,
+            @Parameter(description = "Start of the time window, inclusive", example = "2022-01-01T00:00:00Z")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @Parameter(description = "End of the time window, exclusive", example = "2022-01-08T00:00:00Z")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @Parameter(description = "Cursor returned in X-Next-Cursor by the previous page")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Maximum number of ticks to return", example = "10000")
+            @RequestParam(value = "limit", required = false) Integer limit,
+            WebRequest request) {
+        DatasetSnapshot snapshot = cryptoService.getSnapshot();
+        if (notModified(request, snapshot.revisionOf(symbol.toUpperCase()))) {
+            return null;
+        }
+        PricePage page = cryptoService.getPrices(snapshot, symbol, from, to, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON);
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page::writeNdjson);
     }
 
     @Operation(summary = "Get crypto with the highest normalized range for a specific day",
-            description = "Returns the cryptocurrency with the highest normalized range for the provided date.")
+            description = "Returns the cryptocurrency with the highest normalized range for the provided date, as a calendar day in the configured time zone or in the requested one.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Cryptocurrency with the highest normalized range"),
-            @ApiResponse(responseCode = "400", description = "Invalid date format"),
+            @ApiResponse(responseCode = "200", description = "Cryptocurrency with the highest normalized range",
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN_VALUE, schema = @Schema(implementation = String.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified since the revision in If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Invalid date format or zone without daily rollups"),
             @ApiResponse(responseCode = "404", description = "No crypto found for the provided date")
     })
     @GetMapping("/highest-normalized")
-    public String getHighestNormalizedCrypto(
+    public ResponseEntity<byte[]> getHighestNormalizedCrypto(
             @Parameter(description = "Date for which to find the highest normalized range", example = "2022-01-01")
-            @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        return cryptoService.getHighestNormalizedCrypto(date);
+            @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @Parameter(description = "Time zone the day is taken in, the configured crypto.time-zone if omitted", example = "America/New_York")
+            @RequestParam(value = "zone", required = false) String zone,
+            WebRequest request) {
+        DatasetSnapshot snapshot = cryptoService.getSnapshot();
+        Revision revision = snapshot.getRevision();
+        if (notModified(request, revision)) {
+            return null;
+        }
+        String key = zone == null ? "highest-normalized/" + date : "highest-normalized/" + date + "/" + zone;
+        return responseCache.text(revision, key, request,
+                () -> cryptoService.getHighestNormalizedCrypto(snapshot, date, zone));
+    }
+
+    @Operation(summary = "Get daily OHLC for a specific crypto",
+            description = "Returns the open, high, low, close and tick count of every day with data for the specified cryptocurrency, optionally limited to an inclusive date range.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Daily OHLC of the cryptocurrency"),
+            @ApiResponse(responseCode = "304", description = "Not modified since the revision in If-None-Match"),
+            @ApiResponse(responseCode = "404", description = "Crypto not found"),
+            @ApiResponse(responseCode = "400", description = "Invalid date range or zone without daily rollups")
+    })
+    @GetMapping("/{symbol}/daily")
+    public List<DailyOhlc> getDailyOhlc(
+            @Parameter(description = "Symbol of the cryptocurrency (e.g., BTC, ETH)") @PathVariable String symbol,
+            @Parameter(description = "First day to include", example = "2022-01-01")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day to include", example = "2022-01-31")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Time zone the days are taken in, the configured crypto.time-zone if omitted", example = "America/New_York")
+            @RequestParam(value = "zone", required = false) String zone,
+            WebRequest request) {
+        DatasetSnapshot snapshot = cryptoService.getSnapshot();
+        if (notModified(request, snapshot.revisionOf(symbol.toUpperCase()))) {
+            return null;
+        }
+        return cryptoService.getDailyOhlc(snapshot, symbol, from, to, zone);
+    }
+
+    @Operation(summary = "Get candles for a specific crypto",
+            description = "Returns the open, high, low, close and tick count of every 1m, 5m, 1h or 1d bucket with data for the specified cryptocurrency, optionally limited to buckets starting in a [from, to) time window. Buckets are aligned to the epoch, so days start at midnight UTC.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Candles of the cryptocurrency"),
+            @ApiResponse(responseCode = "304", description = "Not modified since the revision in If-None-Match"),
+            @ApiResponse(responseCode = "404", description = "Crypto not found"),
+            @ApiResponse(responseCode = "400", description = "Invalid interval or time window, or too many candles")
+    })
+    @GetMapping("/{symbol}/candles")
+    public List<Candle> getCandles(
+            @Parameter(description = "Symbol of the cryptocurrency (e.g., BTC, ETH)") @PathVariable String symbol,
+            @Parameter(description = "Candle interval: 1m, 5m, 1h or 1d", example = "1h")
+            @RequestParam("interval") String interval,
+            @Parameter(description = "Start of the time window, inclusive and rounded down to the start of its bucket", example = "2022-01-01T00:00:00Z")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @Parameter(description = "End of the time window, exclusive", example = "2022-01-08T00:00:00Z")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            WebRequest request) {
+        DatasetSnapshot snapshot = cryptoService.getSnapshot();
+        if (notModified(request, snapshot.revisionOf(symbol.toUpperCase()))) {
+            return null;
+        }
+        return cryptoService.getCandles(snapshot, symbol, interval, from, to);
+    }
+
+    @Operation(summary = "Get the return correlation matrix of cryptos",
+            description = "Returns the pairwise Pearson correlations of the log returns of the requested cryptocurrencies, or of all of them, on a common grid of 1m, 5m, 1h or 1d buckets starting in a [from, to) time window. Each pair is compared where both have returns; pairs sharing fewer than two returns are null.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Symbols and their correlation matrix, in the same order",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = CorrelationMatrix.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified since the revision in If-None-Match"),
+            @ApiResponse(responseCode = "404", description = "A requested crypto was not found"),
+            @ApiResponse(responseCode = "400", description = "Invalid interval or time window, or too many symbols or grid points")
+    })
+    @GetMapping("/correlation")
+    public ResponseEntity<byte[]> getCorrelations(
+            @Parameter(description = "Comma-separated symbols of the cryptocurrencies, all of them if omitted", example = "BTC,ETH")
+            @RequestParam(value = "symbols", required = false) List<String> symbols,
+            @Parameter(description = "Start of the time window, inclusive and rounded down to the start of its bucket", example = "2022-01-01T00:00:00Z")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @Parameter(description = "End of the time window, exclusive", example = "2022-02-01T00:00:00Z")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @Parameter(description = "Grid interval the returns are taken over: 1m, 5m, 1h or 1d (default)", example = "1h")
+            @RequestParam(value = "interval", required = false) String interval,
+            WebRequest request) {
+        DatasetSnapshot snapshot = cryptoService.getSnapshot();
+        Revision revision = snapshot.getRevision();
+        if (notModified(request, revision)) {
+            return null;
+        }
+        String key = "correlation/" + from + "/" + to + "/" + interval + "/" + (symbols == null ? "" : String.join(",", symbols).toUpperCase());
+        return responseCache.json(revision, key, request, () -> cryptoService.getCorrelations(snapshot, symbols, from, to, interval));
+    }
+
+    @Operation(summary = "Push a batch of ticks",
+            description = "Appends ticks to the in-memory series of their cryptocurrencies, creating the ones without a data file, and updates their statistics and rollups. "
+                    + "The body is a JSON array of {\"timestamp\", \"symbol\", \"price\"} objects or text/csv rows in the data file format, with an optional header; timestamps are epoch millis. "
+                    + "The ticks are logged durably and visible to reads in the returned dataset version before the response is sent.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Number of ticks and symbols appended, and the dataset version containing them",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = IngestResult.class))),
+            @ApiResponse(responseCode = "400", description = "Malformed body, invalid symbol or price, or too many ticks"),
+            @ApiResponse(responseCode = "500", description = "The ticks could not be logged")
+    })
+    @PostMapping(value = "/ticks", consumes = {MediaType.APPLICATION_JSON_VALUE, "text/csv"})
+    public IngestResult ingestTicks(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body) {
+        return tickIngestor.ingest(body, contentType);
+    }
+
+    /**
+     * Sets the {@code ETag} and {@code Last-Modified} headers of the response from the revision its data comes from,
+     * and reports whether the client's copy is still current, in which case the response is already a 304 and the
+     * handler must return without computing a body. Unknown symbols have no revision and fall through to the
+     * handler's own 404.
+     * <p>
+     * Handlers take one snapshot up front and read the revision, the cache version and the body all from it, so a
+     * reload published in between can never store or tag a body under a version it does not belong to.
+     */
+    private static boolean notModified(WebRequest request, Revision revision) {
+        if (revision == null) {
+            return false;
+        }
+        return request.checkNotModified(etag(revision), revision.getModifiedAt().toEpochMilli());
+    }
+
+    static String etag(Revision revision) {
+        return "\"" + revision.getLineage() + "-v" + revision.getVersion() + "\"";
     }
 }
@@ -0,0 +1,167 @@
+package com.example.crypto.controller;
+
+import com.example.crypto.model.Revision;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of encoded response bodies for one dataset version at a time.
+ * <p>
+ * Bodies are stored as the bytes written to the client: the JSON (or text) encoding, and its gzip encoding once a
+ * client accepting gzip asks for it while {@code server.compression.enabled} is set. Entries belong to the dataset
+ * version they were computed for; the first request for a newer version replaces the whole generation, so nothing
+ * computed from an older snapshot is served again. Requests for an older version than the cached one are encoded
+ * without being cached.
+ * <p>
+ * Concurrent requests for a missing body wait for a single computation, which makes this the only cache needed for
+ * results as expensive as a correlation matrix. Failed computations are not kept. Each generation holds at most
+ * {@code crypto.response-cache.max-size} bytes of uncompressed bodies, evicting the least valuable ones beyond it;
+ * their gzip encodings are not counted.
+ */
+@Component
+class EncodedResponseCache {
+
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final boolean compression;
+    private final long minCompressionSize;
+
+    private final AtomicReference<Generation> generation = new AtomicReference<>(new Generation(-1, 0));
+
+    EncodedResponseCache(ObjectMapper objectMapper,
+                         @Value("${crypto.response-cache.enabled:true}") boolean enabled,
+                         @Value("${crypto.response-cache.max-size:64MB}") DataSize maxSize,
+                         @Value("${server.compression.enabled:false}") boolean compression,
+                         @Value("${server.compression.min-response-size:2KB}") DataSize minCompressionSize) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxBytes = maxSize.toBytes();
+        this.compression = compression;
+        this.minCompressionSize = minCompressionSize.toBytes();
+    }
+
+    /**
+     * Responds with the JSON encoding of the body computed for the given dataset revision.
+     */
+    ResponseEntity<byte[]> json(Revision revision, String key, WebRequest request, Supplier<?> body) {
+        return respond(revision, key, MediaType.APPLICATION_JSON, request, () -> {
+            try {
+                return objectMapper.writeValueAsBytes(body.get());
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Responds with the plain-text body computed for the given dataset revision.
+     */
+    ResponseEntity<byte[]> text(Revision revision, String key, WebRequest request, Supplier<String> body) {
+        return respond(revision, key, TEXT_PLAIN_UTF8, request, () -> body.get().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private ResponseEntity<byte[]> respond(Revision revision, String key, MediaType contentType, WebRequest request,
+                                           Supplier<byte[]> encoder) {
+        Entry entry = lookup(revision, key, encoder);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(contentType);
+        if (!compression || entry.bytes.length < minCompressionSize) {
+            return response.body(entry.bytes);
+        }
+        response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!acceptsGzip(request)) {
+            return response.body(entry.bytes);
+        }
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(entry.gzip());
+    }
+
+    private Entry lookup(Revision revision, String key, Supplier<byte[]> encoder) {
+        Generation current = enabled && revision != null ? generation(revision.getVersion()) : null;
+        if (current == null) {
+            return new Entry(encoder.get());
+        }
+        return current.entries.get(key, ignored -> new Entry(encoder.get()));
+    }
+
+    /**
+     * Returns the generation for the given version, replacing an older one, or {@code null} if a newer version is
+     * already cached.
+     */
+    private Generation generation(long version) {
+        Generation current = generation.get();
+        while (current.version < version) {
+            Generation next = new Generation(version, maxBytes);
+            if (generation.compareAndSet(current, next)) {
+                return next;
+            }
+            current = generation.get();
+        }
+        return current.version == version ? current : null;
+    }
+
+    private static boolean acceptsGzip(WebRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.contains("gzip");
+    }
+
+    private static final class Generation {
+        final long version;
+        final Cache<String, Entry> entries;
+
+        Generation(long version, long maxBytes) {
+            this.version = version;
+            // Evicts on the requesting thread, so the bound holds as soon as a body is added
+            this.entries = Caffeine.newBuilder()
+                    .maximumWeight(maxBytes)
+                    .weigher((String key, Entry entry) -> entry.bytes.length)
+                    .executor(Runnable::run)
+                    .build();
+        }
+    }
+
+    private static final class Entry {
+        final byte[] bytes;
+        private volatile byte[] gzip;
+
+        Entry(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * Compresses on first use; concurrent first uses may both compress, with identical results.
+         */
+        byte[] gzip() {
+            byte[] compressed = gzip;
+            if (compressed == null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+                    gzipOut.write(bytes);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                compressed = out.toByteArray();
+                gzip = compressed;
+            }
+            return compressed;
+        }
+    }
+}
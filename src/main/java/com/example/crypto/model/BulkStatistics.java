@@ -0,0 +1,15 @@
+package com.example.crypto.model;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics of several symbols requested together, plus the reason for each requested symbol that has none.
+ */
+@Value
+public class BulkStatistics {
+    List<CryptoStatistics> statistics;
+    Map<String, String> errors;
+}
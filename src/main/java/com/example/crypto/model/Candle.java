@@ -0,0 +1,13 @@
+package com.example.crypto.model;
+
+import lombok.Value;
+
+@Value
+public class Candle {
+    long timestamp;  // Start of the bucket, in epoch millis
+    double open;
+    double high;
+    double low;
+    double close;
+    int count;
+}
@@ -0,0 +1,51 @@
+package com.example.crypto.model;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Resolutions candles are served at, finest first. Each one is a whole multiple of the finer ones, so a coarser
+ * level can be built from any finer one. Buckets are aligned to the epoch, i.e. days start at midnight UTC.
+ */
+public enum CandleInterval {
+    ONE_MINUTE("1m", 60_000L),
+    FIVE_MINUTES("5m", 5 * 60_000L),
+    ONE_HOUR("1h", 3_600_000L),
+    ONE_DAY("1d", 86_400_000L);
+
+    private final String label;
+    private final long millis;
+
+    CandleInterval(String label, long millis) {
+        this.label = label;
+        this.millis = millis;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Returns the start of the bucket the given instant falls into.
+     */
+    public long bucketOf(long epochMillis) {
+        return Math.floorDiv(epochMillis, millis) * millis;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the label is not one of {@code 1m}, {@code 5m}, {@code 1h} or {@code 1d}
+     */
+    public static CandleInterval parse(String label) {
+        for (CandleInterval interval : values()) {
+            if (interval.label.equalsIgnoreCase(label.trim())) {
+                return interval;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported interval: " + label + ", expected one of "
+                + Arrays.stream(values()).map(CandleInterval::getLabel).collect(Collectors.joining(", ")));
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.crypto.model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Open, high, low, close and tick count per fixed-length bucket of a {@link PriceSeries}, one bucket per interval
+ * that has ticks.
+ * <p>
+ * Buckets are stored column-wise and sorted by start time, so a time range is found with two binary searches.
+ * Rollups are never modified once visible: {@link #followedBy(CandleRollup)} returns a new rollup, which may share
+ * the arrays with this one but only writes past this rollup's buckets.
+ */
+public final class CandleRollup {
+
+    private final CandleInterval interval;
+    private long[] starts;
+    private double[] opens;
+    private double[] highs;
+    private double[] lows;
+    private double[] closes;
+    private int[] counts;
+    private int size;
+
+    /**
+     * The last bucket, which ticks appended later may still fall into. It is kept out of the arrays, whose entries
+     * from index {@code size - 1} on may be written by a rollup appended to this one.
+     */
+    private long lastStart;
+    private double lastOpen;
+    private double lastHigh;
+    private double lastLow;
+    private double lastClose;
+    private int lastCount;
+
+    /**
+     * How much of the shared arrays has been handed out to some rollup, not counting its last bucket. Only the rollup
+     * ending there may append in place; any other rollup copies first.
+     */
+    private AtomicInteger claimed;
+
+    private CandleRollup(CandleInterval interval, int capacity) {
+        this.interval = interval;
+        this.starts = new long[capacity];
+        this.opens = new double[capacity];
+        this.highs = new double[capacity];
+        this.lows = new double[capacity];
+        this.closes = new double[capacity];
+        this.counts = new int[capacity];
+    }
+
+    /**
+     * Buckets all ticks of a timestamp-sorted series.
+     */
+    public static CandleRollup of(PriceSeries series, CandleInterval interval) {
+        return of(series, 0, series.size(), interval);
+    }
+
+    /**
+     * Buckets the ticks {@code [from, to)} of a timestamp-sorted series.
+     */
+    public static CandleRollup of(PriceSeries series, int from, int to, CandleInterval interval) {
+        CandleRollup rollup = new CandleRollup(interval, 16);
+        for (int i = from; i < to; i++) {
+            double price = series.priceAt(i);
+            rollup.add(interval.bucketOf(series.timestampAt(i)), price, price, price, price, 1);
+        }
+        return rollup.built();
+    }
+
+    /**
+     * Builds a coarser rollup from all buckets of this one.
+     */
+    public CandleRollup coarsen(CandleInterval coarser) {
+        return coarsen(0, size, coarser);
+    }
+
+    /**
+     * Builds a coarser rollup from the buckets {@code [from, to)} of this one.
+     *
+     * @throws IllegalArgumentException if {@code coarser} is not a multiple of this rollup's interval
+     */
+    public CandleRollup coarsen(int from, int to, CandleInterval coarser) {
+        if (coarser.getMillis() % interval.getMillis() != 0) {
+            throw new IllegalArgumentException("Cannot build " + coarser.getLabel() + " candles from " + interval.getLabel());
+        }
+        CandleRollup rollup = new CandleRollup(coarser, 16);
+        for (int i = from; i < to; i++) {
+            rollup.add(coarser.bucketOf(startAt(i)), openAt(i), highAt(i), lowAt(i), closeAt(i), countAt(i));
+        }
+        return rollup.built();
+    }
+
+    /**
+     * Combines this rollup with one at the same interval built from ticks that all come after the ones rolled up
+     * here. A bucket present in both is merged.
+     * <p>
+     * Only the buckets of {@code later} are written: the combined rollup shares this one's arrays when it is the
+     * first to append to them and they have room, and otherwise copies them with spare capacity, so appending
+     * repeatedly costs amortized time proportional to the appended buckets.
+     */
+    public CandleRollup followedBy(CandleRollup later) {
+        if (interval != later.interval) {
+            throw new IllegalArgumentException("Cannot combine " + interval.getLabel() + " and " + later.interval.getLabel() + " candles");
+        }
+        if (later.size == 0) {
+            return this;
+        }
+        if (size == 0) {
+            return later;
+        }
+
+        boolean merged = later.startAt(0) == lastStart;
+        int newSize = size + later.size - (merged ? 1 : 0);
+        CandleRollup combined = new CandleRollup(interval, 0);
+        if (newSize - 1 <= starts.length && claimed.compareAndSet(size - 1, newSize - 1)) {
+            combined.starts = starts;
+            combined.opens = opens;
+            combined.highs = highs;
+            combined.lows = lows;
+            combined.closes = closes;
+            combined.counts = counts;
+            combined.claimed = claimed;
+        } else {
+            int capacity = Math.max(newSize, size + (size >> 1));
+            combined.starts = Arrays.copyOf(starts, capacity);
+            combined.opens = Arrays.copyOf(opens, capacity);
+            combined.highs = Arrays.copyOf(highs, capacity);
+            combined.lows = Arrays.copyOf(lows, capacity);
+            combined.closes = Arrays.copyOf(closes, capacity);
+            combined.counts = Arrays.copyOf(counts, capacity);
+            combined.claimed = new AtomicInteger(newSize - 1);
+        }
+
+        // This rollup's last bucket, merged with the first later one if they share a start, then the later ones
+        combined.size = size - 1;
+        int first = merged ? 1 : 0;
+        combined.append(lastStart, lastOpen,
+                merged ? Math.max(lastHigh, later.highAt(0)) : lastHigh,
+                merged ? Math.min(lastLow, later.lowAt(0)) : lastLow,
+                merged ? later.closeAt(0) : lastClose,
+                merged ? lastCount + later.countAt(0) : lastCount,
+                first == later.size);
+        for (int i = first; i < later.size; i++) {
+            combined.append(later.startAt(i), later.openAt(i), later.highAt(i), later.lowAt(i), later.closeAt(i),
+                    later.countAt(i), i == later.size - 1);
+        }
+        return combined;
+    }
+
+    /**
+     * Adds a bucket after the ones of a rollup being combined, into the arrays or, for the last one, the fields
+     * that hold it.
+     */
+    private void append(long start, double open, double high, double low, double close, int count, boolean last) {
+        if (last) {
+            lastStart = start;
+            lastOpen = open;
+            lastHigh = high;
+            lastLow = low;
+            lastClose = close;
+            lastCount = count;
+        } else {
+            starts[size] = start;
+            opens[size] = open;
+            highs[size] = high;
+            lows[size] = low;
+            closes[size] = close;
+            counts[size] = count;
+        }
+        size++;
+    }
+
+    /**
+     * Appends a bucket, merging it into the last one if it has the same start. Only used while building, when every
+     * bucket is still held in the arrays.
+     */
+    private void add(long start, double open, double high, double low, double close, int count) {
+        if (size > 0 && starts[size - 1] == start) {
+            int last = size - 1;
+            highs[last] = Math.max(highs[last], high);
+            lows[last] = Math.min(lows[last], low);
+            closes[last] = close;
+            counts[last] += count;
+            return;
+        }
+        if (size == starts.length) {
+            int capacity = Math.max(16, size + (size >> 1));
+            starts = Arrays.copyOf(starts, capacity);
+            opens = Arrays.copyOf(opens, capacity);
+            highs = Arrays.copyOf(highs, capacity);
+            lows = Arrays.copyOf(lows, capacity);
+            closes = Arrays.copyOf(closes, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        starts[size] = start;
+        opens[size] = open;
+        highs[size] = high;
+        lows[size] = low;
+        closes[size] = close;
+        counts[size] = count;
+        size++;
+    }
+
+    /**
+     * Finishes building: drops the spare capacity, which would otherwise be retained for as long as the rollup, and
+     * moves the last bucket into its fields.
+     */
+    private CandleRollup built() {
+        if (starts.length != size) {
+            starts = Arrays.copyOf(starts, size);
+            opens = Arrays.copyOf(opens, size);
+            highs = Arrays.copyOf(highs, size);
+            lows = Arrays.copyOf(lows, size);
+            closes = Arrays.copyOf(closes, size);
+            counts = Arrays.copyOf(counts, size);
+        }
+        if (size > 0) {
+            int last = size - 1;
+            lastStart = starts[last];
+            lastOpen = opens[last];
+            lastHigh = highs[last];
+            lastLow = lows[last];
+            lastClose = closes[last];
+            lastCount = counts[last];
+        }
+        claimed = new AtomicInteger(Math.max(0, size - 1));
+        return this;
+    }
+
+    public CandleInterval getInterval() {
+        return interval;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the index of the first bucket starting at or after the given instant, or {@link #size()} if there is
+     * none.
+     */
+    public int lowerBound(long epochMillis) {
+        if (size == 0 || epochMillis > lastStart) {
+            return size;
+        }
+        int index = Arrays.binarySearch(starts, 0, size - 1, epochMillis);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    public long startAt(int index) {
+        return checkIndex(index) == size - 1 ? lastStart : starts[index];
+    }
+
+    public double openAt(int index) {
+        return checkIndex(index) == size - 1 ? lastOpen : opens[index];
+    }
+
+    public double highAt(int index) {
+        return checkIndex(index) == size - 1 ? lastHigh : highs[index];
+    }
+
+    public double lowAt(int index) {
+        return checkIndex(index) == size - 1 ? lastLow : lows[index];
+    }
+
+    public double closeAt(int index) {
+        return checkIndex(index) == size - 1 ? lastClose : closes[index];
+    }
+
+    public int countAt(int index) {
+        return checkIndex(index) == size - 1 ? lastCount : counts[index];
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.crypto.model;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Candle rollups of one series at the configured intervals. Only the finest level is built from ticks; each
+ * coarser level is built from the level below it.
+ * <p>
+ * A configured level is only kept if it has at most half as many buckets as the ticks or the kept level it would
+ * otherwise be built from, e.g. no minute level for a series with a tick per minute or less. Intervals without a
+ * level of their own are built per query from that source, for the requested range only, at a cost of the same
+ * order as the number of candles returned.
+ * <p>
+ * Whether a level compresses depends on how dense the ticks are, which appending can change. Appends only extend
+ * the kept levels, but once the series has doubled since the levels were chosen they are chosen again from the whole
+ * series, so a level dropped for sparse early ticks comes back once enough dense ones follow. Each rebuild costs at
+ * most as much as the ticks appended since the last one.
+ */
+public final class Candles {
+
+    /**
+     * Fewest source entries per bucket for a level to be kept.
+     */
+    static final int MIN_COMPRESSION = 2;
+
+    private final Set<CandleInterval> intervals;
+    private final Map<CandleInterval, CandleRollup> levels;
+    /**
+     * Series size at which the levels are chosen again, or {@link Integer#MAX_VALUE} if every configured one is kept.
+     */
+    private final int rechooseAt;
+
+    private Candles(Set<CandleInterval> intervals, Map<CandleInterval, CandleRollup> levels, int rechooseAt) {
+        this.intervals = intervals;
+        this.levels = levels;
+        this.rechooseAt = rechooseAt;
+    }
+
+    public static Candles of(PriceSeries series, Set<CandleInterval> intervals) {
+        Map<CandleInterval, CandleRollup> levels = new EnumMap<>(CandleInterval.class);
+        CandleRollup finer = null;
+        int sourceSize = series.size();
+        for (CandleInterval interval : CandleInterval.values()) {
+            if (intervals.contains(interval)) {
+                finer = finer == null ? CandleRollup.of(series, interval) : finer.coarsen(interval);
+                if ((long) finer.size() * MIN_COMPRESSION <= sourceSize || finer.size() == 0) {
+                    levels.put(interval, finer);
+                    sourceSize = finer.size();
+                }
+            }
+        }
+        int rechooseAt = levels.size() == intervals.size()
+                ? Integer.MAX_VALUE
+                : (int) Math.min(Integer.MAX_VALUE, Math.max(1L, 2L * series.size()));
+        return new Candles(immutableCopy(intervals), levels, rechooseAt);
+    }
+
+    /**
+     * Returns the candles with ticks appended that all come after the ones rolled up here, building only the tail's
+     * buckets of the levels kept so far. {@code series} is the whole series including the tail; once it has grown
+     * enough for dropped levels to be worth another look, the levels are chosen again from it.
+     */
+    public Candles followedBy(PriceSeries series, PriceSeries tail) {
+        if (series.size() >= rechooseAt) {
+            return of(series, intervals);
+        }
+        Map<CandleInterval, CandleRollup> combined = new EnumMap<>(CandleInterval.class);
+        CandleRollup finer = null;
+        for (Map.Entry<CandleInterval, CandleRollup> level : levels.entrySet()) {
+            CandleInterval interval = level.getKey();
+            finer = finer == null ? CandleRollup.of(tail, interval) : finer.coarsen(interval);
+            combined.put(interval, level.getValue().followedBy(finer));
+        }
+        return new Candles(intervals, combined, rechooseAt);
+    }
+
+    /**
+     * The configured intervals, whether or not each one kept a level.
+     */
+    public Set<CandleInterval> intervals() {
+        return intervals;
+    }
+
+    /**
+     * Returns the level kept for the given interval, or {@code null} if there is none.
+     */
+    public CandleRollup level(CandleInterval interval) {
+        return levels.get(interval);
+    }
+
+    /**
+     * Returns the candles at the given interval whose buckets start in {@code [bucketOf(from), to)}. Either bound
+     * may be {@code null} for an open end. A kept level is returned as it is, for the caller to narrow with
+     * {@link CandleRollup#lowerBound(long)}; anything else is built for the range only.
+     */
+    public CandleRollup select(PriceSeries series, CandleInterval interval, Long from, Long to) {
+        CandleRollup level = levels.get(interval);
+        if (level != null) {
+            return level;
+        }
+        long start = from == null ? Long.MIN_VALUE : interval.bucketOf(from);
+        long end = to == null ? Long.MAX_VALUE : to;
+        for (int i = interval.ordinal() - 1; i >= 0; i--) {
+            CandleRollup finer = levels.get(CandleInterval.values()[i]);
+            if (finer != null && interval.getMillis() % finer.getInterval().getMillis() == 0) {
+                return finer.coarsen(finer.lowerBound(start), finer.lowerBound(end), interval);
+            }
+        }
+        return CandleRollup.of(series, series.lowerBound(start), series.lowerBound(end), interval);
+    }
+
+    private static Set<CandleInterval> immutableCopy(Set<CandleInterval> intervals) {
+        return Collections.unmodifiableSet(intervals.isEmpty() ? EnumSet.noneOf(CandleInterval.class) : EnumSet.copyOf(intervals));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.crypto.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import lombok.Value;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Pairwise correlations of the returns of several symbols on a {@link ReturnGrid}. {@link #correlation(int, int)}
+ * belongs to {@code symbols[i]} and {@code symbols[j]}, and is {@code NaN} where the pair shares fewer than two returns
+ * or either one is constant over them.
+ * <p>
+ * The matrix is kept as one row-major array and written to JSON as an array of rows, with {@code null} for
+ * {@code NaN}, without boxing a value per pair.
+ */
+@Value
+public class CorrelationMatrix {
+    String interval;
+    long start;  // Start of the grid, in epoch millis
+    long end;  // End of the grid, exclusive, in epoch millis
+    int points;
+    List<String> symbols;
+    @JsonSerialize(using = RowsSerializer.class)
+    double[] correlations;  // Row-major, symbols.size() squared
+
+    /**
+     * Grid points times symbol pairs below which a range of rows is not split further.
+     */
+    private static final long SPLIT_THRESHOLD = 1 << 18;
+
+    /**
+     * Computes the upper triangle in the given pool, split into row ranges of about equal pair counts, and mirrors
+     * it into the lower one.
+     */
+    public static CorrelationMatrix of(ReturnGrid grid, ForkJoinPool pool) {
+        int n = grid.size();
+        double[] values = new double[n * n];
+        pool.invoke(new Rows(grid, values, 0, n));
+
+        for (int i = 0; i < n; i++) {
+            values[i * n + i] = 1.0;
+            for (int j = i + 1; j < n; j++) {
+                values[j * n + i] = values[i * n + j];
+            }
+        }
+        return new CorrelationMatrix(grid.getInterval().getLabel(), grid.getStart(), grid.getEnd(), grid.getPoints(),
+                grid.getSymbols(), values);
+    }
+
+    public double correlation(int i, int j) {
+        return correlations[i * symbols.size() + j];
+    }
+
+    /**
+     * Writes a square row-major matrix as an array of rows.
+     */
+    static final class RowsSerializer extends StdSerializer<double[]> {
+
+        RowsSerializer() {
+            super(double[].class);
+        }
+
+        @Override
+        public void serialize(double[] values, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            int n = (int) Math.round(Math.sqrt(values.length));
+            generator.writeStartArray(values, n);
+            for (int i = 0; i < n; i++) {
+                generator.writeStartArray(values, n);
+                for (int j = i * n; j < (i + 1) * n; j++) {
+                    if (Double.isNaN(values[j])) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeNumber(values[j]);
+                    }
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Fills the pairs of rows {@code [from, to)} with the columns after them.
+     */
+    private static final class Rows extends RecursiveAction {
+        private final ReturnGrid grid;
+        private final double[] values;
+        private final int from;
+        private final int to;
+
+        Rows(ReturnGrid grid, double[] values, int from, int to) {
+            this.grid = grid;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int n = grid.size();
+            long pairs = pairs(n, from, to);
+            if (to - from < 2 || pairs * grid.getPoints() <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    for (int j = i + 1; j < n; j++) {
+                        values[i * n + j] = grid.correlation(i, j);
+                    }
+                }
+                return;
+            }
+            // Earlier rows have more pairs, so split where the pair count halves rather than at the middle row
+            int middle = from + 1;
+            while (middle < to - 1 && pairs(n, from, middle) * 2 < pairs) {
+                middle++;
+            }
+            invokeAll(new Rows(grid, values, from, middle), new Rows(grid, values, middle, to));
+        }
+
+        private static long pairs(int n, int from, int to) {
+            long rows = to - from;
+            return rows * (n - 1) - ((long) from + to - 1) * rows / 2;
+        }
+    }
+}
@@ -3,12 +3,10 @@ package com.example.crypto.model;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
-import java.time.LocalDateTime;
-
 @Data
 @AllArgsConstructor
 public class CryptoPrice {
-    private LocalDateTime timestamp;
+    private long timestamp;  // Epoch millis
     private String symbol;
     private double price;
 
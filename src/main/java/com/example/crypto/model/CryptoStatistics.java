@@ -1,18 +1,111 @@
 package com.example.crypto.model;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Value;
+import lombok.With;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
+@Value
 public class CryptoStatistics {
-    private String symbol;
-    private double oldestPrice;
-    private double newestPrice;
-    private double minPrice;
-    private double maxPrice;
-    private double normalizedRange;
+    String symbol;
+    double oldestPrice;
+    double newestPrice;
+    double minPrice;
+    double maxPrice;
+    double normalizedRange;
 
+    /**
+     * Streaming metrics of the whole history, {@code null} for statistics of a time window.
+     */
+    @With
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    StreamingMetrics metrics;
+
+    /**
+     * Summarizes a timestamp-sorted series in a single pass, or returns {@code null} for an empty series.
+     */
+    public static CryptoStatistics summarize(PriceSeries series) {
+        if (series.isEmpty()) {
+            return null;
+        }
+        double minPrice = Double.POSITIVE_INFINITY;
+        double maxPrice = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < series.size(); i++) {
+            double price = series.priceAt(i);
+            minPrice = Math.min(minPrice, price);
+            maxPrice = Math.max(maxPrice, price);
+        }
+        return new CryptoStatistics(
+                series.getSymbol(),
+                series.priceAt(0),
+                series.priceAt(series.size() - 1),
+                minPrice,
+                maxPrice,
+                (maxPrice - minPrice) / minPrice,
+                null
+        );
+    }
+
+    /**
+     * Summarizes the ticks {@code [from, to)} of a timestamp-sorted series using its range index, or returns
+     * {@code null} for an empty range.
+     */
+    public static CryptoStatistics summarize(PriceSeries series, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        double minPrice = series.minPrice(from, to);
+        double maxPrice = series.maxPrice(from, to);
+        return new CryptoStatistics(
+                series.getSymbol(),
+                series.priceAt(from),
+                series.priceAt(to - 1),
+                minPrice,
+                maxPrice,
+                (maxPrice - minPrice) / minPrice,
+                null
+        );
+    }
+
+    /**
+     * Summarizes a symbol from its daily rollup, which gives the same result as summarizing the series it was built
+     * from but only looks at one bucket per day. Returns {@code null} for an empty rollup.
+     */
+    public static CryptoStatistics summarize(String symbol, DailyRollup daily) {
+        if (daily.size() == 0) {
+            return null;
+        }
+        double minPrice = Double.POSITIVE_INFINITY;
+        double maxPrice = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < daily.size(); i++) {
+            minPrice = Math.min(minPrice, daily.lowAt(i));
+            maxPrice = Math.max(maxPrice, daily.highAt(i));
+        }
+        return new CryptoStatistics(
+                symbol,
+                daily.openAt(0),
+                daily.closeAt(daily.size() - 1),
+                minPrice,
+                maxPrice,
+                (maxPrice - minPrice) / minPrice,
+                null
+        );
+    }
+
+    /**
+     * Combines these statistics with those of ticks that all come after the ones summarized here. The streaming
+     * metrics are left out, since they cannot be combined from two summaries.
+     */
+    public CryptoStatistics followedBy(CryptoStatistics later) {
+        double combinedMin = Math.min(minPrice, later.minPrice);
+        double combinedMax = Math.max(maxPrice, later.maxPrice);
+        return new CryptoStatistics(
+                symbol,
+                oldestPrice,
+                later.newestPrice,
+                combinedMin,
+                combinedMax,
+                (combinedMax - combinedMin) / combinedMin,
+                null
+        );
+    }
 }
@@ -0,0 +1,15 @@
+package com.example.crypto.model;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+@Value
+public class DailyOhlc {
+    LocalDate date;
+    double open;
+    double high;
+    double low;
+    double close;
+    int count;
+}
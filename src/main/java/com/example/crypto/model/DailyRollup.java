@@ -0,0 +1,195 @@
+package com.example.crypto.model;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Per-day open, high, low, close and tick count of a {@link PriceSeries}, one bucket per calendar day that has ticks.
+ * <p>
+ * Buckets are stored column-wise and sorted by epoch day, so looking up a single day is a binary search.
+ */
+public final class DailyRollup {
+
+    private final ZoneId zone;
+    private final long[] epochDays;
+    private final double[] opens;
+    private final double[] highs;
+    private final double[] lows;
+    private final double[] closes;
+    private final int[] counts;
+    private final int size;
+
+    private DailyRollup(ZoneId zone, long[] epochDays, double[] opens, double[] highs, double[] lows, double[] closes, int[] counts, int size) {
+        this.zone = zone;
+        this.epochDays = epochDays;
+        this.opens = opens;
+        this.highs = highs;
+        this.lows = lows;
+        this.closes = closes;
+        this.counts = counts;
+        this.size = size;
+    }
+
+    /**
+     * Buckets a timestamp-sorted series by calendar day in the given zone.
+     */
+    public static DailyRollup of(PriceSeries series, ZoneId zone) {
+        int capacity = 16;
+        long[] epochDays = new long[capacity];
+        double[] opens = new double[capacity];
+        double[] highs = new double[capacity];
+        double[] lows = new double[capacity];
+        double[] closes = new double[capacity];
+        int[] counts = new int[capacity];
+        int size = 0;
+
+        DayBuckets days = new DayBuckets(zone);
+        for (int i = 0; i < series.size(); i++) {
+            long epochDay = days.epochDayOf(series.timestampAt(i));
+            double price = series.priceAt(i);
+            if (size == 0 || epochDay != epochDays[size - 1]) {
+                if (size == capacity) {
+                    capacity += capacity >> 1;
+                    epochDays = Arrays.copyOf(epochDays, capacity);
+                    opens = Arrays.copyOf(opens, capacity);
+                    highs = Arrays.copyOf(highs, capacity);
+                    lows = Arrays.copyOf(lows, capacity);
+                    closes = Arrays.copyOf(closes, capacity);
+                    counts = Arrays.copyOf(counts, capacity);
+                }
+                epochDays[size] = epochDay;
+                opens[size] = price;
+                highs[size] = price;
+                lows[size] = price;
+                closes[size] = price;
+                counts[size] = 1;
+                size++;
+            } else {
+                int last = size - 1;
+                highs[last] = Math.max(highs[last], price);
+                lows[last] = Math.min(lows[last], price);
+                closes[last] = price;
+                counts[last]++;
+            }
+        }
+
+        return new DailyRollup(zone, epochDays, opens, highs, lows, closes, counts, size);
+    }
+
+    /**
+     * Creates a rollup in the given zone from its columns, e.g. as read back from a snapshot. The arrays must have
+     * equal lengths, be sorted by epoch day, and are used as they are.
+     */
+    public static DailyRollup ofColumns(ZoneId zone, long[] epochDays, double[] opens, double[] highs, double[] lows, double[] closes, int[] counts) {
+        int size = epochDays.length;
+        if (opens.length != size || highs.length != size || lows.length != size || closes.length != size || counts.length != size) {
+            throw new IllegalArgumentException("Daily rollup columns must have equal lengths");
+        }
+        return new DailyRollup(zone, epochDays, opens, highs, lows, closes, counts, size);
+    }
+
+    /**
+     * Combines this rollup with one built in the same zone from ticks that all come after the ones rolled up here.
+     * A day present in both is merged into a single bucket.
+     */
+    public DailyRollup followedBy(DailyRollup later) {
+        if (!zone.equals(later.zone)) {
+            throw new IllegalArgumentException("Cannot combine rollups in " + zone + " and " + later.zone);
+        }
+        if (later.size == 0) {
+            return this;
+        }
+        if (size == 0) {
+            return later;
+        }
+
+        boolean sameDay = epochDays[size - 1] == later.epochDays[0];
+        int skip = sameDay ? 1 : 0;
+        int newSize = size + later.size - skip;
+        long[] newEpochDays = Arrays.copyOf(epochDays, newSize);
+        double[] newOpens = Arrays.copyOf(opens, newSize);
+        double[] newHighs = Arrays.copyOf(highs, newSize);
+        double[] newLows = Arrays.copyOf(lows, newSize);
+        double[] newCloses = Arrays.copyOf(closes, newSize);
+        int[] newCounts = Arrays.copyOf(counts, newSize);
+
+        if (sameDay) {
+            int last = size - 1;
+            newHighs[last] = Math.max(highs[last], later.highs[0]);
+            newLows[last] = Math.min(lows[last], later.lows[0]);
+            newCloses[last] = later.closes[0];
+            newCounts[last] += later.counts[0];
+        }
+        int length = later.size - skip;
+        System.arraycopy(later.epochDays, skip, newEpochDays, size, length);
+        System.arraycopy(later.opens, skip, newOpens, size, length);
+        System.arraycopy(later.highs, skip, newHighs, size, length);
+        System.arraycopy(later.lows, skip, newLows, size, length);
+        System.arraycopy(later.closes, skip, newCloses, size, length);
+        System.arraycopy(later.counts, skip, newCounts, size, length);
+        return new DailyRollup(zone, newEpochDays, newOpens, newHighs, newLows, newCloses, newCounts, newSize);
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the bucket index of the given day, or a negative value if there were no ticks that day.
+     */
+    public int indexOf(LocalDate date) {
+        return Arrays.binarySearch(epochDays, 0, size, date.toEpochDay());
+    }
+
+    /**
+     * Returns the index of the first bucket on or after the given day, or {@link #size()} if there is none.
+     */
+    public int lowerBound(LocalDate date) {
+        int index = indexOf(date);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    public LocalDate dateAt(int index) {
+        return LocalDate.ofEpochDay(epochDayAt(index));
+    }
+
+    public long epochDayAt(int index) {
+        return epochDays[checkIndex(index)];
+    }
+
+    public double openAt(int index) {
+        return opens[checkIndex(index)];
+    }
+
+    public double highAt(int index) {
+        return highs[checkIndex(index)];
+    }
+
+    public double lowAt(int index) {
+        return lows[checkIndex(index)];
+    }
+
+    public double closeAt(int index) {
+        return closes[checkIndex(index)];
+    }
+
+    public int countAt(int index) {
+        return counts[checkIndex(index)];
+    }
+
+    public double normalizedRangeAt(int index) {
+        return (highAt(index) - lowAt(index)) / lowAt(index);
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return index;
+    }
+}
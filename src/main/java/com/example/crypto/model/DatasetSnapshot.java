@@ -0,0 +1,141 @@
+package com.example.crypto.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable, versioned view of all loaded data. A reader takes one snapshot and sees consistent data for the whole
+ * request; loaders build the next snapshot off to the side and publish it in a single reference swap.
+ */
+@Getter
+public final class DatasetSnapshot {
+
+    private static final SecureRandom LINEAGES = new SecureRandom();
+
+    /**
+     * Best first, by the same order the service selects rankings over a window with.
+     */
+    private static final Comparator<CryptoStatistics> RANKING_ORDER = RankingMetric.NORMALIZED_RANGE.getOrder().reversed();
+
+    /**
+     * See {@link Revision#getLineage()}.
+     */
+    private final String lineage;
+    private final long version;
+    private final Instant publishedAt;
+    private final Map<String, SymbolData> symbols;
+
+    /**
+     * The revision in which each symbol last changed.
+     */
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Revision> revisions;
+
+    /**
+     * Statistics of all symbols with data, sorted by descending normalized range, then by symbol.
+     */
+    private final List<CryptoStatistics> ranking;
+
+    private DatasetSnapshot(String lineage, long version, Instant publishedAt, Map<String, SymbolData> symbols,
+                            Map<String, Revision> revisions, List<CryptoStatistics> ranking) {
+        this.lineage = lineage;
+        this.version = version;
+        this.publishedAt = publishedAt;
+        this.symbols = symbols;
+        this.revisions = revisions;
+        this.ranking = ranking;
+    }
+
+    /**
+     * Returns an empty snapshot that starts a new lineage, so its versions never match those of any other empty
+     * snapshot.
+     */
+    public static DatasetSnapshot empty() {
+        String lineage = Long.toUnsignedString(LINEAGES.nextLong(), 36);
+        return new DatasetSnapshot(lineage, 0, Instant.EPOCH, Map.of(), Map.of(), List.of());
+    }
+
+    public SymbolData get(String symbol) {
+        return symbols.get(symbol);
+    }
+
+    public Revision getRevision() {
+        return new Revision(lineage, version, publishedAt);
+    }
+
+    /**
+     * Returns the revision in which the given symbol last changed, or {@code null} for an unknown symbol.
+     */
+    public Revision revisionOf(String symbol) {
+        return revisions.get(symbol);
+    }
+
+    /**
+     * Returns the next version of this snapshot with the given symbols added or replaced.
+     */
+    public DatasetSnapshot withSymbols(Collection<SymbolData> updated) {
+        return withSymbols(updated, List.of());
+    }
+
+    /**
+     * Returns the next version of this snapshot with the given symbols added or replaced and the removed symbols
+     * dropped.
+     */
+    public DatasetSnapshot withSymbols(Collection<SymbolData> updated, Collection<String> removed) {
+        Revision revision = new Revision(lineage, version + 1, Instant.now());
+        Map<String, SymbolData> newSymbols = new HashMap<>(symbols);
+        Map<String, Revision> newRevisions = new HashMap<>(revisions);
+        Set<String> changed = new HashSet<>();
+        for (String symbol : removed) {
+            newSymbols.remove(symbol);
+            newRevisions.remove(symbol);
+            changed.add(symbol);
+        }
+        for (SymbolData data : updated) {
+            newSymbols.put(data.getSymbol(), data);
+            newRevisions.put(data.getSymbol(), revision);
+            changed.add(data.getSymbol());
+        }
+        return new DatasetSnapshot(lineage, revision.getVersion(), revision.getModifiedAt(), Collections.unmodifiableMap(newSymbols),
+                newRevisions, rerank(ranking, changed, updated));
+    }
+
+    /**
+     * Drops the changed symbols from the ranking and merges the new statistics of the updated ones back in, which
+     * costs one pass over the ranking plus sorting the updated symbols, rather than sorting all of them again.
+     */
+    private static List<CryptoStatistics> rerank(List<CryptoStatistics> ranking, Set<String> changed,
+                                                 Collection<SymbolData> updated) {
+        List<CryptoStatistics> ranked = updated.stream()
+                .map(SymbolData::getStatistics)
+                .filter(Objects::nonNull)
+                .sorted(RANKING_ORDER)
+                .toList();
+        List<CryptoStatistics> merged = new ArrayList<>(ranking.size() + ranked.size());
+        int next = 0;
+        for (CryptoStatistics statistics : ranking) {
+            if (changed.contains(statistics.getSymbol())) {
+                continue;
+            }
+            while (next < ranked.size() && RANKING_ORDER.compare(ranked.get(next), statistics) < 0) {
+                merged.add(ranked.get(next++));
+            }
+            merged.add(statistics);
+        }
+        merged.addAll(ranked.subList(next, ranked.size()));
+        return Collections.unmodifiableList(merged);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.crypto.model;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Maps epoch millis to calendar days in a zone with plain arithmetic: the zone's offset is only looked up when a
+ * timestamp falls outside the span between two offset transitions seen last, so a timestamp-sorted series costs one
+ * rules lookup per DST change instead of one per tick or per day.
+ * <p>
+ * Instances cache that span and are not thread-safe; create one per pass over a series.
+ */
+public final class DayBuckets {
+
+    static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final ZoneRules rules;
+    private long offsetMillis;
+    private long validFrom = Long.MAX_VALUE;
+    private long validUntil = Long.MIN_VALUE;
+
+    public DayBuckets(ZoneId zone) {
+        this.rules = zone.getRules();
+    }
+
+    /**
+     * Returns the epoch day the given instant falls on in this zone.
+     */
+    public long epochDayOf(long epochMillis) {
+        if (epochMillis < validFrom || epochMillis >= validUntil) {
+            resolve(epochMillis);
+        }
+        return Math.floorDiv(epochMillis + offsetMillis, MILLIS_PER_DAY);
+    }
+
+    private void resolve(long epochMillis) {
+        Instant instant = Instant.ofEpochMilli(epochMillis);
+        offsetMillis = rules.getOffset(instant).getTotalSeconds() * 1_000L;
+        if (rules.isFixedOffset()) {
+            validFrom = Long.MIN_VALUE;
+            validUntil = Long.MAX_VALUE;
+            return;
+        }
+        // The offset holds from here until the next transition; earlier instants are resolved again if they come
+        ZoneOffsetTransition next = rules.nextTransition(instant);
+        validFrom = epochMillis;
+        validUntil = next == null ? Long.MAX_VALUE : next.toEpochSecond() * 1_000L;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.crypto.model;
+
+import lombok.Value;
+
+/**
+ * Outcome of a pushed batch of ticks, which is durable and visible to reads once this is returned.
+ */
+@Value
+public class IngestResult {
+    int ticks;
+    int symbols;
+    long version;  // Dataset version that contains the ticks
+}
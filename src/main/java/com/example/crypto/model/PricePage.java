@@ -0,0 +1,65 @@
+package com.example.crypto.model;
+
+import lombok.Value;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A contiguous run of ticks of one series, {@code [start, end)}, plus the cursor of the tick following it if the
+ * requested range continues.
+ */
+@Value
+public class PricePage {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    PriceSeries series;
+    int start;
+    int end;
+    String nextCursor;
+
+    /**
+     * Writes the ticks as newline-delimited JSON objects, {@code {"timestamp":<epoch millis>,"symbol":..,"price":..}},
+     * straight from the series columns through a fixed-size buffer, so memory use does not depend on the page size.
+     */
+    public void writeNdjson(OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        StringBuilder line = new StringBuilder(96);
+        String symbolField = ",\"symbol\":" + jsonString(series.getSymbol()) + ",\"price\":";
+        int position = 0;
+        for (int i = start; i < end; i++) {
+            line.setLength(0);
+            line.append("{\"timestamp\":").append(series.timestampAt(i))
+                    .append(symbolField).append(series.priceAt(i)).append("}\n");
+            if (position + line.length() > buffer.length) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+            // Every character is ASCII: numbers, and a symbol escaped by jsonString
+            for (int c = 0; c < line.length(); c++) {
+                buffer[position++] = (byte) line.charAt(c);
+            }
+        }
+        out.write(buffer, 0, position);
+        out.flush();
+    }
+
+    /**
+     * Quotes a string as a JSON string literal made of ASCII characters only.
+     */
+    private static String jsonString(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7e) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
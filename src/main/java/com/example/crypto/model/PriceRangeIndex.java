@@ -0,0 +1,117 @@
+package com.example.crypto.model;
+
+/**
+ * Block sparse table over a price column, answering the minimum and maximum of any index range.
+ * <p>
+ * Prices are summarized in blocks of {@value #BLOCK_SIZE} ticks, and a sparse table over the block summaries
+ * answers any run of whole blocks with two lookups. A query therefore scans at most the two partial blocks at its
+ * ends, while the table only costs about {@code 16 * log2(n / 256)} bytes per 256 ticks.
+ */
+final class PriceRangeIndex {
+
+    static final int BLOCK_SIZE = 256;
+    private static final int BLOCK_SHIFT = 8;
+
+    private final int size;
+
+    /**
+     * Level {@code k} holds the minimum (maximum) of the {@code 2^k} blocks starting at each index; level 0 is the
+     * per-block summary, with a trailing partial block included.
+     */
+    private final double[][] mins;
+    private final double[][] maxs;
+
+    private PriceRangeIndex(int size, double[][] mins, double[][] maxs) {
+        this.size = size;
+        this.mins = mins;
+        this.maxs = maxs;
+    }
+
+    /**
+     * Builds the index over {@code prices[0, size)}. If {@code base} was built over a prefix of the same prices,
+     * its whole-block summaries are reused and only the remaining ticks are scanned.
+     */
+    static PriceRangeIndex build(double[] prices, int size, PriceRangeIndex base) {
+        int blocks = (size + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        double[] blockMins = new double[blocks];
+        double[] blockMaxs = new double[blocks];
+
+        int reused = 0;
+        if (base != null && base.size <= size) {
+            reused = base.size >> BLOCK_SHIFT;
+            System.arraycopy(base.mins[0], 0, blockMins, 0, reused);
+            System.arraycopy(base.maxs[0], 0, blockMaxs, 0, reused);
+        }
+        for (int block = reused; block < blocks; block++) {
+            int from = block << BLOCK_SHIFT;
+            int to = Math.min(size, from + BLOCK_SIZE);
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                min = Math.min(min, prices[i]);
+                max = Math.max(max, prices[i]);
+            }
+            blockMins[block] = min;
+            blockMaxs[block] = max;
+        }
+
+        int levels = blocks == 0 ? 1 : 32 - Integer.numberOfLeadingZeros(blocks);
+        double[][] mins = new double[levels][];
+        double[][] maxs = new double[levels][];
+        mins[0] = blockMins;
+        maxs[0] = blockMaxs;
+        for (int level = 1; level < levels; level++) {
+            int half = 1 << (level - 1);
+            int length = blocks - (1 << level) + 1;
+            double[] previousMins = mins[level - 1];
+            double[] previousMaxs = maxs[level - 1];
+            double[] levelMins = new double[length];
+            double[] levelMaxs = new double[length];
+            for (int i = 0; i < length; i++) {
+                levelMins[i] = Math.min(previousMins[i], previousMins[i + half]);
+                levelMaxs[i] = Math.max(previousMaxs[i], previousMaxs[i + half]);
+            }
+            mins[level] = levelMins;
+            maxs[level] = levelMaxs;
+        }
+        return new PriceRangeIndex(size, mins, maxs);
+    }
+
+    double min(double[] prices, int from, int to) {
+        int firstBlock = (from + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        int endBlock = to >> BLOCK_SHIFT;
+        if (firstBlock >= endBlock) {
+            return scanMin(prices, from, to);
+        }
+        double min = Math.min(scanMin(prices, from, firstBlock << BLOCK_SHIFT), scanMin(prices, endBlock << BLOCK_SHIFT, to));
+        int level = 31 - Integer.numberOfLeadingZeros(endBlock - firstBlock);
+        return Math.min(min, Math.min(mins[level][firstBlock], mins[level][endBlock - (1 << level)]));
+    }
+
+    double max(double[] prices, int from, int to) {
+        int firstBlock = (from + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        int endBlock = to >> BLOCK_SHIFT;
+        if (firstBlock >= endBlock) {
+            return scanMax(prices, from, to);
+        }
+        double max = Math.max(scanMax(prices, from, firstBlock << BLOCK_SHIFT), scanMax(prices, endBlock << BLOCK_SHIFT, to));
+        int level = 31 - Integer.numberOfLeadingZeros(endBlock - firstBlock);
+        return Math.max(max, Math.max(maxs[level][firstBlock], maxs[level][endBlock - (1 << level)]));
+    }
+
+    private static double scanMin(double[] prices, int from, int to) {
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            min = Math.min(min, prices[i]);
+        }
+        return min;
+    }
+
+    private static double scanMax(double[] prices, int from, int to) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            max = Math.max(max, prices[i]);
+        }
+        return max;
+    }
+}
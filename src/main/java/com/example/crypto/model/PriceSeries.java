@@ -0,0 +1,425 @@
+package com.example.crypto.model;
+
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Columnar, timestamp-sorted price series for a single crypto symbol.
+ * <p>
+ * Ticks are kept in two parallel primitive arrays (epoch millis and prices) instead of one
+ * {@link CryptoPrice} object per tick, which keeps the footprint at 16 bytes per tick.
+ * {@link CryptoPrice} instances are only created on demand through {@link #toCryptoPrice(int)}.
+ * <p>
+ * A series is never modified once visible: {@link #append(PriceSeries)} returns a new series, which may share the
+ * backing arrays with this one but only writes past this series' size.
+ */
+public final class PriceSeries {
+
+    /**
+     * Granularity in which the backing arrays of large series grow. Smaller ones grow in powers of two from
+     * {@link #MIN_CAPACITY}, so that a series of a few pushed ticks does not hold a whole chunk.
+     */
+    static final int CHUNK_SIZE = 4096;
+    static final int MIN_CAPACITY = 16;
+
+    private static final long[] NO_TIMESTAMPS = new long[0];
+    private static final double[] NO_PRICES = new double[0];
+
+    private final String symbol;
+    private final long[] timestamps;
+    private final double[] prices;
+    private final int size;
+
+    /**
+     * How much of the shared backing arrays has been handed out to some series. Only the series ending there may
+     * append in place; any other series copies first.
+     */
+    private final AtomicInteger claimed;
+
+    /**
+     * Range min/max index, built on the first range query. Until then, {@code baseIndex} may hold the index of
+     * the series this one was appended to, whose block summaries are still valid for the shared prefix.
+     */
+    private volatile PriceRangeIndex rangeIndex;
+    private volatile PriceRangeIndex baseIndex;
+
+    private PriceSeries(String symbol, long[] timestamps, double[] prices, int size, AtomicInteger claimed) {
+        this(symbol, timestamps, prices, size, claimed, null);
+    }
+
+    private PriceSeries(String symbol, long[] timestamps, double[] prices, int size, AtomicInteger claimed,
+                        PriceRangeIndex baseIndex) {
+        this.symbol = symbol;
+        this.timestamps = timestamps;
+        this.prices = prices;
+        this.size = size;
+        this.claimed = claimed;
+        this.baseIndex = baseIndex;
+    }
+
+    public static Builder builder(String symbol) {
+        return new Builder(symbol, 0);
+    }
+
+    /**
+     * Returns a builder with room for {@code expectedTicks} ticks before it has to grow.
+     */
+    public static Builder builder(String symbol, int expectedTicks) {
+        return new Builder(symbol, expectedTicks);
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    int capacity() {
+        return timestamps.length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long timestampAt(int index) {
+        checkIndex(index);
+        return timestamps[index];
+    }
+
+    public double priceAt(int index) {
+        checkIndex(index);
+        return prices[index];
+    }
+
+    public long firstTimestamp() {
+        return timestampAt(0);
+    }
+
+    public long lastTimestamp() {
+        return timestampAt(size - 1);
+    }
+
+    /**
+     * Returns the lowest price among the ticks {@code [from, to)}, which must not be empty. Runs in time
+     * proportional to at most two {@value PriceRangeIndex#BLOCK_SIZE}-tick blocks, whatever the range length.
+     */
+    public double minPrice(int from, int to) {
+        checkRange(from, to);
+        return rangeIndex().min(prices, from, to);
+    }
+
+    /**
+     * Returns the highest price among the ticks {@code [from, to)}, which must not be empty. Runs in time
+     * proportional to at most two {@value PriceRangeIndex#BLOCK_SIZE}-tick blocks, whatever the range length.
+     */
+    public double maxPrice(int from, int to) {
+        checkRange(from, to);
+        return rangeIndex().max(prices, from, to);
+    }
+
+    /**
+     * Read-only view of the timestamp column, e.g. for writing it out in bulk.
+     */
+    public LongBuffer timestampColumn() {
+        return LongBuffer.wrap(timestamps, 0, size).asReadOnlyBuffer();
+    }
+
+    /**
+     * Read-only view of the price column, e.g. for writing it out in bulk.
+     */
+    public DoubleBuffer priceColumn() {
+        return DoubleBuffer.wrap(prices, 0, size).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the index of the first tick whose timestamp is greater than or equal to the given epoch millis,
+     * or {@link #size()} if there is none.
+     */
+    public int lowerBound(long epochMillis) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < epochMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns a series holding the ticks of this series followed by those of {@code tail}.
+     * <p>
+     * When the tail starts at or after the last tick, it is copied after the existing ticks, in place if there is
+     * spare capacity. Otherwise both sorted runs are merged into new arrays, existing ticks first on equal timestamps.
+     */
+    public PriceSeries append(PriceSeries tail) {
+        if (tail.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return new PriceSeries(symbol, tail.timestamps, tail.prices, tail.size, tail.claimed);
+        }
+
+        int newSize = size + tail.size;
+        if (tail.firstTimestamp() >= lastTimestamp()) {
+            if (newSize <= timestamps.length && claimed.compareAndSet(size, newSize)) {
+                System.arraycopy(tail.timestamps, 0, timestamps, size, tail.size);
+                System.arraycopy(tail.prices, 0, prices, size, tail.size);
+                return new PriceSeries(symbol, timestamps, prices, newSize, claimed, rangeIndex);
+            }
+            int capacity = capacityFor(Math.max(newSize, size + (size >> 1)));
+            long[] newTimestamps = Arrays.copyOf(timestamps, capacity);
+            double[] newPrices = Arrays.copyOf(prices, capacity);
+            System.arraycopy(tail.timestamps, 0, newTimestamps, size, tail.size);
+            System.arraycopy(tail.prices, 0, newPrices, size, tail.size);
+            return new PriceSeries(symbol, newTimestamps, newPrices, newSize, new AtomicInteger(newSize), rangeIndex);
+        }
+
+        int capacity = capacityFor(newSize);
+        long[] newTimestamps = new long[capacity];
+        double[] newPrices = new double[capacity];
+        int left = 0;
+        int right = 0;
+        int out = 0;
+        while (left < size && right < tail.size) {
+            if (tail.timestamps[right] < timestamps[left]) {
+                newTimestamps[out] = tail.timestamps[right];
+                newPrices[out++] = tail.prices[right++];
+            } else {
+                newTimestamps[out] = timestamps[left];
+                newPrices[out++] = prices[left++];
+            }
+        }
+        System.arraycopy(timestamps, left, newTimestamps, out, size - left);
+        System.arraycopy(prices, left, newPrices, out, size - left);
+        out += size - left;
+        System.arraycopy(tail.timestamps, right, newTimestamps, out, tail.size - right);
+        System.arraycopy(tail.prices, right, newPrices, out, tail.size - right);
+        return new PriceSeries(symbol, newTimestamps, newPrices, newSize, new AtomicInteger(newSize));
+    }
+
+    /**
+     * Returns the ticks after the given epoch millis, which is this series itself if all of them are.
+     */
+    public PriceSeries after(long epochMillis) {
+        int from = epochMillis == Long.MAX_VALUE ? size : lowerBound(epochMillis + 1);
+        if (from == 0) {
+            return this;
+        }
+        return builder(symbol).addAll(timestampColumn().position(from), priceColumn().position(from)).build();
+    }
+
+    /**
+     * Returns the ticks whose timestamp does not occur in {@code other}, which is this series itself if none does.
+     * Runs in time proportional to this series plus the ticks of {@code other} within its time range.
+     */
+    public PriceSeries excluding(PriceSeries other) {
+        if (isEmpty() || other.isEmpty() || other.lastTimestamp() < firstTimestamp() || other.firstTimestamp() > lastTimestamp()) {
+            return this;
+        }
+        Builder kept = null;
+        int match = other.lowerBound(firstTimestamp());
+        for (int i = 0; i < size; i++) {
+            while (match < other.size && other.timestamps[match] < timestamps[i]) {
+                match++;
+            }
+            boolean shared = match < other.size && other.timestamps[match] == timestamps[i];
+            if (shared && kept == null) {
+                kept = builder(symbol).addAll(LongBuffer.wrap(timestamps, 0, i), DoubleBuffer.wrap(prices, 0, i));
+            } else if (!shared && kept != null) {
+                kept.add(timestamps[i], prices[i]);
+            }
+        }
+        return kept == null ? this : kept.build();
+    }
+
+    /**
+     * Materializes a single tick as a {@link CryptoPrice}, for use at the REST boundary.
+     */
+    public CryptoPrice toCryptoPrice(int index) {
+        return new CryptoPrice(timestampAt(index), symbol, prices[index]);
+    }
+
+    private PriceRangeIndex rangeIndex() {
+        PriceRangeIndex index = rangeIndex;
+        if (index == null) {
+            // Racing builders produce equal indexes, so whichever is published last is as good as any
+            index = PriceRangeIndex.build(prices, size, baseIndex);
+            rangeIndex = index;
+            baseIndex = null;
+        }
+        return index;
+    }
+
+    private void checkRange(int from, int to) {
+        if (from < 0 || to > size || from >= to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds or empty for length " + size);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+    }
+
+    /**
+     * Accumulates ticks in arrival order and produces a timestamp-sorted {@link PriceSeries}. Nothing is allocated
+     * until the first tick, without a size hint, nor after {@link #build()} until the next one.
+     */
+    public static final class Builder {
+
+        private final String symbol;
+        private long[] timestamps = NO_TIMESTAMPS;
+        private double[] prices = NO_PRICES;
+        private int size;
+        private boolean sorted = true;
+
+        private Builder(String symbol, int expectedTicks) {
+            this.symbol = symbol;
+            if (expectedTicks > 0) {
+                resize(capacityFor(expectedTicks));
+            }
+        }
+
+        public Builder add(long epochMillis, double price) {
+            if (size == timestamps.length) {
+                resize(capacityFor(Math.max(size + 1, size + (size >> 1))));
+            }
+            if (size > 0 && epochMillis < timestamps[size - 1]) {
+                sorted = false;
+            }
+            timestamps[size] = epochMillis;
+            prices[size] = price;
+            size++;
+            return this;
+        }
+
+        /**
+         * Adds the remaining ticks of two equally long column buffers in bulk.
+         */
+        public Builder addAll(LongBuffer newTimestamps, DoubleBuffer newPrices) {
+            int count = newTimestamps.remaining();
+            if (newPrices.remaining() != count) {
+                throw new IllegalArgumentException("Column lengths differ: " + count + " timestamps, "
+                        + newPrices.remaining() + " prices");
+            }
+            if (size + count > timestamps.length) {
+                resize(capacityFor(Math.max(size + count, timestamps.length + (timestamps.length >> 1))));
+            }
+            int start = size;
+            newTimestamps.get(timestamps, start, count);
+            newPrices.get(prices, start, count);
+            size += count;
+            for (int i = Math.max(1, start); sorted && i < size; i++) {
+                if (timestamps[i] < timestamps[i - 1]) {
+                    sorted = false;
+                }
+            }
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public PriceSeries build() {
+            if (!sorted) {
+                sortByTimestamp(timestamps, prices, size);
+                sorted = true;
+            }
+            // Arrays with no more spare room than a series of this size would get are handed over without a copy
+            int capacity = size == 0 ? 0 : capacityFor(size);
+            long[] builtTimestamps = timestamps.length <= capacity ? timestamps : Arrays.copyOf(timestamps, capacity);
+            double[] builtPrices = prices.length <= capacity ? prices : Arrays.copyOf(prices, capacity);
+            PriceSeries series = new PriceSeries(symbol, builtTimestamps, builtPrices, size, new AtomicInteger(size));
+
+            // The built series owns the arrays now; the builder allocates again only if more ticks are added
+            timestamps = NO_TIMESTAMPS;
+            prices = NO_PRICES;
+            size = 0;
+            return series;
+        }
+
+        int capacity() {
+            return timestamps.length;
+        }
+
+        private void resize(int capacity) {
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+        }
+    }
+
+    /**
+     * Backing array length for a series of {@code length} ticks: the next power of two up to a chunk, and whole
+     * chunks beyond it.
+     */
+    static int capacityFor(int length) {
+        if (length <= MIN_CAPACITY) {
+            return MIN_CAPACITY;
+        }
+        if (length <= CHUNK_SIZE) {
+            return Integer.highestOneBit(length - 1) << 1;
+        }
+        int chunks = (length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return chunks * CHUNK_SIZE;
+    }
+
+
+    /**
+     * Stable bottom-up merge sort of both columns by timestamp, so ticks sharing a timestamp keep arrival order.
+     */
+    static void sortByTimestamp(long[] timestamps, double[] prices, int size) {
+        long[] srcTimestamps = timestamps;
+        double[] srcPrices = prices;
+        long[] dstTimestamps = new long[size];
+        double[] dstPrices = new double[size];
+
+        for (int width = 1; width < size; width <<= 1) {
+            for (int low = 0; low < size; low += width << 1) {
+                int mid = Math.min(low + width, size);
+                int high = Math.min(low + (width << 1), size);
+                int left = low;
+                int right = mid;
+                int out = low;
+                while (left < mid && right < high) {
+                    if (srcTimestamps[right] < srcTimestamps[left]) {
+                        dstTimestamps[out] = srcTimestamps[right];
+                        dstPrices[out++] = srcPrices[right++];
+                    } else {
+                        dstTimestamps[out] = srcTimestamps[left];
+                        dstPrices[out++] = srcPrices[left++];
+                    }
+                }
+                while (left < mid) {
+                    dstTimestamps[out] = srcTimestamps[left];
+                    dstPrices[out++] = srcPrices[left++];
+                }
+                while (right < high) {
+                    dstTimestamps[out] = srcTimestamps[right];
+                    dstPrices[out++] = srcPrices[right++];
+                }
+            }
+            long[] swapTimestamps = srcTimestamps;
+            srcTimestamps = dstTimestamps;
+            dstTimestamps = swapTimestamps;
+            double[] swapPrices = srcPrices;
+            srcPrices = dstPrices;
+            dstPrices = swapPrices;
+        }
+
+        if (srcTimestamps != timestamps) {
+            System.arraycopy(srcTimestamps, 0, timestamps, 0, size);
+            System.arraycopy(srcPrices, 0, prices, 0, size);
+        }
+    }
+}
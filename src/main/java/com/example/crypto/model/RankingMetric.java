@@ -0,0 +1,88 @@
+package com.example.crypto.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+/**
+ * What symbols can be ranked by, each in its own direction: the widest range and the strongest momentum first, the
+ * least volatile and the smallest drawdown first. Apart from the normalized range, every metric is read from the
+ * {@link StreamingMetrics} kept with the whole-history statistics, so ranking by one never looks at the ticks.
+ */
+public enum RankingMetric {
+    NORMALIZED_RANGE("normalizedRange", true, CryptoStatistics::getNormalizedRange),
+    VOLATILITY("volatility", false, statistics -> statistics.getMetrics().getVolatility()),
+    /**
+     * Newest price relative to its simple moving average, so symbols at different price levels compare.
+     */
+    SMA("sma", true, statistics -> statistics.getNewestPrice() / statistics.getMetrics().getSma() - 1),
+    /**
+     * Newest price relative to its exponential moving average.
+     */
+    EMA("ema", true, statistics -> statistics.getNewestPrice() / statistics.getMetrics().getEma() - 1),
+    MAX_DRAWDOWN("maxDrawdown", false, statistics -> statistics.getMetrics().getMaxDrawdown());
+
+    private final String label;
+    private final boolean highestFirst;
+    private final ToDoubleFunction<CryptoStatistics> value;
+    private final Comparator<CryptoStatistics> order;
+
+    RankingMetric(String label, boolean highestFirst, ToDoubleFunction<CryptoStatistics> value) {
+        this.label = label;
+        this.highestFirst = highestFirst;
+        this.value = value;
+        Comparator<CryptoStatistics> byValue = Comparator.comparingDouble(value);
+        this.order = (highestFirst ? byValue : byValue.reversed())
+                .thenComparing(CryptoStatistics::getSymbol, Comparator.reverseOrder());
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Whether higher values rank first; otherwise the lowest value is the best.
+     */
+    public boolean isHighestFirst() {
+        return highestFirst;
+    }
+
+    /**
+     * Whether the metric is kept for the whole history only, rather than evaluated over any time window.
+     */
+    public boolean isStreaming() {
+        return this != NORMALIZED_RANGE;
+    }
+
+    public double valueOf(CryptoStatistics statistics) {
+        return value.applyAsDouble(statistics);
+    }
+
+    /**
+     * Ascending from the worst to the best value, ties broken by symbol so that the alphabetically first one ranks
+     * best. The precomputed ranking and every top-K selection use it, so tied symbols always come out in the same
+     * order.
+     */
+    public Comparator<CryptoStatistics> getOrder() {
+        return order;
+    }
+
+    /**
+     * Returns the normalized range for a missing label.
+     *
+     * @throws IllegalArgumentException if the label is not one of the metrics
+     */
+    public static RankingMetric parse(String label) {
+        if (label == null || label.isBlank()) {
+            return NORMALIZED_RANGE;
+        }
+        for (RankingMetric metric : values()) {
+            if (metric.label.equalsIgnoreCase(label.trim())) {
+                return metric;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported sortBy: " + label + ", expected one of "
+                + Arrays.stream(values()).map(RankingMetric::getLabel).collect(Collectors.joining(", ")));
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.crypto.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Log returns of several series aligned on a common time grid, one point per candle bucket starting in
+ * {@code [bucketOf(from), to)}, for pairwise correlations.
+ * <p>
+ * A series' price at a point is the close of that bucket, carried forward over buckets without ticks, and its return
+ * at a point is the log return from the previous point. Returns are only defined from a series' second bucket with
+ * ticks up to its last one, so a pair is compared where both are defined; carrying a price forward past the last
+ * tick would otherwise add zero returns that never happened. Returns into or out of a non-positive price are taken
+ * as 0. Each series only stores its defined returns, as a primitive array, with prefix sums of them and of their
+ * squares, so a pair only needs one dot product over their common points.
+ */
+public final class ReturnGrid {
+
+    private final CandleInterval interval;
+    private final long start;
+    private final int points;
+    private final List<String> symbols;
+    private final double[][] returns;
+    private final double[][] sums;
+    private final double[][] squares;
+    private final int[] firsts;
+
+    private ReturnGrid(CandleInterval interval, long start, int points, List<String> symbols, double[][] returns, int[] firsts) {
+        this.interval = interval;
+        this.start = start;
+        this.points = points;
+        this.symbols = symbols;
+        this.returns = returns;
+        this.firsts = firsts;
+        this.sums = new double[returns.length][];
+        this.squares = new double[returns.length][];
+        for (int i = 0; i < returns.length; i++) {
+            double[] column = returns[i];
+            sums[i] = new double[column.length + 1];
+            squares[i] = new double[column.length + 1];
+            for (int k = 0; k < column.length; k++) {
+                sums[i][k + 1] = sums[i][k] + column[k];
+                squares[i][k + 1] = squares[i][k] + column[k] * column[k];
+            }
+        }
+    }
+
+    /**
+     * Aligns every symbol with at least one return in the window, ordered by symbol. Either bound may be
+     * {@code null} to span all ticks on that side.
+     *
+     * @throws IllegalArgumentException if the grid would have more than {@code maxPoints} points
+     */
+    public static ReturnGrid of(Collection<SymbolData> symbols, CandleInterval interval, Long from, Long to, int maxPoints) {
+        List<SymbolData> sorted = new ArrayList<>();
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (SymbolData data : symbols) {
+            PriceSeries series = data.getSeries();
+            if (!series.isEmpty()) {
+                sorted.add(data);
+                first = Math.min(first, series.firstTimestamp());
+                last = Math.max(last, series.lastTimestamp());
+            }
+        }
+        sorted.sort(Comparator.comparing(SymbolData::getSymbol));
+        long start = interval.bucketOf(from != null ? from : sorted.isEmpty() ? 0 : first);
+        long end = to != null ? to : sorted.isEmpty() ? start : last + 1;
+        long points = Math.max(0, Math.ceilDiv(end - start, interval.getMillis()));
+        if (points > maxPoints) {
+            throw new IllegalArgumentException("The window spans " + points + " " + interval.getLabel()
+                    + " intervals, more than " + maxPoints + "; narrow the window or use a coarser interval");
+        }
+
+        List<String> names = new ArrayList<>();
+        List<double[]> columns = new ArrayList<>();
+        int[] firsts = new int[sorted.size()];
+        for (SymbolData data : sorted) {
+            CandleRollup candles = data.getCandles().select(data.getSeries(), interval, start, end);
+            int lo = candles.lowerBound(start);
+            int hi = candles.lowerBound(end);
+            if (hi - lo < 2) {
+                continue;
+            }
+            int firstPoint = point(candles.startAt(lo), start, interval);
+            double[] column = new double[point(candles.startAt(hi - 1), start, interval) - firstPoint];
+            double previous = candles.closeAt(lo);
+            for (int i = lo + 1; i < hi; i++) {
+                double close = candles.closeAt(i);
+                if (previous > 0 && close > 0) {
+                    column[point(candles.startAt(i), start, interval) - firstPoint - 1] = Math.log(close / previous);
+                }
+                previous = close;
+            }
+            firsts[names.size()] = firstPoint + 1;
+            names.add(data.getSymbol());
+            columns.add(column);
+        }
+        return new ReturnGrid(interval, start, (int) points, List.copyOf(names),
+                columns.toArray(new double[0][]), Arrays.copyOf(firsts, names.size()));
+    }
+
+    private static int point(long bucketStart, long start, CandleInterval interval) {
+        return (int) ((bucketStart - start) / interval.getMillis());
+    }
+
+    public CandleInterval getInterval() {
+        return interval;
+    }
+
+    /**
+     * Start of the first point, in epoch millis.
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * End of the last point, exclusive, in epoch millis.
+     */
+    public long getEnd() {
+        return start + points * interval.getMillis();
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    public List<String> getSymbols() {
+        return symbols;
+    }
+
+    public int size() {
+        return symbols.size();
+    }
+
+    /**
+     * Pearson correlation of the returns of two series at the points where both are defined, or {@code NaN} if they
+     * share fewer than two points or either is constant there.
+     */
+    public double correlation(int i, int j) {
+        double[] x = returns[i];
+        double[] y = returns[j];
+        int from = Math.max(firsts[i], firsts[j]);
+        int to = Math.min(firsts[i] + x.length, firsts[j] + y.length);
+        int n = to - from;
+        if (n < 2) {
+            return Double.NaN;
+        }
+        int xOffset = from - firsts[i];
+        int yOffset = from - firsts[j];
+        double sumX = sums[i][xOffset + n] - sums[i][xOffset];
+        double sumY = sums[j][yOffset + n] - sums[j][yOffset];
+        double sumXX = squares[i][xOffset + n] - squares[i][xOffset];
+        double sumYY = squares[j][yOffset + n] - squares[j][yOffset];
+        double sumXY = dot(x, xOffset, y, yOffset, n);
+        double varianceX = sumXX - sumX * sumX / n;
+        double varianceY = sumYY - sumY * sumY / n;
+        if (varianceX <= 0 || varianceY <= 0) {
+            return Double.NaN;
+        }
+        double correlation = (sumXY - sumX * sumY / n) / Math.sqrt(varianceX * varianceY);
+        return Math.max(-1, Math.min(1, correlation));
+    }
+
+    /**
+     * Dot product over four independent accumulators, so the loop is bound by throughput rather than by one chain of
+     * dependent additions.
+     */
+    private static double dot(double[] x, int xOffset, double[] y, int yOffset, int n) {
+        double s0 = 0;
+        double s1 = 0;
+        double s2 = 0;
+        double s3 = 0;
+        int k = 0;
+        for (; k + 3 < n; k += 4) {
+            s0 += x[xOffset + k] * y[yOffset + k];
+            s1 += x[xOffset + k + 1] * y[yOffset + k + 1];
+            s2 += x[xOffset + k + 2] * y[yOffset + k + 2];
+            s3 += x[xOffset + k + 3] * y[yOffset + k + 3];
+        }
+        for (; k < n; k++) {
+            s0 += x[xOffset + k] * y[yOffset + k];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+}
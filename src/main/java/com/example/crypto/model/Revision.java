@@ -0,0 +1,20 @@
+package com.example.crypto.model;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Identifies a state of the dataset or of one symbol: the dataset version that produced it and when that version
+ * was published.
+ */
+@Value
+public class Revision {
+    /**
+     * Random identifier shared by all versions published from the same initially empty dataset. Versions count from
+     * zero again in every process, so only together with it do they tell states apart across restarts and replicas.
+     */
+    String lineage;
+    long version;
+    Instant modifiedAt;
+}
@@ -0,0 +1,43 @@
+package com.example.crypto.model;
+
+import lombok.Value;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * What gets derived from every loaded series: daily rollups in the given zones, candles at the given intervals and
+ * moving averages over the given number of ticks.
+ */
+@Value
+public class RollupSettings {
+
+    public static final int DEFAULT_METRICS_WINDOW = 20;
+
+    /**
+     * Days in UTC, candles at every interval and the default moving average window.
+     */
+    public static final RollupSettings DEFAULT = of(RollupZones.UTC, EnumSet.allOf(CandleInterval.class), DEFAULT_METRICS_WINDOW);
+
+    RollupZones zones;
+    Set<CandleInterval> candleIntervals;
+    int metricsWindow;
+
+    /**
+     * @throws IllegalArgumentException if the moving average window is not positive
+     */
+    public static RollupSettings of(RollupZones zones, Set<CandleInterval> candleIntervals, int metricsWindow) {
+        if (metricsWindow < 1) {
+            throw new IllegalArgumentException("Moving average window must be positive: " + metricsWindow);
+        }
+        Set<CandleInterval> intervals = candleIntervals.isEmpty()
+                ? EnumSet.noneOf(CandleInterval.class)
+                : EnumSet.copyOf(candleIntervals);
+        return new RollupSettings(zones, Collections.unmodifiableSet(intervals), metricsWindow);
+    }
+
+    public RollupSettings withZones(RollupZones zones) {
+        return of(zones, candleIntervals, metricsWindow);
+    }
+}
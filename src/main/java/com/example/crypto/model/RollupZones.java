@@ -0,0 +1,62 @@
+package com.example.crypto.model;
+
+import lombok.Value;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The zones whose calendar days the daily rollups are built for: the primary zone, used whenever a request does not
+ * name one, and any additional zones requests may ask for. Zone ids are normalized, so {@code UTC} and {@code Z}
+ * are the same zone.
+ */
+@Value
+public class RollupZones {
+
+    public static final RollupZones UTC = of(ZoneOffset.UTC, List.of());
+
+    ZoneId primary;
+    List<ZoneId> additional;
+
+    public static RollupZones of(ZoneId primary, List<ZoneId> additional) {
+        ZoneId normalizedPrimary = primary.normalized();
+        List<ZoneId> normalized = new ArrayList<>();
+        for (ZoneId zone : additional) {
+            ZoneId candidate = zone.normalized();
+            if (!candidate.equals(normalizedPrimary) && !normalized.contains(candidate)) {
+                normalized.add(candidate);
+            }
+        }
+        return new RollupZones(normalizedPrimary, List.copyOf(normalized));
+    }
+
+    /**
+     * Resolves the zone a request asked for, the primary zone if it named none.
+     *
+     * @throws IllegalArgumentException if the zone is not a valid zone id or has no rollups
+     */
+    public ZoneId resolve(String zone) {
+        if (zone == null || zone.isBlank()) {
+            return primary;
+        }
+        ZoneId requested;
+        try {
+            requested = ZoneId.of(zone.trim()).normalized();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid zone: " + zone);
+        }
+        if (!requested.equals(primary) && !additional.contains(requested)) {
+            throw new IllegalArgumentException("No daily rollups for zone " + zone + ", available: " + all());
+        }
+        return requested;
+    }
+
+    public List<ZoneId> all() {
+        List<ZoneId> all = new ArrayList<>(additional.size() + 1);
+        all.add(primary);
+        all.addAll(additional);
+        return all;
+    }
+}
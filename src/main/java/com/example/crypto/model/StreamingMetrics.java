@@ -0,0 +1,130 @@
+package com.example.crypto.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Value;
+
+/**
+ * Metrics of a whole series that are built in one pass over its ticks and carried forward as ticks are appended, so
+ * an append only looks at the new ticks and never at the history again.
+ * <p>
+ * Volatility is the sample standard deviation of tick-to-tick log returns, kept with Welford's algorithm. Returns
+ * into or out of a non-positive price are skipped. Appending ticks to a series gives exactly the metrics of building
+ * them from the whole series, since both run the same updates in the same order.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class StreamingMetrics {
+
+    /**
+     * Number of most recent ticks the moving averages cover.
+     */
+    int window;
+
+    /**
+     * Simple moving average of the last {@link #window} prices.
+     */
+    double sma;
+
+    /**
+     * Exponential moving average with a smoothing factor of {@code 2 / (window + 1)}, seeded with the first price.
+     */
+    double ema;
+
+    /**
+     * Largest fall from a running peak to a later price, as a fraction of the peak.
+     */
+    double maxDrawdown;
+
+    @Getter(AccessLevel.NONE)
+    long returns;
+
+    @Getter(AccessLevel.NONE)
+    double meanReturn;
+
+    /**
+     * Sum of squared deviations of the log returns from their mean, Welford's M2.
+     */
+    @Getter(AccessLevel.NONE)
+    double squaredDeviations;
+
+    @Getter(AccessLevel.NONE)
+    double lastPrice;
+
+    @Getter(AccessLevel.NONE)
+    double peak;
+
+    /**
+     * Builds the metrics of a timestamp-sorted series, or returns {@code null} for an empty series.
+     *
+     * @throws IllegalArgumentException if the window is not positive
+     */
+    public static StreamingMetrics of(PriceSeries series, int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Moving average window must be positive: " + window);
+        }
+        if (series.isEmpty()) {
+            return null;
+        }
+        return new StreamingMetrics(window, Double.NaN, Double.NaN, 0, 0, 0, 0, Double.NaN, Double.NaN)
+                .followedBy(series, 0);
+    }
+
+    /**
+     * Returns the metrics with the ticks {@code [from, size)} of {@code series} taken in, where the ticks before
+     * {@code from} are the ones these metrics were built from.
+     */
+    public StreamingMetrics followedBy(PriceSeries series, int from) {
+        if (from >= series.size()) {
+            return this;
+        }
+        double alpha = 2.0 / (window + 1);
+        double ema = this.ema;
+        double maxDrawdown = this.maxDrawdown;
+        long returns = this.returns;
+        double meanReturn = this.meanReturn;
+        double squaredDeviations = this.squaredDeviations;
+        double lastPrice = this.lastPrice;
+        double peak = this.peak;
+        for (int i = from; i < series.size(); i++) {
+            double price = series.priceAt(i);
+            if (Double.isNaN(lastPrice)) {
+                ema = price;
+                peak = price;
+            } else {
+                ema += alpha * (price - ema);
+                if (lastPrice > 0 && price > 0) {
+                    double logReturn = Math.log(price / lastPrice);
+                    returns++;
+                    double delta = logReturn - meanReturn;
+                    meanReturn += delta / returns;
+                    squaredDeviations += delta * (logReturn - meanReturn);
+                }
+                peak = Math.max(peak, price);
+            }
+            if (peak > 0) {
+                maxDrawdown = Math.max(maxDrawdown, (peak - price) / peak);
+            }
+            lastPrice = price;
+        }
+        return new StreamingMetrics(window, sma(series, window), ema, maxDrawdown,
+                returns, meanReturn, squaredDeviations, lastPrice, peak);
+    }
+
+    /**
+     * Sample standard deviation of the log returns, 0 with fewer than two of them.
+     */
+    public double getVolatility() {
+        return returns < 2 ? 0 : Math.sqrt(squaredDeviations / (returns - 1));
+    }
+
+    private static double sma(PriceSeries series, int window) {
+        int start = Math.max(0, series.size() - window);
+        double sum = 0;
+        for (int i = start; i < series.size(); i++) {
+            sum += series.priceAt(i);
+        }
+        return sum / (series.size() - start);
+    }
+}
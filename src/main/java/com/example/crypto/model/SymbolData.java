@@ -0,0 +1,101 @@
+package com.example.crypto.model;
+
+import lombok.Value;
+
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Everything loaded for one crypto symbol: its price series plus the statistics, streaming metrics, daily rollups and
+ * candles derived from it at load time.
+ */
+@Value
+public class SymbolData {
+    String symbol;
+    PriceSeries series;
+    CryptoStatistics statistics;
+
+    /**
+     * Daily rollup in the primary zone.
+     */
+    DailyRollup daily;
+
+    /**
+     * Daily rollups in the additional zones, keyed by zone.
+     */
+    Map<ZoneId, DailyRollup> zoneDailies;
+
+    /**
+     * Candle levels at the configured intervals.
+     */
+    Candles candles;
+
+    /**
+     * What the derived data was built with, reused when ticks are appended.
+     */
+    RollupSettings settings;
+
+    /**
+     * Builds the derived data with the {@linkplain RollupSettings#DEFAULT default settings}.
+     */
+    public static SymbolData of(PriceSeries series) {
+        return of(series, RollupSettings.DEFAULT);
+    }
+
+    public static SymbolData of(PriceSeries series, RollupSettings settings) {
+        return of(series, DailyRollup.of(series, settings.getZones().getPrimary()), settings);
+    }
+
+    /**
+     * Combines a series with a primary-zone rollup previously built from it, deriving the statistics from the rollup
+     * and building the streaming metrics, the rollups of the additional zones and the candles.
+     */
+    public static SymbolData of(PriceSeries series, DailyRollup daily, RollupSettings settings) {
+        Map<ZoneId, DailyRollup> zoneDailies = new LinkedHashMap<>();
+        for (ZoneId zone : settings.getZones().getAdditional()) {
+            zoneDailies.put(zone, DailyRollup.of(series, zone));
+        }
+        CryptoStatistics statistics = CryptoStatistics.summarize(series.getSymbol(), daily);
+        return new SymbolData(
+                series.getSymbol(),
+                series,
+                statistics == null ? null : statistics.withMetrics(StreamingMetrics.of(series, settings.getMetricsWindow())),
+                daily,
+                Map.copyOf(zoneDailies),
+                Candles.of(series, settings.getCandleIntervals()),
+                settings);
+    }
+
+    /**
+     * Returns the daily rollup in the given zone, or {@code null} if none was built for it.
+     */
+    public DailyRollup dailyIn(ZoneId zone) {
+        return daily.getZone().equals(zone) ? daily : zoneDailies.get(zone);
+    }
+
+    /**
+     * Returns the data with {@code tail} appended. Ticks that arrive in order only cost work proportional to the
+     * tail; anything older than the current last tick forces the derived data to be rebuilt.
+     */
+    public SymbolData append(PriceSeries tail) {
+        if (tail.isEmpty()) {
+            return this;
+        }
+        PriceSeries merged = series.append(tail);
+        if (series.isEmpty() || tail.firstTimestamp() < series.lastTimestamp()) {
+            return of(merged, settings);
+        }
+        Map<ZoneId, DailyRollup> appended = new LinkedHashMap<>();
+        zoneDailies.forEach((zone, rollup) -> appended.put(zone, rollup.followedBy(DailyRollup.of(tail, zone))));
+        return new SymbolData(
+                symbol,
+                merged,
+                statistics.followedBy(CryptoStatistics.summarize(tail))
+                        .withMetrics(statistics.getMetrics().followedBy(merged, series.size())),
+                daily.followedBy(DailyRollup.of(tail, daily.getZone())),
+                Map.copyOf(appended),
+                candles.followedBy(merged, tail),
+                settings);
+    }
+}
@@ -2,50 +2,275 @@ package com.example.crypto.service;
 
 import com.example.crypto.exception.CryptoDataProcessingException;
 import com.example.crypto.exception.FileLoadingException;
-import com.example.crypto.model.CryptoPrice;
-import com.opencsv.CSVReader;
+import com.example.crypto.model.CandleInterval;
+import com.example.crypto.model.DatasetSnapshot;
+import com.example.crypto.model.PriceSeries;
+import com.example.crypto.model.Revision;
+import com.example.crypto.model.RollupSettings;
+import com.example.crypto.model.RollupZones;
+import com.example.crypto.model.SymbolData;
 import jakarta.annotation.PostConstruct;
-import lombok.Getter;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 public class CryptoDataLoader {
 
-    @Getter
-    private final Map<String, List<CryptoPrice>> cryptoData = new HashMap<>();
+    /**
+     * Number of bytes before a file's consumed offset remembered to detect files rewritten in place.
+     */
+    private static final int FINGERPRINT_LENGTH = 64;
+
+    static final String DATA_FILE_SUFFIX = "_values.csv";
+
+    /**
+     * The currently published data. Readers never lock; refreshes publish a new snapshot with a single swap.
+     */
+    private final AtomicReference<DatasetSnapshot> snapshot = new AtomicReference<>(DatasetSnapshot.empty());
+
+    /**
+     * What the last scan saw of each file, keyed by file name. Only touched while holding {@link #refreshLock}.
+     */
+    private final Map<String, FileState> fileStates = new HashMap<>();
+
+    /**
+     * Serializes the scheduled scan and watcher-triggered refreshes, so only one thread builds the next snapshot.
+     */
+    private final ReentrantLock refreshLock = new ReentrantLock();
     private static final Logger logger = LoggerFactory.getLogger(CryptoDataLoader.class);
 
     @Value("${crypto.directory.path}")
     private String cryptoFolderPath;  // Configurable path to the crypto directory
 
+    @Value("${crypto.load.parallelism:0}")
+    private int loadParallelism;  // Files parsed concurrently, 0 means one per available processor
+
+    @Value("${crypto.snapshot.path:}")
+    private String snapshotPath;  // Directory for binary snapshots of the loaded data, empty to disable them
+
+    @Value("${crypto.time-zone:UTC}")
+    private String timeZone;  // Zone whose calendar days the daily rollups are bucketed by
+
+    @Value("${crypto.rollup-zones:}")
+    private List<String> rollupZoneIds;  // Additional zones with daily rollups, requested per query
+
+    @Value("${crypto.candles.intervals:1m,5m,1h,1d}")
+    private List<String> candleIntervalLabels;  // Candle intervals kept per symbol, others are built per query
+
+    @Value("${crypto.metrics.window:20}")
+    private int metricsWindow;  // Ticks covered by the moving averages, 0 for the default
+
+    private volatile RollupZones rollupZones;
+    private volatile Set<CandleInterval> candleIntervals;
+    private volatile RollupSettings rollupSettings;
+
+    /**
+     * Data files whose symbol changed since its snapshot was last written. Only touched while holding
+     * {@link #refreshLock}.
+     */
+    private final Set<String> unsavedFiles = new HashSet<>();
+
+    /**
+     * The unsaved files that were parsed from scratch since their snapshot was last written, as opposed to only
+     * appended to. Only touched while holding {@link #refreshLock}.
+     */
+    private final Set<String> reloadedFiles = new HashSet<>();
+
+    /**
+     * Data files that disappeared since the last scan, whose snapshots are still to be deleted. Only touched while
+     * holding {@link #refreshLock}.
+     */
+    private final Set<String> removedFiles = new HashSet<>();
+
+    /**
+     * Serializes writing snapshots, which happens outside {@link #refreshLock}. Always taken before, never while
+     * holding, {@link #refreshLock}.
+     */
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    /**
+     * Ticks pushed through {@link #appendTicks(Map)} for symbols with a data file, after the newest tick read from
+     * that file, kept so that reloading a rewritten file does not drop them. Symbols without a data file only ever
+     * received pushed ticks, so their published series serves instead. Only touched while holding
+     * {@link #refreshLock}.
+     */
+    private final Map<String, PriceSeries> pushedTicks = new HashMap<>();
+
+    /**
+     * Newest tick read from each symbol's data file. The file is taken to contain every pushed tick up to it, so
+     * those are neither kept in {@link #pushedTicks} nor appended again. Only touched while holding
+     * {@link #refreshLock}.
+     */
+    private final Map<String, Long> fileCoverage = new HashMap<>();
+
+    private final MeterRegistry meterRegistry;
+    private final Counter rowsParsed;
+    private final Counter bytesRead;
+    private final Counter parseErrors;
+
+    public CryptoDataLoader() {
+        this(new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public CryptoDataLoader(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.rowsParsed = Counter.builder("crypto.ingest.rows")
+                .description("Price rows parsed from data files")
+                .register(meterRegistry);
+        this.bytesRead = Counter.builder("crypto.ingest.bytes")
+                .description("Bytes of data files parsed")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.parseErrors = Counter.builder("crypto.ingest.errors")
+                .description("Data files or regions that failed to parse")
+                .register(meterRegistry);
+        // Gauges are evaluated on scrape, from whatever snapshot is published at that moment
+        Gauge.builder("crypto.dataset.symbols", snapshot, current -> current.get().getSymbols().size())
+                .description("Symbols in the published dataset")
+                .register(meterRegistry);
+        Gauge.builder("crypto.dataset.ticks", snapshot, current -> totalTicks(current.get()))
+                .description("Price ticks in the published dataset")
+                .register(meterRegistry);
+        Gauge.builder("crypto.dataset.version", snapshot, current -> current.get().getVersion())
+                .description("Version of the published dataset")
+                .register(meterRegistry);
+        Gauge.builder("crypto.dataset.age", snapshot, current -> ageSeconds(current.get()))
+                .description("Time since the published dataset was built")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    private static double totalTicks(DatasetSnapshot snapshot) {
+        long ticks = 0;
+        for (SymbolData data : snapshot.getSymbols().values()) {
+            ticks += data.getSeries().size();
+        }
+        return ticks;
+    }
+
+    private static double ageSeconds(DatasetSnapshot snapshot) {
+        if (snapshot.getVersion() == 0) {
+            return Double.NaN;
+        }
+        return Duration.between(snapshot.getPublishedAt(), Instant.now()).toMillis() / 1_000.0;
+    }
+
+    public DatasetSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * The zones every loaded symbol has daily rollups for.
+     */
+    public RollupZones getRollupZones() {
+        RollupZones zones = rollupZones;
+        if (zones == null) {
+            ZoneId primary = timeZone == null || timeZone.isBlank() ? ZoneOffset.UTC : ZoneId.of(timeZone.trim());
+            List<ZoneId> additional = rollupZoneIds == null ? List.of() : rollupZoneIds.stream()
+                    .filter(id -> !id.isBlank())
+                    .map(id -> ZoneId.of(id.trim()))
+                    .toList();
+            zones = RollupZones.of(primary, additional);
+            rollupZones = zones;
+        }
+        return zones;
+    }
+
+    /**
+     * The candle intervals every loaded symbol keeps a level for.
+     */
+    public Set<CandleInterval> getCandleIntervals() {
+        Set<CandleInterval> intervals = candleIntervals;
+        if (intervals == null) {
+            intervals = EnumSet.noneOf(CandleInterval.class);
+            List<String> labels = candleIntervalLabels == null ? List.of("1m", "5m", "1h", "1d") : candleIntervalLabels;
+            for (String label : labels) {
+                if (!label.isBlank()) {
+                    intervals.add(CandleInterval.parse(label));
+                }
+            }
+            intervals = Collections.unmodifiableSet(intervals);
+            candleIntervals = intervals;
+        }
+        return intervals;
+    }
+
+    /**
+     * Everything derived from each loaded series.
+     */
+    public RollupSettings getRollupSettings() {
+        RollupSettings settings = rollupSettings;
+        if (settings == null) {
+            settings = RollupSettings.of(getRollupZones(), getCandleIntervals(),
+                    metricsWindow == 0 ? RollupSettings.DEFAULT_METRICS_WINDOW : metricsWindow);
+            rollupSettings = settings;
+        }
+        return settings;
+    }
+
     @PostConstruct
     public void init() {
         logger.info("Initializing CryptoDataLoader...");
-        scanCryptoDirectory();  // Initial scan on startup
+        restoreSnapshots();
+        scanCryptoDirectory();  // Initial scan on startup, which only parses files changed since their snapshot
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        saveSnapshots(true);
     }
 
     @Scheduled(fixedDelayString = "${crypto.scan.interval}")
     public void scanCryptoDirectory() {
         logger.info("Scanning crypto directory at path: {}", cryptoFolderPath);
 
+        refreshLock.lock();
         try {
             File cryptoFolder = new File(cryptoFolderPath);
 
@@ -54,56 +279,523 @@ public class CryptoDataLoader {
                 throw new FileLoadingException("Crypto directory does not exist or is not a directory: " + cryptoFolderPath);
             }
 
-            for (File file : Objects.requireNonNull(cryptoFolder.listFiles((dir, name) -> name.endsWith("_values.csv")))) {
-                String fileName = file.getName();
-                String cryptoSymbol = extractSymbolFromFileName(fileName);
+            File[] files = Objects.requireNonNull(cryptoFolder.listFiles((dir, name) -> name.endsWith(DATA_FILE_SUFFIX)));
+            long start = System.nanoTime();
+            List<FileRefresh> refreshes = refreshFiles(files);
+            apply(refreshes);
+            forgetRemovedFiles(files);
+            if (!refreshes.isEmpty()) {
+                logger.info("Refreshed {} of {} crypto files in {} ms", refreshes.size(), files.length,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+
+        } catch (Exception e) {
+            logger.error("Error occurred while scanning crypto directory: {}", cryptoFolderPath, e);
+            throw new CryptoDataProcessingException("Failed to scan crypto directory: " + cryptoFolderPath, e);
+        } finally {
+            refreshLock.unlock();
+        }
+        saveSnapshots(false);
+    }
+
+    /**
+     * Refreshes the symbol of a single data file, e.g. after a file system event. Paths that are not data files
+     * or no longer exist are ignored.
+     */
+    public void refreshCryptoFile(Path path) {
+        File file = path.toFile();
+        if (!file.isFile() || !file.getName().endsWith(DATA_FILE_SUFFIX)) {
+            logger.debug("Ignoring change to non-data file: {}", path);
+            return;
+        }
+
+        refreshLock.lock();
+        try {
+            FileRefresh refresh = refreshFile(file);
+            apply(refresh == null ? List.of() : List.of(refresh));
+        } catch (Exception e) {
+            logger.error("Error occurred while refreshing crypto file: {}", path, e);
+            throw new CryptoDataProcessingException("Failed to refresh crypto file: " + path, e);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Appends pushed ticks to their symbols, creating the symbols that have no data file, and publishes them all as
+     * one new version.
+     * <p>
+     * Ticks are identified by their timestamp: those at or before the newest tick read from the symbol's data file
+     * are taken to be in the file already, and those whose timestamp the symbol already has, e.g. from a retried
+     * push or a replayed log, are dropped. Symbols holding pushed ticks that their data file does not cover yet are
+     * not written to snapshots, since the ticks are replayed from their own log on startup.
+     *
+     * @return the revision of the dataset that contains the ticks
+     */
+    public Revision appendTicks(Map<String, PriceSeries> ticks) {
+        refreshLock.lock();
+        try {
+            DatasetSnapshot current = snapshot.get();
+            List<SymbolData> updated = new ArrayList<>();
+            for (PriceSeries series : ticks.values()) {
+                String symbol = series.getSymbol();
+                Long covered = fileCoverage.get(symbol);
+                SymbolData data = current.get(symbol);
+                PriceSeries fresh = series.after(covered == null ? Long.MIN_VALUE : covered);
+                if (data != null) {
+                    fresh = fresh.excluding(data.getSeries());
+                }
+                if (fresh.isEmpty()) {
+                    continue;
+                }
+                if (covered != null) {
+                    // The overlay starts from its own copy, so appending to it never claims room in the published series' arrays
+                    PriceSeries added = fresh;
+                    pushedTicks.compute(symbol, (key, pushed) -> pushed == null
+                            ? PriceSeries.builder(symbol).addAll(added.timestampColumn(), added.priceColumn()).build()
+                            : pushed.append(added));
+                }
+                updated.add(data == null ? SymbolData.of(fresh, getRollupSettings()) : data.append(fresh));
+            }
+            if (!updated.isEmpty()) {
+                DatasetSnapshot published = current.withSymbols(updated);
+                snapshot.set(published);
+                logger.debug("Published dataset version {} with pushed ticks for {} crypto symbols", published.getVersion(), updated.size());
+            }
+            return snapshot.get().getRevision();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * The pushed ticks that no data file covers yet, per symbol; everything the tick log still needs to keep.
+     */
+    public Map<String, PriceSeries> getUncoveredTicks() {
+        refreshLock.lock();
+        try {
+            Map<String, PriceSeries> uncovered = new LinkedHashMap<>(pushedTicks);
+            for (SymbolData data : snapshot.get().getSymbols().values()) {
+                if (!fileCoverage.containsKey(data.getSymbol())) {
+                    uncovered.put(data.getSymbol(), data.getSeries());
+                }
+            }
+            return uncovered;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Refreshes the given files concurrently on virtual threads, with at most {@code crypto.load.parallelism} files
+     * being parsed at a time. Nothing is published until every file is done.
+     */
+    private List<FileRefresh> refreshFiles(File[] files) throws Exception {
+        if (files.length <= 1) {
+            List<FileRefresh> refreshes = new ArrayList<>();
+            for (File file : files) {
+                FileRefresh refresh = refreshFile(file);
+                if (refresh != null) {
+                    refreshes.add(refresh);
+                }
+            }
+            return refreshes;
+        }
 
-                if (!cryptoData.containsKey(cryptoSymbol)) {
-                    logger.info("Loading data for crypto symbol: {}", cryptoSymbol);
-                    try (InputStream inputStream = new FileInputStream(file)) {
-                        List<CryptoPrice> prices = loadCryptoData(cryptoSymbol, inputStream);
-                        cryptoData.put(cryptoSymbol, prices);
-                        logger.info("Successfully loaded {} price records for crypto symbol: {}", prices.size(), cryptoSymbol);
-                    } catch (FileNotFoundException e) {
-                        logger.error("File not found: {}", fileName, e);
-                        throw new FileLoadingException("File not found: " + fileName);
+        int parallelism = loadParallelism > 0 ? loadParallelism : Runtime.getRuntime().availableProcessors();
+        Semaphore permits = new Semaphore(parallelism);
+        Queue<FileRefresh> refreshes = new ConcurrentLinkedQueue<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(files.length);
+            for (File file : files) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        FileRefresh refresh = refreshFile(file);
+                        if (refresh != null) {
+                            refreshes.add(refresh);
+                        }
+                    } finally {
+                        permits.release();
                     }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception cause) {
+                        throw cause;
+                    }
+                    throw e;
+                }
+            }
+        }
+        return new ArrayList<>(refreshes);
+    }
+
+    /**
+     * Records the new file states and, if any data changed, publishes a new snapshot containing it. Pushed ticks up
+     * to the newest tick of a refreshed file are dropped from {@link #pushedTicks}, as the file now covers them.
+     */
+    private void apply(List<FileRefresh> refreshes) {
+        List<SymbolData> updated = new ArrayList<>();
+        for (FileRefresh refresh : refreshes) {
+            fileStates.put(refresh.fileName(), refresh.state());
+            if (refresh.data() != null) {
+                String symbol = refresh.data().getSymbol();
+                PriceSeries pushed = pushedTicksOf(symbol);
+                PriceSeries uncovered = pushed == null ? null : pushed.after(refresh.newestFileTick());
+                if (uncovered == null || uncovered.isEmpty()) {
+                    pushedTicks.remove(symbol);
                 } else {
-                    logger.info("Data for crypto symbol: {} already loaded, skipping file: {}", cryptoSymbol, fileName);
+                    pushedTicks.put(symbol, uncovered);
+                }
+                fileCoverage.put(symbol, refresh.newestFileTick());
+                updated.add(refresh.data());
+                unsavedFiles.add(refresh.fileName());
+                if (refresh.reloaded()) {
+                    reloadedFiles.add(refresh.fileName());
                 }
             }
+        }
+        if (!updated.isEmpty()) {
+            DatasetSnapshot published = snapshot.get().withSymbols(updated);
+            snapshot.set(published);
+            logger.debug("Published dataset version {} with {} updated crypto symbols", published.getVersion(), updated.size());
+        }
+    }
 
-        } catch (Exception e) {
-            logger.error("Error occurred while scanning crypto directory: {}", cryptoFolderPath, e);
-            throw new CryptoDataProcessingException("Failed to scan crypto directory: " + cryptoFolderPath, e);
+    /**
+     * Forgets the state of data files that are no longer listed, so that a file reappearing under the same name is
+     * parsed from scratch, marks their snapshots for deletion and publishes a new snapshot without their symbols. A
+     * symbol holding pushed ticks that its file did not cover yet keeps only those, like a symbol that never had a
+     * data file.
+     */
+    private void forgetRemovedFiles(File[] files) {
+        Set<String> listed = new HashSet<>();
+        for (File file : files) {
+            listed.add(file.getName());
+        }
+        DatasetSnapshot current = snapshot.get();
+        List<SymbolData> pushedOnly = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        for (Iterator<String> fileNames = fileStates.keySet().iterator(); fileNames.hasNext(); ) {
+            String fileName = fileNames.next();
+            if (!listed.contains(fileName)) {
+                logger.info("Crypto file was removed: {}", fileName);
+                fileNames.remove();
+                unsavedFiles.remove(fileName);
+                reloadedFiles.remove(fileName);
+                removedFiles.add(fileName);
+
+                String symbol = extractSymbolFromFileName(fileName);
+                fileCoverage.remove(symbol);
+                PriceSeries pushed = pushedTicks.remove(symbol);
+                if (pushed != null) {
+                    pushedOnly.add(SymbolData.of(pushed, getRollupSettings()));
+                } else if (current.get(symbol) != null) {
+                    removed.add(symbol);
+                }
+            }
+        }
+        if (!pushedOnly.isEmpty() || !removed.isEmpty()) {
+            DatasetSnapshot published = current.withSymbols(pushedOnly, removed);
+            snapshot.set(published);
+            logger.debug("Published dataset version {} without {} removed crypto symbols", published.getVersion(), removed.size());
         }
     }
 
+    /**
+     * Publishes the symbols of all snapshots whose data file still exists, together with the file state each
+     * snapshot was taken at, and deletes the others. The following scan then validates them like any other loaded
+     * file: unchanged files are skipped, grown files are appended to, and everything else is parsed again.
+     * Unreadable snapshots are ignored, which leaves their files to be parsed.
+     */
+    private void restoreSnapshots() {
+        SymbolSnapshotStore store = snapshotStore();
+        if (store == null) {
+            return;
+        }
+
+        refreshLock.lock();
+        try {
+            long start = System.nanoTime();
+            List<FileRefresh> restored = new ArrayList<>();
+            for (Path path : store.list()) {
+                try {
+                    FileRefresh refresh = store.read(path);
+                    if (Files.isRegularFile(Path.of(cryptoFolderPath, refresh.fileName()))) {
+                        restored.add(refresh);
+                    } else {
+                        logger.info("Deleting snapshot of removed crypto file: {}", refresh.fileName());
+                        store.delete(refresh.fileName());
+                    }
+                } catch (IOException e) {
+                    logger.warn("Ignoring unreadable snapshot file: {}", path, e);
+                }
+            }
+            apply(restored);
+            unsavedFiles.clear();
+            reloadedFiles.clear();
+            logger.info("Restored {} crypto symbols from snapshots in {} ms", restored.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            logger.warn("Could not list snapshot directory: {}", snapshotPath, e);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Writes snapshots for the symbols parsed from scratch since their snapshot was last written, or with
+     * {@code all} for every changed symbol, and deletes the snapshots of removed files.
+     * <p>
+     * Files that only grew keep their older snapshot until shutdown: it stays valid and only costs parsing the new
+     * tail on the next start, whereas rewriting it would copy the whole series after every append. The symbols to
+     * write are taken under {@link #refreshLock} but written after releasing it, so refreshes and pushed ticks never
+     * wait for the disk. A snapshot that cannot be written only costs a parse on the next start, so failures are
+     * logged rather than thrown.
+     */
+    private void saveSnapshots(boolean all) {
+        SymbolSnapshotStore store = snapshotStore();
+        snapshotLock.lock();
+        try {
+            List<PendingSnapshot> writes = new ArrayList<>();
+            List<String> deletes;
+            refreshLock.lock();
+            try {
+                DatasetSnapshot current = snapshot.get();
+                for (Iterator<String> fileNames = unsavedFiles.iterator(); fileNames.hasNext(); ) {
+                    String fileName = fileNames.next();
+                    if (!all && !reloadedFiles.contains(fileName)) {
+                        continue;
+                    }
+                    fileNames.remove();
+                    String symbol = symbolOf(fileName);
+                    if (!pushedTicks.containsKey(symbol)) {
+                        writes.add(new PendingSnapshot(fileName, fileStates.get(fileName), current.get(symbol)));
+                    }
+                }
+                reloadedFiles.clear();
+                deletes = List.copyOf(removedFiles);
+                removedFiles.clear();
+            } finally {
+                refreshLock.unlock();
+            }
+            if (store == null || (writes.isEmpty() && deletes.isEmpty())) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            int written = 0;
+            for (PendingSnapshot write : writes) {
+                try {
+                    store.write(write.fileName(), write.state(), write.data());
+                    written++;
+                } catch (IOException e) {
+                    logger.warn("Could not write snapshot for crypto file: {}", write.fileName(), e);
+                }
+            }
+            for (String fileName : deletes) {
+                try {
+                    store.delete(fileName);
+                } catch (IOException e) {
+                    logger.warn("Could not delete snapshot for removed crypto file: {}", fileName, e);
+                }
+            }
+            logger.info("Wrote {} and deleted {} crypto snapshots in {} ms", written, deletes.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    private SymbolSnapshotStore snapshotStore() {
+        if (snapshotPath == null || snapshotPath.isBlank()) {
+            return null;
+        }
+        return new SymbolSnapshotStore(Path.of(snapshotPath), getRollupSettings());
+    }
+
+    /**
+     * The ticks pushed for a symbol that its data file may not contain: those kept in {@link #pushedTicks} for a
+     * symbol loaded from a file, and the whole published series of a symbol that only received pushed ticks so far.
+     */
+    private PriceSeries pushedTicksOf(String symbol) {
+        if (fileCoverage.containsKey(symbol)) {
+            return pushedTicks.get(symbol);
+        }
+        SymbolData data = snapshot.get().get(symbol);
+        return data == null ? null : data.getSeries();
+    }
+
+    /**
+     * Brings one file's symbol up to date: unchanged files are skipped, files that only grew are parsed from the
+     * previously consumed offset, and anything else is reloaded from scratch, followed by the ticks pushed for the
+     * symbol after the newest one in the file. Only reads the loader's state, so several files can be refreshed
+     * concurrently.
+     *
+     * @return the refreshed file, or {@code null} if it is unchanged
+     */
+    private FileRefresh refreshFile(File file) throws IOException {
+        String fileName = file.getName();
+        String cryptoSymbol = extractSymbolFromFileName(fileName);
+        long size = file.length();
+        long lastModified = file.lastModified();
+
+        FileState previous = fileStates.get(fileName);
+        if (previous != null && previous.size() == size && previous.lastModified() == lastModified) {
+            logger.debug("Data for crypto symbol: {} is up to date, skipping file: {}", cryptoSymbol, fileName);
+            return null;
+        }
+
+        SymbolData current = snapshot.get().get(cryptoSymbol);
+        if (previous != null && current != null && size >= previous.size()) {
+            FileRefresh appended = appendFromOffset(file, cryptoSymbol, current, previous, size, lastModified);
+            if (appended != null) {
+                return appended;
+            }
+            logger.info("File {} was rewritten, reloading crypto symbol: {}", fileName, cryptoSymbol);
+        }
+
+        logger.info("Loading data for crypto symbol: {}", cryptoSymbol);
+        PriceSeries prices = loadCryptoData(cryptoSymbol, file.toPath(), 0, size, true).series();
+        logger.info("Successfully loaded {} price records for crypto symbol: {}", prices.size(), cryptoSymbol);
+        long newestFileTick = prices.isEmpty() ? Long.MIN_VALUE : prices.lastTimestamp();
+        PriceSeries pushed = pushedTicksOf(cryptoSymbol);
+        if (pushed != null) {
+            prices = prices.append(pushed.after(newestFileTick));
+        }
+        return new FileRefresh(fileName, new FileState(size, lastModified, size, readFingerprint(file, size)),
+                SymbolData.of(prices, getRollupSettings()), true, newestFileTick);
+    }
+
+    /**
+     * Parses the complete lines written after the previously consumed offset and appends them to the symbol, except
+     * for the ticks that were already pushed, identified by their timestamp.
+     *
+     * @return the refreshed file, or {@code null} if the bytes before the offset changed and a reload is needed
+     */
+    private FileRefresh appendFromOffset(File file, String cryptoSymbol, SymbolData current, FileState previous,
+                                       long size, long lastModified) throws IOException {
+        if (!Arrays.equals(readFingerprint(file, previous.offset()), previous.fingerprint())) {
+            return null;
+        }
+
+        // A trailing line without a newline may still be being written, so it is left for the next scan
+        PriceCsvParser.FileResult tail = loadCryptoData(cryptoSymbol, file.toPath(), previous.offset(), size, false);
+        String fileName = file.getName();
+        Long covered = fileCoverage.get(cryptoSymbol);
+        long newestFileTick = covered == null ? Long.MIN_VALUE : covered;
+        if (tail.end() == previous.offset()) {
+            return new FileRefresh(fileName, new FileState(size, lastModified, previous.offset(), previous.fingerprint()),
+                    null, false, newestFileTick);
+        }
+        logger.info("Appended {} price records for crypto symbol: {}", tail.series().size(), cryptoSymbol);
+
+        PriceSeries ticks = tail.series();
+        if (!ticks.isEmpty()) {
+            newestFileTick = Math.max(newestFileTick, ticks.lastTimestamp());
+            PriceSeries pushed = pushedTicksOf(cryptoSymbol);
+            if (pushed != null) {
+                ticks = ticks.excluding(pushed);
+            }
+        }
+        FileState state = new FileState(size, lastModified, tail.end(), readFingerprint(file, tail.end()));
+        return new FileRefresh(fileName, state, current.append(ticks), false, newestFileTick);
+    }
+
     public String extractSymbolFromFileName(String fileName) {
-        String symbol = fileName.split("_")[0];
+        String symbol = symbolOf(fileName);
         logger.debug("Extracted crypto symbol: {} from file name: {}", symbol, fileName);
         return symbol;
     }
 
-    public List<CryptoPrice> loadCryptoData(String symbol, InputStream inputStream) {
-        List<CryptoPrice> prices = new ArrayList<>();
-        try (CSVReader reader = new CSVReader(new InputStreamReader(inputStream))) {
+    static String symbolOf(String fileName) {
+        return fileName.split("_")[0];
+    }
+
+    public PriceSeries loadCryptoData(String symbol, InputStream inputStream) {
+        PriceSeries prices;
+        try (inputStream) {
             logger.debug("Reading CSV data for symbol: {}", symbol);
-            String[] line;
-            reader.readNext(); // Skip header
-            while ((line = reader.readNext()) != null) {
-                long timestamp = Long.parseLong(line[0]);
-                double price = Double.parseDouble(line[2]);
-                LocalDateTime dateTime = LocalDateTime.ofInstant(
-                        Instant.ofEpochMilli(timestamp),
-                        ZoneId.systemDefault());
-                prices.add(new CryptoPrice(dateTime, symbol, price));
-            }
+            PriceCsvParser parser = new PriceCsvParser(symbol);
+            byte[] bytes = inputStream.readAllBytes();
+            parser.parse(ByteBuffer.wrap(bytes), true, true);
+            prices = parser.build();
+            rowsParsed.increment(prices.size());
+            bytesRead.increment(bytes.length);
         } catch (Exception e) {
+            parseErrors.increment();
             logger.error("Error processing crypto data for symbol: {}", symbol, e);
             throw new CryptoDataProcessingException("Error processing crypto data for symbol: " + symbol, e);
         }
         logger.debug("Loaded {} records for crypto symbol: {}", prices.size(), symbol);
         return prices;
     }
+
+    /**
+     * Parses the byte range {@code [from, to)} of a data file through a memory mapping. A full load starts at the
+     * header and includes an unterminated last line; a tail load only consumes complete lines.
+     */
+    private PriceCsvParser.FileResult loadCryptoData(String symbol, Path file, long from, long to, boolean fullLoad) {
+        PriceCsvParser.FileResult result;
+        long start = System.nanoTime();
+        try {
+            logger.debug("Reading CSV data for symbol: {} from offset {} to {}", symbol, from, to);
+            result = PriceCsvParser.parseFile(symbol, file, from, to, fullLoad, fullLoad);
+            rowsParsed.increment(result.series().size());
+            bytesRead.increment(result.end() - from);
+        } catch (NoSuchFileException e) {
+            logger.error("File not found: {}", file.getFileName(), e);
+            throw new FileLoadingException("File not found: " + file.getFileName());
+        } catch (Exception e) {
+            parseErrors.increment();
+            logger.error("Error processing crypto data for symbol: {}", symbol, e);
+            throw new CryptoDataProcessingException("Error processing crypto data for symbol: " + symbol, e);
+        }
+        Timer.builder("crypto.ingest.file")
+                .description("Time spent parsing a data file, in full or from its previous offset")
+                .tag("symbol", symbol)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        logger.debug("Loaded {} records for crypto symbol: {}", result.series().size(), symbol);
+        return result;
+    }
+
+    private static byte[] readFingerprint(File file, long offset) throws IOException {
+        return readRegion(file, Math.max(0, offset - FINGERPRINT_LENGTH), offset);
+    }
+
+    private static byte[] readRegion(File file, long from, long to) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            long end = Math.min(to, randomAccessFile.length());
+            byte[] bytes = new byte[(int) Math.max(0, end - from)];
+            randomAccessFile.seek(from);
+            randomAccessFile.readFully(bytes);
+            return bytes;
+        }
+    }
+
+    /**
+     * Size, modification time and consumed byte offset of a data file as of the last scan, plus the bytes just
+     * before the offset.
+     */
+    record FileState(long size, long lastModified, long offset, byte[] fingerprint) {
+    }
+
+    /**
+     * Outcome of refreshing one file: its new state and, if any ticks changed, the symbol's new data, which was
+     * parsed from scratch if {@code reloaded} and appended to otherwise, and the newest tick read from the file.
+     */
+    record FileRefresh(String fileName, FileState state, SymbolData data, boolean reloaded, long newestFileTick) {
+    }
+
+    /**
+     * A symbol taken to be snapshotted, with the state of its data file at that moment.
+     */
+    private record PendingSnapshot(String fileName, FileState state, SymbolData data) {
+    }
 }
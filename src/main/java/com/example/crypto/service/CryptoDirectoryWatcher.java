@@ -0,0 +1,139 @@
+package com.example.crypto.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads data files as soon as they are created or modified, using a {@link WatchService} on the crypto directory.
+ * <p>
+ * Events are debounced per file, so a burst of writes to one file results in a single refresh of that symbol once
+ * the file has been quiet for the debounce period. The scheduled scan in {@link CryptoDataLoader} keeps running as
+ * a fallback for file systems that do not deliver change events.
+ */
+@Service
+@ConditionalOnProperty(name = "crypto.watch.enabled", havingValue = "true")
+public class CryptoDirectoryWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(CryptoDirectoryWatcher.class);
+
+    private final CryptoDataLoader dataLoader;
+    private final Path cryptoFolder;
+    private final long debounceMillis;
+
+    private final Map<Path, ScheduledFuture<?>> pendingRefreshes = new ConcurrentHashMap<>();
+    private ScheduledExecutorService debouncer;
+    private WatchService watchService;
+    private Thread watchThread;
+
+    public CryptoDirectoryWatcher(CryptoDataLoader dataLoader,
+                                  @Value("${crypto.directory.path}") String cryptoFolderPath,
+                                  @Value("${crypto.watch.debounce}") long debounceMillis) {
+        this.dataLoader = dataLoader;
+        this.cryptoFolder = Paths.get(cryptoFolderPath);
+        this.debounceMillis = debounceMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            cryptoFolder.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.warn("Unable to watch crypto directory: {}, relying on the scheduled scan only", cryptoFolder, e);
+            return;
+        }
+
+        debouncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "crypto-watch-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchThread = new Thread(this::watch, "crypto-watch");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        logger.info("Watching crypto directory at path: {} with a debounce of {} ms", cryptoFolder, debounceMillis);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (debouncer != null) {
+            debouncer.shutdownNow();
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        logger.warn("Missed file system events in crypto directory: {}, rescanning", cryptoFolder);
+                        debouncer.execute(this::scan);
+                    } else {
+                        Path fileName = (Path) event.context();
+                        if (fileName.toString().endsWith(CryptoDataLoader.DATA_FILE_SUFFIX)) {
+                            scheduleRefresh(cryptoFolder.resolve(fileName));
+                        }
+                    }
+                }
+                if (!key.reset()) {
+                    logger.error("Crypto directory is no longer accessible: {}, relying on the scheduled scan only", cryptoFolder);
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            logger.info("Stopped watching crypto directory at path: {}", cryptoFolder);
+        }
+    }
+
+    private void scheduleRefresh(Path file) {
+        pendingRefreshes.compute(file, (path, pending) -> {
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            return debouncer.schedule(() -> refresh(path), debounceMillis, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private void refresh(Path file) {
+        try {
+            dataLoader.refreshCryptoFile(file);
+        } catch (RuntimeException e) {
+            // Already logged by the loader; the next event or scheduled scan will retry
+        }
+    }
+
+    private void scan() {
+        try {
+            dataLoader.scanCryptoDirectory();
+        } catch (RuntimeException e) {
+            // Already logged by the loader; the next event or scheduled scan will retry
+        }
+    }
+}
@@ -2,112 +2,585 @@ package com.example.crypto.service;
 
 import com.example.crypto.exception.CryptoNotFoundException;
 import com.example.crypto.exception.NoCryptoDataAvailableException;
-import com.example.crypto.model.CryptoPrice;
+import com.example.crypto.model.BulkStatistics;
+import com.example.crypto.model.Candle;
+import com.example.crypto.model.CandleInterval;
+import com.example.crypto.model.CandleRollup;
+import com.example.crypto.model.CorrelationMatrix;
 import com.example.crypto.model.CryptoStatistics;
+import com.example.crypto.model.DailyOhlc;
+import com.example.crypto.model.DailyRollup;
+import com.example.crypto.model.DatasetSnapshot;
+import com.example.crypto.model.PricePage;
+import com.example.crypto.model.PriceSeries;
+import com.example.crypto.model.RankingMetric;
+import com.example.crypto.model.ReturnGrid;
+import com.example.crypto.model.Revision;
+import com.example.crypto.model.SymbolData;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 @Service
 public class CryptoService {
 
     private static final Logger logger = LoggerFactory.getLogger(CryptoService.class);
 
+    /**
+     * Number of symbols from which windowed rankings are evaluated in parallel.
+     */
+    static final int PARALLEL_RANKING_THRESHOLD = 2_048;
+
+    /**
+     * Largest number of symbols accepted by a single bulk statistics request.
+     */
+    static final int MAX_BULK_SYMBOLS = 1_000;
+
+    /**
+     * Largest number of candles returned by a single request.
+     */
+    static final int MAX_CANDLES = 100_000;
+
+    /**
+     * Largest number of symbols in a correlation matrix, and of grid points their returns are compared over.
+     */
+    static final int MAX_CORRELATION_SYMBOLS = 1_000;
+    static final int MAX_CORRELATION_POINTS = 2_000;
+
+    static final String DEFAULT_CORRELATION_INTERVAL = "1d";
+
     private final CryptoDataLoader dataLoader;
 
-    public CryptoService(CryptoDataLoader dataLoader) {
+    private final Timer statisticsTimer;
+    private final Timer bulkStatisticsTimer;
+    private final Timer rankingTimer;
+    private final Timer pricesTimer;
+    private final Timer highestNormalizedTimer;
+    private final Timer dailyOhlcTimer;
+    private final Timer candlesTimer;
+    private final Timer correlationTimer;
+
+    @Value("${crypto.correlation.parallelism:0}")
+    private int correlationParallelism;  // Workers computing a correlation matrix, 0 means one per available processor
+
+    private final AtomicReference<ForkJoinPool> correlationPool = new AtomicReference<>();
+
+    public CryptoService(CryptoDataLoader dataLoader, MeterRegistry meterRegistry) {
         this.dataLoader = dataLoader;
+        this.statisticsTimer = timer(meterRegistry, "statistics");
+        this.bulkStatisticsTimer = timer(meterRegistry, "bulkStatistics");
+        this.rankingTimer = timer(meterRegistry, "ranking");
+        this.pricesTimer = timer(meterRegistry, "prices");
+        this.highestNormalizedTimer = timer(meterRegistry, "highestNormalized");
+        this.dailyOhlcTimer = timer(meterRegistry, "dailyOhlc");
+        this.candlesTimer = timer(meterRegistry, "candles");
+        this.correlationTimer = timer(meterRegistry, "correlation");
+    }
+
+    /**
+     * Latency of one kind of query, including failed ones. Timers are resolved once, so recording on the request
+     * path is a clock read and a histogram bucket increment.
+     */
+    private static Timer timer(MeterRegistry meterRegistry, String method) {
+        return Timer.builder("crypto.query")
+                .description("Time spent in CryptoService queries")
+                .tag("method", method)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * The currently published dataset. A caller that derives validators or cache keys from its revision passes it
+     * on to the query methods, so the response is computed from the same data the revision names.
+     */
+    public DatasetSnapshot getSnapshot() {
+        return dataLoader.getSnapshot();
+    }
+
+    /**
+     * Revision of the whole dataset, which changes whenever any symbol does.
+     */
+    public Revision getRevision() {
+        return dataLoader.getSnapshot().getRevision();
+    }
+
+    /**
+     * Revision in which the given symbol last changed, or {@code null} if it is unknown.
+     */
+    public Revision getRevision(String symbol) {
+        return dataLoader.getSnapshot().revisionOf(symbol.toUpperCase());
     }
 
     public CryptoStatistics calculateStatistics(String symbol) {
-        logger.info("Calculating statistics for crypto symbol: {}", symbol);
-        List<CryptoPrice> prices = dataLoader.getCryptoData().get(symbol.toUpperCase());
-        if (prices == null || prices.isEmpty()) {
+        long started = System.nanoTime();
+        try {
+            logger.info("Getting statistics for crypto symbol: {}", symbol);
+            SymbolData data = dataLoader.getSnapshot().get(symbol.toUpperCase());
+            if (data == null || data.getStatistics() == null) {
+                logger.warn("No data available for crypto symbol: {}", symbol);
+                throw new CryptoNotFoundException("Unsupported or unavailable crypto: " + symbol);
+            }
+            return data.getStatistics();
+        } finally {
+            statisticsTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Statistics of the ticks in {@code [from, to)}; a missing bound leaves that side of the window open.
+     */
+    public CryptoStatistics calculateStatistics(String symbol, Instant from, Instant to) {
+        return calculateStatistics(dataLoader.getSnapshot(), symbol, from, to);
+    }
+
+    public CryptoStatistics calculateStatistics(DatasetSnapshot snapshot, String symbol, Instant from, Instant to) {
+        long started = System.nanoTime();
+        try {
+            logger.info("Getting statistics for crypto symbol: {} from {} to {}", symbol, from, to);
+            checkWindow(from, to);
+            return statisticsOf(snapshot, symbol, from, to);
+        } finally {
+            statisticsTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Statistics of several symbols over the same optional window, all read from one snapshot. Symbols without data
+     * are reported in the result's errors instead of failing the batch.
+     */
+    public BulkStatistics calculateStatistics(List<String> symbols, Instant from, Instant to) {
+        return calculateStatistics(dataLoader.getSnapshot(), symbols, from, to);
+    }
+
+    public BulkStatistics calculateStatistics(DatasetSnapshot snapshot, List<String> symbols, Instant from, Instant to) {
+        long started = System.nanoTime();
+        try {
+            logger.info("Getting statistics for {} crypto symbols from {} to {}", symbols.size(), from, to);
+            if (symbols.isEmpty() || symbols.size() > MAX_BULK_SYMBOLS) {
+                throw new IllegalArgumentException("Between 1 and " + MAX_BULK_SYMBOLS + " symbols must be requested");
+            }
+            checkWindow(from, to);
+
+            List<CryptoStatistics> statistics = new ArrayList<>(symbols.size());
+            Map<String, String> errors = new LinkedHashMap<>();
+            for (String symbol : new LinkedHashSet<>(symbols)) {
+                try {
+                    statistics.add(statisticsOf(snapshot, symbol, from, to));
+                } catch (CryptoNotFoundException | NoCryptoDataAvailableException e) {
+                    errors.put(symbol, e.getMessage());
+                }
+            }
+            return new BulkStatistics(statistics, errors);
+        } finally {
+            bulkStatisticsTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Selects the ticks of {@code [from, to)} to export, starting at {@code cursor} if given and stopping after
+     * {@code limit} ticks if given. The page refers to the stored series and copies nothing.
+     */
+    public PricePage getPrices(String symbol, Instant from, Instant to, String cursor, Integer limit) {
+        return getPrices(dataLoader.getSnapshot(), symbol, from, to, cursor, limit);
+    }
+
+    public PricePage getPrices(DatasetSnapshot snapshot, String symbol, Instant from, Instant to, String cursor, Integer limit) {
+        long started = System.nanoTime();
+        try {
+            logger.info("Getting prices for crypto symbol: {} from {} to {}, cursor {}, limit {}", symbol, from, to, cursor, limit);
+            if (limit != null && limit < 1) {
+                throw new IllegalArgumentException("'limit' must be positive");
+            }
+            checkWindow(from, to);
+            SymbolData data = snapshot.get(symbol.toUpperCase());
+            if (data == null) {
+                logger.warn("No data available for crypto symbol: {}", symbol);
+                throw new CryptoNotFoundException("Unsupported or unavailable crypto: " + symbol);
+            }
+
+            PriceSeries series = data.getSeries();
+            int start = from == null ? 0 : series.lowerBound(from.toEpochMilli());
+            int windowEnd = to == null ? series.size() : series.lowerBound(to.toEpochMilli());
+            if (cursor != null) {
+                start = Math.max(start, decodeCursor(series, cursor));
+            }
+            start = Math.min(start, windowEnd);
+            int end = limit == null ? windowEnd : (int) Math.min(windowEnd, (long) start + limit);
+            return new PricePage(series, start, end, end < windowEnd ? encodeCursor(series, end) : null);
+        } finally {
+            pricesTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * A cursor names a tick by its timestamp and how many earlier ticks share that timestamp, so it stays valid
+     * while ticks are appended or reloaded around it.
+     */
+    private static String encodeCursor(PriceSeries series, int index) {
+        long timestamp = series.timestampAt(index);
+        String position = timestamp + ":" + (index - series.lowerBound(timestamp));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static int decodeCursor(PriceSeries series, String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            int separator = position.indexOf(':');
+            long timestamp = Long.parseLong(position.substring(0, separator));
+            int skip = Integer.parseInt(position.substring(separator + 1));
+            if (skip < 0) {
+                throw new IllegalArgumentException("Negative offset");
+            }
+            return (int) Math.min(series.size(), (long) series.lowerBound(timestamp) + skip);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    private static CryptoStatistics statisticsOf(DatasetSnapshot snapshot, String symbol, Instant from, Instant to) {
+        SymbolData data = snapshot.get(symbol.toUpperCase());
+        if (data == null || data.getStatistics() == null) {
             logger.warn("No data available for crypto symbol: {}", symbol);
             throw new CryptoNotFoundException("Unsupported or unavailable crypto: " + symbol);
         }
+        if (from == null && to == null) {
+            return data.getStatistics();
+        }
+
+        CryptoStatistics statistics = windowStatistics(data.getSeries(), from, to);
+        if (statistics == null) {
+            logger.warn("No data available for crypto symbol: {} from {} to {}", symbol, from, to);
+            throw new NoCryptoDataAvailableException("No data available for the given time window");
+        }
+        return statistics;
+    }
 
-        // Ensure none of the timestamps or prices are null before sorting
-        prices.removeIf(price -> price.getTimestamp() == null || price.getPrice() == 0); // Assuming 0 price is invalid, adjust as necessary
+    private static void checkWindow(Instant from, Instant to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+    }
 
-        if (prices.isEmpty()) {
-            logger.warn("No valid data found after filtering for crypto: {}", symbol);
-            throw new CryptoNotFoundException("No valid data available for crypto: " + symbol);
+    public List<CryptoStatistics> getAllCryptoStatistics() {
+        long started = System.nanoTime();
+        try {
+            logger.info("Getting statistics for all available cryptocurrencies");
+            // Precomputed and sorted whenever a new snapshot is published
+            return dataLoader.getSnapshot().getRanking();
+        } finally {
+            rankingTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
         }
+    }
 
-        // Sorting by timestamp
-        prices.sort(Comparator.comparing(CryptoPrice::getTimestamp));
+    public List<CryptoStatistics> getAllCryptoStatistics(Instant from, Instant to, Integer limit) {
+        return getAllCryptoStatistics(from, to, limit, null);
+    }
 
-        double oldestPrice = prices.get(0).getPrice();
-        double newestPrice = prices.get(prices.size() - 1).getPrice();
-        double minPrice = prices.stream().mapToDouble(CryptoPrice::getPrice).min().orElse(0);
-        double maxPrice = prices.stream().mapToDouble(CryptoPrice::getPrice).max().orElse(0);
-        double normalizedRange = (maxPrice - minPrice) / minPrice;
+    /**
+     * Ranks symbols by normalized range over {@code [from, to)}, best first, keeping only the top {@code limit}.
+     * Missing bounds leave that side of the window open and a missing limit keeps every symbol with data.
+     * <p>
+     * Without a window the precomputed ranking is used. With one, each symbol's window is evaluated through its
+     * range index and offered to a bounded min-heap, so the top K costs O(n log K) rather than a full sort; large
+     * universes are evaluated in parallel with one heap per worker.
+     * <p>
+     * {@code sortBy} names any other {@link RankingMetric} to rank by instead, in that metric's direction. Those are
+     * only kept for the whole history, so they are read from the precomputed statistics through the same heap and
+     * cannot be combined with a window.
+     */
+    public List<CryptoStatistics> getAllCryptoStatistics(Instant from, Instant to, Integer limit, String sortBy) {
+        return getAllCryptoStatistics(dataLoader.getSnapshot(), from, to, limit, sortBy);
+    }
+
+    public List<CryptoStatistics> getAllCryptoStatistics(DatasetSnapshot snapshot, Instant from, Instant to, Integer limit,
+                                                         String sortBy) {
+        long started = System.nanoTime();
+        try {
+            if (limit != null && limit < 1) {
+                throw new IllegalArgumentException("'limit' must be positive");
+            }
+            checkWindow(from, to);
+            RankingMetric metric = RankingMetric.parse(sortBy);
+            if (metric.isStreaming()) {
+                if (from != null || to != null) {
+                    throw new IllegalArgumentException("Cannot sort by " + metric.getLabel() + " within a time window");
+                }
+                logger.info("Ranking cryptocurrencies by {}, limit {}", metric.getLabel(), limit);
+                List<CryptoStatistics> statistics = snapshot.getRanking();
+                return top(statistics.stream(), metric.getOrder(), limit == null ? statistics.size() : limit);
+            }
+            if (from == null && to == null) {
+                logger.info("Getting statistics for all available cryptocurrencies, limit {}", limit);
+                List<CryptoStatistics> ranking = snapshot.getRanking();
+                return limit == null || limit >= ranking.size() ? ranking : ranking.subList(0, limit);
+            }
 
-        logger.info("Statistics calculated for crypto symbol: {} - Oldest Price: {}, Newest Price: {}, Min Price: {}, Max Price: {}, Normalized Range: {}",
-                symbol, oldestPrice, newestPrice, minPrice, maxPrice, normalizedRange);
+            logger.info("Ranking cryptocurrencies by normalized range from {} to {}, limit {}", from, to, limit);
+            Collection<SymbolData> symbols = snapshot.getSymbols().values();
+            int k = limit == null ? symbols.size() : limit;
+            Stream<SymbolData> stream = symbols.size() >= PARALLEL_RANKING_THRESHOLD ? symbols.parallelStream() : symbols.stream();
+            return top(stream.map(data -> windowStatistics(data.getSeries(), from, to)).filter(Objects::nonNull),
+                    RankingMetric.NORMALIZED_RANGE.getOrder(), k);
+        } finally {
+            rankingTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
 
-        return new CryptoStatistics(
-                symbol.toUpperCase(),
-                oldestPrice,
-                newestPrice,
-                minPrice,
-                maxPrice,
-                normalizedRange
-        );
+    /**
+     * Returns the {@code k} highest-ranked statistics in the given ascending order, best first.
+     */
+    private static List<CryptoStatistics> top(Stream<CryptoStatistics> candidates, Comparator<CryptoStatistics> order, int k) {
+        PriorityQueue<CryptoStatistics> top = candidates
+                .collect(() -> new PriorityQueue<>(order),
+                        (heap, statistics) -> offer(heap, statistics, order, k),
+                        (heap, other) -> other.forEach(statistics -> offer(heap, statistics, order, k)));
+        List<CryptoStatistics> ranking = new ArrayList<>(top);
+        ranking.sort(order.reversed());
+        return ranking;
     }
 
-    public List<CryptoStatistics> getAllCryptoStatistics() {
-        logger.info("Calculating statistics for all available cryptocurrencies");
-        List<CryptoStatistics> statsList = new ArrayList<>();
-        for (String symbol : dataLoader.getCryptoData().keySet()) {
-            statsList.add(calculateStatistics(symbol));
+    private static CryptoStatistics windowStatistics(PriceSeries series, Instant from, Instant to) {
+        int start = from == null ? 0 : series.lowerBound(from.toEpochMilli());
+        int end = to == null ? series.size() : series.lowerBound(to.toEpochMilli());
+        return CryptoStatistics.summarize(series, start, end);
+    }
+
+    /**
+     * Adds to a min-heap of at most {@code k} entries, evicting the lowest-ranked one when full.
+     */
+    private static void offer(PriorityQueue<CryptoStatistics> heap, CryptoStatistics statistics,
+                              Comparator<CryptoStatistics> order, int k) {
+        if (heap.size() < k) {
+            heap.add(statistics);
+        } else if (order.compare(statistics, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(statistics);
         }
-        statsList.sort(Comparator.comparing(CryptoStatistics::getNormalizedRange).reversed());
-        logger.info("Statistics for all cryptocurrencies have been calculated and sorted");
-        return statsList;
     }
 
     public String getHighestNormalizedCrypto(LocalDate date) {
-        logger.info("Getting highest normalized range crypto for date: {}", date);
-        String highestCrypto = null;
-        double highestNormalizedRange = -1;
+        return getHighestNormalizedCrypto(date, null);
+    }
+
+    /**
+     * Returns the symbol with the highest normalized range on the given calendar day in {@code zone}, which must be
+     * the primary or one of the additional rollup zones; {@code null} means the primary zone.
+     */
+    public String getHighestNormalizedCrypto(LocalDate date, String zone) {
+        return getHighestNormalizedCrypto(dataLoader.getSnapshot(), date, zone);
+    }
 
-        for (String symbol : dataLoader.getCryptoData().keySet()) {
-            List<CryptoPrice> prices = dataLoader.getCryptoData().get(symbol);
-            List<CryptoPrice> filteredPrices = new ArrayList<>();
+    public String getHighestNormalizedCrypto(DatasetSnapshot snapshot, LocalDate date, String zone) {
+        long started = System.nanoTime();
+        try {
+            logger.info("Getting highest normalized range crypto for date: {} in zone: {}", date, zone);
+            ZoneId zoneId = resolveZone(zone);
+            String highestCrypto = null;
+            double highestNormalizedRange = -1;
 
-            for (CryptoPrice price : prices) {
-                if (price.getTimestamp().toLocalDate().equals(date)) {
-                    filteredPrices.add(price);
+            // One bucket lookup per symbol in the daily rollups built at load time
+            for (SymbolData data : snapshot.getSymbols().values()) {
+                DailyRollup daily = zoneId == null ? data.getDaily() : data.dailyIn(zoneId);
+                int index = daily == null ? -1 : daily.indexOf(date);
+
+                if (index < 0 || daily.countAt(index) < 2) continue;
+
+                double normalizedRange = daily.normalizedRangeAt(index);
+                if (normalizedRange > highestNormalizedRange) {
+                    highestNormalizedRange = normalizedRange;
+                    highestCrypto = data.getSymbol();
                 }
             }
 
-            if (filteredPrices.size() < 2) continue;
+            if (highestCrypto == null) {
+                logger.warn("No data available for the given date: {}", date);
+                throw new NoCryptoDataAvailableException("No data available for the given date");
+            }
+
+            logger.info("Highest normalized range crypto for date {} is: {}", date, highestCrypto);
+            return highestCrypto;
+        } finally {
+            highestNormalizedTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public List<DailyOhlc> getDailyOhlc(String symbol, LocalDate from, LocalDate to) {
+        return getDailyOhlc(symbol, from, to, null);
+    }
+
+    /**
+     * Returns the daily candles of a symbol bucketed by calendar day in {@code zone}, which must be the primary or
+     * one of the additional rollup zones; {@code null} means the primary zone.
+     */
+    public List<DailyOhlc> getDailyOhlc(String symbol, LocalDate from, LocalDate to, String zone) {
+        return getDailyOhlc(dataLoader.getSnapshot(), symbol, from, to, zone);
+    }
+
+    public List<DailyOhlc> getDailyOhlc(DatasetSnapshot snapshot, String symbol, LocalDate from, LocalDate to, String zone) {
+        long started = System.nanoTime();
+        try {
+            logger.info("Getting daily OHLC for crypto symbol: {} from {} to {} in zone: {}", symbol, from, to, zone);
+            if (from != null && to != null && from.isAfter(to)) {
+                throw new IllegalArgumentException("'from' must not be after 'to'");
+            }
+            ZoneId zoneId = resolveZone(zone);
+            SymbolData data = snapshot.get(symbol.toUpperCase());
+            if (data == null || data.getStatistics() == null) {
+                logger.warn("No data available for crypto symbol: {}", symbol);
+                throw new CryptoNotFoundException("Unsupported or unavailable crypto: " + symbol);
+            }
+
+            DailyRollup daily = zoneId == null ? data.getDaily() : data.dailyIn(zoneId);
+            int start = from == null ? 0 : daily.lowerBound(from);
+            int end = to == null ? daily.size() : daily.lowerBound(to.plusDays(1));
+            List<DailyOhlc> candles = new ArrayList<>(Math.max(0, end - start));
+            for (int i = start; i < end; i++) {
+                candles.add(new DailyOhlc(daily.dateAt(i), daily.openAt(i), daily.highAt(i), daily.lowAt(i), daily.closeAt(i), daily.countAt(i)));
+            }
+            return candles;
+        } finally {
+            dailyOhlcTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Returns the candles of a symbol at the given interval whose buckets start in {@code [from, to)}, where
+     * {@code from} is rounded down to the start of its bucket; a missing bound leaves that side open. Intervals
+     * with a level of their own are served from it, others are built from the closest finer level.
+     */
+    public List<Candle> getCandles(String symbol, String interval, Instant from, Instant to) {
+        return getCandles(dataLoader.getSnapshot(), symbol, interval, from, to);
+    }
 
-            double minPrice = filteredPrices.stream()
-                    .mapToDouble(CryptoPrice::getPrice).min().orElse(0);
-            double maxPrice = filteredPrices.stream()
-                    .mapToDouble(CryptoPrice::getPrice).max().orElse(0);
-            double normalizedRange = (maxPrice - minPrice) / minPrice;
+    public List<Candle> getCandles(DatasetSnapshot snapshot, String symbol, String interval, Instant from, Instant to) {
+        long started = System.nanoTime();
+        try {
+            logger.info("Getting {} candles for crypto symbol: {} from {} to {}", interval, symbol, from, to);
+            checkWindow(from, to);
+            CandleInterval candleInterval = CandleInterval.parse(interval);
+            SymbolData data = snapshot.get(symbol.toUpperCase());
+            if (data == null || data.getStatistics() == null) {
+                logger.warn("No data available for crypto symbol: {}", symbol);
+                throw new CryptoNotFoundException("Unsupported or unavailable crypto: " + symbol);
+            }
 
-            if (normalizedRange > highestNormalizedRange) {
-                highestNormalizedRange = normalizedRange;
-                highestCrypto = symbol;
+            Long fromMillis = from == null ? null : from.toEpochMilli();
+            Long toMillis = to == null ? null : to.toEpochMilli();
+            CandleRollup rollup = data.getCandles().select(data.getSeries(), candleInterval, fromMillis, toMillis);
+            int start = fromMillis == null ? 0 : rollup.lowerBound(candleInterval.bucketOf(fromMillis));
+            int end = toMillis == null ? rollup.size() : rollup.lowerBound(toMillis);
+            if (end - start > MAX_CANDLES) {
+                throw new IllegalArgumentException("More than " + MAX_CANDLES + " candles requested, narrow the window or use a coarser interval");
             }
+            List<Candle> candles = new ArrayList<>(Math.max(0, end - start));
+            for (int i = start; i < end; i++) {
+                candles.add(new Candle(rollup.startAt(i), rollup.openAt(i), rollup.highAt(i), rollup.lowAt(i), rollup.closeAt(i), rollup.countAt(i)));
+            }
+            return candles;
+        } finally {
+            candlesTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
         }
+    }
 
-        if (highestCrypto == null) {
-            logger.warn("No data available for the given date: {}", date);
-            throw new NoCryptoDataAvailableException("No data available for the given date");
+    /**
+     * Returns the pairwise correlations of the returns of the given symbols, all symbols if none are given, on a
+     * grid of {@code interval} buckets starting in {@code [bucketOf(from), to)}, daily by default.
+     * <p>
+     * The matrix is computed in a fork-join pool with one worker per available processor. The JVM derives that
+     * count from the container's CPU quota, so a fractional quota gets a single worker, and computing outside the
+     * request threads leaves them free to serve other requests meanwhile.
+     */
+    public CorrelationMatrix getCorrelations(List<String> symbols, Instant from, Instant to, String interval) {
+        return getCorrelations(dataLoader.getSnapshot(), symbols, from, to, interval);
+    }
+
+    public CorrelationMatrix getCorrelations(DatasetSnapshot snapshot, List<String> symbols, Instant from, Instant to,
+                                             String interval) {
+        long started = System.nanoTime();
+        try {
+            logger.info("Getting {} return correlations of {} crypto symbols from {} to {}", interval,
+                    symbols == null ? "all" : symbols.size(), from, to);
+            checkWindow(from, to);
+            CandleInterval candleInterval = CandleInterval.parse(interval == null ? DEFAULT_CORRELATION_INTERVAL : interval);
+            Map<String, SymbolData> selected = new TreeMap<>();
+            if (symbols == null || symbols.isEmpty()) {
+                selected.putAll(snapshot.getSymbols());
+            } else {
+                for (String symbol : symbols) {
+                    SymbolData data = snapshot.get(symbol.toUpperCase());
+                    if (data == null || data.getStatistics() == null) {
+                        logger.warn("No data available for crypto symbol: {}", symbol);
+                        throw new CryptoNotFoundException("Unsupported or unavailable crypto: " + symbol);
+                    }
+                    selected.put(data.getSymbol(), data);
+                }
+            }
+            if (selected.size() > MAX_CORRELATION_SYMBOLS) {
+                throw new IllegalArgumentException("At most " + MAX_CORRELATION_SYMBOLS + " symbols can be correlated, select them with 'symbols'");
+            }
+
+            Long fromMillis = from == null ? null : from.toEpochMilli();
+            Long toMillis = to == null ? null : to.toEpochMilli();
+            return CorrelationMatrix.of(
+                    ReturnGrid.of(selected.values(), candleInterval, fromMillis, toMillis, MAX_CORRELATION_POINTS),
+                    correlationPool());
+        } finally {
+            correlationTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
         }
+    }
+
+    private ForkJoinPool correlationPool() {
+        ForkJoinPool pool = correlationPool.get();
+        if (pool == null) {
+            int parallelism = correlationParallelism > 0 ? correlationParallelism : Runtime.getRuntime().availableProcessors();
+            ForkJoinPool created = new ForkJoinPool(parallelism);
+            if (correlationPool.compareAndSet(null, created)) {
+                pool = created;
+            } else {
+                created.shutdown();
+                pool = correlationPool.get();
+            }
+        }
+        return pool;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ForkJoinPool pool = correlationPool.getAndSet(null);
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
 
-        logger.info("Highest normalized range crypto for date {} is: {}", date, highestCrypto);
-        return highestCrypto;
+    /**
+     * Resolves a requested zone against the configured rollup zones, or returns {@code null} for the primary zone
+     * when none was requested.
+     */
+    private ZoneId resolveZone(String zone) {
+        return zone == null || zone.isBlank() ? null : dataLoader.getRollupZones().resolve(zone);
     }
 }
@@ -0,0 +1,355 @@
+package com.example.crypto.service;
+
+import com.example.crypto.model.PriceSeries;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parser for the fixed {@code timestamp,symbol,price} data file format that reads rows straight from bytes.
+ * <p>
+ * Numbers are parsed in place into a {@link PriceSeries.Builder}, so parsing a row allocates nothing. Values the
+ * fast paths cannot handle exactly (exponents, more than 18 significant digits, anything unusual) fall back to
+ * {@link Long#parseLong(String)} and {@link Double#parseDouble(String)}, which keeps the accepted input and the
+ * parsed values identical to parsing the split fields as strings. Malformed rows fail with a
+ * {@link NumberFormatException} naming the line.
+ * <p>
+ * Files are read through memory-mapped windows of at most {@value #MAX_WINDOW} bytes.
+ * <p>
+ * A parser created by {@link #routing()} instead adds each row to the series of the symbol in its symbol column, for
+ * bodies that mix symbols.
+ */
+public final class PriceCsvParser {
+
+    static final int MAX_WINDOW = 1 << 28;
+
+    /**
+     * Length of a data file row with a 13-digit timestamp, a three-letter symbol and a price with two decimals.
+     */
+    private static final int TYPICAL_ROW_BYTES = 26;
+
+    /**
+     * Most ticks a file region presizes its series for, 4 MB of columns. Larger regions grow from there, so a region
+     * whose rows are longer than {@link #TYPICAL_ROW_BYTES} never reserves more than this up front.
+     */
+    static final int MAX_EXPECTED_TICKS = 1 << 18;
+
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_FAST_DIGITS = 18;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final PriceSeries.Builder builder;
+    private long line;
+    private int ticks;
+
+    /**
+     * Builders per upper-cased symbol of a routing parser, {@code null} otherwise. Consecutive rows usually share a
+     * symbol, so the last one is kept with its raw bytes to skip decoding the column again.
+     */
+    private final Map<String, PriceSeries.Builder> builders;
+    private byte[] lastSymbol = new byte[0];
+    private PriceSeries.Builder lastBuilder;
+
+    public PriceCsvParser(String symbol) {
+        this(symbol, 0);
+    }
+
+    private PriceCsvParser(String symbol, int expectedTicks) {
+        this.builder = PriceSeries.builder(symbol, expectedTicks);
+        this.builders = null;
+    }
+
+    private PriceCsvParser() {
+        this.builder = null;
+        this.builders = new LinkedHashMap<>();
+    }
+
+    /**
+     * Returns a parser that groups rows by their symbol column, upper-cased, rather than adding them all to one series.
+     */
+    public static PriceCsvParser routing() {
+        return new PriceCsvParser();
+    }
+
+    /**
+     * Result of parsing a file region: the parsed series and the file offset just after the last consumed byte.
+     */
+    public record FileResult(PriceSeries series, long end) {
+    }
+
+    /**
+     * Parses the rows of {@code file} between the byte offsets {@code from} and {@code to}.
+     *
+     * @param skipHeader          whether the first line of the region is a header
+     * @param includeTrailingLine whether a last line without a terminating newline is parsed too, rather than
+     *                            left unconsumed for a later call
+     */
+    public static FileResult parseFile(String symbol, Path file, long from, long to,
+                                       boolean skipHeader, boolean includeTrailingLine) throws IOException {
+        PriceCsvParser parser = new PriceCsvParser(symbol, expectedTicks(to - from));
+        long position = from;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            boolean header = skipHeader;
+            while (position < to) {
+                long windowEnd = Math.min(to, position + MAX_WINDOW);
+                boolean lastWindow = windowEnd == to;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowEnd - position);
+                int consumed = parser.parse(window, header, lastWindow && includeTrailingLine);
+                header = false;
+                position += consumed;
+                if (lastWindow) {
+                    break;
+                }
+                if (consumed == 0) {
+                    throw new NumberFormatException("Line " + (parser.line + 1) + " is longer than " + MAX_WINDOW + " bytes");
+                }
+            }
+        }
+        return new FileResult(parser.build(), position);
+    }
+
+    /**
+     * Ticks to presize the series of a region of {@code bytes} for. Sized for rows like
+     * {@code 1641009600000,BTC,46813.21}, so a tail of a few rows allocates a few ticks' room.
+     */
+    static int expectedTicks(long bytes) {
+        return (int) Math.min(MAX_EXPECTED_TICKS, bytes / TYPICAL_ROW_BYTES);
+    }
+
+    /**
+     * Parses the rows between the buffer's position and limit.
+     *
+     * @return the number of bytes consumed, which stops short of a trailing unterminated line unless
+     * {@code includeTrailingLine} is set
+     */
+    public int parse(ByteBuffer buffer, boolean skipHeader, boolean includeTrailingLine) {
+        int start = buffer.position();
+        int limit = buffer.limit();
+        int position = start;
+
+        if (skipHeader) {
+            int newline = indexOfNewline(buffer, position, limit);
+            if (newline < 0) {
+                return includeTrailingLine ? limit - start : 0;
+            }
+            line++;
+            position = newline + 1;
+        }
+
+        while (position < limit) {
+            int newline = indexOfNewline(buffer, position, limit);
+            if (newline < 0 && !includeTrailingLine) {
+                break;
+            }
+            int lineEnd = newline < 0 ? limit : newline;
+            line++;
+            parseLine(buffer, position, lineEnd);
+            position = newline < 0 ? limit : newline + 1;
+        }
+        return position - start;
+    }
+
+    /**
+     * Number of ticks parsed so far.
+     */
+    public int ticks() {
+        return ticks;
+    }
+
+    public PriceSeries build() {
+        if (builder == null) {
+            throw new IllegalStateException("A routing parser builds one series per symbol");
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the series parsed by a routing parser, in the order their symbols first appeared.
+     */
+    public Map<String, PriceSeries> buildAll() {
+        if (builders == null) {
+            throw new IllegalStateException("Only a routing parser builds one series per symbol");
+        }
+        Map<String, PriceSeries> series = new LinkedHashMap<>();
+        builders.forEach((symbol, symbolBuilder) -> series.put(symbol, symbolBuilder.build()));
+        return series;
+    }
+
+    private void parseLine(ByteBuffer buffer, int from, int to) {
+        if (to > from && buffer.get(to - 1) == '\r') {
+            to--;
+        }
+        if (from == to) {
+            return; // Blank line
+        }
+
+        int timestampEnd = indexOf(buffer, from, to, (byte) ',');
+        if (timestampEnd < 0) {
+            throw malformed(buffer, from, to, null);
+        }
+        int symbolEnd = indexOf(buffer, timestampEnd + 1, to, (byte) ',');
+        if (symbolEnd < 0) {
+            throw malformed(buffer, from, to, null);
+        }
+        int priceEnd = indexOf(buffer, symbolEnd + 1, to, (byte) ',');
+        if (priceEnd < 0) {
+            priceEnd = to;
+        }
+
+        try {
+            long timestamp = parseTimestamp(buffer, from, timestampEnd);
+            double price = parsePrice(buffer, symbolEnd + 1, priceEnd);
+            if (price == 0) {
+                return; // A zero price is treated as invalid
+            }
+            builderFor(buffer, timestampEnd + 1, symbolEnd, from, to).add(timestamp, price);
+            ticks++;
+        } catch (NumberFormatException e) {
+            throw malformed(buffer, from, to, e);
+        }
+    }
+
+    private PriceSeries.Builder builderFor(ByteBuffer buffer, int symbolFrom, int symbolTo, int lineFrom, int lineTo) {
+        if (builders == null) {
+            return builder;
+        }
+        int length = symbolTo - symbolFrom;
+        if (length == lastSymbol.length && matches(buffer, symbolFrom, lastSymbol)) {
+            return lastBuilder;
+        }
+        String symbol = text(buffer, symbolFrom, symbolTo).strip().toUpperCase(Locale.ROOT);
+        if (symbol.isEmpty()) {
+            throw malformed(buffer, lineFrom, lineTo, null);
+        }
+        lastSymbol = new byte[length];
+        buffer.get(symbolFrom, lastSymbol);
+        lastBuilder = builders.computeIfAbsent(symbol, PriceSeries::builder);
+        return lastBuilder;
+    }
+
+    private static boolean matches(ByteBuffer buffer, int from, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(from + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseTimestamp(ByteBuffer buffer, int from, int to) {
+        int position = from;
+        boolean negative = false;
+        if (position < to && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+            negative = buffer.get(position) == '-';
+            position++;
+        }
+        if (position == to || to - position > MAX_FAST_DIGITS) {
+            return Long.parseLong(text(buffer, from, to));
+        }
+        long value = 0;
+        for (; position < to; position++) {
+            int digit = buffer.get(position) - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.parseLong(text(buffer, from, to));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private static double parsePrice(ByteBuffer buffer, int from, int to) {
+        int position = from;
+        int end = to;
+        while (position < end && isBlank(buffer.get(position))) {
+            position++;
+        }
+        while (end > position && isBlank(buffer.get(end - 1))) {
+            end--;
+        }
+
+        boolean negative = false;
+        if (position < end && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+            negative = buffer.get(position) == '-';
+            position++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        boolean afterDot = false;
+        for (; position < end; position++) {
+            byte b = buffer.get(position);
+            if (b >= '0' && b <= '9') {
+                anyDigit = true;
+                if (mantissa == 0 && b == '0') {
+                    if (afterDot) {
+                        exponent--;
+                    }
+                    continue;
+                }
+                if (significantDigits == MAX_FAST_DIGITS) {
+                    return Double.parseDouble(text(buffer, from, to));
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                significantDigits++;
+                if (afterDot) {
+                    exponent--;
+                }
+            } else if (b == '.' && !afterDot) {
+                afterDot = true;
+            } else {
+                return Double.parseDouble(text(buffer, from, to));
+            }
+        }
+
+        if (!anyDigit || mantissa > MAX_EXACT_MANTISSA || -exponent >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(text(buffer, from, to));
+        }
+        // Both operands are exact doubles, so a single division is correctly rounded
+        double value = exponent == 0 ? mantissa : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    private NumberFormatException malformed(ByteBuffer buffer, int from, int to, Exception cause) {
+        NumberFormatException exception = new NumberFormatException("Malformed row at line " + line + ": '" + text(buffer, from, to) + "'");
+        if (cause != null) {
+            exception.initCause(cause);
+        }
+        return exception;
+    }
+
+    private static boolean isBlank(byte b) {
+        return (b & 0xff) <= ' ';
+    }
+
+    private static int indexOfNewline(ByteBuffer buffer, int from, int to) {
+        return indexOf(buffer, from, to, (byte) '\n');
+    }
+
+    private static int indexOf(ByteBuffer buffer, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String text(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,387 @@
+package com.example.crypto.service;
+
+import com.example.crypto.model.DailyRollup;
+import com.example.crypto.model.PriceSeries;
+import com.example.crypto.model.RollupSettings;
+import com.example.crypto.model.SymbolData;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary snapshots of loaded symbols, one file per data file, so that a restart can map the parsed columns back in
+ * instead of parsing the CSV again.
+ * <p>
+ * A snapshot is a little-endian header followed by column blocks:
+ * <pre>
+ * int    magic, format version, CRC32C of everything after the first 16 bytes, header length
+ * long   source file size, last modified time and consumed offset, tick count
+ * int    day count, lengths of the fingerprint, the source file name and the rollup zone id
+ * byte[] fingerprint, source file name and zone id (UTF-8), padded to a multiple of 8
+ * long[] timestamps
+ * double[] prices
+ * long[] epoch days
+ * double[] opens, highs, lows, closes
+ * int[]  tick counts per day
+ * </pre>
+ * Only the rollup in the primary zone is stored; rollups in additional zones, candles and streaming metrics are
+ * rebuilt from the series on read. The mapped columns are copied into the heap arrays a series is made of rather than
+ * served from the mapping, so that restored symbols grow and get replaced like parsed ones. A restore therefore costs
+ * a copy and a rebuild linear in the ticks, but no parsing, and the service starts serving once every snapshot has
+ * been read.
+ * Snapshots are written to a temporary file, synced and moved into place, and the directory is synced so that the
+ * rename survives a crash. Anything that does not match its checksum or the expected layout is rejected on read.
+ */
+final class SymbolSnapshotStore {
+
+    static final String SNAPSHOT_SUFFIX = ".snapshot";
+    static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x4E535243; // "CRSN"
+    private static final int FIXED_HEADER_LENGTH = 64;
+    private static final int CHECKSUMMED_FROM = 16;
+    private static final int MAX_TICKS = 1 << 30; // Well below the largest array a series can grow to
+    private static final int DAY_BYTES = Long.BYTES + 4 * Double.BYTES + Integer.BYTES;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int MAX_WINDOW = PriceCsvParser.MAX_WINDOW;
+
+    private final Path directory;
+    private final RollupSettings settings;
+    private final ZoneId zone;
+
+    SymbolSnapshotStore(Path directory, RollupSettings settings) {
+        this.directory = directory;
+        this.settings = settings;
+        this.zone = settings.getZones().getPrimary();
+    }
+
+    Path pathFor(String fileName) {
+        return directory.resolve(fileName + SNAPSHOT_SUFFIX);
+    }
+
+    List<Path> list() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SNAPSHOT_SUFFIX)).sorted().toList();
+        }
+    }
+
+    /**
+     * Writes the snapshot of one data file, replacing any previous one.
+     */
+    void write(String fileName, CryptoDataLoader.FileState state, SymbolData data) throws IOException {
+        byte[] fingerprint = state.fingerprint();
+        byte[] name = fileName.getBytes(StandardCharsets.UTF_8);
+        PriceSeries series = data.getSeries();
+        DailyRollup daily = data.getDaily();
+        byte[] zoneId = daily.getZone().getId().getBytes(StandardCharsets.UTF_8);
+        int headerLength = headerLength(fingerprint.length, name.length, zoneId.length);
+
+        Files.createDirectories(directory);
+        Path temporary = directory.resolve(fileName + SNAPSHOT_SUFFIX + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ColumnWriter out = new ColumnWriter(channel);
+            out.putInt(MAGIC);
+            out.putInt(FORMAT_VERSION);
+            out.putInt(0); // Checksum, filled in once everything is written
+            out.putInt(headerLength);
+            out.putLong(state.size());
+            out.putLong(state.lastModified());
+            out.putLong(state.offset());
+            out.putLong(series.size());
+            out.putInt(daily.size());
+            out.putInt(fingerprint.length);
+            out.putInt(name.length);
+            out.putInt(zoneId.length);
+            out.putBytes(fingerprint);
+            out.putBytes(name);
+            out.putBytes(zoneId);
+            out.padTo(headerLength);
+
+            out.putLongs(series.timestampColumn());
+            out.putDoubles(series.priceColumn());
+            for (int i = 0; i < daily.size(); i++) {
+                out.putLong(daily.epochDayAt(i));
+            }
+            for (int i = 0; i < daily.size(); i++) {
+                out.putDouble(daily.openAt(i));
+            }
+            for (int i = 0; i < daily.size(); i++) {
+                out.putDouble(daily.highAt(i));
+            }
+            for (int i = 0; i < daily.size(); i++) {
+                out.putDouble(daily.lowAt(i));
+            }
+            for (int i = 0; i < daily.size(); i++) {
+                out.putDouble(daily.closeAt(i));
+            }
+            for (int i = 0; i < daily.size(); i++) {
+                out.putInt(daily.countAt(i));
+            }
+            out.finish();
+            channel.force(true); // The move must not become durable before the contents it points to
+        }
+        Files.move(temporary, pathFor(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(directory);
+    }
+
+    /**
+     * Deletes the snapshot of one data file, if there is one.
+     */
+    void delete(String fileName) throws IOException {
+        if (Files.deleteIfExists(pathFor(fileName))) {
+            syncDirectory(directory);
+        }
+    }
+
+    /**
+     * Makes the renames and deletions in a directory durable, which syncing the files themselves does not. Some
+     * platforms, e.g. Windows, cannot open a directory for syncing; there the entries are as durable as the file
+     * system makes them anyway.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (AccessDeniedException e) {
+            // Not supported for directories on this platform
+        }
+    }
+
+    /**
+     * Maps a snapshot back in. Rollups recorded for a different primary zone than this store's are rebuilt from the
+     * series.
+     *
+     * @return the snapshotted data file with the state it had when the snapshot was written
+     * @throws IOException if the file cannot be read or is not a valid snapshot of the current format
+     */
+    CryptoDataLoader.FileRefresh read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < FIXED_HEADER_LENGTH) {
+                throw invalid(file, "truncated header");
+            }
+            ByteBuffer header = readFully(channel, 0, FIXED_HEADER_LENGTH);
+            if (header.getInt() != MAGIC) {
+                throw invalid(file, "not a snapshot file");
+            }
+            int version = header.getInt();
+            if (version != FORMAT_VERSION) {
+                throw invalid(file, "format version " + version + ", expected " + FORMAT_VERSION);
+            }
+            int checksum = header.getInt();
+            int headerLength = header.getInt();
+            long size = header.getLong();
+            long lastModified = header.getLong();
+            long offset = header.getLong();
+            long tickCount = header.getLong();
+            int dayCount = header.getInt();
+            int fingerprintLength = header.getInt();
+            int nameLength = header.getInt();
+            int zoneLength = header.getInt();
+
+            if (fingerprintLength < 0 || nameLength < 0 || zoneLength < 0 || dayCount < 0
+                    || tickCount < 0 || tickCount > MAX_TICKS
+                    || headerLength != headerLength(fingerprintLength, nameLength, zoneLength)
+                    || (long) dayCount * DAY_BYTES > MAX_WINDOW
+                    || length != headerLength + tickCount * (Long.BYTES + Double.BYTES) + (long) dayCount * DAY_BYTES) {
+                throw invalid(file, "inconsistent layout");
+            }
+            if (checksum(channel, length) != checksum) {
+                throw invalid(file, "checksum mismatch");
+            }
+
+            ByteBuffer variable = readFully(channel, FIXED_HEADER_LENGTH, headerLength - FIXED_HEADER_LENGTH);
+            byte[] fingerprint = new byte[fingerprintLength];
+            variable.get(fingerprint);
+            String fileName = readString(variable, nameLength);
+            String zoneId = readString(variable, zoneLength);
+
+            PriceSeries series = readSeries(channel, CryptoDataLoader.symbolOf(fileName), headerLength, (int) tickCount);
+            SymbolData data;
+            if (zoneId.equals(zone.getId())) {
+                long dailyFrom = headerLength + tickCount * (Long.BYTES + Double.BYTES);
+                data = SymbolData.of(series, readDaily(channel, zone, dailyFrom, dayCount), settings);
+            } else {
+                data = SymbolData.of(series, settings);
+            }
+            // Symbols are only snapshotted once their data file covers all their pushed ticks
+            return new CryptoDataLoader.FileRefresh(fileName,
+                    new CryptoDataLoader.FileState(size, lastModified, offset, fingerprint), data, false,
+                    series.isEmpty() ? Long.MIN_VALUE : series.lastTimestamp());
+        }
+    }
+
+    private static PriceSeries readSeries(FileChannel channel, String symbol, long from, int tickCount) throws IOException {
+        PriceSeries.Builder builder = PriceSeries.builder(symbol);
+        long pricesFrom = from + (long) tickCount * Long.BYTES;
+        int perWindow = MAX_WINDOW / Long.BYTES;
+        for (int done = 0; done < tickCount; ) {
+            int count = Math.min(tickCount - done, perWindow);
+            LongBuffer timestamps = map(channel, from + (long) done * Long.BYTES, (long) count * Long.BYTES).asLongBuffer();
+            DoubleBuffer prices = map(channel, pricesFrom + (long) done * Double.BYTES, (long) count * Double.BYTES).asDoubleBuffer();
+            builder.addAll(timestamps, prices);
+            done += count;
+        }
+        return builder.build();
+    }
+
+    private static DailyRollup readDaily(FileChannel channel, ZoneId zone, long from, int dayCount) throws IOException {
+        ByteBuffer buffer = map(channel, from, (long) dayCount * DAY_BYTES);
+        long[] epochDays = new long[dayCount];
+        double[] opens = new double[dayCount];
+        double[] highs = new double[dayCount];
+        double[] lows = new double[dayCount];
+        double[] closes = new double[dayCount];
+        int[] counts = new int[dayCount];
+        buffer.asLongBuffer().get(epochDays);
+        buffer.position(buffer.position() + dayCount * Long.BYTES);
+        for (double[] column : new double[][]{opens, highs, lows, closes}) {
+            buffer.asDoubleBuffer().get(column);
+            buffer.position(buffer.position() + dayCount * Double.BYTES);
+        }
+        buffer.asIntBuffer().get(counts);
+        return DailyRollup.ofColumns(zone, epochDays, opens, highs, lows, closes, counts);
+    }
+
+    private static int checksum(FileChannel channel, long length) throws IOException {
+        CRC32C crc = new CRC32C();
+        for (long position = CHECKSUMMED_FROM; position < length; position += MAX_WINDOW) {
+            crc.update(map(channel, position, Math.min(MAX_WINDOW, length - position)));
+        }
+        return (int) crc.getValue();
+    }
+
+    private static int headerLength(int fingerprintLength, int nameLength, int zoneLength) {
+        int length = FIXED_HEADER_LENGTH + fingerprintLength + nameLength + zoneLength;
+        return (length + Long.BYTES - 1) & -Long.BYTES;
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static IOException invalid(Path file, String reason) {
+        return new IOException("Invalid snapshot file " + file + ": " + reason);
+    }
+
+    /**
+     * Buffered little-endian writer that checksums everything after the first {@value #CHECKSUMMED_FROM} bytes and
+     * patches the checksum into the header when finished.
+     */
+    private static final class ColumnWriter {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32C crc = new CRC32C();
+        private long written;
+
+        ColumnWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES).putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES).putLong(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(Double.BYTES).putDouble(value);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            for (byte b : bytes) {
+                ensure(1).put(b);
+            }
+        }
+
+        void padTo(long position) throws IOException {
+            while (written + buffer.position() < position) {
+                ensure(1).put((byte) 0);
+            }
+        }
+
+        void putLongs(LongBuffer values) throws IOException {
+            while (values.hasRemaining()) {
+                int count = Math.min(values.remaining(), ensure(Long.BYTES).remaining() / Long.BYTES);
+                buffer.asLongBuffer().put(values.slice(values.position(), count));
+                buffer.position(buffer.position() + count * Long.BYTES);
+                values.position(values.position() + count);
+            }
+        }
+
+        void putDoubles(DoubleBuffer values) throws IOException {
+            while (values.hasRemaining()) {
+                int count = Math.min(values.remaining(), ensure(Double.BYTES).remaining() / Double.BYTES);
+                buffer.asDoubleBuffer().put(values.slice(values.position(), count));
+                buffer.position(buffer.position() + count * Double.BYTES);
+                values.position(values.position() + count);
+            }
+        }
+
+        void finish() throws IOException {
+            flush();
+            ByteBuffer checksum = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            checksum.putInt((int) crc.getValue()).flip();
+            while (checksum.hasRemaining()) {
+                channel.write(checksum, 8 + checksum.position());
+            }
+        }
+
+        private ByteBuffer ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+            return buffer;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            ByteBuffer checksummed = buffer.duplicate();
+            if (written < CHECKSUMMED_FROM) {
+                checksummed.position((int) Math.min(checksummed.limit(), CHECKSUMMED_FROM - written));
+            }
+            crc.update(checksummed);
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package com.example.crypto.service;
+
+import com.example.crypto.exception.CryptoDataProcessingException;
+import com.example.crypto.model.IngestResult;
+import com.example.crypto.model.PriceSeries;
+import com.example.crypto.model.Revision;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Accepts pushed batches of ticks, makes them durable in the {@link TickLog} and appends them to the loaded data.
+ * <p>
+ * Requests only parse and validate their batch; a single committer thread then takes every batch queued so far,
+ * writes them to the log with one {@code fsync}, and publishes them through the loader as one new dataset version
+ * before the requests return. Under load, each sync and each rebuilt ranking is shared by many requests.
+ * <p>
+ * Bodies are parsed as they are read, and at most {@value #MAX_CONCURRENT_PUSHES} requests hold parsed ticks at a
+ * time, so the heap needed for pushes is bounded whatever the number of clients. The log is bounded by
+ * {@code crypto.ticks.log.max-size}: when it fills up, it is compacted down to the pushed ticks that no data file
+ * covers yet, and pushes fail while even those leave too little room.
+ */
+@Service
+public class TickIngestor {
+
+    private static final Logger logger = LoggerFactory.getLogger(TickIngestor.class);
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv");
+
+    /**
+     * Largest number of ticks, and of body bytes, accepted by a single request.
+     */
+    static final int MAX_TICKS_PER_REQUEST = 100_000;
+    static final int MAX_BODY_BYTES = 8 << 20;
+
+    /**
+     * Requests parsing or waiting for their ticks to be committed at a time; others wait before reading their body.
+     */
+    static final int MAX_CONCURRENT_PUSHES = 16;
+
+    /**
+     * Number of ticks after which the committer stops adding queued batches to the group it is about to commit.
+     */
+    static final int MAX_GROUP_TICKS = 1 << 20;
+
+    /**
+     * Bytes of a CSV body read at a time, which bounds the length of a row.
+     */
+    private static final int CSV_CHUNK_BYTES = 1 << 16;
+
+    private static final DataSize DEFAULT_LOG_MAX_SIZE = DataSize.ofGigabytes(1);
+
+    private static final Pattern SYMBOL = Pattern.compile("[A-Z0-9]{1,32}");
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static final PendingBatch SHUTDOWN = new PendingBatch(Map.of(), 0, null);
+
+    private final CryptoDataLoader dataLoader;
+    private final Counter ticksIngested;
+    private final Timer commitTimer;
+
+    @Value("${crypto.ticks.log.path:}")
+    private String logPath;  // File the pushed ticks are logged to, empty to keep them in memory only
+
+    @Value("${crypto.ticks.log.max-size:1GB}")
+    private DataSize logMaxSize;  // Size the log is compacted at, and never grows beyond
+
+    private final Semaphore pushes = new Semaphore(MAX_CONCURRENT_PUSHES);
+    // One more than the pushes, so the shutdown marker always fits
+    private final BlockingQueue<PendingBatch> queue = new ArrayBlockingQueue<>(MAX_CONCURRENT_PUSHES + 1);
+    private volatile TickLog log;
+    private volatile Thread committer;
+    private volatile boolean closed;
+
+    public TickIngestor(CryptoDataLoader dataLoader, MeterRegistry meterRegistry) {
+        this.dataLoader = dataLoader;
+        this.ticksIngested = Counter.builder("crypto.ticks.ingested")
+                .description("Pushed ticks made durable and published")
+                .register(meterRegistry);
+        this.commitTimer = Timer.builder("crypto.ticks.commit")
+                .description("Time spent logging, syncing and publishing a group of pushed tick batches")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Replays the tick log into the loaded data and starts the committer. Runs after the loader's own startup scan,
+     * so the logged ticks are appended to the data read from files and snapshots.
+     */
+    @PostConstruct
+    public void init() {
+        if (logPath != null && !logPath.isBlank()) {
+            long start = System.nanoTime();
+            Map<String, PriceSeries.Builder> replayed = new LinkedHashMap<>();
+            try {
+                log = TickLog.open(Path.of(logPath), batch -> batch.forEach((symbol, series) ->
+                        replayed.computeIfAbsent(symbol, PriceSeries::builder).addAll(series.timestampColumn(), series.priceColumn())));
+            } catch (IOException e) {
+                throw new CryptoDataProcessingException("Failed to open tick log: " + logPath, e);
+            }
+            Map<String, PriceSeries> ticks = new LinkedHashMap<>();
+            replayed.forEach((symbol, builder) -> ticks.put(symbol, builder.build()));
+            if (!ticks.isEmpty()) {
+                dataLoader.appendTicks(ticks);
+            }
+            logger.info("Replayed {} pushed ticks for {} crypto symbols from tick log in {} ms", count(ticks), ticks.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        committer = Thread.ofPlatform().name("tick-committer").daemon().start(this::commitLoop);
+    }
+
+    /**
+     * Commits the batches still queued, then stops the committer and closes the log.
+     */
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        Thread thread = committer;
+        committer = null;
+        if (thread != null) {
+            try {
+                queue.put(SHUTDOWN);
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            List<PendingBatch> abandoned = new ArrayList<>();
+            queue.drainTo(abandoned);
+            abandoned.forEach(batch -> batch.committed().completeExceptionally(
+                    new IllegalStateException("Tick ingestion is shutting down")));
+        }
+        TickLog current = log;
+        log = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                logger.warn("Could not close tick log: {}", logPath, e);
+            }
+        }
+    }
+
+    /**
+     * Parses a JSON array of {@code {"timestamp", "symbol", "price"}} objects or {@code timestamp,symbol,price} CSV rows
+     * with an optional header, and returns once the ticks are durable and published. Timestamps are epoch millis;
+     * JSON also accepts ISO-8601 instants. Symbols are upper-cased.
+     *
+     * @throws IllegalArgumentException if the body is malformed, too large, or has an invalid symbol or price
+     */
+    public IngestResult ingest(InputStream body, MediaType contentType) {
+        try {
+            pushes.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CryptoDataProcessingException("Interrupted while waiting to ingest ticks", e);
+        }
+        try {
+            return submit(parse(body, contentType));
+        } finally {
+            pushes.release();
+        }
+    }
+
+    private IngestResult submit(Map<String, PriceSeries> ticks) {
+        int count = count(ticks);
+        if (count == 0) {
+            return new IngestResult(0, 0, dataLoader.getSnapshot().getVersion());
+        }
+        if (closed) {
+            throw new IllegalStateException("Tick ingestion is shutting down");
+        }
+
+        PendingBatch batch = new PendingBatch(ticks, count, new CompletableFuture<>());
+        try {
+            queue.put(batch);
+            return new IngestResult(count, ticks.size(), batch.committed().get().getVersion());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CryptoDataProcessingException("Interrupted while waiting for ticks to be committed", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CryptoDataProcessingException("Failed to commit ticks", e.getCause());
+        }
+    }
+
+    static Map<String, PriceSeries> parse(InputStream body, MediaType contentType) {
+        Map<String, PriceSeries> ticks;
+        try (InputStream limited = new LimitedInputStream(body)) {
+            if (contentType != null && contentType.isCompatibleWith(TEXT_CSV)) {
+                ticks = parseCsv(limited);
+            } else if (contentType == null || contentType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                ticks = parseJson(limited);
+            } else {
+                throw new IllegalArgumentException("Unsupported content type: " + contentType);
+            }
+        } catch (IOException e) {
+            throw new CryptoDataProcessingException("Failed to read ticks", e);
+        }
+
+        if (count(ticks) > MAX_TICKS_PER_REQUEST) {
+            throw new IllegalArgumentException("At most " + MAX_TICKS_PER_REQUEST + " ticks can be pushed at once");
+        }
+        for (PriceSeries series : ticks.values()) {
+            if (!SYMBOL.matcher(series.getSymbol()).matches()) {
+                throw new IllegalArgumentException("Invalid symbol: " + series.getSymbol());
+            }
+            for (int i = 0; i < series.size(); i++) {
+                double price = series.priceAt(i);
+                if (!(price > 0) || Double.isInfinite(price)) {
+                    throw new IllegalArgumentException("Invalid price for " + series.getSymbol() + ": " + price);
+                }
+            }
+        }
+        return ticks;
+    }
+
+    /**
+     * Parses rows like the data files, whose zero prices are skipped, {@value #CSV_CHUNK_BYTES} bytes at a time. A
+     * first line that does not start with a digit or sign is taken as a header.
+     */
+    private static Map<String, PriceSeries> parseCsv(InputStream body) throws IOException {
+        PriceCsvParser parser = PriceCsvParser.routing();
+        byte[] chunk = new byte[CSV_CHUNK_BYTES];
+        int start = 0;
+        int length = 0;
+        Boolean header = null;
+        boolean end = false;
+        while (!end) {
+            int read = body.read(chunk, length, chunk.length - length);
+            end = read < 0;
+            length += Math.max(read, 0);
+            if (header == null) {
+                while (start < length && (chunk[start] & 0xff) <= ' ') {
+                    start++;
+                }
+                if (start == length) {
+                    start = 0;
+                    length = 0;
+                    continue;
+                }
+                header = !Character.isDigit(chunk[start]) && chunk[start] != '-' && chunk[start] != '+';
+            }
+
+            int consumed = parser.parse(ByteBuffer.wrap(chunk, start, length - start).slice(), header, end);
+            if (consumed > 0) {
+                header = false;
+            }
+            if (parser.ticks() > MAX_TICKS_PER_REQUEST) {
+                throw new IllegalArgumentException("At most " + MAX_TICKS_PER_REQUEST + " ticks can be pushed at once");
+            }
+            start += consumed;
+            System.arraycopy(chunk, start, chunk, 0, length - start);
+            length -= start;
+            start = 0;
+            if (length == chunk.length) {
+                throw new IllegalArgumentException("A CSV line exceeds " + CSV_CHUNK_BYTES + " bytes");
+            }
+        }
+        return parser.buildAll();
+    }
+
+    private static Map<String, PriceSeries> parseJson(InputStream body) throws IOException {
+        Map<String, PriceSeries.Builder> builders = new LinkedHashMap<>();
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of ticks");
+            }
+            String lastSymbol = null;
+            PriceSeries.Builder lastBuilder = null;
+            int count = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                if (++count > MAX_TICKS_PER_REQUEST) {
+                    throw new IllegalArgumentException("At most " + MAX_TICKS_PER_REQUEST + " ticks can be pushed at once");
+                }
+                Long timestamp = null;
+                String symbol = null;
+                double price = Double.NaN;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    switch (field) {
+                        case "timestamp" -> timestamp = timestampOf(parser, value);
+                        case "symbol" -> symbol = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                        case "price" -> price = value.isNumeric() ? parser.getDoubleValue() : Double.NaN;
+                        default -> parser.skipChildren();
+                    }
+                }
+                if (timestamp == null || symbol == null || Double.isNaN(price)) {
+                    throw new IllegalArgumentException("Tick " + count + " needs a timestamp, a symbol and a numeric price");
+                }
+                if (!symbol.equals(lastSymbol)) {
+                    lastSymbol = symbol;
+                    lastBuilder = builders.computeIfAbsent(symbol.strip().toUpperCase(Locale.ROOT), PriceSeries::builder);
+                }
+                lastBuilder.add(timestamp, price);
+            }
+            if (parser.currentToken() != JsonToken.END_ARRAY || parser.nextToken() != null) {
+                throw new IllegalArgumentException("Expected a JSON array of tick objects");
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON ticks: " + e.getOriginalMessage(), e);
+        }
+        Map<String, PriceSeries> ticks = new LinkedHashMap<>();
+        builders.forEach((symbol, builder) -> ticks.put(symbol, builder.build()));
+        return ticks;
+    }
+
+    private static Long timestampOf(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (value == JsonToken.VALUE_STRING) {
+            try {
+                return Instant.parse(parser.getText()).toEpochMilli();
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid timestamp: " + parser.getText(), e);
+            }
+        }
+        return null;
+    }
+
+    private void commitLoop() {
+        List<PendingBatch> group = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            int ticks = group.get(0).count();
+            PendingBatch next;
+            while (ticks < MAX_GROUP_TICKS && (next = queue.poll()) != null) {
+                group.add(next);
+                ticks += next.count();
+            }
+            if (group.remove(SHUTDOWN)) {
+                running = false;
+                // Batches queued after the shutdown marker are committed too, rather than left waiting forever
+                queue.drainTo(group);
+            }
+            if (!group.isEmpty()) {
+                commit(group);
+            }
+            group.clear();
+        }
+    }
+
+    /**
+     * Logs and publishes a group of batches, completing each of them with the revision they became visible in, or
+     * with the failure.
+     */
+    private void commit(List<PendingBatch> group) {
+        long start = System.nanoTime();
+        try {
+            List<Map<String, PriceSeries>> batches = new ArrayList<>(group.size());
+            Map<String, PriceSeries> merged = new LinkedHashMap<>();
+            int ticks = 0;
+            for (PendingBatch batch : group) {
+                batches.add(batch.ticks());
+                batch.ticks().forEach((symbol, series) -> merged.merge(symbol, series, PriceSeries::append));
+                ticks += batch.count();
+            }
+            TickLog current = log;
+            if (current != null) {
+                makeRoom(current, batches);
+                current.append(batches);
+            }
+            Revision revision = dataLoader.appendTicks(merged);
+            ticksIngested.increment(ticks);
+            logger.debug("Committed {} pushed ticks from {} batches in dataset version {}", ticks, group.size(), revision.getVersion());
+            for (PendingBatch batch : group) {
+                batch.committed().complete(revision);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to commit {} batches of pushed ticks", group.size(), e);
+            CryptoDataProcessingException failure = new CryptoDataProcessingException("Failed to commit ticks", e);
+            for (PendingBatch batch : group) {
+                batch.committed().completeExceptionally(failure);
+            }
+        } finally {
+            commitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Makes sure the batches fit in the log. A full log is compacted down to the pushed ticks that no data file
+     * covers yet, but only if that frees at least a quarter of it, so that compacting costs at most a few times what
+     * was appended since; otherwise the batches are refused.
+     */
+    private void makeRoom(TickLog current, List<Map<String, PriceSeries>> batches) throws IOException {
+        long maxSize = (logMaxSize == null ? DEFAULT_LOG_MAX_SIZE : logMaxSize).toBytes();
+        long needed = 0;
+        for (Map<String, PriceSeries> batch : batches) {
+            needed += TickLog.recordLength(batch);
+        }
+        if (current.size() + needed <= maxSize) {
+            return;
+        }
+
+        Map<String, PriceSeries> uncovered = dataLoader.getUncoveredTicks();
+        if (TickLog.compactedLength(uncovered) + needed <= maxSize - maxSize / 4) {
+            long start = System.nanoTime();
+            long before = current.size();
+            current.compact(uncovered);
+            logger.info("Compacted tick log from {} to {} bytes in {} ms", before, current.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        if (current.size() + needed > maxSize) {
+            throw new IllegalStateException("Tick log is full: " + needed + " more bytes would exceed " + maxSize
+                    + " bytes, until the data files cover more of the pushed ticks");
+        }
+    }
+
+    private static int count(Map<String, PriceSeries> ticks) {
+        int count = 0;
+        for (PriceSeries series : ticks.values()) {
+            count += series.size();
+        }
+        return count;
+    }
+
+    /**
+     * Fails a body once more than {@value #MAX_BODY_BYTES} bytes of it have been read.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private long remaining = MAX_BODY_BYTES;
+
+        LimitedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                consume(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0) {
+                consume(read);
+            }
+            return read;
+        }
+
+        private void consume(int bytes) {
+            remaining -= bytes;
+            if (remaining < 0) {
+                throw new IllegalArgumentException("Request body exceeds " + MAX_BODY_BYTES + " bytes");
+            }
+        }
+    }
+
+    /**
+     * A parsed request waiting for the committer.
+     */
+    private record PendingBatch(Map<String, PriceSeries> ticks, int count, CompletableFuture<Revision> committed) {
+    }
+}
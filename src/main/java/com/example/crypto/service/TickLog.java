@@ -0,0 +1,385 @@
+package com.example.crypto.service;
+
+import com.example.crypto.model.PriceSeries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of pushed ticks, which makes them durable without writing them back into the data files.
+ * <p>
+ * The log is a little-endian header followed by one record per ingested batch:
+ * <pre>
+ * int    magic, format version
+ * per record:
+ *   int    payload length, CRC32C of the payload
+ *   int    symbol count
+ *   per symbol:
+ *     int      symbol length, tick count
+ *     byte[]   symbol (UTF-8), padded to a multiple of 8
+ *     long[]   timestamps
+ *     double[] prices
+ * </pre>
+ * {@link #append(List)} writes a whole group of batches with one write and one {@code fsync}, so concurrent requests
+ * share the cost of syncing. A crash during a write leaves an incomplete last record or one that does not match its
+ * checksum; {@link #open(Path, Consumer)} replays every record before it and truncates the log there.
+ * {@link #compact(Map)} replaces the log with one holding just the given ticks, written next to it and moved into
+ * place, so a crash leaves either the old or the new log.
+ * <p>
+ * Not thread-safe: a single committer thread owns the log.
+ */
+final class TickLog implements Closeable {
+
+    static final int FORMAT_VERSION = 1;
+
+    private static final Logger logger = LoggerFactory.getLogger(TickLog.class);
+
+    private static final int MAGIC = 0x4C545243; // "CRTL"
+    private static final int HEADER_LENGTH = 8;
+    private static final int RECORD_HEADER_LENGTH = 8;
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1 << 20;
+    private static final int COMPACTED_RECORD_TICKS = 1 << 16;
+
+    private final Path file;
+    private FileChannel channel;
+    private long size;
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    private TickLog(Path file, FileChannel channel, long size) {
+        this.file = file;
+        this.channel = channel;
+        this.size = size;
+    }
+
+    /**
+     * Opens the log, creating it if it does not exist, and hands every valid record to {@code replay} in the order
+     * they were appended.
+     *
+     * @throws IOException if the file cannot be read or is not a tick log
+     */
+    static TickLog open(Path file, Consumer<Map<String, PriceSeries>> replay) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long length = channel.size();
+            if (length < HEADER_LENGTH) {
+                channel.truncate(0);
+                writeHeader(channel);
+                channel.force(true);
+                return new TickLog(file, channel, HEADER_LENGTH);
+            }
+
+            ByteBuffer header = readFully(channel, 0, HEADER_LENGTH);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not a tick log of format version " + FORMAT_VERSION + ": " + file);
+            }
+            long end = replay(channel, length, replay);
+            if (end < length) {
+                logger.warn("Truncating {} bytes of incomplete or corrupt records at offset {} of tick log: {}",
+                        length - end, end, file);
+                channel.truncate(end);
+                channel.force(true);
+            }
+            return new TickLog(file, channel, end);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads records from the start of the log until its end or the first invalid record.
+     *
+     * @return the offset just after the last valid record
+     */
+    private static long replay(FileChannel channel, long length, Consumer<Map<String, PriceSeries>> replay) throws IOException {
+        long position = HEADER_LENGTH;
+        CRC32C crc = new CRC32C();
+        while (length - position >= RECORD_HEADER_LENGTH) {
+            ByteBuffer header = readFully(channel, position, RECORD_HEADER_LENGTH);
+            int payloadLength = header.getInt();
+            int checksum = header.getInt();
+            if (payloadLength < Integer.BYTES || payloadLength > length - position - RECORD_HEADER_LENGTH) {
+                break;
+            }
+            ByteBuffer payload = readFully(channel, position + RECORD_HEADER_LENGTH, payloadLength);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            Map<String, PriceSeries> batch = decode(payload);
+            if (batch == null) {
+                break;
+            }
+            replay.accept(batch);
+            position += RECORD_HEADER_LENGTH + payloadLength;
+        }
+        return position;
+    }
+
+    /**
+     * Appends one record per batch and syncs them to disk before returning. If anything fails, the log is cut back to
+     * where it was, so a partial write cannot hide later records from replay.
+     */
+    void append(List<Map<String, PriceSeries>> batches) throws IOException {
+        try {
+            buffer.clear();
+            CRC32C crc = new CRC32C();
+            for (Map<String, PriceSeries> batch : batches) {
+                encode(batch, crc);
+            }
+            buffer.flip();
+            int length = buffer.limit();
+            try {
+                writeFully(channel, buffer, size);
+                channel.force(false);
+            } catch (IOException e) {
+                try {
+                    channel.truncate(size);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+            size += length;
+        } finally {
+            releaseBuffer();
+        }
+    }
+
+    /**
+     * Replaces the log's records with the given ticks, in records of at most {@value #COMPACTED_RECORD_TICKS} ticks.
+     * If anything fails before the new log is moved into place, the old one is kept as it was; if syncing the directory
+     * fails afterwards, the new one is in use and the exception is still thrown.
+     */
+    void compact(Map<String, PriceSeries> ticks) throws IOException {
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long length;
+        try {
+            length = writeHeader(out);
+            CRC32C crc = new CRC32C();
+            for (PriceSeries series : ticks.values()) {
+                for (int from = 0; from < series.size(); from += COMPACTED_RECORD_TICKS) {
+                    int to = Math.min(series.size(), from + COMPACTED_RECORD_TICKS);
+                    PriceSeries piece = from == 0 && to == series.size() ? series : PriceSeries.builder(series.getSymbol())
+                            .addAll(series.timestampColumn().slice(from, to - from), series.priceColumn().slice(from, to - from))
+                            .build();
+                    buffer.clear();
+                    encode(Map.of(series.getSymbol(), piece), crc);
+                    buffer.flip();
+                    int written = buffer.limit();
+                    writeFully(out, buffer, length);
+                    length += written;
+                }
+            }
+            out.force(true);
+            // The open channel follows the file to its new name
+            Files.move(compacted, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            try {
+                Files.deleteIfExists(compacted);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        } finally {
+            releaseBuffer();
+        }
+
+        FileChannel old = channel;
+        channel = out;
+        size = length;
+        try {
+            old.close();
+        } catch (IOException e) {
+            logger.warn("Could not close replaced tick log: {}", file, e);
+        }
+        // Only now is the rename itself durable; until then a crash may bring back the old log, which is still valid
+        SymbolSnapshotStore.syncDirectory(file.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Number of bytes {@link #append(List)} writes for a batch.
+     */
+    static long recordLength(Map<String, PriceSeries> batch) {
+        return RECORD_HEADER_LENGTH + payloadLength(batch);
+    }
+
+    /**
+     * Size of the log {@link #compact(Map)} writes for the given ticks.
+     */
+    static long compactedLength(Map<String, PriceSeries> ticks) {
+        long length = HEADER_LENGTH;
+        for (PriceSeries series : ticks.values()) {
+            int records = (series.size() + COMPACTED_RECORD_TICKS - 1) / COMPACTED_RECORD_TICKS;
+            length += (long) records * (RECORD_HEADER_LENGTH + 3 * Integer.BYTES + padded(symbolBytes(series).length))
+                    + (long) series.size() * (Long.BYTES + Double.BYTES);
+        }
+        return length;
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Size of the buffer the next append starts with.
+     */
+    int bufferCapacity() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static int payloadLength(Map<String, PriceSeries> batch) {
+        int payloadLength = Integer.BYTES;
+        for (PriceSeries series : batch.values()) {
+            payloadLength += 2 * Integer.BYTES + padded(symbolBytes(series).length) + series.size() * (Long.BYTES + Double.BYTES);
+        }
+        return payloadLength;
+    }
+
+    private void encode(Map<String, PriceSeries> batch, CRC32C crc) {
+        int payloadLength = payloadLength(batch);
+        ensureRemaining(RECORD_HEADER_LENGTH + payloadLength);
+
+        int recordStart = buffer.position();
+        buffer.putInt(payloadLength);
+        buffer.putInt(0); // Checksum, filled in once the payload is written
+        int payloadStart = buffer.position();
+        buffer.putInt(batch.size());
+        for (PriceSeries series : batch.values()) {
+            byte[] symbol = symbolBytes(series);
+            buffer.putInt(symbol.length);
+            buffer.putInt(series.size());
+            buffer.put(symbol);
+            buffer.position(buffer.position() + padded(symbol.length) - symbol.length);
+            buffer.asLongBuffer().put(series.timestampColumn());
+            buffer.position(buffer.position() + series.size() * Long.BYTES);
+            buffer.asDoubleBuffer().put(series.priceColumn());
+            buffer.position(buffer.position() + series.size() * Double.BYTES);
+        }
+        crc.reset();
+        crc.update(buffer.slice(payloadStart, payloadLength));
+        buffer.putInt(recordStart + Integer.BYTES, (int) crc.getValue());
+    }
+
+    /**
+     * Decodes a record's payload, or returns {@code null} if its layout does not add up.
+     */
+    private static Map<String, PriceSeries> decode(ByteBuffer payload) {
+        int symbols = payload.getInt();
+        if (symbols < 0) {
+            return null;
+        }
+        Map<String, PriceSeries> batch = new LinkedHashMap<>();
+        for (int i = 0; i < symbols; i++) {
+            if (payload.remaining() < 2 * Integer.BYTES) {
+                return null;
+            }
+            int symbolLength = payload.getInt();
+            int ticks = payload.getInt();
+            if (symbolLength <= 0 || ticks < 0
+                    || padded(symbolLength) + (long) ticks * (Long.BYTES + Double.BYTES) > payload.remaining()) {
+                return null;
+            }
+            byte[] symbol = new byte[symbolLength];
+            payload.get(symbol);
+            payload.position(payload.position() + padded(symbolLength) - symbolLength);
+            int timestampsStart = payload.position();
+            int pricesStart = timestampsStart + ticks * Long.BYTES;
+            String name = new String(symbol, StandardCharsets.UTF_8);
+            batch.put(name, PriceSeries.builder(name)
+                    .addAll(payload.slice(timestampsStart, ticks * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer(),
+                            payload.slice(pricesStart, ticks * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer())
+                    .build());
+            payload.position(pricesStart + ticks * Double.BYTES);
+        }
+        return payload.hasRemaining() ? null : batch;
+    }
+
+    private void ensureRemaining(int length) {
+        if (buffer.remaining() < length) {
+            long capacity = Math.max((long) buffer.position() + length, 2L * buffer.capacity());
+            ByteBuffer grown = ByteBuffer.allocate((int) Math.min(capacity, Integer.MAX_VALUE - 8)).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+
+    /**
+     * Writes the file header at the start of the channel.
+     *
+     * @return the header's length
+     */
+    private static long writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+        writeFully(channel, header, 0);
+        return HEADER_LENGTH;
+    }
+
+    /**
+     * Drops a buffer grown for an unusually large group, so it is not kept for the lifetime of the log, and leaves
+     * the buffer empty whether or not the last write completed.
+     */
+    private void releaseBuffer() {
+        if (buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+            buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        } else {
+            buffer.clear();
+        }
+    }
+
+    private static byte[] symbolBytes(PriceSeries series) {
+        return series.getSymbol().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int padded(int length) {
+        return (length + 7) & ~7;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of tick log at offset " + (position + buffer.position()));
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+}
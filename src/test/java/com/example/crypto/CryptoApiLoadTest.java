@@ -0,0 +1,241 @@
+package com.example.crypto;
+
+import com.example.crypto.service.CryptoDataLoader;
+import com.example.crypto.support.SyntheticDataGenerator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Open-loop HTTP load test of the read endpoints. Requests are sent at a fixed target rate whatever the response
+ * times, and each latency is measured from the moment its request was due, so a stalled server shows up as queueing
+ * in the percentiles instead of as a lower request rate. The workload is a weighted mix of {@code /normalized},
+ * {@code /{symbol}/statistics} over random symbols and {@code /highest-normalized} over random days.
+ * <p>
+ * By default the application is started in this JVM over a universe written by {@link SyntheticDataGenerator},
+ * with rate limiting disabled, and the load runs twice: on a steady dataset, and while the data files are rewritten
+ * and rescanned back to back. With {@code -Dload.url=http://host:port} the load is sent to an already running
+ * instance instead, e.g. a single replica of the Kubernetes deployment started with {@code rate.limit.enabled=false};
+ * only the steady phase runs then, since the rescans need access to its data directory.
+ */
+@Tag("load")
+public class CryptoApiLoadTest {
+
+    private static final int SYMBOLS = Integer.getInteger("load.symbols", 200);
+    private static final int TICK_SECONDS = Integer.getInteger("load.tick-seconds", 60);
+    private static final int HISTORY_DAYS = Integer.getInteger("load.history-days", 7);
+    private static final int RATE = Integer.getInteger("load.rate", 500);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmup-seconds", 5);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 15);
+    private static final String MIX = System.getProperty("load.mix", "normalized=1,statistics=8,highest-normalized=1");
+    private static final String URL = System.getProperty("load.url", "");
+    private static final String LOG_LEVEL = System.getProperty("load.log-level", "WARN");
+
+    private static final Instant START = Instant.parse("2022-01-01T00:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testMixedWorkload() throws Exception {
+        Workload workload = Workload.parse(MIX);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        System.out.printf("%,d symbols, one tick per %d s over %d days (%,d ticks), %,d requests/s, mix %s (%d cores)%n",
+                SYMBOLS, TICK_SECONDS, HISTORY_DAYS, (long) SYMBOLS * ticksPerSymbol(), RATE, MIX,
+                Runtime.getRuntime().availableProcessors());
+
+        if (!URL.isEmpty()) {
+            run(client, URL, workload, WARMUP_SECONDS);
+            assertEquals(0, run(client, URL, workload, SECONDS).print("steady", workload));
+            return;
+        }
+
+        generator(0).writeTo(directory);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(CryptoRecommendationServiceApplication.class)
+                .run("--server.port=0",
+                        "--crypto.directory.path=" + directory,
+                        "--crypto.snapshot.path=",
+                        "--crypto.ticks.log.path=",
+                        "--crypto.scan.interval=" + TimeUnit.HOURS.toMillis(1),
+                        "--rate.limit.enabled=false",
+                        "--logging.level.com.example.crypto=" + LOG_LEVEL)) {
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            CryptoDataLoader dataLoader = context.getBean(CryptoDataLoader.class);
+
+            run(client, base, workload, WARMUP_SECONDS);
+            int errors = run(client, base, workload, SECONDS).print("steady", workload);
+
+            // Rewrites every file with new prices and rescans, back to back, for as long as the phase runs
+            AtomicBoolean loading = new AtomicBoolean(true);
+            AtomicInteger rescans = new AtomicInteger();
+            AtomicLong rescanNanos = new AtomicLong();
+            Thread rescanner = Thread.ofPlatform().name("rescanner").start(() -> {
+                for (int seed = 1; loading.get(); seed++) {
+                    try {
+                        generator(seed).writeTo(directory);
+                        long start = System.nanoTime();
+                        dataLoader.scanCryptoDirectory();
+                        rescanNanos.addAndGet(System.nanoTime() - start);
+                        rescans.incrementAndGet();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+            Phase duringRescan = run(client, base, workload, SECONDS);
+            loading.set(false);
+            rescanner.join();
+            errors += duringRescan.print("during rescan", workload);
+            System.out.printf("%d rescans of every file, %,d ms each on average%n",
+                    rescans.get(), TimeUnit.NANOSECONDS.toMillis(rescanNanos.get() / Math.max(1, rescans.get())));
+
+            assertEquals(0, errors);
+        }
+    }
+
+    private static SyntheticDataGenerator generator(long seed) {
+        return new SyntheticDataGenerator().symbols(SYMBOLS).tickIntervalMillis(TICK_SECONDS * 1_000L)
+                .historyMillis(Duration.ofDays(HISTORY_DAYS).toMillis()).startMillis(START.toEpochMilli()).seed(seed);
+    }
+
+    private static long ticksPerSymbol() {
+        return Math.max(1, Duration.ofDays(HISTORY_DAYS).toSeconds() / TICK_SECONDS);
+    }
+
+    /**
+     * Sends {@code RATE} requests per second for the given number of seconds and waits for all responses.
+     */
+    private static Phase run(HttpClient client, String base, Workload workload, int seconds) {
+        int count = RATE * seconds;
+        long period = TimeUnit.SECONDS.toNanos(1) / RATE;
+        long[] latencies = new long[count];
+        int[] endpoints = new int[count];
+        AtomicInteger errors = new AtomicInteger();
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[count];
+        Random random = new Random(42);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            long due = start + i * period;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            int endpoint = workload.pick(random);
+            endpoints[i] = endpoint;
+            HttpRequest request = HttpRequest.newBuilder(URI.create(base + workload.path(endpoint, random))).build();
+            int index = i;
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).handle((response, failure) -> {
+                latencies[index] = System.nanoTime() - due;
+                if (failure != null || response.statusCode() != 200) {
+                    errors.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        CompletableFuture.allOf(responses).join();
+        return new Phase(latencies, endpoints, errors.get(), System.nanoTime() - start);
+    }
+
+    private record Phase(long[] latencies, int[] endpoints, int errors, long elapsedNanos) {
+
+        /**
+         * Prints the achieved throughput and latency percentiles, overall and per endpoint, and returns the errors.
+         */
+        int print(String name, Workload workload) {
+            System.out.printf("%-14s %,8.1f requests/s, %d errors%n", name,
+                    latencies.length * 1e9 / elapsedNanos, errors);
+            print("  all", latencies);
+            for (int e = 0; e < workload.names.size(); e++) {
+                int endpoint = e;
+                long[] selected = IntStream.range(0, latencies.length)
+                        .filter(i -> endpoints[i] == endpoint).mapToLong(i -> latencies[i]).toArray();
+                print("  " + workload.names.get(e), selected);
+            }
+            return errors;
+        }
+
+        private static void print(String label, long[] latencies) {
+            if (latencies.length == 0) {
+                return;
+            }
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            System.out.printf("%-22s %,8d requests: p50 %,9.2f ms, p99 %,9.2f ms, p999 %,9.2f ms, max %,9.2f ms%n",
+                    label, sorted.length, percentile(sorted, 0.5), percentile(sorted, 0.99),
+                    percentile(sorted, 0.999), sorted[sorted.length - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+        }
+    }
+
+    /**
+     * Weighted endpoint mix, given as comma-separated {@code endpoint=weight} entries.
+     */
+    private static final class Workload {
+
+        private final List<String> names = new ArrayList<>();
+        private final List<Integer> cumulativeWeights = new ArrayList<>();
+        private int totalWeight;
+
+        static Workload parse(String mix) {
+            Workload workload = new Workload();
+            for (String entry : mix.split(",")) {
+                String[] parts = entry.trim().split("=");
+                if (parts.length != 2 || !List.of("normalized", "statistics", "highest-normalized").contains(parts[0])) {
+                    throw new IllegalArgumentException("Invalid load.mix entry, expected endpoint=weight: " + entry);
+                }
+                workload.totalWeight += Integer.parseInt(parts[1]);
+                workload.names.add(parts[0]);
+                workload.cumulativeWeights.add(workload.totalWeight);
+            }
+            return workload;
+        }
+
+        int pick(Random random) {
+            int draw = random.nextInt(totalWeight);
+            int endpoint = 0;
+            while (draw >= cumulativeWeights.get(endpoint)) {
+                endpoint++;
+            }
+            return endpoint;
+        }
+
+        String path(int endpoint, Random random) {
+            return switch (names.get(endpoint)) {
+                case "normalized" -> "/api/crypto/normalized";
+                case "statistics" -> "/api/crypto/" + SyntheticDataGenerator.symbolName(random.nextInt(SYMBOLS)) + "/statistics";
+                default -> "/api/crypto/highest-normalized?date="
+                        + LocalDate.ofInstant(START, ZoneOffset.UTC).plusDays(random.nextInt(HISTORY_DAYS));
+            };
+        }
+    }
+}
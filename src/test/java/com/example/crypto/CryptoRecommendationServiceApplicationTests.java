@@ -1,13 +1,73 @@
 package com.example.crypto;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
 class CryptoRecommendationServiceApplicationTests {
 
+	@TempDir
+	static Path stateDirectory;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@DynamicPropertySource
+	static void stateProperties(DynamicPropertyRegistry registry) {
+		registry.add("crypto.snapshot.path", () -> stateDirectory.resolve("snapshot").toString());
+		registry.add("crypto.ticks.log.path", () -> stateDirectory.resolve("ticks/ticks.log").toString());
+	}
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void pushesBeyondTheQueryBudgetThroughTheRateLimit() throws Exception {
+		// 50 pushes of 2000 ticks: more requests than the query budget allows, within the push bucket
+		for (int push = 0; push < 50; push++) {
+			StringBuilder csv = new StringBuilder();
+			for (int i = 0; i < 2000; i++) {
+				csv.append(1_700_000_000_000L + (push * 2000L + i) * 1000).append(",PUSH,").append(100 + i % 7).append('\n');
+			}
+			mockMvc.perform(MockMvcRequestBuilders.post("/api/crypto/ticks").contentType("text/csv").content(csv.toString()))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.ticks").value(2000));
+		}
+
+		mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/PUSH/statistics"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.minPrice").value(100.0))
+				.andExpect(jsonPath("$.maxPrice").value(106.0));
+	}
+
+	@Test
+	void exposesPrometheusMetrics() throws Exception {
+		mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/normalized")).andExpect(status().isOk());
+
+		mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+				.andExpect(status().isOk())
+				.andExpect(content().string(containsString("crypto_query_seconds_bucket{method=\"ranking\"")))
+				.andExpect(content().string(containsString("crypto_ingest_rows_total")))
+				.andExpect(content().string(containsString("crypto_dataset_version")))
+				.andExpect(content().string(containsString("crypto_ratelimit_requests_total{outcome=\"accepted\"}")));
+	}
+
 }
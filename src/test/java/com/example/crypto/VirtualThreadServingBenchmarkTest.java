@@ -0,0 +1,154 @@
+package com.example.crypto;
+
+import com.example.crypto.support.SyntheticDataGenerator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.eclipse.jetty.server.ServerConnector;
+import org.springframework.boot.web.embedded.jetty.JettyServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Thousands of slow clients against the platform-thread pools and against virtual threads. Half of the slow clients
+ * request the ranking, which is written on the request thread, and half a price export, which is streamed on the
+ * MVC async executor; none of them reads its response, so every write blocks once the socket buffers are full.
+ * With those connections held, the benchmark counts how many slow responses the server is writing concurrently and
+ * sends a burst of fast statistics requests and counts how many are answered within the timeout: on virtual threads,
+ * all of them, and no fewer than on the platform pools.
+ */
+@Tag("benchmark")
+public class VirtualThreadServingBenchmarkTest {
+
+    private static final int SLOW_CONNECTIONS = Integer.getInteger("virtual.connections", 2_000);
+    private static final int FAST_REQUESTS = Integer.getInteger("virtual.requests", 500);
+    private static final Duration SETTLE = Duration.ofSeconds(Integer.getInteger("virtual.settle-seconds", 5));
+    private static final Duration TIMEOUT = Duration.ofSeconds(Integer.getInteger("virtual.timeout-seconds", 5));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testSlowClients() throws Exception {
+        // About 130 KB of ranking and 120 KB per export, well beyond what the socket buffers absorb
+        new SyntheticDataGenerator().symbols(1_000).ticksPerSymbol(2_000).writeTo(directory);
+
+        int platform = run(false);
+        int virtual = run(true);
+
+        assertEquals(FAST_REQUESTS, virtual, "Fast requests answered on virtual threads");
+        assertTrue(virtual >= platform, "Answered on platform pools: " + platform + ", on virtual threads: " + virtual);
+    }
+
+    /**
+     * Returns how many fast requests were answered within the timeout while the slow connections were held.
+     */
+    private int run(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(CryptoRecommendationServiceApplication.class, SmallSendBuffers.class)
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--crypto.directory.path=" + directory,
+                        "--crypto.snapshot.path=",
+                        "--crypto.ticks.log.path=",
+                        "--rate.limit.enabled=false",
+                        "--logging.level.com.example.crypto=WARN",
+                        "--logging.level.org.eclipse.jetty=ERROR")) {
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+            List<Socket> slow = new ArrayList<>(SLOW_CONNECTIONS);
+            try {
+                for (int i = 0; i < SLOW_CONNECTIONS; i++) {
+                    String path = i % 2 == 0 ? "/api/crypto/normalized"
+                            : "/api/crypto/" + SyntheticDataGenerator.symbolName(i % 1_000) + "/prices";
+                    slow.add(open(port, path));
+                }
+                Thread.sleep(SETTLE.toMillis());
+
+                long[] latencies = burst(port);
+                int inProgress = 0;
+                for (Socket socket : slow) {
+                    if (socket.getInputStream().available() > 0) {
+                        inProgress++;
+                    }
+                }
+                assertTrue(inProgress > 0, "Slow responses should be blocked mid-write");
+                return (int) Arrays.stream(latencies).filter(latency -> latency >= 0).count();
+            } finally {
+                for (Socket socket : slow) {
+                    socket.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Caps the server's socket send buffers, which the kernel otherwise grows until whole responses fit, so that
+     * writes to clients that do not read block as they would over a slow network.
+     */
+    static class SmallSendBuffers {
+
+        @Bean
+        WebServerFactoryCustomizer<JettyServletWebServerFactory> smallSendBuffers() {
+            return factory -> factory.addServerCustomizers(server -> {
+                for (var connector : server.getConnectors()) {
+                    ((ServerConnector) connector).setAcceptedSendBufferSize(8_192);
+                }
+            });
+        }
+    }
+
+    /**
+     * Sends a request and never reads the response; a small receive buffer makes the server block sooner.
+     */
+    private static Socket open(int port, String path) throws IOException {
+        Socket socket = new Socket();
+        socket.setReceiveBufferSize(4_096);
+        socket.connect(new InetSocketAddress("localhost", port));
+        OutputStream out = socket.getOutputStream();
+        out.write(("GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        return socket;
+    }
+
+    /**
+     * Sends all fast requests at once and returns their latencies in nanoseconds, or -1 for those that failed or
+     * timed out.
+     */
+    private static long[] burst(int port) {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        long[] latencies = new long[FAST_REQUESTS];
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[FAST_REQUESTS];
+        for (int i = 0; i < FAST_REQUESTS; i++) {
+            int index = i;
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/crypto/"
+                    + SyntheticDataGenerator.symbolName(index % 1_000) + "/statistics")).timeout(TIMEOUT).build();
+            long start = System.nanoTime();
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).handle((response, failure) -> {
+                latencies[index] = failure == null && response.statusCode() == 200 ? System.nanoTime() - start : -1;
+                return null;
+            });
+        }
+        CompletableFuture.allOf(responses).join();
+        return latencies;
+    }
+}
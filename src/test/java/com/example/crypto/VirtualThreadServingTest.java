@@ -0,0 +1,83 @@
+package com.example.crypto;
+
+import com.example.crypto.service.CryptoDataLoader;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Serves every endpoint, including a streaming export, and runs a directory scan on virtual threads while JFR
+ * records any virtual thread that parks while pinned to its carrier, e.g. on I/O inside a {@code synchronized} block.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.threads.virtual.enabled=true", "rate.limit.enabled=false"})
+public class VirtualThreadServingTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private CryptoDataLoader dataLoader;
+
+    @TempDir
+    Path recordingDirectory;
+
+    @TempDir
+    static Path stateDirectory;
+
+    @DynamicPropertySource
+    static void stateProperties(DynamicPropertyRegistry registry) {
+        registry.add("crypto.snapshot.path", () -> stateDirectory.resolve("snapshot").toString());
+        registry.add("crypto.ticks.log.path", () -> stateDirectory.resolve("ticks/ticks.log").toString());
+    }
+
+    @Test
+    public void testServesWithoutPinningCarrierThreads() throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.enable("jdk.VirtualThreadStart");
+            recording.start();
+
+            for (String path : List.of("/api/crypto/normalized", "/api/crypto/BTC/statistics",
+                    "/api/crypto/statistics?symbols=BTC,ETH", "/api/crypto/BTC/prices",
+                    "/api/crypto/highest-normalized?date=2022-01-01", "/api/crypto/BTC/daily")) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+                assertEquals(200, client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode(), path);
+            }
+            Thread.ofVirtual().start(dataLoader::scanCryptoDirectory).join();
+
+            recording.stop();
+            Path file = recordingDirectory.resolve("serving.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        List<RecordedEvent> pinned = events.stream()
+                .filter(event -> event.getEventType().getName().equals("jdk.VirtualThreadPinned"))
+                .toList();
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("jdk.VirtualThreadStart")),
+                "No request ran on a virtual thread");
+        assertTrue(pinned.isEmpty(), () -> pinned.stream().map(RecordedEvent::toString).collect(Collectors.joining("\n")));
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.crypto.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RateLimitingFilterTest {
+
+    private final AtomicInteger passed = new AtomicInteger();
+    private final FilterChain chain = (request, response) -> passed.incrementAndGet();
+
+    @Test
+    public void testRejectsWith429AndRetryAfter() throws Exception {
+        RateLimitingFilter filter = filter(3, 1_000, List.of());
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, perform(filter, "10.0.0.1", "/api/crypto/BTC/statistics").getStatus());
+        }
+        MockHttpServletResponse rejected = perform(filter, "10.0.0.1", "/api/crypto/BTC/statistics");
+
+        assertEquals(429, rejected.getStatus());
+        long retryAfter = Long.parseLong(rejected.getHeader("Retry-After"));
+        assertTrue(retryAfter > 0 && retryAfter <= 30 * 60, "Retry-After " + retryAfter);
+        assertEquals("Too many requests", rejected.getContentAsString());
+        assertEquals(200, perform(filter, "10.0.0.2", "/api/crypto/BTC/statistics").getStatus());
+        assertEquals(4, passed.get());
+    }
+
+    @Test
+    public void testRecordsMetricsAndExemptsZeroCostPaths() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimitingFilter filter = filter(new RateLimitingFilter(meterRegistry), 1, 1_000, List.of("/actuator/**=0"));
+
+        perform(filter, "10.0.0.1", "/api/crypto/BTC/statistics");
+        perform(filter, "10.0.0.1", "/api/crypto/BTC/statistics");
+        perform(filter, "10.0.0.2", "/api/crypto/BTC/statistics");
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, perform(filter, "10.0.0.1", "/actuator/prometheus").getStatus());
+        }
+
+        assertEquals(2, meterRegistry.get("crypto.ratelimit.requests").tag("outcome", "accepted").counter().count());
+        assertEquals(1, meterRegistry.get("crypto.ratelimit.requests").tag("outcome", "rejected").counter().count());
+        assertEquals(2, meterRegistry.get("crypto.ratelimit.clients").gauge().value());
+        assertEquals(7, passed.get());
+    }
+
+    @Test
+    public void testEndpointCosts() throws Exception {
+        RateLimitingFilter filter = filter(10, 1_000, List.of("/api/crypto/normalized=4", "/api/crypto/{symbol}/prices=10"));
+
+        assertEquals(1, filter.costOf(request("10.0.0.1", "/api/crypto/BTC/statistics")));
+        assertEquals(10, filter.costOf(request("10.0.0.1", "/api/crypto/BTC/prices")));
+
+        assertEquals(200, perform(filter, "10.0.0.1", "/api/crypto/normalized").getStatus());
+        assertEquals(200, perform(filter, "10.0.0.1", "/api/crypto/normalized").getStatus());
+        assertEquals(429, perform(filter, "10.0.0.1", "/api/crypto/normalized").getStatus());
+        assertEquals(200, perform(filter, "10.0.0.1", "/api/crypto/BTC/statistics").getStatus());
+        assertEquals(200, perform(filter, "10.0.0.2", "/api/crypto/BTC/prices").getStatus());
+        assertEquals(429, perform(filter, "10.0.0.2", "/api/crypto/BTC/statistics").getStatus());
+    }
+
+    @Test
+    public void testPushesDrawOnTheirOwnBucket() throws Exception {
+        RateLimitingFilter filter = filter(10, 1_000, List.of("/api/crypto/ticks=5"));
+
+        assertTrue(filter.isIngestion(request("10.0.0.1", "/api/crypto/ticks")));
+        assertFalse(filter.isIngestion(request("10.0.0.1", "/api/crypto/BTC/statistics")));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(200, perform(filter, "10.0.0.1", "/api/crypto/ticks").getStatus());
+        }
+        MockHttpServletResponse rejected = perform(filter, "10.0.0.1", "/api/crypto/ticks");
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+
+        // The query budget is untouched, and the push bucket refills within a second
+        for (int i = 0; i < 10; i++) {
+            assertEquals(200, perform(filter, "10.0.0.1", "/api/crypto/BTC/statistics").getStatus());
+        }
+        Thread.sleep(100);
+        assertEquals(200, perform(filter, "10.0.0.1", "/api/crypto/ticks").getStatus());
+    }
+
+    @Test
+    public void testInvalidCosts() {
+        assertThrows(IllegalArgumentException.class, () -> filter(10, 1_000, List.of("/api/crypto/normalized")));
+        assertThrows(IllegalArgumentException.class, () -> filter(10, 1_000, List.of("/api/crypto/normalized=11")));
+    }
+
+    @Test
+    public void testCanBeDisabled() {
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withUserConfiguration(RateLimitingFilter.class)
+                .withPropertyValues("rate.limit.requests=10", "rate.limit.duration.minutes=30");
+
+        runner.run(context -> assertEquals(1, context.getBeansOfType(RateLimitingFilter.class).size()));
+        runner.withPropertyValues("rate.limit.enabled=false")
+                .run(context -> assertEquals(0, context.getBeansOfType(RateLimitingFilter.class).size()));
+    }
+
+    @Test
+    public void testMemoryStaysFlatUnderMillionAddresses() throws Exception {
+        int maxClients = 10_000;
+        RateLimitingFilter filter = filter(100, maxClients, List.of());
+        MockHttpServletRequest request = request("0.0.0.0", "/api/crypto/BTC/statistics");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        long heapAfterWarmUp = 0;
+        for (int i = 0; i < 1_000_000; i++) {
+            request.setRemoteAddr("10." + (i >>> 16) + "." + ((i >>> 8) & 0xff) + "." + (i & 0xff));
+            filter.doFilter(request, response, chain);
+            if (i == 100_000) {
+                heapAfterWarmUp = usedHeap();
+            }
+            if (i % 50_000 == 0) {
+                assertTrue(filter.trackedClients() <= maxClients, "Tracked clients after " + i + " addresses: " + filter.trackedClients());
+            }
+        }
+        long growth = usedHeap() - heapAfterWarmUp;
+
+        assertEquals(1_000_000, passed.get());
+        assertTrue(filter.trackedClients() <= maxClients, "Tracked clients: " + filter.trackedClients());
+        // An unbounded map would retain several hundred bytes per address, i.e. hundreds of MB here
+        assertTrue(growth < 32 << 20, "Heap grew by " + (growth >> 20) + " MB");
+    }
+
+    private static RateLimitingFilter filter(int maxRequests, long maxClients, List<String> costs) {
+        return filter(new RateLimitingFilter(new SimpleMeterRegistry()), maxRequests, maxClients, costs);
+    }
+
+    private static RateLimitingFilter filter(RateLimitingFilter filter, int maxRequests, long maxClients, List<String> costs) {
+        ReflectionTestUtils.setField(filter, "maxRequests", maxRequests);
+        ReflectionTestUtils.setField(filter, "refillDuration", 30);
+        ReflectionTestUtils.setField(filter, "maxClients", maxClients);
+        ReflectionTestUtils.setField(filter, "endpointCosts", costs);
+        ReflectionTestUtils.setField(filter, "ingestPaths", List.of("/api/crypto/ticks"));
+        ReflectionTestUtils.setField(filter, "ingestRequestsPerSecond", 20);
+        filter.initBuckets();
+        return filter;
+    }
+
+    private MockHttpServletResponse perform(RateLimitingFilter filter, String address, String path) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(address, path), response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String address, String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRemoteAddr(address);
+        return request;
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -1,31 +1,63 @@
 package com.example.crypto.controller;
 
+import com.example.crypto.exception.CryptoNotFoundException;
+import com.example.crypto.model.BulkStatistics;
+import com.example.crypto.model.Candle;
+import com.example.crypto.model.CorrelationMatrix;
 import com.example.crypto.model.CryptoStatistics;
+import com.example.crypto.model.DailyOhlc;
+import com.example.crypto.model.DatasetSnapshot;
+import com.example.crypto.model.IngestResult;
+import com.example.crypto.model.PricePage;
+import com.example.crypto.model.PriceSeries;
+import com.example.crypto.model.Revision;
+import com.example.crypto.model.SymbolData;
+import com.example.crypto.service.CryptoDataLoader;
 import com.example.crypto.service.CryptoService;
+import com.example.crypto.service.TickIngestor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
-@WebMvcTest(CryptoController.class)
+@WebMvcTest(value = CryptoController.class, properties = {"crypto.response-cache.enabled=false", "rate.limit.enabled=false"})
+@Import(EncodedResponseCache.class)
 public class CryptoControllerTest {
 
     @Autowired
@@ -34,8 +66,12 @@ public class CryptoControllerTest {
     @MockBean
     private CryptoService cryptoService;
 
+    @MockBean
+    private TickIngestor tickIngestor;
+
     private CryptoStatistics btcStatistics;
     private List<CryptoStatistics> statisticsList;
+    private DatasetSnapshot snapshot;
 
     @BeforeEach
     public void setUp() {
@@ -46,7 +82,8 @@ public class CryptoControllerTest {
                 47023.24,
                 46813.21,
                 47143.98,
-                (47143.98 - 46813.21) / 46813.21
+                (47143.98 - 46813.21) / 46813.21,
+                null
         );
 
         CryptoStatistics ethStatistics = new CryptoStatistics(
@@ -55,15 +92,20 @@ public class CryptoControllerTest {
                 3695.0,
                 3681.1,
                 3700.2,
-                (3700.2 - 3681.1) / 3681.1
+                (3700.2 - 3681.1) / 3681.1,
+                null
         );
 
         statisticsList = Arrays.asList(btcStatistics, ethStatistics);
+
+        snapshot = DatasetSnapshot.empty().withSymbols(List.of(
+                SymbolData.of(PriceSeries.builder("BTC").add(1641009600000L, 46813.21).build())));
+        when(cryptoService.getSnapshot()).thenReturn(snapshot);
     }
 
     @Test
     public void testGetAllCryptoStatistics() throws Exception {
-        when(cryptoService.getAllCryptoStatistics()).thenReturn(statisticsList);
+        when(cryptoService.getAllCryptoStatistics(snapshot, null, null, null, null)).thenReturn(statisticsList);
 
         mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/normalized"))
                 .andExpect(status().isOk())
@@ -71,12 +113,46 @@ public class CryptoControllerTest {
                 .andExpect(jsonPath("$[0].oldestPrice").value(46813.21))
                 .andExpect(jsonPath("$[1].symbol").value("ETH"));
 
-        verify(cryptoService, times(1)).getAllCryptoStatistics();
+        verify(cryptoService, times(1)).getAllCryptoStatistics(snapshot, null, null, null, null);
+    }
+
+    @Test
+    public void testGetAllCryptoStatistics_WindowAndLimit() throws Exception {
+        Instant from = Instant.parse("2022-01-01T00:00:00Z");
+        when(cryptoService.getAllCryptoStatistics(snapshot, from, null, 1, null)).thenReturn(List.of(btcStatistics));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/normalized")
+                        .param("from", "2022-01-01T00:00:00Z")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].symbol").value("BTC"));
+
+        verify(cryptoService, times(1)).getAllCryptoStatistics(snapshot, from, null, 1, null);
+    }
+
+    @Test
+    public void testGetAllCryptoStatistics_SortBy() throws Exception {
+        when(cryptoService.getAllCryptoStatistics(snapshot, null, null, null, "volatility")).thenReturn(List.of(btcStatistics));
+        when(cryptoService.getAllCryptoStatistics(snapshot, null, null, null, "sharpe"))
+                .thenThrow(new IllegalArgumentException("Unsupported sortBy: sharpe"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/normalized").param("sortBy", "volatility"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].symbol").value("BTC"));
+        // Cached separately from the default ranking
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/normalized"))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/normalized").param("sortBy", "sharpe"))
+                .andExpect(status().isBadRequest());
+
+        verify(cryptoService, times(1)).getAllCryptoStatistics(snapshot, null, null, null, "volatility");
+        verify(cryptoService, times(1)).getAllCryptoStatistics(snapshot, null, null, null, null);
     }
 
     @Test
     public void testGetCryptoStatistics_ValidSymbol() throws Exception {
-        when(cryptoService.calculateStatistics("BTC")).thenReturn(btcStatistics);
+        when(cryptoService.calculateStatistics(snapshot, "BTC", null, null)).thenReturn(btcStatistics);
 
         mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/BTC/statistics"))
                 .andExpect(status().isOk())
@@ -87,29 +163,251 @@ public class CryptoControllerTest {
                 .andExpect(jsonPath("$.maxPrice").value(47143.98))
                 .andExpect(jsonPath("$.normalizedRange").value((47143.98 - 46813.21) / 46813.21));
 
-        verify(cryptoService, times(1)).calculateStatistics("BTC");
+        verify(cryptoService, times(1)).calculateStatistics(snapshot, "BTC", null, null);
     }
 
     @Test
     public void testGetCryptoStatistics_InvalidSymbol() throws Exception {
-        when(cryptoService.calculateStatistics("DOGER")).thenThrow(new IllegalArgumentException("Unsupported or unavailable crypto: DOGER"));
+        when(cryptoService.calculateStatistics(snapshot, "DOGER", null, null)).thenThrow(new IllegalArgumentException("Unsupported or unavailable crypto: DOGER"));
         mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/DOGER/statistics"))
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string("Unsupported or unavailable crypto: DOGER"));
 
-        verify(cryptoService, times(1)).calculateStatistics("DOGER");
+        verify(cryptoService, times(1)).calculateStatistics(snapshot, "DOGER", null, null);
+    }
+
+    @Test
+    public void testGetCryptoStatistics_TimeWindow() throws Exception {
+        Instant from = Instant.parse("2022-01-01T00:00:00Z");
+        Instant to = Instant.parse("2022-01-01T06:00:00Z");
+        when(cryptoService.calculateStatistics(snapshot, "BTC", from, to)).thenReturn(btcStatistics);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/BTC/statistics")
+                        .param("from", "2022-01-01T00:00:00Z")
+                        .param("to", "2022-01-01T06:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.symbol").value("BTC"));
+
+        verify(cryptoService, times(1)).calculateStatistics(snapshot, "BTC", from, to);
+    }
+
+    @Test
+    public void testGetCryptoStatistics_SetsValidators() throws Exception {
+        Revision revision = snapshot.revisionOf("BTC");
+        HttpHeaders expected = new HttpHeaders();
+        expected.setLastModified(revision.getModifiedAt());
+        when(cryptoService.calculateStatistics(snapshot, "BTC", null, null)).thenReturn(btcStatistics);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/BTC/statistics"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", CryptoController.etag(revision)))
+                .andExpect(header().string("Last-Modified", expected.getFirst(HttpHeaders.LAST_MODIFIED)))
+                .andExpect(jsonPath("$.symbol").value("BTC"));
+    }
+
+    @Test
+    public void testGetCryptoStatistics_NotModified() throws Exception {
+        String etag = CryptoController.etag(snapshot.revisionOf("BTC"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/BTC/statistics").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+
+        verify(cryptoService, never()).calculateStatistics(snapshot, "BTC", null, null);
+    }
+
+    @Test
+    public void testGetAllCryptoStatistics_NotModifiedUntilNewRevision() throws Exception {
+        String etag = CryptoController.etag(snapshot.getRevision());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/normalized").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        verify(cryptoService, never()).getAllCryptoStatistics(snapshot, null, null, null, null);
+
+        // The body is computed from the snapshot the validators were taken from
+        DatasetSnapshot next = snapshot.withSymbols(List.of(
+                SymbolData.of(PriceSeries.builder("ETH").add(1641009600000L, 3715.32).build())));
+        when(cryptoService.getSnapshot()).thenReturn(next);
+        when(cryptoService.getAllCryptoStatistics(next, null, null, null, null)).thenReturn(statisticsList);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/normalized").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", CryptoController.etag(next.getRevision())))
+                .andExpect(jsonPath("$[0].symbol").value("BTC"));
+        verify(cryptoService, times(1)).getAllCryptoStatistics(next, null, null, null, null);
+    }
+
+    @Test
+    public void testEtagsOfDifferentLoadersNeverMatch(@TempDir Path directory) throws Exception {
+        CryptoDataLoader first = loader(directory.resolve("first"), "timestamp,symbol,price\n1641009600000,BTC,46813.21\n");
+        CryptoDataLoader second = loader(directory.resolve("second"), "timestamp,symbol,price\n1641009600000,BTC,40000.00\n");
+
+        // Both count their versions from zero, as a restarted process or another replica would
+        assertEquals(first.getSnapshot().getVersion(), second.getSnapshot().getVersion());
+        assertNotEquals(CryptoController.etag(first.getSnapshot().getRevision()),
+                CryptoController.etag(second.getSnapshot().getRevision()));
+        assertNotEquals(CryptoController.etag(first.getSnapshot().revisionOf("BTC")),
+                CryptoController.etag(second.getSnapshot().revisionOf("BTC")));
+    }
+
+    private static CryptoDataLoader loader(Path directory, String csv) throws Exception {
+        Files.createDirectories(directory);
+        Files.writeString(directory.resolve("BTC_values.csv"), csv);
+        CryptoDataLoader loader = new CryptoDataLoader();
+        ReflectionTestUtils.setField(loader, "cryptoFolderPath", directory.toString());
+        loader.scanCryptoDirectory();
+        return loader;
+    }
+
+    @Test
+    public void testGetBulkStatistics() throws Exception {
+        when(cryptoService.calculateStatistics(snapshot, List.of("BTC", "ETH", "FOO"), null, null)).thenReturn(new BulkStatistics(
+                statisticsList, Map.of("FOO", "Unsupported or unavailable crypto: FOO")));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/statistics").param("symbols", "BTC,ETH,FOO"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.statistics[0].symbol").value("BTC"))
+                .andExpect(jsonPath("$.statistics[1].symbol").value("ETH"))
+                .andExpect(jsonPath("$.errors.FOO").value("Unsupported or unavailable crypto: FOO"));
+
+        verify(cryptoService, times(1)).calculateStatistics(snapshot, List.of("BTC", "ETH", "FOO"), null, null);
+    }
+
+    @Test
+    public void testGetPrices() throws Exception {
+        PriceSeries series = PriceSeries.builder("BTC").add(1641009600000L, 46813.21).add(1641020400000L, 46979.61).build();
+        when(cryptoService.getPrices(snapshot, "BTC", null, null, null, 1)).thenReturn(new PricePage(series, 0, 1, "next"));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/BTC/prices").param("limit", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "next"))
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"timestamp\":1641009600000,\"symbol\":\"BTC\",\"price\":46813.21}\n"));
+    }
+
+    @Test
+    public void testGetPrices_UnknownSymbol() throws Exception {
+        when(cryptoService.getPrices(snapshot, "FOO", null, null, null, null)).thenThrow(new CryptoNotFoundException("Unsupported or unavailable crypto: FOO"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/FOO/prices"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
     }
 
     @Test
     public void testGetHighestNormalizedCrypto_ValidDate() throws Exception {
-        when(cryptoService.getHighestNormalizedCrypto(LocalDate.of(2022, 1, 1))).thenReturn("BTC");
+        when(cryptoService.getHighestNormalizedCrypto(snapshot, LocalDate.of(2022, 1, 1), null)).thenReturn("BTC");
 
         mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/highest-normalized")
                         .param("date", "2022-01-01"))
                 .andExpect(status().isOk())
                 .andExpect(content().string("BTC"));
 
-        verify(cryptoService, times(1)).getHighestNormalizedCrypto(LocalDate.of(2022, 1, 1));
+        verify(cryptoService, times(1)).getHighestNormalizedCrypto(snapshot, LocalDate.of(2022, 1, 1), null);
+    }
+
+    @Test
+    public void testGetHighestNormalizedCrypto_Zone() throws Exception {
+        when(cryptoService.getHighestNormalizedCrypto(snapshot, LocalDate.of(2022, 1, 1), "Asia/Tokyo")).thenReturn("ETH");
+        when(cryptoService.getHighestNormalizedCrypto(snapshot, LocalDate.of(2022, 1, 1), "Mars/Olympus"))
+                .thenThrow(new IllegalArgumentException("Invalid zone: Mars/Olympus"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/highest-normalized")
+                        .param("date", "2022-01-01")
+                        .param("zone", "Asia/Tokyo"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("ETH"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/highest-normalized")
+                        .param("date", "2022-01-01")
+                        .param("zone", "Mars/Olympus"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetDailyOhlc() throws Exception {
+        LocalDate date = LocalDate.of(2022, 1, 1);
+        when(cryptoService.getDailyOhlc(snapshot, "BTC", date, date, null)).thenReturn(List.of(
+                new DailyOhlc(date, 46813.21, 47143.98, 46813.21, 47023.24, 5)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/BTC/daily")
+                        .param("from", "2022-01-01")
+                        .param("to", "2022-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].date").value("2022-01-01"))
+                .andExpect(jsonPath("$[0].high").value(47143.98))
+                .andExpect(jsonPath("$[0].count").value(5));
+
+        verify(cryptoService, times(1)).getDailyOhlc(snapshot, "BTC", date, date, null);
+    }
+
+    @Test
+    public void testGetCandles() throws Exception {
+        Instant from = Instant.parse("2022-01-01T00:00:00Z");
+        when(cryptoService.getCandles(snapshot, "BTC", "1h", from, null)).thenReturn(List.of(
+                new Candle(from.toEpochMilli(), 46813.21, 47143.98, 46813.21, 47023.24, 5)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/BTC/candles")
+                        .param("interval", "1h")
+                        .param("from", "2022-01-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].timestamp").value(from.toEpochMilli()))
+                .andExpect(jsonPath("$[0].close").value(47023.24))
+                .andExpect(jsonPath("$[0].count").value(5));
+
+        when(cryptoService.getCandles(snapshot, "BTC", "2h", null, null)).thenThrow(new IllegalArgumentException("Unsupported interval: 2h"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/BTC/candles")
+                        .param("interval", "2h"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetCorrelations() throws Exception {
+        when(cryptoService.getCorrelations(snapshot, List.of("BTC", "ETH"), null, null, "1h")).thenReturn(new CorrelationMatrix(
+                "1h", 0, 3_600_000, 1, List.of("BTC", "ETH"), new double[]{1.0, 0.5, 0.5, 1.0}));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/correlation")
+                        .param("symbols", "BTC,ETH")
+                        .param("interval", "1h"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.symbols[1]").value("ETH"))
+                .andExpect(jsonPath("$.correlations[0][1]").value(0.5))
+                .andExpect(jsonPath("$.correlations[1][1]").value(1.0))
+                .andExpect(jsonPath("$.interval").value("1h"));
+
+        when(cryptoService.getCorrelations(snapshot, null, null, null, "2h")).thenThrow(new IllegalArgumentException("Unsupported interval: 2h"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crypto/correlation")
+                        .param("interval", "2h"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testIngestTicks() throws Exception {
+        when(tickIngestor.ingest(any(), argThat(type -> type != null && type.isCompatibleWith(MediaType.APPLICATION_JSON)))).thenReturn(new IngestResult(2, 1, 7));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/crypto/ticks")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"timestamp\": 1641009600000, \"symbol\": \"BTC\", \"price\": 46813.21},"
+                                + "{\"timestamp\": 1641020400000, \"symbol\": \"BTC\", \"price\": 46979.61}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ticks").value(2))
+                .andExpect(jsonPath("$.symbols").value(1))
+                .andExpect(jsonPath("$.version").value(7));
+
+        when(tickIngestor.ingest(any(), argThat(type -> type != null && type.isCompatibleWith(MediaType.parseMediaType("text/csv")))))
+                .thenThrow(new IllegalArgumentException("Invalid symbol: BTC_USD"));
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/crypto/ticks")
+                        .contentType("text/csv")
+                        .content("1641009600000,BTC_USD,46813.21\n"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/crypto/ticks")
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .content("1641009600000,BTC,46813.21\n"))
+                .andExpect(status().isInternalServerError());
+        verifyNoInteractions(cryptoService);
     }
 
     @Test
@@ -0,0 +1,99 @@
+package com.example.crypto.controller;
+
+import com.example.crypto.CryptoRecommendationServiceApplication;
+import com.example.crypto.support.SyntheticDataGenerator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Latency and allocation of the cacheable endpoints over HTTP against the running application, encoding every
+ * response (cache disabled, as before the cache existed) versus writing the cached bytes. Compression is enabled
+ * in both runs, and each endpoint is requested with and without {@code Accept-Encoding: gzip}. Allocation covers
+ * every thread of the JVM, client included, so it is comparable between the runs rather than absolute.
+ */
+@Tag("benchmark")
+public class EncodedResponseCacheBenchmarkTest {
+
+    private static final int SYMBOLS = Integer.getInteger("responses.symbols", 1_000);
+    private static final int REQUESTS = Integer.getInteger("responses.requests", 5_000);
+    private static final List<String> PATHS = List.of(
+            "/api/crypto/normalized", "/api/crypto/" + SyntheticDataGenerator.symbolName(0) + "/statistics",
+            "/api/crypto/highest-normalized?date=2022-01-02");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testCachedResponses() throws Exception {
+        new SyntheticDataGenerator().symbols(SYMBOLS).ticksPerSymbol(100).tickIntervalMillis(3_600_000)
+                .startMillis(Instant.parse("2022-01-01T00:00:00Z").toEpochMilli()).writeTo(directory);
+
+        HttpClient client = HttpClient.newHttpClient();
+        long[][] before = run(client, false);
+        long[][] after = run(client, true);
+        // The ranking of every symbol is by far the most expensive body to encode, plain and gzipped
+        for (int i = 0; i < 2; i++) {
+            String measured = String.format("%s%s: encoded p50 %,d us, %,d B/request; cached p50 %,d us, %,d B/request",
+                    PATHS.get(0), i == 1 ? " (gzip)" : "", before[i][0], before[i][2], after[i][0], after[i][2]);
+            assertTrue(after[i][0] < before[i][0], measured);
+            assertTrue(after[i][2] < before[i][2], measured);
+        }
+    }
+
+    /**
+     * Starts the application and returns, for each path without and with gzip, the p50 and p99 latency in
+     * microseconds and the bytes allocated per request, after a warm-up of the same length.
+     */
+    private long[][] run(HttpClient client, boolean cacheEnabled) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(CryptoRecommendationServiceApplication.class)
+                .run("--server.port=0",
+                        "--server.compression.enabled=true",
+                        "--crypto.directory.path=" + directory,
+                        "--crypto.snapshot.path=",
+                        "--crypto.ticks.log.path=",
+                        "--crypto.response-cache.enabled=" + cacheEnabled,
+                        "--rate.limit.enabled=false",
+                        "--logging.level.com.example.crypto=INFO")) {
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long[][] results = new long[PATHS.size() * 2][];
+            for (int i = 0; i < results.length; i++) {
+                HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(base + PATHS.get(i / 2)));
+                if (i % 2 == 1) {
+                    builder.header("Accept-Encoding", "gzip");
+                }
+                HttpRequest request = builder.build();
+                for (int r = 0; r < REQUESTS; r++) {
+                    assertEquals(200, client.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode());
+                }
+                long[] latencies = new long[REQUESTS];
+                long allocated = threads.getTotalThreadAllocatedBytes();
+                for (int r = 0; r < REQUESTS; r++) {
+                    long start = System.nanoTime();
+                    client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                    latencies[r] = System.nanoTime() - start;
+                }
+                allocated = (threads.getTotalThreadAllocatedBytes() - allocated) / REQUESTS;
+                Arrays.sort(latencies);
+                results[i] = new long[]{latencies[REQUESTS / 2] / 1_000, latencies[REQUESTS * 99 / 100] / 1_000, allocated};
+            }
+            return results;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.crypto.controller;
+
+import com.example.crypto.model.CryptoStatistics;
+import com.example.crypto.model.Revision;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class EncodedResponseCacheTest {
+
+    private static final Revision V1 = new Revision("r1", 1, Instant.EPOCH);
+    private static final Revision V2 = new Revision("r1", 2, Instant.EPOCH);
+
+    private final AtomicInteger computations = new AtomicInteger();
+
+    @Test
+    public void testBodyIsEncodedOncePerVersion() {
+        EncodedResponseCache cache = cache(true, 1_000, false);
+
+        ResponseEntity<byte[]> first = cache.json(V1, "normalized", request(null), statistics("BTC"));
+        ResponseEntity<byte[]> second = cache.json(V1, "normalized", request(null), statistics("ETH"));
+
+        assertEquals(1, computations.get());
+        assertSame(first.getBody(), second.getBody());
+        assertEquals(MediaType.APPLICATION_JSON, first.getHeaders().getContentType());
+        assertEquals("[{\"symbol\":\"BTC\",\"oldestPrice\":1.0,\"newestPrice\":2.0,\"minPrice\":1.0,\"maxPrice\":2.0,\"normalizedRange\":1.0}]",
+                new String(first.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testNewVersionEvictsOlderEntries() {
+        EncodedResponseCache cache = cache(true, 1_000, false);
+
+        cache.json(V1, "normalized", request(null), statistics("BTC"));
+        ResponseEntity<byte[]> updated = cache.json(V2, "normalized", request(null), statistics("ETH"));
+        cache.json(V1, "normalized", request(null), statistics("XRP"));
+
+        assertEquals(3, computations.get());
+        assertArrayEquals(updated.getBody(), cache.json(V2, "normalized", request(null), statistics("DOGE")).getBody());
+        assertEquals(3, computations.get());
+    }
+
+    @Test
+    public void testBodiesAreBoundedByTheirSize() {
+        // Room for one body of about 100 bytes
+        EncodedResponseCache cache = cache(true, 150, false);
+
+        cache.json(V1, "small", request(null), statistics("BTC"));
+        cache.json(V1, "small", request(null), statistics("BTC"));
+        cache.json(V1, "large", request(null), statistics("BTC", "ETH"));
+        cache.json(V1, "large", request(null), statistics("BTC", "ETH"));
+
+        assertEquals(3, computations.get());
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneComputation() throws Exception {
+        EncodedResponseCache cache = cache(true, 1_000, false);
+        CountDownLatch waiting = new CountDownLatch(1);
+        Supplier<List<CryptoStatistics>> slow = () -> {
+            try {
+                waiting.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return statistics("BTC").get();
+        };
+
+        List<Future<ResponseEntity<byte[]>>> responses = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 8; i++) {
+                responses.add(executor.submit(() -> cache.json(V1, "correlation", request(null), slow)));
+            }
+            Thread.sleep(100);
+            waiting.countDown();
+        }
+
+        assertEquals(1, computations.get());
+        for (Future<ResponseEntity<byte[]>> response : responses) {
+            assertSame(responses.get(0).get().getBody(), response.get().getBody());
+        }
+    }
+
+    @Test
+    public void testDisabledCacheEncodesEveryRequest() {
+        EncodedResponseCache cache = cache(false, 1_000, false);
+
+        cache.json(V1, "normalized", request(null), statistics("BTC"));
+        cache.json(V1, "normalized", request(null), statistics("BTC"));
+
+        assertEquals(2, computations.get());
+    }
+
+    @Test
+    public void testGzipIsServedToClientsAcceptingIt() throws IOException {
+        EncodedResponseCache cache = cache(true, 1_000, true);
+
+        ResponseEntity<byte[]> plain = cache.json(V1, "normalized", request(null), statistics("BTC"));
+        ResponseEntity<byte[]> gzip = cache.json(V1, "normalized", request("gzip, deflate"), statistics("BTC"));
+
+        assertEquals(1, computations.get());
+        assertNull(plain.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, plain.getHeaders().getFirst(HttpHeaders.VARY));
+        assertEquals("gzip", gzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertSame(gzip.getBody(), cache.json(V1, "normalized", request("gzip"), statistics("BTC")).getBody());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip.getBody()))) {
+            assertArrayEquals(plain.getBody(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testTextBody() {
+        EncodedResponseCache cache = cache(true, 1_000, false);
+
+        ResponseEntity<byte[]> response = cache.text(V1, "highest-normalized/2022-01-01", request(null), () -> "BTC");
+
+        assertEquals("text/plain;charset=UTF-8", response.getHeaders().getContentType().toString());
+        assertEquals("BTC", new String(response.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private EncodedResponseCache cache(boolean enabled, long maxBytes, boolean compression) {
+        return new EncodedResponseCache(new ObjectMapper(), enabled, DataSize.ofBytes(maxBytes), compression, DataSize.ofBytes(0));
+    }
+
+    private Supplier<List<CryptoStatistics>> statistics(String... symbols) {
+        return () -> {
+            computations.incrementAndGet();
+            List<CryptoStatistics> statistics = new ArrayList<>();
+            for (String symbol : symbols) {
+                statistics.add(new CryptoStatistics(symbol, 1, 2, 1, 2, 1, null));
+            }
+            return statistics;
+        };
+    }
+
+    private static WebRequest request(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/crypto/normalized");
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return new ServletWebRequest(request);
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.crypto.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CandleRollupTest {
+
+    private static final long START = Instant.parse("2022-01-01T00:00:00Z").toEpochMilli();
+
+    @Test
+    public void testBucketsTicksByInterval() {
+        PriceSeries series = PriceSeries.builder("BTC")
+                .add(START, 100.0)
+                .add(START + 20_000, 120.0)
+                .add(START + 40_000, 90.0)
+                .add(START + 59_999, 110.0)
+                .add(START + 180_000, 200.0)
+                .build();
+
+        CandleRollup candles = CandleRollup.of(series, CandleInterval.ONE_MINUTE);
+
+        assertEquals(2, candles.size());
+        assertEquals(START, candles.startAt(0));
+        assertEquals(100.0, candles.openAt(0));
+        assertEquals(120.0, candles.highAt(0));
+        assertEquals(90.0, candles.lowAt(0));
+        assertEquals(110.0, candles.closeAt(0));
+        assertEquals(4, candles.countAt(0));
+        assertEquals(START + 180_000, candles.startAt(1));
+        assertEquals(1, candles.lowerBound(START + 1));
+        assertEquals(2, candles.lowerBound(START + 180_001));
+    }
+
+    @Test
+    public void testCoarserLevelsMatchBucketingTheTicks() {
+        PriceSeries series = randomSeries(50_000, 7_000);
+
+        CandleRollup finer = CandleRollup.of(series, CandleInterval.ONE_MINUTE);
+        for (CandleInterval interval : EnumSet.range(CandleInterval.FIVE_MINUTES, CandleInterval.ONE_DAY)) {
+            CandleRollup coarsened = finer.coarsen(interval);
+            assertSame(CandleRollup.of(series, interval), coarsened);
+            finer = coarsened;
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> CandleRollup.of(series, CandleInterval.ONE_HOUR).coarsen(CandleInterval.FIVE_MINUTES));
+    }
+
+    @Test
+    public void testFollowedByMatchesBucketingTheWholeSeries() {
+        PriceSeries series = randomSeries(10_000, 7_000);
+        int split = 4_321;
+        PriceSeries head = slice(series, 0, split);
+        PriceSeries tail = slice(series, split, series.size());
+
+        for (CandleInterval interval : CandleInterval.values()) {
+            assertSame(CandleRollup.of(series, interval),
+                    CandleRollup.of(head, interval).followedBy(CandleRollup.of(tail, interval)));
+        }
+    }
+
+    @Test
+    public void testRepeatedAppendsLeaveEarlierRollupsIntact() {
+        PriceSeries series = randomSeries(5_000, 7_000);
+        CandleInterval interval = CandleInterval.FIVE_MINUTES;
+        CandleRollup base = CandleRollup.of(slice(series, 0, 1_000), interval);
+        CandleRollup baseCopy = CandleRollup.of(slice(series, 0, 1_000), interval);
+
+        // Small tails, whose first bucket usually merges into the last one, appended one after another
+        CandleRollup rollup = base;
+        for (int from = 1_000; from < series.size(); from += 37) {
+            CandleRollup previous = rollup;
+            int previousSize = previous.size();
+            double previousClose = previous.closeAt(previousSize - 1);
+            rollup = rollup.followedBy(CandleRollup.of(slice(series, from, Math.min(from + 37, series.size())), interval));
+            assertEquals(previousSize, previous.size());
+            assertEquals(previousClose, previous.closeAt(previousSize - 1));
+        }
+        assertSame(CandleRollup.of(series, interval), rollup);
+        assertSame(baseCopy, base);
+        assertEquals(base.size(), base.lowerBound(Long.MAX_VALUE));
+        assertEquals(base.size() - 1, base.lowerBound(base.startAt(base.size() - 1)));
+
+        // A second append to the same rollup copies rather than overwriting the first one's buckets
+        CandleRollup branch = base.followedBy(CandleRollup.of(slice(series, 1_000, 2_000), interval));
+        assertSame(CandleRollup.of(slice(series, 0, 2_000), interval), branch);
+        assertSame(CandleRollup.of(series, interval), rollup);
+    }
+
+    @Test
+    public void testCandlesBuildMissingIntervalsForTheRange() {
+        PriceSeries series = randomSeries(20_000, 7_000);
+        Candles candles = Candles.of(series, EnumSet.of(CandleInterval.FIVE_MINUTES, CandleInterval.ONE_DAY));
+        long from = START + 3 * 3_600_000L + 123;
+        long to = START + 30 * 3_600_000L;
+
+        assertNull(candles.level(CandleInterval.ONE_HOUR));
+        assertSame(CandleRollup.of(series, series.lowerBound(CandleInterval.ONE_HOUR.bucketOf(from)), series.lowerBound(to), CandleInterval.ONE_HOUR),
+                candles.select(series, CandleInterval.ONE_HOUR, from, to));
+        assertSame(CandleRollup.of(series, 0, series.lowerBound(to), CandleInterval.ONE_MINUTE),
+                candles.select(series, CandleInterval.ONE_MINUTE, null, to));
+
+        Candles appended = Candles.of(slice(series, 0, 5_000), candles.intervals()).followedBy(series, slice(series, 5_000, series.size()));
+        assertSame(candles.level(CandleInterval.FIVE_MINUTES), appended.level(CandleInterval.FIVE_MINUTES));
+        assertSame(candles.level(CandleInterval.ONE_DAY), appended.level(CandleInterval.ONE_DAY));
+    }
+
+    @Test
+    public void testCandlesOnlyKeepLevelsThatCompress() {
+        PriceSeries.Builder builder = PriceSeries.builder("BTC");
+        for (int i = 0; i < 1_000; i++) {
+            builder.add(START + i * 3 * 3_600_000L, 100.0 + i % 7);
+        }
+        PriceSeries series = builder.build();
+
+        Candles candles = Candles.of(series, EnumSet.allOf(CandleInterval.class));
+
+        assertEquals(EnumSet.allOf(CandleInterval.class), candles.intervals());
+        assertNull(candles.level(CandleInterval.ONE_MINUTE));
+        assertNull(candles.level(CandleInterval.FIVE_MINUTES));
+        assertNull(candles.level(CandleInterval.ONE_HOUR));
+        assertSame(CandleRollup.of(series, CandleInterval.ONE_DAY), candles.level(CandleInterval.ONE_DAY));
+        assertSame(CandleRollup.of(series, CandleInterval.ONE_HOUR), candles.select(series, CandleInterval.ONE_HOUR, null, null));
+    }
+
+    @Test
+    public void testCandlesPickUpLevelsOnceAppendedTicksCompress() {
+        PriceSeries.Builder builder = PriceSeries.builder("BTC");
+        for (int i = 0; i < 100; i++) {
+            builder.add(START + i * 3 * 3_600_000L, 100.0 + i % 7);
+        }
+        for (int i = 0; i < 1_000; i++) {
+            builder.add(START + 300 * 3_600_000L + i * 10_000L, 100.0 + i % 11);
+        }
+        PriceSeries series = builder.build();
+        PriceSeries sparse = slice(series, 0, 100);
+
+        Candles candles = Candles.of(sparse, EnumSet.allOf(CandleInterval.class));
+        assertNull(candles.level(CandleInterval.ONE_MINUTE));
+        for (int from = sparse.size(); from < series.size(); from += 10) {
+            candles = candles.followedBy(slice(series, 0, from + 10), slice(series, from, from + 10));
+        }
+
+        assertSame(CandleRollup.of(series, CandleInterval.ONE_MINUTE), candles.level(CandleInterval.ONE_MINUTE));
+    }
+
+    /**
+     * Ticks at random gaps of up to {@code maxGapMillis}, several of them often in the same minute.
+     */
+    private static PriceSeries randomSeries(int ticks, long maxGapMillis) {
+        Random random = new Random(42);
+        PriceSeries.Builder builder = PriceSeries.builder("BTC");
+        long timestamp = START;
+        for (int i = 0; i < ticks; i++) {
+            timestamp += (long) (random.nextDouble() * maxGapMillis * 20);
+            builder.add(timestamp, 100 + random.nextGaussian());
+        }
+        return builder.build();
+    }
+
+    private static PriceSeries slice(PriceSeries series, int from, int to) {
+        PriceSeries.Builder builder = PriceSeries.builder(series.getSymbol());
+        for (int i = from; i < to; i++) {
+            builder.add(series.timestampAt(i), series.priceAt(i));
+        }
+        return builder.build();
+    }
+
+    private static void assertSame(CandleRollup expected, CandleRollup actual) {
+        assertEquals(expected.getInterval(), actual.getInterval());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.startAt(i), actual.startAt(i));
+            assertEquals(expected.openAt(i), actual.openAt(i));
+            assertEquals(expected.highAt(i), actual.highAt(i));
+            assertEquals(expected.lowAt(i), actual.lowAt(i));
+            assertEquals(expected.closeAt(i), actual.closeAt(i));
+            assertEquals(expected.countAt(i), actual.countAt(i));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.crypto.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DailyRollupTest {
+
+    private static final ZoneId ZONE = ZoneOffset.UTC;
+
+    @Test
+    public void testBucketsTicksByDay() {
+        PriceSeries series = PriceSeries.builder("BTC")
+                .add(millis(2022, 1, 1, 0), 100.0)
+                .add(millis(2022, 1, 1, 6), 120.0)
+                .add(millis(2022, 1, 1, 12), 90.0)
+                .add(millis(2022, 1, 1, 23), 110.0)
+                .add(millis(2022, 1, 3, 5), 200.0)
+                .build();
+
+        DailyRollup daily = DailyRollup.of(series, ZONE);
+
+        assertEquals(2, daily.size());
+        assertEquals(LocalDate.of(2022, 1, 1), daily.dateAt(0));
+        assertEquals(100.0, daily.openAt(0));
+        assertEquals(120.0, daily.highAt(0));
+        assertEquals(90.0, daily.lowAt(0));
+        assertEquals(110.0, daily.closeAt(0));
+        assertEquals(4, daily.countAt(0));
+        assertEquals((120.0 - 90.0) / 90.0, daily.normalizedRangeAt(0));
+
+        assertEquals(LocalDate.of(2022, 1, 3), daily.dateAt(1));
+        assertEquals(1, daily.countAt(1));
+    }
+
+    @Test
+    public void testIndexOfAndLowerBound() {
+        PriceSeries series = PriceSeries.builder("BTC")
+                .add(millis(2022, 1, 1, 0), 100.0)
+                .add(millis(2022, 1, 3, 0), 100.0)
+                .build();
+
+        DailyRollup daily = DailyRollup.of(series, ZONE);
+
+        assertEquals(0, daily.indexOf(LocalDate.of(2022, 1, 1)));
+        assertTrue(daily.indexOf(LocalDate.of(2022, 1, 2)) < 0);
+        assertEquals(1, daily.lowerBound(LocalDate.of(2022, 1, 2)));
+        assertEquals(2, daily.lowerBound(LocalDate.of(2022, 1, 4)));
+    }
+
+    @Test
+    public void testDayBoundariesFollowZone() {
+        PriceSeries series = PriceSeries.builder("BTC")
+                .add(millis(2022, 1, 1, 23), 100.0)
+                .build();
+
+        DailyRollup daily = DailyRollup.of(series, ZoneOffset.ofHours(2));
+
+        assertEquals(LocalDate.of(2022, 1, 2), daily.dateAt(0));
+    }
+
+    @Test
+    public void testDayBoundariesAcrossDaylightSavingTime() {
+        ZoneId newYork = ZoneId.of("America/New_York");
+        // Clocks went forward at 2:00 on March 13th, 2022, so that day was 23 hours long
+        PriceSeries series = PriceSeries.builder("BTC")
+                .add(LocalDateTime.of(2022, 3, 12, 23, 30).atZone(newYork).toInstant().toEpochMilli(), 100.0)
+                .add(LocalDateTime.of(2022, 3, 13, 0, 30).atZone(newYork).toInstant().toEpochMilli(), 110.0)
+                .add(LocalDateTime.of(2022, 3, 13, 23, 30).atZone(newYork).toInstant().toEpochMilli(), 120.0)
+                .add(LocalDateTime.of(2022, 3, 14, 0, 30).atZone(newYork).toInstant().toEpochMilli(), 130.0)
+                .build();
+
+        DailyRollup daily = DailyRollup.of(series, newYork);
+
+        assertEquals(newYork, daily.getZone());
+        assertEquals(3, daily.size());
+        assertEquals(LocalDate.of(2022, 3, 13), daily.dateAt(1));
+        assertEquals(2, daily.countAt(1));
+        assertEquals(120.0, daily.closeAt(1));
+    }
+
+    @Test
+    public void testFollowedByMergesSharedDay() {
+        DailyRollup first = DailyRollup.of(PriceSeries.builder("BTC")
+                .add(millis(2022, 1, 1, 0), 100.0)
+                .add(millis(2022, 1, 1, 6), 120.0)
+                .build(), ZONE);
+        DailyRollup later = DailyRollup.of(PriceSeries.builder("BTC")
+                .add(millis(2022, 1, 1, 12), 80.0)
+                .add(millis(2022, 1, 2, 0), 90.0)
+                .build(), ZONE);
+
+        DailyRollup combined = first.followedBy(later);
+
+        assertEquals(2, combined.size());
+        assertEquals(100.0, combined.openAt(0));
+        assertEquals(120.0, combined.highAt(0));
+        assertEquals(80.0, combined.lowAt(0));
+        assertEquals(80.0, combined.closeAt(0));
+        assertEquals(3, combined.countAt(0));
+        assertEquals(LocalDate.of(2022, 1, 2), combined.dateAt(1));
+        assertEquals(1, first.size());
+    }
+
+    private static long millis(int year, int month, int day, int hour) {
+        return LocalDateTime.of(year, month, day, hour, 0).atZone(ZONE).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.crypto.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DatasetSnapshotTest {
+
+    @Test
+    public void testWithSymbolsPublishesNextVersion() {
+        DatasetSnapshot empty = DatasetSnapshot.empty();
+        SymbolData btc = symbol("BTC", 100, 110);
+        SymbolData eth = symbol("ETH", 10, 15);
+
+        DatasetSnapshot first = empty.withSymbols(List.of(btc, eth));
+        SymbolData newBtc = symbol("BTC", 100, 300);
+        DatasetSnapshot second = first.withSymbols(List.of(newBtc));
+
+        assertEquals(0, empty.getVersion());
+        assertTrue(empty.getSymbols().isEmpty());
+        assertEquals(1, first.getVersion());
+        assertEquals(2, second.getVersion());
+
+        assertSame(btc, first.get("BTC"));
+        assertSame(newBtc, second.get("BTC"));
+        assertSame(eth, second.get("ETH"));
+        assertEquals(List.of("ETH", "BTC"), first.getRanking().stream().map(CryptoStatistics::getSymbol).toList());
+        assertEquals(List.of("BTC", "ETH"), second.getRanking().stream().map(CryptoStatistics::getSymbol).toList());
+    }
+
+    @Test
+    public void testRevisionsTrackWhenEachSymbolChanged() {
+        DatasetSnapshot empty = DatasetSnapshot.empty();
+        DatasetSnapshot first = empty.withSymbols(List.of(symbol("BTC", 100, 110), symbol("ETH", 10, 15)));
+        DatasetSnapshot second = first.withSymbols(List.of(symbol("BTC", 100, 300)));
+
+        assertEquals(new Revision(empty.getLineage(), 0, Instant.EPOCH), empty.getRevision());
+        assertEquals(new Revision(empty.getLineage(), 2, second.getPublishedAt()), second.getRevision());
+        assertEquals(second.getRevision(), second.revisionOf("BTC"));
+        assertEquals(first.getRevision(), second.revisionOf("ETH"));
+        assertNull(second.revisionOf("XRP"));
+    }
+
+    @Test
+    public void testRankingIsMergedForUpdatedSymbols() {
+        DatasetSnapshot first = DatasetSnapshot.empty().withSymbols(List.of(
+                symbol("BTC", 100, 110), symbol("ETH", 10, 15), symbol("XRP", 1, 3), symbol("DOGE", 1, 1.2)));
+        DatasetSnapshot second = first.withSymbols(List.of(
+                symbol("DOGE", 1, 10), symbol("XRP", 1, 1.05), SymbolData.of(PriceSeries.builder("ETH").build())));
+
+        assertEquals(List.of("XRP", "ETH", "DOGE", "BTC"), first.getRanking().stream().map(CryptoStatistics::getSymbol).toList());
+        assertEquals(List.of("DOGE", "BTC", "XRP"), second.getRanking().stream().map(CryptoStatistics::getSymbol).toList());
+    }
+
+    @Test
+    public void testRemovedSymbolsAreDropped() {
+        DatasetSnapshot first = DatasetSnapshot.empty().withSymbols(List.of(
+                symbol("BTC", 100, 110), symbol("ETH", 10, 15), symbol("XRP", 1, 3)));
+        DatasetSnapshot second = first.withSymbols(List.of(symbol("BTC", 100, 120)), List.of("XRP"));
+
+        assertEquals(2, second.getVersion());
+        assertNull(second.get("XRP"));
+        assertNull(second.revisionOf("XRP"));
+        assertEquals(List.of("ETH", "BTC"), second.getRanking().stream().map(CryptoStatistics::getSymbol).toList());
+        assertEquals(3, first.getSymbols().size());
+    }
+
+    @Test
+    public void testEveryEmptySnapshotStartsANewLineage() {
+        DatasetSnapshot first = DatasetSnapshot.empty().withSymbols(List.of(symbol("BTC", 100, 110)));
+        DatasetSnapshot second = DatasetSnapshot.empty().withSymbols(List.of(symbol("BTC", 100, 110)));
+
+        assertEquals(first.getVersion(), second.getVersion());
+        assertNotEquals(first.getRevision(), second.getRevision());
+    }
+
+    @Test
+    public void testSymbolsWithoutDataAreNotRanked() {
+        DatasetSnapshot snapshot = DatasetSnapshot.empty().withSymbols(List.of(
+                symbol("BTC", 100, 110),
+                SymbolData.of(PriceSeries.builder("XRP").build())));
+
+        assertEquals(2, snapshot.getSymbols().size());
+        assertEquals(1, snapshot.getRanking().size());
+        assertNull(snapshot.get("XRP").getStatistics());
+    }
+
+    @Test
+    public void testSnapshotIsUnmodifiable() {
+        DatasetSnapshot snapshot = DatasetSnapshot.empty().withSymbols(List.of(symbol("BTC", 100, 110)));
+
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getSymbols().remove("BTC"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getRanking().clear());
+    }
+
+    private static SymbolData symbol(String symbol, double... prices) {
+        PriceSeries.Builder builder = PriceSeries.builder(symbol);
+        for (int i = 0; i < prices.length; i++) {
+            builder.add(1641009600000L + i * 3_600_000L, prices[i]);
+        }
+        return SymbolData.of(builder.build());
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.crypto.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DayBucketsTest {
+
+    private static final List<ZoneId> ZONES = List.of(ZoneId.of("UTC"), ZoneId.of("Europe/Berlin"),
+            ZoneId.of("America/New_York"), ZoneId.of("Australia/Lord_Howe"), ZoneId.of("Asia/Kolkata"));
+    private static final long START = Instant.parse("2021-01-01T00:00:00Z").toEpochMilli();
+    private static final long END = Instant.parse("2023-01-01T00:00:00Z").toEpochMilli();
+
+    @Test
+    public void testMatchesCalendarDaysInOrder() {
+        for (ZoneId zone : ZONES) {
+            DayBuckets days = new DayBuckets(zone);
+            for (long timestamp = START; timestamp < END; timestamp += 17 * 60_000L) {
+                assertEquals(epochDay(timestamp, zone), days.epochDayOf(timestamp), zone + " at " + timestamp);
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesCalendarDaysOutOfOrder() {
+        Random random = new Random(7);
+        for (ZoneId zone : ZONES) {
+            DayBuckets days = new DayBuckets(zone);
+            for (int i = 0; i < 100_000; i++) {
+                long timestamp = START + (long) (random.nextDouble() * (END - START));
+                assertEquals(epochDay(timestamp, zone), days.epochDayOf(timestamp), zone + " at " + timestamp);
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesCalendarDaysAroundTransitions() {
+        for (ZoneId zone : ZONES) {
+            DayBuckets days = new DayBuckets(zone);
+            for (ZoneOffsetTransition transition : zone.getRules().getTransitions()) {
+                long at = transition.toEpochSecond() * 1_000L;
+                for (long timestamp : new long[]{at - 1, at, at + 1}) {
+                    assertEquals(epochDay(timestamp, zone), days.epochDayOf(timestamp), zone + " at " + timestamp);
+                }
+            }
+        }
+    }
+
+    private static long epochDay(long timestamp, ZoneId zone) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(timestamp), zone).toEpochDay();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.crypto.model;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput and per-row allocation of the NDJSON export of a large series. Formatting a double allocates a little
+ * short-lived garbage per row, but nothing proportional to the export is ever retained.
+ */
+@Tag("benchmark")
+public class PricePageExportBenchmarkTest {
+
+    private static final int TICKS = Integer.getInteger("export.ticks", 10_000_000);
+
+    @Test
+    public void testExportThroughput() throws Exception {
+        PriceSeries.Builder builder = PriceSeries.builder("BTC");
+        for (int i = 0; i < TICKS; i++) {
+            builder.add(1641009600000L + i * 1_000L, 46813.21 + (i % 10_000) / 100.0);
+        }
+        PricePage page = new PricePage(builder.build(), 0, TICKS, null);
+        CountingOutputStream out = new CountingOutputStream();
+        page.writeNdjson(out); // Warm-up
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        out.bytes = 0;
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        page.writeNdjson(out);
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        assertTrue(out.bytes > TICKS * 40L);
+        assertTrue(allocated / TICKS < 128, String.format("Export should only allocate short-lived formatting garbage per row: "
+                + "%,d ticks in %,d ms, %.3f B/row", TICKS, TimeUnit.NANOSECONDS.toMillis(elapsed), (double) allocated / TICKS));
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.crypto.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PricePageTest {
+
+    @Test
+    public void testWriteNdjson() throws Exception {
+        PriceSeries series = PriceSeries.builder("BTC")
+                .add(1000L, 1.5)
+                .add(2000L, 46813.21)
+                .add(3000L, 3.0)
+                .build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new PricePage(series, 1, 3, null).writeNdjson(out);
+
+        assertEquals("""
+                {"timestamp":2000,"symbol":"BTC","price":46813.21}
+                {"timestamp":3000,"symbol":"BTC","price":3.0}
+                """, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testWriteNdjsonBeyondOneBuffer() throws Exception {
+        PriceSeries.Builder builder = PriceSeries.builder("ETH");
+        for (int i = 0; i < 10_000; i++) {
+            builder.add(i, i + 0.25);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new PricePage(builder.build(), 0, 10_000, null).writeNdjson(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(10_000, lines.length);
+        assertEquals("{\"timestamp\":0,\"symbol\":\"ETH\",\"price\":0.25}", lines[0]);
+        assertEquals("{\"timestamp\":9999,\"symbol\":\"ETH\",\"price\":9999.25}", lines[9_999]);
+    }
+
+    @Test
+    public void testWriteNdjsonEscapesSymbol() throws Exception {
+        PriceSeries series = PriceSeries.builder("A\"B\\é").add(1L, 2.0).build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new PricePage(series, 0, 1, null).writeNdjson(out);
+
+        assertEquals("{\"timestamp\":1,\"symbol\":\"A\\\"B\\\\\\u00e9\",\"price\":2.0}\n", out.toString(StandardCharsets.US_ASCII));
+    }
+}
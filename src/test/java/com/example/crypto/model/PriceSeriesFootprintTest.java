@@ -0,0 +1,56 @@
+package com.example.crypto.model;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the retained heap of the boxed {@code List<CryptoPrice>} layout against {@link PriceSeries}.
+ * Needs a few GB of heap, so it only runs with the {@code benchmark} profile.
+ */
+@Tag("benchmark")
+public class PriceSeriesFootprintTest {
+
+    private static final int TICKS = Integer.getInteger("footprint.ticks", 10_000_000);
+    private static final long START = 1641009600000L;
+
+    @Test
+    public void testColumnarLayoutFootprint() {
+        long before = usedHeap();
+        List<CryptoPrice> boxed = new ArrayList<>();
+        for (int i = 0; i < TICKS; i++) {
+            boxed.add(new CryptoPrice(START + i * 60_000L, "BTC", 46813.21 + i));
+        }
+        long boxedBytes = usedHeap() - before;
+        assertEquals(TICKS, boxed.size());
+        boxed = null;
+
+        before = usedHeap();
+        PriceSeries.Builder builder = PriceSeries.builder("BTC");
+        for (int i = 0; i < TICKS; i++) {
+            builder.add(START + i * 60_000L, 46813.21 + i);
+        }
+        PriceSeries columnar = builder.build();
+        long columnarBytes = usedHeap() - before;
+        assertEquals(TICKS, columnar.size());
+
+        String measured = String.format("List<CryptoPrice> %.1f B/tick, PriceSeries %.1f B/tick",
+                (double) boxedBytes / TICKS, (double) columnarBytes / TICKS);
+        assertTrue(columnarBytes < TICKS * 17L, "Columnar layout should cost about 16 bytes per tick: " + measured);
+        // A CryptoPrice object plus its list slot costs about 36 bytes with compressed references
+        assertTrue(boxedBytes > columnarBytes * 2, "Columnar layout should be less than half the size of the boxed one: " + measured);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
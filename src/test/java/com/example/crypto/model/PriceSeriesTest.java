@@ -0,0 +1,245 @@
+package com.example.crypto.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PriceSeriesTest {
+
+    @Test
+    public void testBuildSortsByTimestamp() {
+        PriceSeries series = PriceSeries.builder("BTC")
+                .add(3000L, 3.0)
+                .add(1000L, 1.0)
+                .add(2000L, 2.0)
+                .build();
+
+        assertEquals(3, series.size());
+        assertEquals(1000L, series.firstTimestamp());
+        assertEquals(3000L, series.lastTimestamp());
+        assertEquals(1.0, series.priceAt(0));
+        assertEquals(2.0, series.priceAt(1));
+        assertEquals(3.0, series.priceAt(2));
+    }
+
+    @Test
+    public void testSortIsStableForEqualTimestamps() {
+        PriceSeries series = PriceSeries.builder("BTC")
+                .add(2000L, 2.0)
+                .add(1000L, 1.0)
+                .add(1000L, 1.5)
+                .build();
+
+        assertEquals(1.0, series.priceAt(0));
+        assertEquals(1.5, series.priceAt(1));
+        assertEquals(2.0, series.priceAt(2));
+    }
+
+    @Test
+    public void testGrowsBeyondOneChunk() {
+        int ticks = PriceSeries.CHUNK_SIZE * 3 + 7;
+        PriceSeries.Builder builder = PriceSeries.builder("ETH");
+        for (int i = ticks - 1; i >= 0; i--) {
+            builder.add(i * 1000L, i);
+        }
+
+        PriceSeries series = builder.build();
+
+        assertEquals(ticks, series.size());
+        for (int i = 0; i < ticks; i++) {
+            assertEquals(i * 1000L, series.timestampAt(i));
+            assertEquals(i, series.priceAt(i));
+        }
+    }
+
+    @Test
+    public void testColumnsRoundTripThroughAddAll() {
+        PriceSeries original = PriceSeries.builder("BTC").add(1000L, 1.0).add(2000L, 2.0).add(3000L, 3.0).build();
+
+        PriceSeries copy = PriceSeries.builder("BTC")
+                .add(500L, 0.5)
+                .addAll(original.timestampColumn(), original.priceColumn())
+                .addAll(LongBuffer.wrap(new long[]{1500L}), DoubleBuffer.wrap(new double[]{1.5}))
+                .build();
+
+        assertEquals(5, copy.size());
+        assertEquals(1500L, copy.timestampAt(2));
+        assertEquals(3.0, copy.priceAt(4));
+        assertTrue(original.timestampColumn().isReadOnly());
+        assertThrows(IllegalArgumentException.class, () -> PriceSeries.builder("BTC")
+                .addAll(LongBuffer.wrap(new long[2]), DoubleBuffer.wrap(new double[1])));
+    }
+
+    @Test
+    public void testRangeMinMaxMatchesScan() {
+        Random random = new Random(7);
+        PriceSeries.Builder builder = PriceSeries.builder("BTC");
+        for (int i = 0; i < 5_000; i++) {
+            builder.add(i, random.nextDouble());
+        }
+        PriceSeries series = builder.build();
+
+        for (int query = 0; query < 2_000; query++) {
+            int from = random.nextInt(series.size());
+            int to = from + 1 + random.nextInt(series.size() - from);
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                min = Math.min(min, series.priceAt(i));
+                max = Math.max(max, series.priceAt(i));
+            }
+            assertEquals(min, series.minPrice(from, to));
+            assertEquals(max, series.maxPrice(from, to));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> series.minPrice(3, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> series.maxPrice(0, series.size() + 1));
+    }
+
+    @Test
+    public void testRangeMinMaxAfterAppend() {
+        PriceSeries.Builder builder = PriceSeries.builder("BTC");
+        for (int i = 0; i < 1_000; i++) {
+            builder.add(i, 100 + i % 10);
+        }
+        PriceSeries original = builder.build();
+        assertEquals(100, original.minPrice(0, original.size()));
+
+        PriceSeries.Builder tail = PriceSeries.builder("BTC");
+        for (int i = 1_000; i < 1_600; i++) {
+            tail.add(i, i == 1_300 ? 1 : 500);
+        }
+        PriceSeries appended = original.append(tail.build());
+
+        assertEquals(1, appended.minPrice(0, appended.size()));
+        assertEquals(500, appended.maxPrice(900, 1_200));
+        assertEquals(100, appended.minPrice(0, 1_000));
+        assertEquals(109, original.maxPrice(0, original.size()));
+    }
+
+    @Test
+    public void testLowerBound() {
+        PriceSeries series = PriceSeries.builder("BTC")
+                .add(1000L, 1.0)
+                .add(2000L, 2.0)
+                .add(2000L, 2.5)
+                .add(3000L, 3.0)
+                .build();
+
+        assertEquals(0, series.lowerBound(0L));
+        assertEquals(1, series.lowerBound(2000L));
+        assertEquals(3, series.lowerBound(2001L));
+        assertEquals(4, series.lowerBound(5000L));
+    }
+
+    @Test
+    public void testAfterAndExcluding() {
+        PriceSeries series = PriceSeries.builder("BTC").add(1000L, 1.0).add(2000L, 2.0).add(3000L, 3.0).build();
+        PriceSeries other = PriceSeries.builder("BTC").add(500L, 9.0).add(2000L, 9.0).add(4000L, 9.0).build();
+
+        assertSame(series, series.after(Long.MIN_VALUE));
+        assertSame(series, series.after(999L));
+        PriceSeries after = series.after(2000L);
+        assertEquals(1, after.size());
+        assertEquals(3.0, after.priceAt(0));
+        assertTrue(series.after(3000L).isEmpty());
+
+        PriceSeries excluding = series.excluding(other);
+        assertEquals(2, excluding.size());
+        assertEquals(1000L, excluding.timestampAt(0));
+        assertEquals(3000L, excluding.timestampAt(1));
+        assertSame(series, series.excluding(PriceSeries.builder("BTC").add(1500L, 9.0).add(5000L, 9.0).build()));
+        assertTrue(series.excluding(series).isEmpty());
+    }
+
+    @Test
+    public void testToCryptoPrice() {
+        PriceSeries series = PriceSeries.builder("BTC").add(1641009600000L, 46813.21).build();
+
+        CryptoPrice price = series.toCryptoPrice(0);
+
+        assertEquals(1641009600000L, price.getTimestamp());
+        assertEquals("BTC", price.getSymbol());
+        assertEquals(46813.21, price.getPrice());
+    }
+
+    @Test
+    public void testEmptySeries() {
+        PriceSeries series = PriceSeries.builder("XRP").build();
+
+        assertTrue(series.isEmpty());
+        assertEquals(0, series.lowerBound(1000L));
+        assertThrows(IndexOutOfBoundsException.class, () -> series.priceAt(0));
+    }
+
+    @Test
+    public void testAppendInOrderSharesArraysWithoutChangingOlderSeries() {
+        PriceSeries original = PriceSeries.builder("BTC").add(1000L, 1.0).add(2000L, 2.0).build();
+
+        PriceSeries appended = original.append(PriceSeries.builder("BTC").add(3000L, 3.0).build());
+        PriceSeries branched = original.append(PriceSeries.builder("BTC").add(4000L, 4.0).build());
+
+        assertEquals(2, original.size());
+        assertEquals(3, appended.size());
+        assertEquals(3000L, appended.lastTimestamp());
+        assertEquals(3.0, appended.priceAt(2));
+        // Appending to a series that is no longer the newest must not overwrite the newer one
+        assertEquals(4000L, branched.lastTimestamp());
+        assertEquals(3000L, appended.lastTimestamp());
+    }
+
+    @Test
+    public void testAppendOutOfOrderMerges() {
+        PriceSeries original = PriceSeries.builder("BTC").add(1000L, 1.0).add(3000L, 3.0).build();
+
+        PriceSeries merged = original.append(PriceSeries.builder("BTC").add(2000L, 2.0).add(3000L, 3.5).add(4000L, 4.0).build());
+
+        assertEquals(5, merged.size());
+        assertEquals(1.0, merged.priceAt(0));
+        assertEquals(2.0, merged.priceAt(1));
+        assertEquals(3.0, merged.priceAt(2));
+        assertEquals(3.5, merged.priceAt(3));
+        assertEquals(4.0, merged.priceAt(4));
+        assertEquals(2, original.size());
+    }
+
+    @Test
+    public void testSmallSeriesStaySmall() {
+        PriceSeries.Builder builder = PriceSeries.builder("BTC");
+        assertEquals(0, builder.capacity());
+
+        PriceSeries pushed = builder.add(2, 1.0).add(1, 2.0).build();
+        assertEquals(PriceSeries.MIN_CAPACITY, pushed.capacity());
+        assertEquals(1, pushed.firstTimestamp());
+        // Nothing is allocated again until the next tick
+        assertEquals(0, builder.capacity());
+        assertTrue(builder.build().isEmpty());
+
+        PriceSeries grown = pushed.append(PriceSeries.builder("BTC").add(3, 3.0).build());
+        assertEquals(PriceSeries.MIN_CAPACITY, grown.capacity());
+        assertEquals(1_024, PriceSeries.builder("BTC", 1_000).capacity());
+        assertEquals(PriceSeries.CHUNK_SIZE * 2, PriceSeries.capacityFor(PriceSeries.CHUNK_SIZE + 1));
+        assertEquals(64, PriceSeries.capacityFor(33));
+    }
+
+    @Test
+    public void testAppendGrowsPastCapacity() {
+        PriceSeries.Builder builder = PriceSeries.builder("ETH");
+        for (int i = 0; i < PriceSeries.CHUNK_SIZE; i++) {
+            builder.add(i, i);
+        }
+        PriceSeries full = builder.build();
+
+        PriceSeries appended = full.append(PriceSeries.builder("ETH").add(PriceSeries.CHUNK_SIZE, -1.0).build());
+
+        assertEquals(PriceSeries.CHUNK_SIZE + 1, appended.size());
+        assertEquals(-1.0, appended.priceAt(PriceSeries.CHUNK_SIZE));
+        assertEquals(PriceSeries.CHUNK_SIZE, full.size());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.crypto.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReturnGridTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    public void testAlignsSeriesOnCommonGrid() {
+        // ETH has no tick in the second hour, so its price is carried forward and its return there is 0
+        SymbolData btc = SymbolData.of(series("BTC", 0, 100.0, HOUR, 110.0, 2 * HOUR, 99.0, 3 * HOUR, 108.9));
+        SymbolData eth = SymbolData.of(series("ETH", 0, 10.0, 2 * HOUR, 11.0, 3 * HOUR, 12.1));
+
+        ReturnGrid grid = ReturnGrid.of(List.of(eth, btc), CandleInterval.ONE_HOUR, null, null, 100);
+
+        assertEquals(List.of("BTC", "ETH"), grid.getSymbols());
+        assertEquals(4, grid.getPoints());
+        assertEquals(0, grid.getStart());
+        assertEquals(4 * HOUR, grid.getEnd());
+        double[] x = {Math.log(1.1), Math.log(0.9), Math.log(1.1)};
+        double[] y = {0, Math.log(1.1), Math.log(1.1)};
+        assertEquals(pearson(x, y), grid.correlation(0, 1), 1e-12);
+        assertEquals(grid.correlation(0, 1), grid.correlation(1, 0), 1e-15);
+    }
+
+    @Test
+    public void testComparesPairsWhereBothHaveReturns() {
+        // SOL's returns stop at its last tick rather than being carried forward as zeros
+        SymbolData btc = SymbolData.of(series("BTC", 0, 100.0, HOUR, 110.0, 2 * HOUR, 99.0, 3 * HOUR, 108.9, 4 * HOUR, 50.0));
+        SymbolData sol = SymbolData.of(series("SOL", HOUR, 20.0, 2 * HOUR, 18.0, 3 * HOUR, 19.8));
+        SymbolData doge = SymbolData.of(series("DOGE", 0, 0.1));
+
+        ReturnGrid grid = ReturnGrid.of(List.of(btc, sol, doge), CandleInterval.ONE_HOUR, null, null, 100);
+
+        assertEquals(List.of("BTC", "SOL"), grid.getSymbols());
+        assertEquals(1.0, grid.correlation(0, 1), 1e-12);
+
+        ReturnGrid window = ReturnGrid.of(List.of(btc, sol), CandleInterval.ONE_HOUR, HOUR + 1, 3 * HOUR, 100);
+        assertEquals(HOUR, window.getStart());
+        assertEquals(2, window.getPoints());
+        assertTrue(Double.isNaN(window.correlation(0, 1)));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> ReturnGrid.of(List.of(btc), CandleInterval.ONE_MINUTE, null, null, 100));
+    }
+
+    @Test
+    public void testParallelMatrixMatchesPairwise() {
+        Random random = new Random(7);
+        List<SymbolData> symbols = new ArrayList<>();
+        for (int s = 0; s < 40; s++) {
+            PriceSeries.Builder builder = PriceSeries.builder("S" + s);
+            double price = 100;
+            // Staggered starts, so pairs overlap over different ranges
+            for (int i = s; i < 500; i++) {
+                price *= Math.exp(random.nextGaussian() * 0.01);
+                builder.add(i * HOUR, price);
+            }
+            symbols.add(SymbolData.of(builder.build()));
+        }
+        ReturnGrid grid = ReturnGrid.of(symbols, CandleInterval.ONE_HOUR, null, null, 1_000);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            CorrelationMatrix matrix = CorrelationMatrix.of(grid, pool);
+            assertEquals(grid.getSymbols(), matrix.getSymbols());
+            for (int i = 0; i < grid.size(); i++) {
+                for (int j = 0; j < grid.size(); j++) {
+                    assertEquals(i == j ? 1.0 : grid.correlation(i, j), matrix.correlation(i, j));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        CorrelationMatrix single = CorrelationMatrix.of(ReturnGrid.of(List.of(symbols.get(0)), CandleInterval.ONE_HOUR, null, null, 1_000),
+                ForkJoinPool.commonPool());
+        assertEquals(1.0, single.correlation(0, 0));
+        CorrelationMatrix constant = CorrelationMatrix.of(ReturnGrid.of(List.of(symbols.get(0),
+                SymbolData.of(series("USDT", 0, 1.0, HOUR, 1.0, 2 * HOUR, 1.0))), CandleInterval.ONE_HOUR, null, null, 1_000),
+                ForkJoinPool.commonPool());
+        assertTrue(Double.isNaN(constant.correlation(0, 1)));
+        assertEquals("[[1.0,null],[null,1.0]]", new ObjectMapper().valueToTree(constant).get("correlations").toString());
+    }
+
+    private static double pearson(double[] x, double[] y) {
+        double meanX = 0;
+        double meanY = 0;
+        for (int i = 0; i < x.length; i++) {
+            meanX += x[i] / x.length;
+            meanY += y[i] / y.length;
+        }
+        double covariance = 0;
+        double varianceX = 0;
+        double varianceY = 0;
+        for (int i = 0; i < x.length; i++) {
+            covariance += (x[i] - meanX) * (y[i] - meanY);
+            varianceX += (x[i] - meanX) * (x[i] - meanX);
+            varianceY += (y[i] - meanY) * (y[i] - meanY);
+        }
+        return covariance / Math.sqrt(varianceX * varianceY);
+    }
+
+    private static PriceSeries series(String symbol, Object... timesAndPrices) {
+        PriceSeries.Builder builder = PriceSeries.builder(symbol);
+        for (int i = 0; i < timesAndPrices.length; i += 2) {
+            builder.add(((Number) timesAndPrices[i]).longValue(), (Double) timesAndPrices[i + 1]);
+        }
+        return builder.build();
+    }
+}
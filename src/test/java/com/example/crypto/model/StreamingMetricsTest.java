@@ -0,0 +1,94 @@
+package com.example.crypto.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StreamingMetricsTest {
+
+    @Test
+    public void testMetricsOfSeries() {
+        PriceSeries series = series(0, 100.0, 120.0, 90.0, 99.0, 130.0);
+
+        StreamingMetrics metrics = StreamingMetrics.of(series, 3);
+
+        assertEquals(3, metrics.getWindow());
+        assertEquals((90.0 + 99.0 + 130.0) / 3, metrics.getSma(), 1e-12);
+        double ema = 100.0;
+        for (double price : new double[]{120.0, 90.0, 99.0, 130.0}) {
+            ema += 0.5 * (price - ema);
+        }
+        assertEquals(ema, metrics.getEma(), 1e-12);
+        assertEquals(0.25, metrics.getMaxDrawdown(), 1e-12);
+
+        double[] returns = {Math.log(1.2), Math.log(0.75), Math.log(1.1), Math.log(130.0 / 99.0)};
+        double mean = (returns[0] + returns[1] + returns[2] + returns[3]) / 4;
+        double sumOfSquares = 0;
+        for (double logReturn : returns) {
+            sumOfSquares += (logReturn - mean) * (logReturn - mean);
+        }
+        assertEquals(Math.sqrt(sumOfSquares / 3), metrics.getVolatility(), 1e-12);
+    }
+
+    @Test
+    public void testShortSeries() {
+        assertNull(StreamingMetrics.of(PriceSeries.builder("BTC").build(), 3));
+
+        StreamingMetrics single = StreamingMetrics.of(series(0, 100.0), 3);
+        assertEquals(100.0, single.getSma());
+        assertEquals(100.0, single.getEma());
+        assertEquals(0, single.getMaxDrawdown());
+        assertEquals(0, single.getVolatility());
+
+        assertThrows(IllegalArgumentException.class, () -> StreamingMetrics.of(series(0, 100.0), 0));
+    }
+
+    @Test
+    public void testAppendingMatchesRebuild() {
+        Random random = new Random(42);
+        PriceSeries.Builder builder = PriceSeries.builder("BTC");
+        double price = 100;
+        for (int i = 0; i < 1_000; i++) {
+            price *= Math.exp(random.nextGaussian() * 0.01);
+            builder.add(i * 60_000L, price);
+        }
+        PriceSeries series = builder.build();
+
+        StreamingMetrics metrics = StreamingMetrics.of(series(0, series.priceAt(0)), 20);
+        PriceSeries taken = series(0, series.priceAt(0));
+        for (int from = 1; from < series.size(); from += 1 + from % 7) {
+            int to = Math.min(series.size(), from + 1 + from % 7);
+            PriceSeries.Builder tail = PriceSeries.builder("BTC");
+            for (int i = from; i < to; i++) {
+                tail.add(series.timestampAt(i), series.priceAt(i));
+            }
+            PriceSeries merged = taken.append(tail.build());
+            metrics = metrics.followedBy(merged, taken.size());
+            taken = merged;
+        }
+
+        assertEquals(StreamingMetrics.of(series, 20), metrics);
+    }
+
+    @Test
+    public void testSymbolDataAppendKeepsMetrics() {
+        SymbolData data = SymbolData.of(series(0, 100.0, 80.0, 90.0));
+
+        SymbolData appended = data.append(series(3, 60.0, 95.0));
+
+        assertEquals(SymbolData.of(appended.getSeries()).getStatistics(), appended.getStatistics());
+        assertEquals(0.4, appended.getStatistics().getMetrics().getMaxDrawdown(), 1e-12);
+    }
+
+    private static PriceSeries series(int firstMinute, double... prices) {
+        PriceSeries.Builder builder = PriceSeries.builder("BTC");
+        for (int i = 0; i < prices.length; i++) {
+            builder.add((firstMinute + i) * 60_000L, prices[i]);
+        }
+        return builder.build();
+    }
+}
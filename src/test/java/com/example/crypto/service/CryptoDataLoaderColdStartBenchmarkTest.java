@@ -0,0 +1,69 @@
+package com.example.crypto.service;
+
+import com.example.crypto.support.SyntheticDataGenerator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cold start of a large synthetic dataset from CSV versus from binary snapshots, which must be faster. Both runs
+ * read files that are already in the page cache, so this compares parsing against mapping rather than disk speed.
+ * The restore time covers everything until the data is served, including copying the mapped columns and rebuilding
+ * the candles and metrics that snapshots do not store.
+ */
+@Tag("benchmark")
+public class CryptoDataLoaderColdStartBenchmarkTest {
+
+    private static final int SYMBOLS = Integer.getInteger("coldstart.symbols", 20);
+    private static final int TICKS_PER_SYMBOL = Integer.getInteger("coldstart.ticks", 4_000_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testColdStartTimes() throws Exception {
+        Path dataDirectory = directory.resolve("data");
+        Path snapshotDirectory = directory.resolve("snapshot");
+        new SyntheticDataGenerator().symbols(SYMBOLS).ticksPerSymbol(TICKS_PER_SYMBOL).tickIntervalMillis(1_000)
+                .writeTo(dataDirectory);
+
+        long csv = start(dataDirectory, null);
+        long csvAndWrite = start(dataDirectory, snapshotDirectory);
+        long snapshot = start(dataDirectory, snapshotDirectory);
+
+        assertTrue(sizeOf(snapshotDirectory) > 0);
+        assertTrue(snapshot < csv, String.format("CSV parse %,d ms, CSV parse + snapshot write %,d ms, snapshot restore %,d ms",
+                csv, csvAndWrite, snapshot));
+    }
+
+    private static long start(Path dataDirectory, Path snapshotDirectory) {
+        CryptoDataLoader loader = new CryptoDataLoader();
+        ReflectionTestUtils.setField(loader, "cryptoFolderPath", dataDirectory.toString());
+        if (snapshotDirectory != null) {
+            ReflectionTestUtils.setField(loader, "snapshotPath", snapshotDirectory.toString());
+        }
+        System.gc();
+        long start = System.nanoTime();
+        loader.init();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(SYMBOLS, loader.getSnapshot().getSymbols().size());
+        assertEquals(TICKS_PER_SYMBOL, loader.getSnapshot().get(SyntheticDataGenerator.symbolName(0)).getSeries().size());
+        return elapsed;
+    }
+
+    private static long sizeOf(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.crypto.service;
+
+import com.example.crypto.model.CryptoStatistics;
+import com.example.crypto.model.DatasetSnapshot;
+import com.example.crypto.model.SymbolData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Readers running against a loader that keeps publishing appended data must only ever see whole scans.
+ */
+public class CryptoDataLoaderConcurrencyTest {
+
+    private static final String[] SYMBOLS = {"BTC", "ETH", "LTC"};
+    private static final int ROUNDS = 100;
+    private static final int READERS = 2;
+
+    @Test
+    public void testReadersSeeConsistentSnapshotsWhileReloading(@TempDir Path directory) throws Exception {
+        // Every round appends one row to every file, with price 100 + round, and then scans once
+        for (String symbol : SYMBOLS) {
+            Files.writeString(directory.resolve(symbol + "_values.csv"),
+                    "timestamp,symbol,price\n" + row(symbol, 0));
+        }
+        CryptoDataLoader dataLoader = new CryptoDataLoader();
+        ReflectionTestUtils.setField(dataLoader, "cryptoFolderPath", directory.toString());
+        dataLoader.scanCryptoDirectory();
+        CryptoService cryptoService = new CryptoService(dataLoader, new SimpleMeterRegistry());
+
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(READERS);
+        try {
+            List<Future<Integer>> readers = new ArrayList<>();
+            for (int i = 0; i < READERS; i++) {
+                readers.add(executor.submit(() -> {
+                    int reads = 0;
+                    long lastVersion = 0;
+                    while (!done.get() || reads == 0) {
+                        DatasetSnapshot snapshot = dataLoader.getSnapshot();
+                        assertTrue(snapshot.getVersion() >= lastVersion);
+                        lastVersion = snapshot.getVersion();
+                        assertConsistent(snapshot);
+                        assertEquals(SYMBOLS.length, cryptoService.getAllCryptoStatistics().size());
+                        reads++;
+                    }
+                    return reads;
+                }));
+            }
+
+            for (int round = 1; round <= ROUNDS; round++) {
+                for (String symbol : SYMBOLS) {
+                    Files.writeString(directory.resolve(symbol + "_values.csv"), row(symbol, round), StandardOpenOption.APPEND);
+                }
+                dataLoader.scanCryptoDirectory();
+            }
+            done.set(true);
+
+            for (Future<Integer> reader : readers) {
+                assertTrue(reader.get() > 0);
+            }
+        } finally {
+            done.set(true);
+            executor.shutdownNow();
+        }
+
+        DatasetSnapshot last = dataLoader.getSnapshot();
+        assertEquals(ROUNDS + 1, last.getVersion());
+        assertEquals(ROUNDS + 1, last.get("BTC").getSeries().size());
+    }
+
+    private static void assertConsistent(DatasetSnapshot snapshot) {
+        assertEquals(SYMBOLS.length, snapshot.getSymbols().size());
+        int size = snapshot.get(SYMBOLS[0]).getSeries().size();
+        for (String symbol : SYMBOLS) {
+            SymbolData data = snapshot.get(symbol);
+            // A scan appends to every file, so a torn publish would show different sizes
+            assertEquals(size, data.getSeries().size());
+            assertEquals(100.0 + size - 1, data.getSeries().priceAt(size - 1));
+            assertEquals(100.0 + size - 1, data.getStatistics().getNewestPrice());
+            assertEquals(100.0 + size - 1, data.getStatistics().getMaxPrice());
+            int dailyCount = 0;
+            for (int day = 0; day < data.getDaily().size(); day++) {
+                dailyCount += data.getDaily().countAt(day);
+            }
+            assertEquals(size, dailyCount);
+        }
+        List<CryptoStatistics> ranking = snapshot.getRanking();
+        assertEquals(SYMBOLS.length, ranking.size());
+        for (CryptoStatistics statistics : ranking) {
+            assertSame(snapshot.get(statistics.getSymbol()).getStatistics(), statistics);
+        }
+    }
+
+    private static String row(String symbol, int round) {
+        return (1641038400000L + round * 60_000L) + "," + symbol + "," + (100 + round) + "\n";
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.crypto.service;
+
+import com.example.crypto.support.SyntheticDataGenerator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Startup load time of synthetic data directories, sequential versus parallel. With more than one core, loading
+ * a thousand files or more in parallel must be faster.
+ */
+@Tag("benchmark")
+public class CryptoDataLoaderStartupBenchmarkTest {
+
+    private static final int TICKS_PER_SYMBOL = Integer.getInteger("startup.ticks", 1_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testStartupTimes() throws Exception {
+        for (int symbols : new int[]{10, 1_000, 10_000}) {
+            Path dataDirectory = directory.resolve("symbols-" + symbols);
+            new SyntheticDataGenerator().symbols(symbols).ticksPerSymbol(TICKS_PER_SYMBOL).writeTo(dataDirectory);
+
+            long sequential = load(dataDirectory, 1, symbols);
+            long parallel = load(dataDirectory, 0, symbols);
+            if (symbols >= 1_000 && Runtime.getRuntime().availableProcessors() > 1) {
+                assertTrue(parallel < sequential, String.format("%,d files x %,d ticks: sequential %,d ms, parallel %,d ms",
+                        symbols, TICKS_PER_SYMBOL, sequential, parallel));
+            }
+        }
+    }
+
+    private static long load(Path dataDirectory, int parallelism, int expectedSymbols) {
+        CryptoDataLoader loader = new CryptoDataLoader();
+        ReflectionTestUtils.setField(loader, "cryptoFolderPath", dataDirectory.toString());
+        ReflectionTestUtils.setField(loader, "loadParallelism", parallelism);
+        long start = System.nanoTime();
+        loader.init();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(expectedSymbols, loader.getSnapshot().getSymbols().size());
+        return elapsed;
+    }
+}
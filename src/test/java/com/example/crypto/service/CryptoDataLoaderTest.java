@@ -2,20 +2,36 @@ package com.example.crypto.service;
 
 import com.example.crypto.exception.CryptoDataProcessingException;
 import com.example.crypto.model.CryptoPrice;
+import com.example.crypto.model.CryptoStatistics;
+import com.example.crypto.model.DatasetSnapshot;
+import com.example.crypto.model.PriceSeries;
+import com.example.crypto.model.SymbolData;
+import com.example.crypto.support.SyntheticDataGenerator;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.InjectMocks;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
 import java.util.List;
+import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -25,6 +41,9 @@ public class CryptoDataLoaderTest {
     @InjectMocks
     private CryptoDataLoader dataLoader;
 
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
 
     @Test
     public void testExtractSymbolFromFileName() {
@@ -44,16 +63,35 @@ public class CryptoDataLoaderTest {
 
         InputStream inputStream = new ByteArrayInputStream(csvContent.getBytes());
 
-        List<CryptoPrice> prices = dataLoader.loadCryptoData("BTC", inputStream);
+        PriceSeries prices = dataLoader.loadCryptoData("BTC", inputStream);
         assertNotNull(prices);
         assertEquals(5, prices.size());
+        assertEquals(1641009600000L, prices.firstTimestamp());
+        assertEquals(1641045600000L, prices.lastTimestamp());
 
-        CryptoPrice firstPrice = prices.get(0);
-        assertEquals(LocalDateTime.ofInstant(Instant.ofEpochMilli(1641009600000L), ZoneId.systemDefault()), firstPrice.getTimestamp());
+        CryptoPrice firstPrice = prices.toCryptoPrice(0);
+        assertEquals(1641009600000L, firstPrice.getTimestamp());
         assertEquals("BTC", firstPrice.getSymbol());
         assertEquals(46813.21, firstPrice.getPrice());
     }
 
+    @Test
+    public void testLoadCryptoData_SortsAndSkipsZeroPrices() {
+        String csvContent = "timestamp,symbol,price\n" +
+                "1641031200000,BTC,47143.98\n" +
+                "1641009600000,BTC,46813.21\n" +
+                "1641020400000,BTC,0\n" +
+                "1641020400000,BTC,46979.61\n";
+
+        PriceSeries prices = dataLoader.loadCryptoData("BTC", new ByteArrayInputStream(csvContent.getBytes()));
+
+        assertEquals(3, prices.size());
+        assertEquals(1641009600000L, prices.timestampAt(0));
+        assertEquals(46813.21, prices.priceAt(0));
+        assertEquals(46979.61, prices.priceAt(1));
+        assertEquals(47143.98, prices.priceAt(2));
+    }
+
     @Test
     public void testLoadCryptoData_InvalidCSV() throws Exception {
         String csvContent = "invalid,csv,content\n" +
@@ -66,6 +104,337 @@ public class CryptoDataLoaderTest {
         });
     }
 
+    @Test
+    public void testScanCryptoDirectory_PrecomputesStatisticsAndRanking(@TempDir Path directory) throws Exception {
+        Files.writeString(directory.resolve("BTC_values.csv"), "timestamp,symbol,price\n" +
+                "1641009600000,BTC,46813.21\n" +
+                "1641031200000,BTC,47143.98\n" +
+                "1641045600000,BTC,47023.24\n");
+        Files.writeString(directory.resolve("ETH_values.csv"), "timestamp,symbol,price\n" +
+                "1641009600000,ETH,3681.1\n" +
+                "1641031200000,ETH,3700.2\n" +
+                "1641045600000,ETH,3695.0\n");
+        ReflectionTestUtils.setField(dataLoader, "cryptoFolderPath", directory.toString());
+
+        dataLoader.scanCryptoDirectory();
+
+        CryptoStatistics btc = dataLoader.getSnapshot().get("BTC").getStatistics();
+        assertEquals(46813.21, btc.getOldestPrice());
+        assertEquals(47023.24, btc.getNewestPrice());
+        assertEquals(46813.21, btc.getMinPrice());
+        assertEquals(47143.98, btc.getMaxPrice());
+        assertEquals((47143.98 - 46813.21) / 46813.21, btc.getNormalizedRange());
+
+        List<CryptoStatistics> ranking = dataLoader.getSnapshot().getRanking();
+        assertEquals(2, ranking.size());
+        assertEquals("BTC", ranking.get(0).getSymbol());
+        assertEquals("ETH", ranking.get(1).getSymbol());
+    }
+
+    @Test
+    public void testScanCryptoDirectory_RecordsIngestionMetrics(@TempDir Path directory) throws Exception {
+        new SyntheticDataGenerator().symbols(3).ticksPerSymbol(20).writeTo(directory);
+        ReflectionTestUtils.setField(dataLoader, "cryptoFolderPath", directory.toString());
+        assertTrue(Double.isNaN(meterRegistry.get("crypto.dataset.age").gauge().value()));
+
+        dataLoader.scanCryptoDirectory();
+        Files.writeString(directory.resolve("BAD_values.csv"), "timestamp,symbol,price\nnot,a,number\n");
+        assertThrows(CryptoDataProcessingException.class, () -> dataLoader.scanCryptoDirectory());
+
+        assertEquals(1, meterRegistry.get("crypto.ingest.errors").counter().count());
+        assertEquals(60, meterRegistry.get("crypto.ingest.rows").counter().count());
+        assertTrue(meterRegistry.get("crypto.ingest.bytes").counter().count() > 60 * 20);
+        assertEquals(1, meterRegistry.get("crypto.ingest.file").tag("symbol", SyntheticDataGenerator.symbolName(0)).timer().count());
+        assertEquals(3, meterRegistry.get("crypto.dataset.symbols").gauge().value());
+        assertEquals(60, meterRegistry.get("crypto.dataset.ticks").gauge().value());
+        assertEquals(1, meterRegistry.get("crypto.dataset.version").gauge().value());
+        assertTrue(meterRegistry.get("crypto.dataset.age").gauge().value() >= 0);
+    }
+
+    @Test
+    public void testScanCryptoDirectory_LoadsFilesInParallel(@TempDir Path directory) throws Exception {
+        List<String> symbols = new SyntheticDataGenerator().symbols(50).ticksPerSymbol(20).writeTo(directory);
+        ReflectionTestUtils.setField(dataLoader, "cryptoFolderPath", directory.toString());
+        ReflectionTestUtils.setField(dataLoader, "loadParallelism", 4);
+
+        dataLoader.scanCryptoDirectory();
+
+        assertEquals(50, dataLoader.getSnapshot().getSymbols().size());
+        assertEquals(50, dataLoader.getSnapshot().getRanking().size());
+        for (String symbol : symbols) {
+            assertEquals(20, dataLoader.getSnapshot().get(symbol).getSeries().size());
+        }
+    }
+
+    @Test
+    public void testScanCryptoDirectory_FailsOnMalformedFile(@TempDir Path directory) throws Exception {
+        new SyntheticDataGenerator().symbols(5).ticksPerSymbol(20).writeTo(directory);
+        Files.writeString(directory.resolve("BAD_values.csv"), "timestamp,symbol,price\nnot,a,number\n");
+        ReflectionTestUtils.setField(dataLoader, "cryptoFolderPath", directory.toString());
+
+        assertThrows(CryptoDataProcessingException.class, () -> dataLoader.scanCryptoDirectory());
+    }
+
+    @Test
+    public void testScanCryptoDirectory_SkipsUnchangedFiles(@TempDir Path directory) throws Exception {
+        Files.writeString(directory.resolve("BTC_values.csv"), "timestamp,symbol,price\n" +
+                "1641009600000,BTC,46813.21\n");
+        ReflectionTestUtils.setField(dataLoader, "cryptoFolderPath", directory.toString());
+
+        dataLoader.scanCryptoDirectory();
+        DatasetSnapshot first = dataLoader.getSnapshot();
+        dataLoader.scanCryptoDirectory();
+
+        assertSame(first, dataLoader.getSnapshot());
+        assertEquals(1, first.getVersion());
+    }
+
+    @Test
+    public void testScanCryptoDirectory_AppendsGrownFiles(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("BTC_values.csv");
+        Files.writeString(file, "timestamp,symbol,price\n" +
+                "1641009600000,BTC,46813.21\n" +
+                "1641020400000,BTC,46979.61\n");
+        ReflectionTestUtils.setField(dataLoader, "cryptoFolderPath", directory.toString());
+        dataLoader.scanCryptoDirectory();
+
+        // The last line is still being written and must not be consumed yet
+        Files.writeString(file, "1641031200000,BTC,47143.98\n1641034800000,BTC,468", StandardOpenOption.APPEND);
+        dataLoader.scanCryptoDirectory();
+
+        SymbolData btc = dataLoader.getSnapshot().get("BTC");
+        assertEquals(3, btc.getSeries().size());
+        assertEquals(47143.98, btc.getStatistics().getNewestPrice());
+        assertEquals(47143.98, btc.getStatistics().getMaxPrice());
+        assertEquals("BTC", dataLoader.getSnapshot().getRanking().get(0).getSymbol());
+
+        DatasetSnapshot beforeAppend = dataLoader.getSnapshot();
+        Files.writeString(file, "71.09\n", StandardOpenOption.APPEND);
+        dataLoader.scanCryptoDirectory();
+
+        // The published snapshot is replaced, never modified
+        assertEquals(3, beforeAppend.get("BTC").getSeries().size());
+        assertEquals(beforeAppend.getVersion() + 1, dataLoader.getSnapshot().getVersion());
+
+        btc = dataLoader.getSnapshot().get("BTC");
+        assertEquals(4, btc.getSeries().size());
+        assertEquals(46871.09, btc.getStatistics().getNewestPrice());
+        assertEquals(46813.21, btc.getStatistics().getOldestPrice());
+    }
+
+    @Test
+    public void testScanCryptoDirectory_ReloadsRewrittenFiles(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("BTC_values.csv");
+        Files.writeString(file, "timestamp,symbol,price\n" +
+                "1641009600000,BTC,46813.21\n" +
+                "1641020400000,BTC,46979.61\n");
+        ReflectionTestUtils.setField(dataLoader, "cryptoFolderPath", directory.toString());
+        dataLoader.scanCryptoDirectory();
+
+        Files.writeString(file, "timestamp,symbol,price\n" +
+                "1641009600000,BTC,40000.00\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        dataLoader.scanCryptoDirectory();
+
+        SymbolData btc = dataLoader.getSnapshot().get("BTC");
+        assertEquals(1, btc.getSeries().size());
+        assertEquals(40000.00, btc.getStatistics().getNewestPrice());
+    }
+
+    @Test
+    public void testScanCryptoDirectory_DropsSymbolsOfRemovedFiles(@TempDir Path directory) throws Exception {
+        Files.writeString(directory.resolve("BTC_values.csv"), "timestamp,symbol,price\n" +
+                "1641009600000,BTC,46813.21\n1641020400000,BTC,46979.61\n");
+        Files.writeString(directory.resolve("XRP_values.csv"), "timestamp,symbol,price\n" +
+                "1641009600000,XRP,0.8298\n1641020400000,XRP,0.8458\n");
+        Files.writeString(directory.resolve("ETH_values.csv"), "timestamp,symbol,price\n" +
+                "1641009600000,ETH,3715.32\n");
+        ReflectionTestUtils.setField(dataLoader, "cryptoFolderPath", directory.toString());
+        dataLoader.scanCryptoDirectory();
+        // Pushed ticks the file does not cover yet outlive it
+        dataLoader.appendTicks(Map.of("ETH", PriceSeries.builder("ETH").add(1641020400000L, 3800.0).build()));
+        DatasetSnapshot before = dataLoader.getSnapshot();
+
+        Files.delete(directory.resolve("XRP_values.csv"));
+        Files.delete(directory.resolve("ETH_values.csv"));
+        dataLoader.scanCryptoDirectory();
+
+        DatasetSnapshot after = dataLoader.getSnapshot();
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertNull(after.get("XRP"));
+        assertNull(after.revisionOf("XRP"));
+        assertEquals(List.of("BTC", "ETH"), after.getRanking().stream().map(CryptoStatistics::getSymbol).toList());
+        assertEquals(1, after.get("ETH").getSeries().size());
+        assertEquals(3800.0, after.get("ETH").getStatistics().getNewestPrice());
+        assertEquals(after.get("ETH").getSeries(), dataLoader.getUncoveredTicks().get("ETH"));
+        assertNotNull(before.get("XRP"));
+
+        dataLoader.scanCryptoDirectory();
+        assertSame(after, dataLoader.getSnapshot());
+    }
+
+    @Test
+    public void testInitRestoresSnapshotsAndParsesOnlyChangedFiles(@TempDir Path directory) throws Exception {
+        Path dataDirectory = directory.resolve("data");
+        Path snapshotDirectory = directory.resolve("snapshot");
+        new SyntheticDataGenerator().symbols(3).ticksPerSymbol(20).writeTo(dataDirectory);
+        CryptoDataLoader first = loader(dataDirectory, snapshotDirectory);
+        first.init();
+        assertEquals(3, Files.list(snapshotDirectory).count());
+        Path grownSnapshot = snapshotDirectory.resolve("SYM1_values.csv" + SymbolSnapshotStore.SNAPSHOT_SUFFIX);
+        byte[] grownSnapshotBytes = Files.readAllBytes(grownSnapshot);
+
+        // SYM1 grows and SYM2 is rewritten while the service is down
+        Path grown = dataDirectory.resolve("SYM1_values.csv");
+        Files.writeString(grown, "1700000000000,SYM1,1.5\n", StandardOpenOption.APPEND);
+        Path rewritten = dataDirectory.resolve("SYM2_values.csv");
+        Files.writeString(rewritten, "timestamp,symbol,price\n1641009600000,SYM2,2.5\n");
+        Files.setLastModifiedTime(rewritten, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+
+        CryptoDataLoader second = loader(dataDirectory, snapshotDirectory);
+        second.init();
+
+        DatasetSnapshot restored = second.getSnapshot();
+        assertEquals(3, restored.getSymbols().size());
+        assertEquals(first.getSnapshot().get("SYM0").getStatistics(), restored.get("SYM0").getStatistics());
+        assertEquals(21, restored.get("SYM1").getSeries().size());
+        assertEquals(1.5, restored.get("SYM1").getStatistics().getNewestPrice());
+        assertEquals(1, restored.get("SYM2").getSeries().size());
+        // One publish for the restored snapshots and one for the two changed files
+        assertEquals(2, restored.getVersion());
+
+        // Only the rewritten file is snapshotted by the scan, the grown one when the loader shuts down
+        assertArrayEquals(grownSnapshotBytes, Files.readAllBytes(grownSnapshot));
+        second.shutdown();
+
+        // The changed files were snapshotted again, so a third start parses nothing
+        CryptoDataLoader third = loader(dataDirectory, snapshotDirectory);
+        third.init();
+        assertEquals(1, third.getSnapshot().getVersion());
+        assertEquals(21, third.getSnapshot().get("SYM1").getSeries().size());
+    }
+
+    @Test
+    public void testInitIgnoresCorruptSnapshots(@TempDir Path directory) throws Exception {
+        Path dataDirectory = directory.resolve("data");
+        Path snapshotDirectory = directory.resolve("snapshot");
+        new SyntheticDataGenerator().symbols(2).ticksPerSymbol(20).writeTo(dataDirectory);
+        loader(dataDirectory, snapshotDirectory).init();
+        Files.writeString(snapshotDirectory.resolve("SYM0_values.csv" + SymbolSnapshotStore.SNAPSHOT_SUFFIX), "garbage");
+
+        CryptoDataLoader loader = loader(dataDirectory, snapshotDirectory);
+        loader.init();
+
+        assertEquals(2, loader.getSnapshot().getSymbols().size());
+        assertEquals(20, loader.getSnapshot().get("SYM0").getSeries().size());
+    }
+
+    @Test
+    public void testScanDeletesSnapshotsOfRemovedFiles(@TempDir Path directory) throws Exception {
+        Path dataDirectory = directory.resolve("data");
+        Path snapshotDirectory = directory.resolve("snapshot");
+        new SyntheticDataGenerator().symbols(3).ticksPerSymbol(20).writeTo(dataDirectory);
+        CryptoDataLoader loader = loader(dataDirectory, snapshotDirectory);
+        loader.init();
+
+        Files.delete(dataDirectory.resolve("SYM0_values.csv"));
+        loader.scanCryptoDirectory();
+        assertFalse(Files.exists(snapshotDirectory.resolve("SYM0_values.csv" + SymbolSnapshotStore.SNAPSHOT_SUFFIX)));
+        assertEquals(2, Files.list(snapshotDirectory).count());
+
+        // Snapshots of files removed while the service is down are deleted on startup
+        Files.delete(dataDirectory.resolve("SYM1_values.csv"));
+        loader(dataDirectory, snapshotDirectory).init();
+        assertEquals(1, Files.list(snapshotDirectory).count());
+    }
+
+    @Test
+    public void testAppendTicks_KeepsPushedTicksAcrossReloadsAndOutOfSnapshots(@TempDir Path directory) throws Exception {
+        Path dataDirectory = directory.resolve("data");
+        Path snapshotDirectory = directory.resolve("snapshot");
+        Files.createDirectories(dataDirectory);
+        Path file = dataDirectory.resolve("BTC_values.csv");
+        Files.writeString(file, "timestamp,symbol,price\n1641009600000,BTC,46813.21\n");
+        CryptoDataLoader loader = loader(dataDirectory, snapshotDirectory);
+        loader.init();
+        Path snapshot = snapshotDirectory.resolve("BTC_values.csv" + SymbolSnapshotStore.SNAPSHOT_SUFFIX);
+        FileTime snapshotTime = Files.getLastModifiedTime(snapshot);
+
+        long version = loader.appendTicks(Map.of(
+                "BTC", PriceSeries.builder("BTC").add(1641020400000L, 47000.0).build(),
+                "NEW", PriceSeries.builder("NEW").add(1641009600000L, 2.0).add(1641013200000L, 4.0).build())).getVersion();
+
+        DatasetSnapshot published = loader.getSnapshot();
+        assertEquals(version, published.getVersion());
+        assertEquals(2, published.get("BTC").getSeries().size());
+        assertEquals(47000.0, published.get("BTC").getStatistics().getNewestPrice());
+        assertEquals(1.0, published.get("NEW").getStatistics().getNormalizedRange());
+
+        // A rewritten file is reloaded together with the ticks pushed for its symbol
+        Files.writeString(file, "timestamp,symbol,price\n1641009600000,BTC,40000.00\n1641016800000,BTC,41000.00\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        loader.scanCryptoDirectory();
+
+        SymbolData btc = loader.getSnapshot().get("BTC");
+        assertEquals(3, btc.getSeries().size());
+        assertEquals(41000.00, btc.getSeries().priceAt(1));
+        assertEquals(47000.0, btc.getStatistics().getNewestPrice());
+        assertNotNull(loader.getSnapshot().get("NEW"));
+        // The pushed ticks are replayed from their own log, so the snapshot is left as it was
+        assertEquals(snapshotTime, Files.getLastModifiedTime(snapshot));
+    }
+
+    @Test
+    public void testAppendTicks_PushedTicksLaterWrittenToTheFileAreNotCountedTwice(@TempDir Path directory) throws Exception {
+        Path dataDirectory = directory.resolve("data");
+        Path snapshotDirectory = directory.resolve("snapshot");
+        Files.createDirectories(dataDirectory);
+        Path file = dataDirectory.resolve("BTC_values.csv");
+        Files.writeString(file, "timestamp,symbol,price\n1641009600000,BTC,46813.21\n");
+        CryptoDataLoader loader = loader(dataDirectory, snapshotDirectory);
+        loader.init();
+        Path snapshot = snapshotDirectory.resolve("BTC_values.csv" + SymbolSnapshotStore.SNAPSHOT_SUFFIX);
+        FileTime snapshotTime = Files.getLastModifiedTime(snapshot);
+
+        PriceSeries pushed = PriceSeries.builder("BTC").add(1641013200000L, 47000.0).add(1641016800000L, 47100.0).build();
+        long version = loader.appendTicks(Map.of("BTC", pushed)).getVersion();
+        // A retried push, and ticks the file already has, change nothing
+        assertEquals(version, loader.appendTicks(Map.of("BTC", pushed)).getVersion());
+        assertEquals(version, loader.appendTicks(Map.of("BTC",
+                PriceSeries.builder("BTC").add(1641009600000L, 1.0).build())).getVersion());
+
+        // The file catches up with the first pushed tick and goes beyond it
+        Files.writeString(file, "1641013200000,BTC,47000.00\n1641014100000,BTC,47050.00\n", StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        loader.scanCryptoDirectory();
+        PriceSeries btc = loader.getSnapshot().get("BTC").getSeries();
+        assertEquals(4, btc.size());
+        assertEquals(47100.0, btc.priceAt(3));
+        assertEquals(snapshotTime, Files.getLastModifiedTime(snapshot));
+
+        // Once the file covers every pushed tick, its symbol is snapshotted again
+        Files.writeString(file, "1641016800000,BTC,47100.00\n", StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 20_000));
+        loader.scanCryptoDirectory();
+        assertEquals(4, loader.getSnapshot().get("BTC").getSeries().size());
+        loader.shutdown();
+        assertNotEquals(snapshotTime, Files.getLastModifiedTime(snapshot));
+
+        // Replaying the pushed ticks after a restart finds them all in the file
+        CryptoDataLoader restarted = loader(dataDirectory, snapshotDirectory);
+        restarted.init();
+        restarted.appendTicks(Map.of("BTC", pushed));
+        assertEquals(4, restarted.getSnapshot().get("BTC").getSeries().size());
+        assertEquals(1, restarted.getSnapshot().getVersion());
+    }
+
+    private static CryptoDataLoader loader(Path dataDirectory, Path snapshotDirectory) {
+        CryptoDataLoader loader = new CryptoDataLoader();
+        ReflectionTestUtils.setField(loader, "cryptoFolderPath", dataDirectory.toString());
+        ReflectionTestUtils.setField(loader, "snapshotPath", snapshotDirectory.toString());
+        return loader;
+    }
+
     @Test
     public void testFileLoadingException() {
 
@@ -0,0 +1,104 @@
+package com.example.crypto.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares event-to-visible latency and idle CPU of the {@link CryptoDirectoryWatcher} against the fixed-delay scan.
+ * The scan interval defaults to 1 s to keep the run short; with the production default of 60 s the expected
+ * latency scales accordingly (about half the interval on average). The watcher must be faster and use less CPU.
+ */
+@Tag("benchmark")
+public class CryptoDirectoryWatcherBenchmarkTest {
+
+    private static final int SYMBOLS = Integer.getInteger("watch.symbols", 500);
+    private static final int SAMPLES = Integer.getInteger("watch.samples", 20);
+    private static final long SCAN_INTERVAL = Long.getLong("watch.scanInterval", 1000);
+    private static final long IDLE_MILLIS = Long.getLong("watch.idleMillis", 10_000);
+    private static final long DEBOUNCE = Long.getLong("watch.debounce", 200);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testWatcherAgainstScheduledScan() throws Exception {
+        for (int i = 0; i < SYMBOLS; i++) {
+            Files.writeString(directory.resolve("S" + i + "_values.csv"), "timestamp,symbol,price\n1641009600000,S" + i + ",1.0\n");
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        CryptoDataLoader watchedLoader = newLoader();
+        CryptoDirectoryWatcher watcher = new CryptoDirectoryWatcher(watchedLoader, directory.toString(), DEBOUNCE);
+        watcher.start();
+        long[] watchLatencies = measureLatencies(watchedLoader);
+        long watchCpu = idleCpu(threads, "crypto-watch");
+        watcher.stop();
+
+        CryptoDataLoader polledLoader = newLoader();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "crypto-poll"));
+        scheduler.scheduleWithFixedDelay(polledLoader::scanCryptoDirectory, SCAN_INTERVAL, SCAN_INTERVAL, TimeUnit.MILLISECONDS);
+        long[] pollLatencies = measureLatencies(polledLoader);
+        long pollCpu = idleCpu(threads, "crypto-poll");
+        scheduler.shutdownNow();
+
+        String measured = String.format("WatchService: latency p50 %d ms, idle CPU %.1f ms; scheduled scan: latency p50 %d ms, idle CPU %.1f ms",
+                watchLatencies[SAMPLES / 2], watchCpu / 1e6, pollLatencies[SAMPLES / 2], pollCpu / 1e6);
+        assertTrue(watchLatencies[SAMPLES / 2] < pollLatencies[SAMPLES / 2], measured);
+        assertTrue(watchCpu < pollCpu, measured);
+    }
+
+    private CryptoDataLoader newLoader() {
+        CryptoDataLoader loader = new CryptoDataLoader();
+        ReflectionTestUtils.setField(loader, "cryptoFolderPath", directory.toString());
+        loader.scanCryptoDirectory();
+        return loader;
+    }
+
+    private long[] measureLatencies(CryptoDataLoader loader) throws Exception {
+        Path file = directory.resolve("S0_values.csv");
+        AtomicLong timestamp = new AtomicLong(System.currentTimeMillis());
+        long[] latencies = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            int expected = loader.getSnapshot().get("S0").getSeries().size() + 1;
+            long start = System.nanoTime();
+            Files.writeString(file, timestamp.incrementAndGet() + ",S0,1.0\n", StandardOpenOption.APPEND);
+            while (loader.getSnapshot().get("S0").getSeries().size() < expected) {
+                Thread.sleep(1);
+            }
+            latencies[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static long idleCpu(ThreadMXBean threads, String threadNamePrefix) throws InterruptedException {
+        long before = cpuTime(threads, threadNamePrefix);
+        Thread.sleep(IDLE_MILLIS);
+        return cpuTime(threads, threadNamePrefix) - before;
+    }
+
+    private static long cpuTime(ThreadMXBean threads, String threadNamePrefix) {
+        long total = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(threadNamePrefix)) {
+                total += Math.max(0, threads.getThreadCpuTime(thread.threadId()));
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.crypto.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CryptoDirectoryWatcherTest {
+
+    @TempDir
+    Path directory;
+
+    private CryptoDirectoryWatcher watcher;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (watcher != null) {
+            watcher.stop();
+        }
+    }
+
+    @Test
+    public void testReloadsAppendedAndCreatedFiles() throws Exception {
+        Path btcFile = directory.resolve("BTC_values.csv");
+        Files.writeString(btcFile, "timestamp,symbol,price\n" +
+                "1641009600000,BTC,46813.21\n");
+        CryptoDataLoader dataLoader = new CryptoDataLoader();
+        ReflectionTestUtils.setField(dataLoader, "cryptoFolderPath", directory.toString());
+        dataLoader.scanCryptoDirectory();
+
+        watcher = new CryptoDirectoryWatcher(dataLoader, directory.toString(), 50);
+        watcher.start();
+
+        Files.writeString(btcFile, "1641020400000,BTC,46979.61\n", StandardOpenOption.APPEND);
+        Files.writeString(directory.resolve("ETH_values.csv"), "timestamp,symbol,price\n" +
+                "1641009600000,ETH,3681.1\n");
+
+        assertTrue(waitFor(() -> dataLoader.getSnapshot().getSymbols().containsKey("ETH")
+                && dataLoader.getSnapshot().get("BTC").getSeries().size() == 2));
+        assertEquals(46979.61, dataLoader.getSnapshot().get("BTC").getStatistics().getNewestPrice());
+        assertEquals(2, dataLoader.getSnapshot().getRanking().size());
+    }
+
+    @Test
+    public void testIgnoresOtherFiles() throws Exception {
+        CryptoDataLoader dataLoader = new CryptoDataLoader();
+        ReflectionTestUtils.setField(dataLoader, "cryptoFolderPath", directory.toString());
+        dataLoader.scanCryptoDirectory();
+
+        watcher = new CryptoDirectoryWatcher(dataLoader, directory.toString(), 50);
+        watcher.start();
+
+        Files.writeString(directory.resolve("notes.txt"), "not price data\n");
+        Files.writeString(directory.resolve("LTC_values.csv"), "timestamp,symbol,price\n" +
+                "1641009600000,LTC,148.1\n");
+
+        assertTrue(waitFor(() -> dataLoader.getSnapshot().getSymbols().containsKey("LTC")));
+        assertEquals(1, dataLoader.getSnapshot().getSymbols().size());
+    }
+
+    private static boolean waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (System.currentTimeMillis() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+}
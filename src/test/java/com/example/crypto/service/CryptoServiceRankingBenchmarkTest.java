@@ -0,0 +1,96 @@
+package com.example.crypto.service;
+
+import com.example.crypto.model.CryptoStatistics;
+import com.example.crypto.model.DatasetSnapshot;
+import com.example.crypto.model.PriceSeries;
+import com.example.crypto.model.SymbolData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Windowed ranking of a large symbol universe: top 10 through the bounded heap, every symbol, and a baseline
+ * that scans each window and fully sorts, which both must beat at the default sizes. Short windows are cheaper to
+ * scan than to look up, so smaller {@code ranking.ticks} may not.
+ */
+@Tag("benchmark")
+public class CryptoServiceRankingBenchmarkTest {
+
+    private static final int SYMBOLS = Integer.getInteger("ranking.symbols", 10_000);
+    private static final int TICKS_PER_SYMBOL = Integer.getInteger("ranking.ticks", 10_000);
+    private static final int ITERATIONS = Integer.getInteger("ranking.iterations", 50);
+
+    @Test
+    public void testWindowedRanking() {
+        Random random = new Random(42);
+        List<SymbolData> symbols = new ArrayList<>(SYMBOLS);
+        for (int s = 0; s < SYMBOLS; s++) {
+            PriceSeries.Builder builder = PriceSeries.builder("SYM" + s);
+            double price = 1 + random.nextDouble() * 1_000;
+            for (int t = 0; t < TICKS_PER_SYMBOL; t++) {
+                price *= 1 + 0.01 * random.nextGaussian();
+                builder.add(t * 60_000L, price);
+            }
+            symbols.add(SymbolData.of(builder.build()));
+        }
+        CryptoDataLoader dataLoader = mock(CryptoDataLoader.class);
+        when(dataLoader.getSnapshot()).thenReturn(DatasetSnapshot.empty().withSymbols(symbols));
+        CryptoService cryptoService = new CryptoService(dataLoader, new SimpleMeterRegistry());
+
+        Instant from = Instant.ofEpochMilli(TICKS_PER_SYMBOL / 4 * 60_000L);
+        Instant to = Instant.ofEpochMilli(TICKS_PER_SYMBOL * 3 / 4 * 60_000L);
+        List<CryptoStatistics> expected = scanAndSort(symbols, from, to);
+        assertEquals(expected.subList(0, 10), cryptoService.getAllCryptoStatistics(from, to, 10));
+
+        long top10 = time(() -> cryptoService.getAllCryptoStatistics(from, to, 10));
+        long all = time(() -> cryptoService.getAllCryptoStatistics(from, to, null));
+        long baseline = time(() -> scanAndSort(symbols, from, to));
+        String timings = String.format("%,d symbols x %,d ticks: top 10 %,d us, all %,d us, scan + full sort %,d us",
+                SYMBOLS, TICKS_PER_SYMBOL, top10, all, baseline);
+        assertTrue(top10 < baseline, timings);
+        assertTrue(all < baseline, timings);
+    }
+
+    private static List<CryptoStatistics> scanAndSort(List<SymbolData> symbols, Instant from, Instant to) {
+        List<CryptoStatistics> ranking = new ArrayList<>();
+        for (SymbolData data : symbols) {
+            PriceSeries series = data.getSeries();
+            int start = series.lowerBound(from.toEpochMilli());
+            int end = series.lowerBound(to.toEpochMilli());
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = start; i < end; i++) {
+                min = Math.min(min, series.priceAt(i));
+                max = Math.max(max, series.priceAt(i));
+            }
+            ranking.add(new CryptoStatistics(series.getSymbol(), series.priceAt(start), series.priceAt(end - 1), min, max, (max - min) / min, null));
+        }
+        ranking.sort(Comparator.comparingDouble(CryptoStatistics::getNormalizedRange).reversed());
+        return ranking;
+    }
+
+    /**
+     * Average microseconds per call after a warm-up.
+     */
+    private static long time(Runnable task) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - start) / ITERATIONS / 1_000;
+    }
+}
@@ -2,20 +2,33 @@ package com.example.crypto.service;
 
 import com.example.crypto.exception.CryptoNotFoundException;
 import com.example.crypto.exception.NoCryptoDataAvailableException;
-import com.example.crypto.model.CryptoPrice;
+import com.example.crypto.model.BulkStatistics;
+import com.example.crypto.model.Candle;
+import com.example.crypto.model.CandleInterval;
+import com.example.crypto.model.CorrelationMatrix;
 import com.example.crypto.model.CryptoStatistics;
+import com.example.crypto.model.DailyOhlc;
+import com.example.crypto.model.DatasetSnapshot;
+import com.example.crypto.model.PricePage;
+import com.example.crypto.model.PriceSeries;
+import com.example.crypto.model.RollupSettings;
+import com.example.crypto.model.RollupZones;
+import com.example.crypto.model.SymbolData;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -24,9 +37,11 @@ import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.lenient;
 
 @ExtendWith(MockitoExtension.class)
 public class CryptoServiceTest {
@@ -37,33 +52,37 @@ public class CryptoServiceTest {
     @Mock
     private CryptoDataLoader dataLoader;
 
-    private Map<String, List<CryptoPrice>> cryptoData;
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private Map<String, SymbolData> cryptoData;
 
     @BeforeEach
     public void setUp() {
         cryptoData = new HashMap<>();
 
         // Prepare mock data
-        List<CryptoPrice> btcPrices = Arrays.asList(
-                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 0, 0), "BTC", 46813.21),
-                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 3, 0), "BTC", 46979.61),
-                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 6, 0), "BTC", 47143.98),
-                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 9, 0), "BTC", 46871.09),
-                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 12, 0), "BTC", 47023.24)
+        PriceSeries btcPrices = series("BTC",
+                LocalDateTime.of(2022, 1, 1, 0, 0), 46813.21,
+                LocalDateTime.of(2022, 1, 1, 3, 0), 46979.61,
+                LocalDateTime.of(2022, 1, 1, 6, 0), 47143.98,
+                LocalDateTime.of(2022, 1, 1, 9, 0), 46871.09,
+                LocalDateTime.of(2022, 1, 1, 12, 0), 47023.24
         );
 
-        List<CryptoPrice> ethPrices = Arrays.asList(
-                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 0, 0), "ETH", 3681.1),
-                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 3, 0), "ETH", 3690.5),
-                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 6, 0), "ETH", 3700.2),
-                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 9, 0), "ETH", 3685.8),
-                new CryptoPrice(LocalDateTime.of(2022, 1, 1, 12, 0), "ETH", 3695.0)
+        PriceSeries ethPrices = series("ETH",
+                LocalDateTime.of(2022, 1, 1, 0, 0), 3681.1,
+                LocalDateTime.of(2022, 1, 1, 3, 0), 3690.5,
+                LocalDateTime.of(2022, 1, 1, 6, 0), 3700.2,
+                LocalDateTime.of(2022, 1, 1, 9, 0), 3685.8,
+                LocalDateTime.of(2022, 1, 1, 12, 0), 3695.0
         );
 
-        cryptoData.put("BTC", btcPrices);
-        cryptoData.put("ETH", ethPrices);
+        cryptoData.put("BTC", SymbolData.of(btcPrices));
+        cryptoData.put("ETH", SymbolData.of(ethPrices));
 
-        when(dataLoader.getCryptoData()).thenReturn(cryptoData);
+        // Published on every read, so tests can add symbols after setUp
+        lenient().when(dataLoader.getSnapshot()).thenAnswer(invocation -> DatasetSnapshot.empty().withSymbols(cryptoData.values()));
     }
 
     @Test
@@ -79,6 +98,30 @@ public class CryptoServiceTest {
         assertEquals(expectedNormalizedRange, stats.getNormalizedRange());
     }
 
+    @Test
+    public void testCalculateStatistics_IsPrecomputed() {
+        assertSame(cryptoService.calculateStatistics("btc"), cryptoService.calculateStatistics("BTC"));
+    }
+
+    @Test
+    public void testQueriesAreTimed() {
+        cryptoService.calculateStatistics("BTC");
+        cryptoService.calculateStatistics("BTC", null, null);
+        assertThrows(CryptoNotFoundException.class, () -> cryptoService.calculateStatistics("DOGE"));
+        cryptoService.getAllCryptoStatistics(null, null, 1);
+
+        assertEquals(3, meterRegistry.get("crypto.query").tag("method", "statistics").timer().count());
+        assertEquals(1, meterRegistry.get("crypto.query").tag("method", "ranking").timer().count());
+        assertEquals(0, meterRegistry.get("crypto.query").tag("method", "prices").timer().count());
+    }
+
+    @Test
+    public void testGetRevision() {
+        assertEquals(1, cryptoService.getRevision().getVersion());
+        assertEquals(cryptoService.getRevision().getVersion(), cryptoService.getRevision("btc").getVersion());
+        assertNull(cryptoService.getRevision("DOGE"));
+    }
+
     @Test
     public void testCalculateStatistics_InvalidSymbol() {
         Exception exception = assertThrows(CryptoNotFoundException.class, () -> {
@@ -90,12 +133,93 @@ public class CryptoServiceTest {
     @Test
     public void testCalculateStatistics_NoValidData() {
         // Mock a symbol with empty price list
-        cryptoData.put("XRP", Collections.emptyList());
+        cryptoData.put("XRP", SymbolData.of(PriceSeries.builder("XRP").build()));
 
         Exception exception = assertThrows(CryptoNotFoundException.class, () -> {
             cryptoService.calculateStatistics("XRPS");
         });
         assertEquals("Unsupported or unavailable crypto: XRPS", exception.getMessage());
+
+        exception = assertThrows(CryptoNotFoundException.class, () -> {
+            cryptoService.calculateStatistics("XRP");
+        });
+        assertEquals("Unsupported or unavailable crypto: XRP", exception.getMessage());
+    }
+
+    @Test
+    public void testCalculateStatistics_TimeWindow() {
+        Instant from = LocalDateTime.of(2022, 1, 1, 3, 0).atZone(ZoneOffset.UTC).toInstant();
+        Instant to = LocalDateTime.of(2022, 1, 1, 12, 0).atZone(ZoneOffset.UTC).toInstant();
+
+        CryptoStatistics stats = cryptoService.calculateStatistics("btc", from, to);
+        assertEquals(46979.61, stats.getOldestPrice());
+        assertEquals(46871.09, stats.getNewestPrice());
+        assertEquals(46871.09, stats.getMinPrice());
+        assertEquals(47143.98, stats.getMaxPrice());
+
+        CryptoStatistics openEnded = cryptoService.calculateStatistics("BTC", from, null);
+        assertEquals(47023.24, openEnded.getNewestPrice());
+        assertEquals(46871.09, openEnded.getMinPrice());
+
+        assertSame(cryptoService.calculateStatistics("BTC"), cryptoService.calculateStatistics("BTC", null, null));
+        assertThrows(NoCryptoDataAvailableException.class, () -> cryptoService.calculateStatistics("BTC", to, to));
+        assertThrows(IllegalArgumentException.class, () -> cryptoService.calculateStatistics("BTC", to, from));
+        assertThrows(CryptoNotFoundException.class, () -> cryptoService.calculateStatistics("FOO", from, to));
+    }
+
+    @Test
+    public void testCalculateStatistics_Bulk() {
+        cryptoData.put("XRP", SymbolData.of(PriceSeries.builder("XRP").build()));
+        Instant from = LocalDateTime.of(2022, 1, 1, 3, 0).atZone(ZoneOffset.UTC).toInstant();
+
+        BulkStatistics bulk = cryptoService.calculateStatistics(List.of("btc", "ETH", "XRP", "FOO", "ETH"), null, null);
+        assertEquals(List.of("BTC", "ETH"), bulk.getStatistics().stream().map(CryptoStatistics::getSymbol).toList());
+        assertSame(cryptoService.calculateStatistics("BTC"), bulk.getStatistics().get(0));
+        assertEquals(Map.of("XRP", "Unsupported or unavailable crypto: XRP", "FOO", "Unsupported or unavailable crypto: FOO"),
+                bulk.getErrors());
+
+        BulkStatistics windowed = cryptoService.calculateStatistics(List.of("BTC"), from, null);
+        assertEquals(46979.61, windowed.getStatistics().get(0).getOldestPrice());
+
+        BulkStatistics empty = cryptoService.calculateStatistics(List.of("BTC"), from, from);
+        assertTrue(empty.getStatistics().isEmpty());
+        assertEquals("No data available for the given time window", empty.getErrors().get("BTC"));
+
+        assertThrows(IllegalArgumentException.class, () -> cryptoService.calculateStatistics(List.of(), null, null));
+        assertThrows(IllegalArgumentException.class, () -> cryptoService.calculateStatistics(List.of("BTC"), from, from.minusSeconds(1)));
+    }
+
+    @Test
+    public void testGetPrices_PagesWithCursors() {
+        // Three ticks share a timestamp, so a page boundary falls between them
+        cryptoData.put("DOGE", SymbolData.of(series("DOGE",
+                LocalDateTime.of(2022, 1, 1, 0, 0), 0.1,
+                LocalDateTime.of(2022, 1, 1, 1, 0), 0.2,
+                LocalDateTime.of(2022, 1, 1, 1, 0), 0.3,
+                LocalDateTime.of(2022, 1, 1, 1, 0), 0.4,
+                LocalDateTime.of(2022, 1, 1, 2, 0), 0.5
+        )));
+
+        PricePage first = cryptoService.getPrices("doge", null, null, null, 2);
+        assertEquals(0, first.getStart());
+        assertEquals(2, first.getEnd());
+        PricePage second = cryptoService.getPrices("DOGE", null, null, first.getNextCursor(), 2);
+        assertEquals(2, second.getStart());
+        assertEquals(4, second.getEnd());
+        PricePage last = cryptoService.getPrices("DOGE", null, null, second.getNextCursor(), 2);
+        assertEquals(4, last.getStart());
+        assertEquals(5, last.getEnd());
+        assertNull(last.getNextCursor());
+
+        Instant to = LocalDateTime.of(2022, 1, 1, 2, 0).atZone(ZoneOffset.UTC).toInstant();
+        PricePage windowed = cryptoService.getPrices("DOGE", null, to, second.getNextCursor(), null);
+        assertEquals(4, windowed.getStart());
+        assertEquals(4, windowed.getEnd());
+        assertNull(windowed.getNextCursor());
+
+        assertThrows(IllegalArgumentException.class, () -> cryptoService.getPrices("DOGE", null, null, "not-a-cursor", null));
+        assertThrows(IllegalArgumentException.class, () -> cryptoService.getPrices("DOGE", null, null, null, 0));
+        assertThrows(CryptoNotFoundException.class, () -> cryptoService.getPrices("FOO", null, null, null, null));
     }
 
     @Test
@@ -110,6 +234,104 @@ public class CryptoServiceTest {
         }
         assertTrue(symbols.contains("BTC"));
         assertTrue(symbols.contains("ETH"));
+        assertTrue(statsList.get(0).getNormalizedRange() >= statsList.get(1).getNormalizedRange());
+    }
+
+    @Test
+    public void testGetAllCryptoStatistics_WindowAndLimit() {
+        cryptoData.put("DOGE", SymbolData.of(series("DOGE",
+                LocalDateTime.of(2022, 1, 1, 0, 0), 0.1,
+                LocalDateTime.of(2022, 1, 1, 3, 0), 0.3,
+                LocalDateTime.of(2022, 1, 2, 0, 0), 0.3,
+                LocalDateTime.of(2022, 1, 2, 3, 0), 0.301
+        )));
+        Instant secondDay = LocalDateTime.of(2022, 1, 2, 0, 0).atZone(ZoneOffset.UTC).toInstant();
+
+        // Over the whole history DOGE has by far the widest range
+        List<CryptoStatistics> top = cryptoService.getAllCryptoStatistics(null, null, 1);
+        assertEquals(List.of("DOGE"), top.stream().map(CryptoStatistics::getSymbol).toList());
+
+        // On the second day only DOGE has ticks
+        List<CryptoStatistics> secondDayRanking = cryptoService.getAllCryptoStatistics(secondDay, null, null);
+        assertEquals(List.of("DOGE"), secondDayRanking.stream().map(CryptoStatistics::getSymbol).toList());
+        assertEquals((0.301 - 0.3) / 0.3, secondDayRanking.get(0).getNormalizedRange(), 1e-12);
+
+        // Before the second day, DOGE still ranks first, followed by BTC and ETH as in the whole-history ranking
+        List<CryptoStatistics> firstDayRanking = cryptoService.getAllCryptoStatistics(null, secondDay, 2);
+        assertEquals(List.of("DOGE", cryptoService.getAllCryptoStatistics().get(1).getSymbol()),
+                firstDayRanking.stream().map(CryptoStatistics::getSymbol).toList());
+
+        assertThrows(IllegalArgumentException.class, () -> cryptoService.getAllCryptoStatistics(null, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> cryptoService.getAllCryptoStatistics(secondDay, secondDay.minusSeconds(1), null));
+    }
+
+    @Test
+    public void testGetAllCryptoStatistics_ParallelTopKMatchesFullSort() {
+        for (int i = 0; i < CryptoService.PARALLEL_RANKING_THRESHOLD + 100; i++) {
+            double low = 1 + (i * 7919 % 1000);
+            cryptoData.put("S" + i, SymbolData.of(series("S" + i,
+                    LocalDateTime.of(2022, 1, 1, 0, 0), low,
+                    LocalDateTime.of(2022, 1, 1, 1, 0), low * (1 + (i % 97) / 100.0),
+                    LocalDateTime.of(2022, 1, 2, 0, 0), low * 10
+            )));
+        }
+        Instant to = LocalDateTime.of(2022, 1, 1, 12, 0).atZone(ZoneOffset.UTC).toInstant();
+
+        List<CryptoStatistics> all = cryptoService.getAllCryptoStatistics(null, to, null);
+        List<CryptoStatistics> top = cryptoService.getAllCryptoStatistics(null, to, 10);
+
+        assertEquals(cryptoData.size(), all.size());
+        assertEquals(all.subList(0, 10), top);
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).getNormalizedRange() >= all.get(i).getNormalizedRange());
+        }
+    }
+
+    @Test
+    public void testGetAllCryptoStatistics_TiesOrderedBySymbolWithAndWithoutWindow() {
+        cryptoData.clear();
+        for (String symbol : List.of("XRP", "ADA", "SOL", "DOGE", "BTC")) {
+            cryptoData.put(symbol, SymbolData.of(series(symbol,
+                    LocalDateTime.of(2022, 1, 1, 0, 0), 10.0,
+                    LocalDateTime.of(2022, 1, 1, 1, 0), 12.0)));
+        }
+        Instant to = LocalDateTime.of(2022, 1, 2, 0, 0).atZone(ZoneOffset.UTC).toInstant();
+
+        List<String> expected = List.of("ADA", "BTC", "DOGE", "SOL", "XRP");
+        assertEquals(expected, cryptoService.getAllCryptoStatistics(null, null, null).stream().map(CryptoStatistics::getSymbol).toList());
+        assertEquals(expected, cryptoService.getAllCryptoStatistics(null, to, null).stream().map(CryptoStatistics::getSymbol).toList());
+        assertEquals(expected.subList(0, 2), cryptoService.getAllCryptoStatistics(null, null, 2).stream().map(CryptoStatistics::getSymbol).toList());
+        assertEquals(expected.subList(0, 2), cryptoService.getAllCryptoStatistics(null, to, 2).stream().map(CryptoStatistics::getSymbol).toList());
+    }
+
+    @Test
+    public void testGetAllCryptoStatistics_SortBy() {
+        cryptoData.put("LUNA", SymbolData.of(series("LUNA",
+                LocalDateTime.of(2022, 1, 1, 0, 0), 10.0,
+                LocalDateTime.of(2022, 1, 1, 3, 0), 1.0,
+                LocalDateTime.of(2022, 1, 1, 6, 0), 1.5
+        )));
+
+        // Risk metrics rank the smallest value first
+        List<CryptoStatistics> byDrawdown = cryptoService.getAllCryptoStatistics(null, null, null, "maxDrawdown");
+        assertEquals(List.of("ETH", "BTC", "LUNA"), byDrawdown.stream().map(CryptoStatistics::getSymbol).toList());
+        assertEquals(0.9, byDrawdown.get(2).getMetrics().getMaxDrawdown(), 1e-12);
+        assertEquals((47143.98 - 46871.09) / 47143.98, byDrawdown.get(1).getMetrics().getMaxDrawdown(), 1e-12);
+
+        List<CryptoStatistics> byVolatility = cryptoService.getAllCryptoStatistics(null, null, null, "volatility");
+        assertEquals("LUNA", byVolatility.get(2).getSymbol());
+        assertTrue(byVolatility.get(0).getMetrics().getVolatility() <= byVolatility.get(1).getMetrics().getVolatility());
+        assertEquals(byVolatility.subList(0, 1), cryptoService.getAllCryptoStatistics(null, null, 1, "volatility"));
+
+        // LUNA's newest price is far below its average of the three ticks
+        List<CryptoStatistics> bySma = cryptoService.getAllCryptoStatistics(null, null, null, "SMA");
+        assertEquals("LUNA", bySma.get(2).getSymbol());
+        assertEquals((10.0 + 1.0 + 1.5) / 3, bySma.get(2).getMetrics().getSma(), 1e-12);
+
+        assertEquals(cryptoService.getAllCryptoStatistics(), cryptoService.getAllCryptoStatistics(null, null, null, "normalizedRange"));
+        assertThrows(IllegalArgumentException.class, () -> cryptoService.getAllCryptoStatistics(null, null, null, "sharpe"));
+        assertThrows(IllegalArgumentException.class,
+                () -> cryptoService.getAllCryptoStatistics(Instant.parse("2022-01-01T00:00:00Z"), null, null, "ema"));
     }
 
     @Test
@@ -118,28 +340,8 @@ public class CryptoServiceTest {
         String highestCrypto = cryptoService.getHighestNormalizedCrypto(date);
         assertNotNull(highestCrypto);
         // Determine which of BTC or ETH has higher normalized range on the given date
-        // Let's calculate normalized ranges
-        List<CryptoPrice> btcPrices = cryptoData.get("BTC");
-        List<CryptoPrice> btcFilteredPrices = new ArrayList<>();
-        for (CryptoPrice price : btcPrices) {
-            if (price.getTimestamp().toLocalDate().equals(date)) {
-                btcFilteredPrices.add(price);
-            }
-        }
-        double btcMinPrice = btcFilteredPrices.stream().mapToDouble(CryptoPrice::getPrice).min().orElse(0);
-        double btcMaxPrice = btcFilteredPrices.stream().mapToDouble(CryptoPrice::getPrice).max().orElse(0);
-        double btcNormalizedRange = (btcMaxPrice - btcMinPrice) / btcMinPrice;
-
-        List<CryptoPrice> ethPrices = cryptoData.get("ETH");
-        List<CryptoPrice> ethFilteredPrices = new ArrayList<>();
-        for (CryptoPrice price : ethPrices) {
-            if (price.getTimestamp().toLocalDate().equals(date)) {
-                ethFilteredPrices.add(price);
-            }
-        }
-        double ethMinPrice = ethFilteredPrices.stream().mapToDouble(CryptoPrice::getPrice).min().orElse(0);
-        double ethMaxPrice = ethFilteredPrices.stream().mapToDouble(CryptoPrice::getPrice).max().orElse(0);
-        double ethNormalizedRange = (ethMaxPrice - ethMinPrice) / ethMinPrice;
+        double btcNormalizedRange = normalizedRangeOn(cryptoData.get("BTC").getSeries(), date);
+        double ethNormalizedRange = normalizedRangeOn(cryptoData.get("ETH").getSeries(), date);
 
         if (btcNormalizedRange > ethNormalizedRange) {
             assertEquals("BTC", highestCrypto);
@@ -148,6 +350,124 @@ public class CryptoServiceTest {
         }
     }
 
+    @Test
+    public void testGetHighestNormalizedCrypto_UsesOnlyTheRequestedDay() {
+        cryptoData.put("DOGE", SymbolData.of(series("DOGE",
+                LocalDateTime.of(2022, 1, 1, 0, 0), 0.17,
+                LocalDateTime.of(2022, 1, 1, 3, 0), 0.171,
+                LocalDateTime.of(2022, 1, 2, 0, 0), 0.1,
+                LocalDateTime.of(2022, 1, 2, 3, 0), 0.3
+        )));
+
+        assertEquals("DOGE", cryptoService.getHighestNormalizedCrypto(LocalDate.of(2022, 1, 2)));
+        assertEquals("BTC", cryptoService.getHighestNormalizedCrypto(LocalDate.of(2022, 1, 1)));
+    }
+
+    @Test
+    public void testGetHighestNormalizedCrypto_InRequestedZone() {
+        RollupZones zones = RollupZones.of(ZoneOffset.UTC, List.of(ZoneId.of("Asia/Tokyo")));
+        lenient().when(dataLoader.getRollupZones()).thenReturn(zones);
+        // The afternoon of January 1st in UTC is already January 2nd in Tokyo
+        cryptoData.put("DOGE", SymbolData.of(series("DOGE",
+                LocalDateTime.of(2022, 1, 1, 16, 0), 0.1,
+                LocalDateTime.of(2022, 1, 1, 18, 0), 0.3
+        ), RollupSettings.DEFAULT.withZones(zones)));
+
+        assertEquals("DOGE", cryptoService.getHighestNormalizedCrypto(LocalDate.of(2022, 1, 1)));
+        assertEquals("DOGE", cryptoService.getHighestNormalizedCrypto(LocalDate.of(2022, 1, 2), "Asia/Tokyo"));
+        assertThrows(NoCryptoDataAvailableException.class,
+                () -> cryptoService.getHighestNormalizedCrypto(LocalDate.of(2022, 1, 2), "UTC"));
+        assertThrows(IllegalArgumentException.class,
+                () -> cryptoService.getHighestNormalizedCrypto(LocalDate.of(2022, 1, 2), "Europe/Paris"));
+        assertEquals(LocalDate.of(2022, 1, 2), cryptoService.getDailyOhlc("DOGE", null, null, "Asia/Tokyo").get(0).getDate());
+    }
+
+    @Test
+    public void testGetCandles() {
+        List<Candle> hourly = cryptoService.getCandles("btc", "1h", null, null);
+        assertEquals(5, hourly.size());
+        assertEquals(Instant.parse("2022-01-01T03:00:00Z").toEpochMilli(), hourly.get(1).getTimestamp());
+        assertEquals(46979.61, hourly.get(1).getClose());
+        assertEquals(1, hourly.get(1).getCount());
+
+        List<Candle> daily = cryptoService.getCandles("BTC", "1d", null, null);
+        assertEquals(List.of(new Candle(Instant.parse("2022-01-01T00:00:00Z").toEpochMilli(),
+                46813.21, 47143.98, 46813.21, 47023.24, 5)), daily);
+
+        // from is rounded down to the start of its bucket, to is exclusive
+        List<Candle> window = cryptoService.getCandles("BTC", "1h",
+                Instant.parse("2022-01-01T03:30:00Z"), Instant.parse("2022-01-01T09:00:00Z"));
+        assertEquals(List.of(hourly.get(1), hourly.get(2)), window);
+
+        assertThrows(IllegalArgumentException.class, () -> cryptoService.getCandles("BTC", "2h", null, null));
+        assertThrows(CryptoNotFoundException.class, () -> cryptoService.getCandles("FOO", "1h", null, null));
+    }
+
+    @Test
+    public void testGetCandles_IntervalWithoutLevel() {
+        List<Candle> hourly = cryptoService.getCandles("BTC", "1h", null, null);
+        List<Candle> fiveMinutes = cryptoService.getCandles("BTC", "5m", null, Instant.parse("2022-01-01T07:00:00Z"));
+        cryptoData.put("BTC", SymbolData.of(cryptoData.get("BTC").getSeries(), RollupSettings.of(RollupZones.UTC,
+                EnumSet.of(CandleInterval.ONE_MINUTE, CandleInterval.ONE_DAY), RollupSettings.DEFAULT_METRICS_WINDOW)));
+
+        assertEquals(hourly, cryptoService.getCandles("BTC", "1h", null, null));
+        assertEquals(fiveMinutes, cryptoService.getCandles("BTC", "5m", null, Instant.parse("2022-01-01T07:00:00Z")));
+    }
+
+    @Test
+    public void testGetCorrelations() {
+        // INV moves exactly against BTC, DOGE only has ticks within one hour
+        PriceSeries btc = cryptoData.get("BTC").getSeries();
+        PriceSeries.Builder inverse = PriceSeries.builder("INV");
+        for (int i = 0; i < btc.size(); i++) {
+            inverse.add(btc.timestampAt(i), 1e6 / btc.priceAt(i));
+        }
+        cryptoData.put("INV", SymbolData.of(inverse.build()));
+        cryptoData.put("DOGE", SymbolData.of(series("DOGE",
+                LocalDateTime.of(2022, 1, 1, 5, 0), 0.1,
+                LocalDateTime.of(2022, 1, 1, 5, 30), 0.2
+        )));
+
+        CorrelationMatrix matrix = cryptoService.getCorrelations(null, null, null, "1h");
+
+        assertEquals(List.of("BTC", "ETH", "INV"), matrix.getSymbols());
+        assertEquals(13, matrix.getPoints());
+        assertEquals(Instant.parse("2022-01-01T00:00:00Z").toEpochMilli(), matrix.getStart());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1.0, matrix.correlation(i, i));
+            for (int j = 0; j < 3; j++) {
+                assertEquals(matrix.correlation(i, j), matrix.correlation(j, i));
+            }
+        }
+        assertEquals(-1.0, matrix.correlation(0, 2), 1e-9);
+        assertEquals(-matrix.correlation(0, 1), matrix.correlation(1, 2), 1e-9);
+
+        assertEquals(List.of("BTC", "ETH"), cryptoService.getCorrelations(List.of("eth", "btc"), null, null, "1h").getSymbols());
+
+        assertThrows(CryptoNotFoundException.class, () -> cryptoService.getCorrelations(List.of("BTC", "FOO"), null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> cryptoService.getCorrelations(null, null, null, "2h"));
+        assertThrows(IllegalArgumentException.class, () -> cryptoService.getCorrelations(null,
+                Instant.parse("2022-01-01T00:00:00Z"), Instant.parse("2022-01-03T00:00:00Z"), "1m"));
+    }
+
+    @Test
+    public void testGetDailyOhlc() {
+        List<DailyOhlc> candles = cryptoService.getDailyOhlc("btc", null, null);
+
+        assertEquals(1, candles.size());
+        DailyOhlc candle = candles.get(0);
+        assertEquals(LocalDate.of(2022, 1, 1), candle.getDate());
+        assertEquals(46813.21, candle.getOpen());
+        assertEquals(47143.98, candle.getHigh());
+        assertEquals(46813.21, candle.getLow());
+        assertEquals(47023.24, candle.getClose());
+        assertEquals(5, candle.getCount());
+
+        assertTrue(cryptoService.getDailyOhlc("BTC", LocalDate.of(2022, 1, 2), null).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> cryptoService.getDailyOhlc("BTC", LocalDate.of(2022, 1, 2), LocalDate.of(2022, 1, 1)));
+        assertThrows(CryptoNotFoundException.class, () -> cryptoService.getDailyOhlc("FOO", null, null));
+    }
+
     @Test
     public void testGetHighestNormalizedCrypto_NoDataForDate() {
         LocalDate date = LocalDate.of(2021, 12, 31);
@@ -156,4 +476,25 @@ public class CryptoServiceTest {
         });
         assertEquals("No data available for the given date", exception.getMessage());
     }
+
+    private static PriceSeries series(String symbol, Object... timesAndPrices) {
+        PriceSeries.Builder builder = PriceSeries.builder(symbol);
+        for (int i = 0; i < timesAndPrices.length; i += 2) {
+            LocalDateTime time = (LocalDateTime) timesAndPrices[i];
+            builder.add(time.atZone(ZoneOffset.UTC).toInstant().toEpochMilli(), (Double) timesAndPrices[i + 1]);
+        }
+        return builder.build();
+    }
+
+    private static double normalizedRangeOn(PriceSeries prices, LocalDate date) {
+        double minPrice = Double.POSITIVE_INFINITY;
+        double maxPrice = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < prices.size(); i++) {
+            if (LocalDate.ofInstant(Instant.ofEpochMilli(prices.timestampAt(i)), ZoneOffset.UTC).equals(date)) {
+                minPrice = Math.min(minPrice, prices.priceAt(i));
+                maxPrice = Math.max(maxPrice, prices.priceAt(i));
+            }
+        }
+        return (maxPrice - minPrice) / minPrice;
+    }
 }
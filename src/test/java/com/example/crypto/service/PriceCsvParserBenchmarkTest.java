@@ -0,0 +1,83 @@
+package com.example.crypto.service;
+
+import com.example.crypto.model.PriceSeries;
+import com.example.crypto.support.SyntheticDataGenerator;
+import com.opencsv.CSVReader;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ingest throughput and allocation of {@link PriceCsvParser} against the OpenCSV-based parsing it replaced. Once
+ * warmed up, it must be faster and allocate a fraction of what OpenCSV does.
+ */
+@Tag("benchmark")
+public class PriceCsvParserBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("parser.rows", 5_000_000);
+    private static final int ROUNDS = Integer.getInteger("parser.rounds", 5);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testThroughputAgainstOpenCsv() throws Exception {
+        new SyntheticDataGenerator().symbols(1).ticksPerSymbol(ROWS).tickIntervalMillis(60_000).writeTo(directory);
+        Path file = directory.resolve(SyntheticDataGenerator.symbolName(0) + "_values.csv");
+        long bytes = Files.size(file);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            PriceSeries openCsv = parseWithOpenCsv(file);
+            long openCsvNanos = System.nanoTime() - start;
+            long openCsvAllocated = allocatedBytes() - allocatedBefore;
+
+            allocatedBefore = allocatedBytes();
+            start = System.nanoTime();
+            PriceSeries mapped = PriceCsvParser.parseFile("SYM0", file, 0, bytes, true, true).series();
+            long mappedNanos = System.nanoTime() - start;
+            long mappedAllocated = allocatedBytes() - allocatedBefore;
+
+            assertEquals(openCsv.size(), mapped.size());
+            if (round == ROUNDS - 1) {
+                String measured = String.format("%,d rows (%,d MB): OpenCSV %,d ms, %.0f B/row; mapped %,d ms, %.0f B/row",
+                        ROWS, bytes >> 20, openCsvNanos / 1_000_000, (double) openCsvAllocated / ROWS,
+                        mappedNanos / 1_000_000, (double) mappedAllocated / ROWS);
+                assertTrue(mappedNanos < openCsvNanos, measured);
+                assertTrue(mappedAllocated < openCsvAllocated / 4, measured);
+            }
+        }
+    }
+
+    /**
+     * The parsing loop used before the byte-level parser.
+     */
+    private static PriceSeries parseWithOpenCsv(Path file) throws Exception {
+        PriceSeries.Builder builder = PriceSeries.builder("SYM0");
+        try (CSVReader reader = new CSVReader(new InputStreamReader(Files.newInputStream(file)))) {
+            String[] line;
+            reader.readNext();
+            while ((line = reader.readNext()) != null) {
+                long timestamp = Long.parseLong(line[0]);
+                double price = Double.parseDouble(line[2]);
+                if (price != 0) {
+                    builder.add(timestamp, price);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.crypto.service;
+
+import com.example.crypto.model.PriceSeries;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PriceCsvParserTest {
+
+    @Test
+    public void testParsesRowsAndSkipsHeader() {
+        PriceSeries series = parse("timestamp,symbol,price\n" +
+                "1641009600000,BTC,46813.21\n" +
+                "1641020400000,BTC,46979.61\n");
+
+        assertEquals(2, series.size());
+        assertEquals(1641009600000L, series.timestampAt(0));
+        assertEquals(46813.21, series.priceAt(0));
+        assertEquals(46979.61, series.priceAt(1));
+    }
+
+    @Test
+    public void testMatchesParseDoubleForAllPriceFormats() {
+        String[] prices = {"0.1415", "46813.21", "1", "1.", ".5", "+2.5", "-3.25", "007.0700", "  12.5 ", "1e3",
+                "1.5E-4", "123456789012345678901234567890", "0.000000000000000000000000123", "9007199254740993",
+                "3.141592653589793238", "NaN", "Infinity", "2.5d"};
+        StringBuilder csv = new StringBuilder("timestamp,symbol,price\n");
+        for (int i = 0; i < prices.length; i++) {
+            csv.append(i).append(",BTC,").append(prices[i]).append('\n');
+        }
+
+        PriceSeries series = parse(csv.toString());
+
+        assertEquals(prices.length, series.size());
+        for (int i = 0; i < prices.length; i++) {
+            assertEquals(Double.parseDouble(prices[i]), series.priceAt(i), "Price " + prices[i]);
+        }
+    }
+
+    @Test
+    public void testMatchesParseDoubleForRandomPrices() {
+        Random random = new Random(7);
+        StringBuilder csv = new StringBuilder("timestamp,symbol,price\n");
+        String[] prices = new String[10_000];
+        for (int i = 0; i < prices.length; i++) {
+            double value = random.nextDouble() * Math.pow(10, random.nextInt(12) - 4);
+            prices[i] = i % 2 == 0 ? Double.toString(value) : String.format("%.4f", value);
+            csv.append(i).append(",BTC,").append(prices[i]).append('\n');
+        }
+
+        PriceSeries series = parse(csv.toString());
+
+        int row = 0;
+        for (int i = 0; i < prices.length; i++) {
+            double expected = Double.parseDouble(prices[i]);
+            if (expected != 0) {
+                assertEquals(expected, series.priceAt(row++), "Price " + prices[i]);
+            }
+        }
+        assertEquals(row, series.size());
+    }
+
+    @Test
+    public void testHandlesCrLfBlankLinesAndExtraColumns() {
+        PriceSeries series = parse("timestamp,symbol,price\r\n" +
+                "1641009600000,BTC,46813.21\r\n" +
+                "\r\n" +
+                "1641020400000,BTC,46979.61,extra\n" +
+                "1641031200000,BTC,0\n");
+
+        assertEquals(2, series.size());
+        assertEquals(46813.21, series.priceAt(0));
+        assertEquals(46979.61, series.priceAt(1));
+    }
+
+    @Test
+    public void testReportsMalformedRows() {
+        NumberFormatException exception = assertThrows(NumberFormatException.class, () -> parse("timestamp,symbol,price\n" +
+                "1641009600000,BTC,46813.21\n" +
+                "not,a,number\n"));
+        assertTrue(exception.getMessage().contains("line 3"));
+        assertTrue(exception.getMessage().contains("not,a,number"));
+
+        assertThrows(NumberFormatException.class, () -> parse("timestamp,symbol,price\n1641009600000,BTC\n"));
+        assertThrows(NumberFormatException.class, () -> parse("timestamp,symbol,price\n 1641009600000,BTC,1.0\n"));
+        assertThrows(NumberFormatException.class, () -> parse("timestamp,symbol,price\n99999999999999999999,BTC,1.0\n"));
+        assertThrows(NumberFormatException.class, () -> parse("timestamp,symbol,price\n1641009600000,BTC,\n"));
+    }
+
+    @Test
+    public void testLeavesUnterminatedLineUnlessRequested() {
+        byte[] bytes = "1641009600000,BTC,46813.21\n1641020400000,BTC,469".getBytes(StandardCharsets.UTF_8);
+
+        PriceCsvParser parser = new PriceCsvParser("BTC");
+        int consumed = parser.parse(ByteBuffer.wrap(bytes), false, false);
+
+        assertEquals("1641009600000,BTC,46813.21\n".length(), consumed);
+        assertEquals(1, parser.build().size());
+    }
+
+    @Test
+    public void testRoutingParserGroupsRowsBySymbol() {
+        byte[] bytes = ("1641009600000,BTC,46813.21\n" +
+                "1641009600000,eth,3676.22\n" +
+                "1641020400000, ETH ,3715.32\n" +
+                "1641000000000,BTC,46500.00\n").getBytes(StandardCharsets.UTF_8);
+
+        PriceCsvParser parser = PriceCsvParser.routing();
+        parser.parse(ByteBuffer.wrap(bytes), false, true);
+        Map<String, PriceSeries> series = parser.buildAll();
+
+        assertEquals(List.of("BTC", "ETH"), List.copyOf(series.keySet()));
+        assertEquals("ETH", series.get("ETH").getSymbol());
+        assertEquals(2, series.get("ETH").size());
+        assertEquals(1641000000000L, series.get("BTC").firstTimestamp());
+        assertEquals(46813.21, series.get("BTC").priceAt(1));
+        assertThrows(IllegalStateException.class, parser::build);
+        assertThrows(NumberFormatException.class, () -> PriceCsvParser.routing()
+                .parse(ByteBuffer.wrap("1641009600000, ,1.0\n".getBytes(StandardCharsets.UTF_8)), false, true));
+    }
+
+    @Test
+    public void testParseFileAcrossOffsets(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("BTC_values.csv");
+        String header = "timestamp,symbol,price\n";
+        String first = "1641009600000,BTC,46813.21\n";
+        Files.writeString(file, header + first + "1641020400000,BTC,46979.61\n1641031200000,BTC,471");
+
+        PriceCsvParser.FileResult full = PriceCsvParser.parseFile("BTC", file, 0, Files.size(file), true, true);
+        PriceCsvParser.FileResult tail = PriceCsvParser.parseFile("BTC", file, header.length() + first.length(), Files.size(file), false, false);
+
+        assertEquals(3, full.series().size());
+        assertEquals(Files.size(file), full.end());
+        assertEquals(1, tail.series().size());
+        assertEquals(46979.61, tail.series().priceAt(0));
+        assertEquals(Files.size(file) - "1641031200000,BTC,471".length(), tail.end());
+    }
+
+    @Test
+    public void testPresizesFileRegionsModestly() {
+        assertEquals(0, PriceCsvParser.expectedTicks(0));
+        assertEquals(10, PriceCsvParser.expectedTicks(10 * "1641009600000,BTC,46813.21\n".length()));
+        // A multi-GB file reserves a bounded head start and grows from there
+        assertEquals(PriceCsvParser.MAX_EXPECTED_TICKS, PriceCsvParser.expectedTicks(8L << 30));
+    }
+
+    private static PriceSeries parse(String csv) {
+        PriceCsvParser parser = new PriceCsvParser("BTC");
+        parser.parse(ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8)), true, true);
+        return parser.build();
+    }
+}
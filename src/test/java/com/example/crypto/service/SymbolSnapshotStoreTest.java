@@ -0,0 +1,143 @@
+package com.example.crypto.service;
+
+import com.example.crypto.model.CandleInterval;
+import com.example.crypto.model.DailyRollup;
+import com.example.crypto.model.PriceSeries;
+import com.example.crypto.model.RollupSettings;
+import com.example.crypto.model.RollupZones;
+import com.example.crypto.model.SymbolData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SymbolSnapshotStoreTest {
+
+    private static final RollupSettings SETTINGS = RollupSettings.of(RollupZones.UTC,
+            EnumSet.of(CandleInterval.ONE_HOUR, CandleInterval.ONE_DAY), RollupSettings.DEFAULT_METRICS_WINDOW);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        SymbolSnapshotStore store = new SymbolSnapshotStore(directory, SETTINGS);
+        SymbolData data = symbol(5_000);
+        CryptoDataLoader.FileState state = new CryptoDataLoader.FileState(1234, 5678, 1200, new byte[]{1, 2, 3});
+
+        store.write("BTC_values.csv", state, data);
+        CryptoDataLoader.FileRefresh restored = store.read(store.pathFor("BTC_values.csv"));
+
+        assertEquals("BTC_values.csv", restored.fileName());
+        assertEquals(1234, restored.state().size());
+        assertEquals(5678, restored.state().lastModified());
+        assertEquals(1200, restored.state().offset());
+        assertArrayEquals(new byte[]{1, 2, 3}, restored.state().fingerprint());
+
+        SymbolData copy = restored.data();
+        assertEquals("BTC", copy.getSymbol());
+        assertEquals(data.getSeries().size(), copy.getSeries().size());
+        for (int i = 0; i < data.getSeries().size(); i++) {
+            assertEquals(data.getSeries().timestampAt(i), copy.getSeries().timestampAt(i));
+            assertEquals(data.getSeries().priceAt(i), copy.getSeries().priceAt(i));
+        }
+        assertEquals(data.getStatistics(), copy.getStatistics());
+        assertEquals(data.getDaily().size(), copy.getDaily().size());
+        for (int i = 0; i < data.getDaily().size(); i++) {
+            assertEquals(data.getDaily().dateAt(i), copy.getDaily().dateAt(i));
+            assertEquals(data.getDaily().openAt(i), copy.getDaily().openAt(i));
+            assertEquals(data.getDaily().highAt(i), copy.getDaily().highAt(i));
+            assertEquals(data.getDaily().lowAt(i), copy.getDaily().lowAt(i));
+            assertEquals(data.getDaily().closeAt(i), copy.getDaily().closeAt(i));
+            assertEquals(data.getDaily().countAt(i), copy.getDaily().countAt(i));
+        }
+        assertEquals(SETTINGS.getCandleIntervals(), copy.getCandles().intervals());
+        assertEquals(data.getStatistics().getMetrics(), copy.getStatistics().getMetrics());
+        assertEquals(data.getCandles().level(CandleInterval.ONE_DAY).size(), copy.getCandles().level(CandleInterval.ONE_DAY).size());
+        assertEquals(List.of(store.pathFor("BTC_values.csv")), store.list());
+    }
+
+    @Test
+    public void testEmptySeriesRoundTrips() throws Exception {
+        SymbolSnapshotStore store = new SymbolSnapshotStore(directory, SETTINGS);
+        store.write("XRP_values.csv", new CryptoDataLoader.FileState(23, 1, 23, new byte[0]),
+                SymbolData.of(PriceSeries.builder("XRP").build()));
+
+        SymbolData copy = store.read(store.pathFor("XRP_values.csv")).data();
+
+        assertEquals(0, copy.getSeries().size());
+        assertEquals(0, copy.getDaily().size());
+        assertNull(copy.getStatistics());
+    }
+
+    @Test
+    public void testRejectsCorruptedAndTruncatedFiles() throws Exception {
+        SymbolSnapshotStore store = new SymbolSnapshotStore(directory, SETTINGS);
+        store.write("BTC_values.csv", new CryptoDataLoader.FileState(1, 1, 1, new byte[0]), symbol(100));
+        Path file = store.pathFor("BTC_values.csv");
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+            randomAccessFile.seek(randomAccessFile.length() - 100);
+            int value = randomAccessFile.read();
+            randomAccessFile.seek(randomAccessFile.length() - 100);
+            randomAccessFile.write(value ^ 1);
+        }
+        IOException corrupted = assertThrows(IOException.class, () -> store.read(file));
+        assertEquals("Invalid snapshot file " + file + ": checksum mismatch", corrupted.getMessage());
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+            randomAccessFile.setLength(randomAccessFile.length() - 8);
+        }
+        IOException truncated = assertThrows(IOException.class, () -> store.read(file));
+        assertEquals("Invalid snapshot file " + file + ": inconsistent layout", truncated.getMessage());
+
+        Files.writeString(file, "timestamp,symbol,price\n".repeat(4));
+        assertThrows(IOException.class, () -> store.read(file));
+    }
+
+    @Test
+    public void testRebuildsRollupsForAnotherZone() throws Exception {
+        RollupSettings tokyo = SETTINGS.withZones(RollupZones.of(ZoneId.of("Asia/Tokyo"), List.of()));
+        new SymbolSnapshotStore(directory, tokyo)
+                .write("BTC_values.csv", new CryptoDataLoader.FileState(1, 1, 1, new byte[0]), SymbolData.of(symbol(100).getSeries(), tokyo));
+
+        SymbolData copy = new SymbolSnapshotStore(directory, SETTINGS)
+                .read(directory.resolve("BTC_values.csv" + SymbolSnapshotStore.SNAPSHOT_SUFFIX)).data();
+
+        assertEquals(ZoneOffset.UTC, copy.getDaily().getZone());
+        assertEquals(SymbolData.of(copy.getSeries()).getDaily().size(), copy.getDaily().size());
+        assertEquals(SymbolData.of(copy.getSeries()).getStatistics(), copy.getStatistics());
+    }
+
+    @Test
+    public void testBuildsRollupsForAdditionalZones() throws Exception {
+        ZoneId newYork = ZoneId.of("America/New_York");
+        SymbolSnapshotStore store = new SymbolSnapshotStore(directory, SETTINGS.withZones(RollupZones.of(ZoneOffset.UTC, List.of(newYork))));
+        store.write("BTC_values.csv", new CryptoDataLoader.FileState(1, 1, 1, new byte[0]), symbol(100));
+
+        SymbolData copy = store.read(store.pathFor("BTC_values.csv")).data();
+
+        assertEquals(DailyRollup.of(copy.getSeries(), newYork).size(), copy.dailyIn(newYork).size());
+        assertEquals(DailyRollup.of(copy.getSeries(), newYork).dateAt(0), copy.dailyIn(newYork).dateAt(0));
+    }
+
+    private static SymbolData symbol(int ticks) {
+        PriceSeries.Builder builder = PriceSeries.builder("BTC");
+        for (int i = 0; i < ticks; i++) {
+            builder.add(1641009600000L + i * 3_600_000L, 40_000 + (i * 7919 % 1000));
+        }
+        return SymbolData.of(builder.build());
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.crypto.service;
+
+import com.example.crypto.exception.CryptoDataProcessingException;
+import com.example.crypto.model.IngestResult;
+import com.example.crypto.model.SymbolData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TickIngestorTest {
+
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
+    @TempDir
+    Path directory;
+
+    private final List<TickIngestor> started = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        started.forEach(TickIngestor::shutdown);
+    }
+
+    @Test
+    public void testIngestsJsonAndCsvIntoLoadedData() throws Exception {
+        CryptoDataLoader loader = loader();
+        TickIngestor ingestor = ingestor(loader, directory.resolve("ticks.log"));
+
+        IngestResult json = ingest(ingestor, MediaType.APPLICATION_JSON, "[" +
+                "{\"timestamp\": 1641009600000, \"symbol\": \"btc\", \"price\": 46813.21}," +
+                "{\"symbol\": \"ETH\", \"price\": 3676.22, \"timestamp\": \"2022-01-01T04:00:00Z\", \"source\": {\"id\": 1}}," +
+                "{\"timestamp\": 1641020400000, \"symbol\": \"BTC\", \"price\": 46979.61}]");
+        IngestResult csv = ingest(ingestor, CSV, "timestamp,symbol,price\n" +
+                "1641031200000,BTC,47143.98\n" +
+                "1641027600000,ETH,3715.32\n");
+
+        assertEquals(3, json.getTicks());
+        assertEquals(2, json.getSymbols());
+        assertEquals(2, csv.getTicks());
+        assertTrue(csv.getVersion() > json.getVersion());
+        assertEquals(csv.getVersion(), loader.getSnapshot().getVersion());
+        SymbolData btc = loader.getSnapshot().get("BTC");
+        assertEquals(3, btc.getSeries().size());
+        assertEquals(46813.21, btc.getStatistics().getOldestPrice());
+        assertEquals(47143.98, btc.getStatistics().getNewestPrice());
+        assertEquals(3, btc.getDaily().countAt(0));
+        assertEquals(1641009600000L, loader.getSnapshot().get("ETH").getSeries().firstTimestamp());
+    }
+
+    @Test
+    public void testReplaysLogOnStartup() throws Exception {
+        Path log = directory.resolve("ticks/ticks.log");
+        TickIngestor first = ingestor(loader(), log);
+        ingest(first, CSV, "1641009600000,BTC,46813.21\n1641009600000,ETH,3676.22\n");
+        ingest(first, CSV, "1641020400000,BTC,46979.61\n");
+        first.shutdown();
+
+        CryptoDataLoader restarted = loader();
+        ingestor(restarted, log);
+
+        assertEquals(2, restarted.getSnapshot().get("BTC").getSeries().size());
+        assertEquals(46979.61, restarted.getSnapshot().get("BTC").getStatistics().getNewestPrice());
+        assertEquals(1, restarted.getSnapshot().get("ETH").getSeries().size());
+        // Everything logged is published at once
+        assertEquals(1, restarted.getSnapshot().getVersion());
+    }
+
+    @Test
+    public void testConcurrentBatchesAreAllCommitted() throws Exception {
+        CryptoDataLoader loader = loader();
+        TickIngestor ingestor = ingestor(loader, directory.resolve("ticks.log"));
+
+        List<Future<IngestResult>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 200; i++) {
+                long timestamp = 1641009600000L + i * 1000L;
+                String symbol = "SYM" + (i % 4);
+                results.add(executor.submit(() -> ingest(ingestor, CSV, timestamp + "," + symbol + ",1.5\n")));
+            }
+        }
+
+        long maxVersion = 0;
+        for (Future<IngestResult> result : results) {
+            maxVersion = Math.max(maxVersion, result.get().getVersion());
+        }
+        assertEquals(maxVersion, loader.getSnapshot().getVersion());
+        for (int s = 0; s < 4; s++) {
+            assertEquals(50, loader.getSnapshot().get("SYM" + s).getSeries().size());
+        }
+    }
+
+    @Test
+    public void testRejectsInvalidBatches() {
+        CryptoDataLoader loader = loader();
+        TickIngestor ingestor = ingestor(loader, null);
+
+        assertThrows(IllegalArgumentException.class, () -> ingest(ingestor, MediaType.APPLICATION_JSON,
+                "{\"timestamp\": 1, \"symbol\": \"BTC\", \"price\": 1.0}"));
+        assertThrows(IllegalArgumentException.class, () -> ingest(ingestor, MediaType.APPLICATION_JSON,
+                "[{\"timestamp\": 1, \"symbol\": \"BTC\"}]"));
+        assertThrows(IllegalArgumentException.class, () -> ingest(ingestor, MediaType.APPLICATION_JSON,
+                "[{\"timestamp\": 1, \"symbol\": \"BTC\", \"price\": -1.0}]"));
+        assertThrows(IllegalArgumentException.class, () -> ingest(ingestor, MediaType.APPLICATION_JSON,
+                "[{\"timestamp\": \"yesterday\", \"symbol\": \"BTC\", \"price\": 1.0}]"));
+        assertThrows(IllegalArgumentException.class, () -> ingest(ingestor, MediaType.APPLICATION_JSON,
+                "[{\"timestamp\": 1, \"symbol\": \"BTC_USD\", \"price\": 1.0}]"));
+        assertThrows(IllegalArgumentException.class, () -> ingest(ingestor, MediaType.APPLICATION_JSON,
+                "[{\"timestamp\": 1, \"symbol\": \"BTC\", \"price\": 1.0}"));
+        assertThrows(IllegalArgumentException.class, () -> ingest(ingestor, CSV, "1641009600000,BTC,abc\n"));
+        assertThrows(IllegalArgumentException.class, () -> ingest(ingestor, MediaType.TEXT_PLAIN, "1641009600000,BTC,1.0\n"));
+
+        // Nothing was published, and an empty batch is accepted without a new version
+        assertNull(loader.getSnapshot().get("BTC"));
+        assertEquals(0, ingest(ingestor, MediaType.APPLICATION_JSON, "[]").getVersion());
+    }
+
+    @Test
+    public void testStreamsBodiesAndRejectsOversizedOnes() {
+        CryptoDataLoader loader = loader();
+        TickIngestor ingestor = ingestor(loader, null);
+
+        // Several read chunks, with a header after blank lines
+        StringBuilder csv = new StringBuilder("\n\ntimestamp,symbol,price\n");
+        for (int i = 0; i < 5_000; i++) {
+            csv.append(1641009600000L + i).append(",BTC,").append(40000 + i).append(".5\n");
+        }
+        assertEquals(5_000, ingest(ingestor, CSV, csv.toString()).getTicks());
+        assertEquals(44999.5, loader.getSnapshot().get("BTC").getStatistics().getNewestPrice());
+
+        StringBuilder tooMany = new StringBuilder();
+        for (int i = 0; i <= TickIngestor.MAX_TICKS_PER_REQUEST; i++) {
+            tooMany.append(i + 1).append(",ETH,1\n");
+        }
+        assertThrows(IllegalArgumentException.class, () -> ingest(ingestor, CSV, tooMany.toString()));
+        byte[] tooLarge = ("[" + " ".repeat(TickIngestor.MAX_BODY_BYTES) + "]").getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IllegalArgumentException.class,
+                () -> ingestor.ingest(new ByteArrayInputStream(tooLarge), MediaType.APPLICATION_JSON));
+        assertThrows(IllegalArgumentException.class, () -> ingest(ingestor, CSV, "1," + "A".repeat(1 << 16) + ",1\n"));
+        assertNull(loader.getSnapshot().get("ETH"));
+    }
+
+    @Test
+    public void testCompactsFullLogDownToUncoveredTicks() throws Exception {
+        Path log = directory.resolve("ticks.log");
+        CryptoDataLoader loader = loader();
+        TickIngestor ingestor = ingestor(loader, log);
+        ReflectionTestUtils.setField(ingestor, "logMaxSize", DataSize.ofKilobytes(8));
+
+        StringBuilder file = new StringBuilder("timestamp,symbol,price\n");
+        for (int i = 0; i < 200; i++) {
+            String row = (1641009600000L + i) + ",BTC,1.5\n";
+            ingest(ingestor, CSV, row);
+            file.append(row);
+        }
+        assertTrue(Files.size(log) <= 8 * 1024);
+        // The data file catches up with the pushed ticks, so the next compaction drops them
+        Files.writeString(directory.resolve("BTC_values.csv"), file);
+        loader.scanCryptoDirectory();
+        ingest(ingestor, CSV, "1641009700000,ETH,10.0\n");
+        for (int i = 0; i < 50; i++) {
+            ingest(ingestor, CSV, (1641009800000L + i) + ",BTC,2.5\n");
+        }
+        ingestor.shutdown();
+
+        CryptoDataLoader restarted = loader();
+        restarted.scanCryptoDirectory();
+        ingestor(restarted, log);
+        assertEquals(250, restarted.getSnapshot().get("BTC").getSeries().size());
+        assertEquals(1, restarted.getSnapshot().get("ETH").getSeries().size());
+    }
+
+    @Test
+    public void testRejectsPushesWhileUncoveredTicksFillTheLog() {
+        CryptoDataLoader loader = loader();
+        TickIngestor ingestor = ingestor(loader, directory.resolve("ticks.log"));
+        ReflectionTestUtils.setField(ingestor, "logMaxSize", DataSize.ofKilobytes(4));
+
+        int accepted = 0;
+        try {
+            for (; accepted < 1_000; accepted++) {
+                ingest(ingestor, CSV, (1641009600000L + accepted) + ",BTC,1.5\n");
+            }
+        } catch (CryptoDataProcessingException e) {
+            assertTrue(e.getCause().getMessage().startsWith("Tick log is full"));
+        }
+        assertTrue(accepted > 0 && accepted < 1_000);
+        assertEquals(accepted, loader.getSnapshot().get("BTC").getSeries().size());
+    }
+
+    private IngestResult ingest(TickIngestor ingestor, MediaType contentType, String body) {
+        return ingestor.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), contentType);
+    }
+
+    private CryptoDataLoader loader() {
+        CryptoDataLoader loader = new CryptoDataLoader();
+        ReflectionTestUtils.setField(loader, "cryptoFolderPath", directory.toString());
+        return loader;
+    }
+
+    private TickIngestor ingestor(CryptoDataLoader loader, Path log) {
+        TickIngestor ingestor = new TickIngestor(loader, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(ingestor, "logPath", log == null ? "" : log.toString());
+        ingestor.init();
+        started.add(ingestor);
+        assertTrue(log == null || Files.exists(log));
+        return ingestor;
+    }
+}
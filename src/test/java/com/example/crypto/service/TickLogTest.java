@@ -0,0 +1,179 @@
+package com.example.crypto.service;
+
+import com.example.crypto.model.PriceSeries;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TickLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testReplaysAppendedBatchesInOrder() throws Exception {
+        Path file = directory.resolve("ticks/ticks.log");
+        try (TickLog log = TickLog.open(file, batch -> {
+            throw new AssertionError("A new log has nothing to replay");
+        })) {
+            log.append(List.of(batch(series("BTC", 1, 100.0, 2, 101.0), series("ETH", 1, 10.0))));
+            log.append(List.of(batch(series("BTC", 3, 102.5)), batch(series("DOGEFATHER", 5, 0.25, 4, 0.5))));
+            assertEquals(Files.size(file), log.size());
+        }
+
+        List<Map<String, PriceSeries>> replayed = replay(file);
+
+        assertEquals(3, replayed.size());
+        assertEquals(List.of("BTC", "ETH"), List.copyOf(replayed.get(0).keySet()));
+        assertEquals(2, replayed.get(0).get("BTC").size());
+        assertEquals(101.0, replayed.get(0).get("BTC").priceAt(1));
+        assertEquals(10.0, replayed.get(0).get("ETH").priceAt(0));
+        assertEquals(3, replayed.get(1).get("BTC").timestampAt(0));
+        PriceSeries doge = replayed.get(2).get("DOGEFATHER");
+        assertEquals("DOGEFATHER", doge.getSymbol());
+        assertEquals(4, doge.firstTimestamp());
+        assertEquals(0.5, doge.priceAt(0));
+    }
+
+    @Test
+    public void testTruncatesTornTailAndKeepsAppending() throws Exception {
+        Path file = directory.resolve("ticks.log");
+        try (TickLog log = TickLog.open(file, batch -> { })) {
+            log.append(List.of(batch(series("BTC", 1, 100.0))));
+            log.append(List.of(batch(series("BTC", 2, 101.0, 3, 102.0))));
+        }
+        long intact = Files.size(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(intact - 5); // A crash in the middle of the second record
+        }
+
+        try (TickLog log = TickLog.open(file, batch -> { })) {
+            assertTrue(log.size() < intact - 5);
+            log.append(List.of(batch(series("ETH", 4, 10.0))));
+        }
+
+        List<Map<String, PriceSeries>> replayed = replay(file);
+        assertEquals(2, replayed.size());
+        assertEquals(100.0, replayed.get(0).get("BTC").priceAt(0));
+        assertEquals(10.0, replayed.get(1).get("ETH").priceAt(0));
+    }
+
+    @Test
+    public void testStopsAtCorruptRecord() throws Exception {
+        Path file = directory.resolve("ticks.log");
+        long firstEnd;
+        try (TickLog log = TickLog.open(file, batch -> { })) {
+            log.append(List.of(batch(series("BTC", 1, 100.0))));
+            firstEnd = log.size();
+            log.append(List.of(batch(series("BTC", 2, 101.0))));
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(Files.size(file) - 1);
+            raf.write(0x7f); // Flips bits in the last price
+        }
+
+        assertEquals(1, replay(file).size());
+        assertEquals(firstEnd, Files.size(file));
+    }
+
+    @Test
+    public void testCompactionKeepsOnlyTheGivenTicks() throws Exception {
+        Path file = directory.resolve("ticks.log");
+        PriceSeries.Builder builder = PriceSeries.builder("ETH");
+        for (int i = 0; i < 100_000; i++) {
+            builder.add(i, 1.0 + i);
+        }
+        Map<String, PriceSeries> kept = batch(series("BTC", 2, 101.0), builder.build());
+        try (TickLog log = TickLog.open(file, batch -> { })) {
+            log.append(List.of(batch(series("BTC", 1, 100.0, 2, 101.0))));
+            log.append(List.of(batch(series("DOGE", 1, 0.25))));
+
+            log.compact(kept);
+            assertEquals(TickLog.compactedLength(kept), log.size());
+            assertEquals(Files.size(file), log.size());
+            log.append(List.of(batch(series("BTC", 3, 102.0))));
+            assertEquals(Files.size(file), log.size());
+        }
+
+        List<Map<String, PriceSeries>> replayed = replay(file);
+        // ETH is split into records of at most 65536 ticks
+        assertEquals(4, replayed.size());
+        assertEquals(101.0, replayed.get(0).get("BTC").priceAt(0));
+        assertEquals(65_536, replayed.get(1).get("ETH").size());
+        assertEquals(100_000 - 65_536, replayed.get(2).get("ETH").size());
+        assertEquals(100_000.0, replayed.get(2).get("ETH").priceAt(100_000 - 65_536 - 1));
+        assertEquals(102.0, replayed.get(3).get("BTC").priceAt(0));
+        assertFalse(Files.exists(directory.resolve("ticks.log.compact")));
+    }
+
+    @Test
+    public void testReleasesBufferAfterLargeOrFailedAppends() throws Exception {
+        Path file = directory.resolve("ticks.log");
+        try (TickLog log = TickLog.open(file, batch -> { })) {
+            int initial = log.bufferCapacity();
+            PriceSeries.Builder builder = PriceSeries.builder("BTC");
+            for (int i = 0; i < 200_000; i++) {
+                builder.add(i, 1.0);
+            }
+            log.append(List.of(batch(builder.build())));
+            assertEquals(initial, log.bufferCapacity());
+
+            Map<String, PriceSeries> broken = new LinkedHashMap<>(batch(series("ETH", 1, 10.0)));
+            broken.put("DOGE", null);
+            long before = log.size();
+            assertThrows(NullPointerException.class, () -> log.append(List.of(broken)));
+            assertEquals(before, log.size());
+            log.append(List.of(batch(series("ETH", 200_001, 10.0))));
+        }
+
+        List<Map<String, PriceSeries>> replayed = replay(file);
+        assertEquals(2, replayed.size());
+        assertEquals(200_000, replayed.get(0).get("BTC").size());
+        assertEquals(10.0, replayed.get(1).get("ETH").priceAt(0));
+    }
+
+    @Test
+    public void testRejectsOtherFiles() throws Exception {
+        Path file = directory.resolve("BTC_values.csv");
+        String csv = "timestamp,symbol,price\n1641009600000,BTC,46813.21\n";
+        Files.writeString(file, csv);
+
+        assertThrows(IOException.class, () -> TickLog.open(file, batch -> { }));
+        assertEquals(csv, Files.readString(file));
+    }
+
+    private static List<Map<String, PriceSeries>> replay(Path file) throws IOException {
+        List<Map<String, PriceSeries>> replayed = new ArrayList<>();
+        TickLog.open(file, replayed::add).close();
+        return replayed;
+    }
+
+    private static Map<String, PriceSeries> batch(PriceSeries... series) {
+        Map<String, PriceSeries> batch = new LinkedHashMap<>();
+        for (PriceSeries s : series) {
+            batch.put(s.getSymbol(), s);
+        }
+        return batch;
+    }
+
+    private static PriceSeries series(String symbol, Object... timesAndPrices) {
+        PriceSeries.Builder builder = PriceSeries.builder(symbol);
+        for (int i = 0; i < timesAndPrices.length; i += 2) {
+            builder.add(((Number) timesAndPrices[i]).longValue(), (Double) timesAndPrices[i + 1]);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.crypto.support;
+
+import com.example.crypto.model.PriceSeries;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes a universe of synthetic {@code <SYMBOL>_values.csv} files in the format read by the data loader.
+ * Prices follow a seeded, mean-reverting random walk in log space around a random base price, so they stay in a
+ * realistic range however long the history is, and the same settings always produce the same files.
+ */
+public class SyntheticDataGenerator {
+
+    private static final long DEFAULT_START = 1641009600000L; // 2022-01-01T04:00:00Z, the first tick in crypto-data
+
+    private int symbols = 5;
+    private long tickIntervalMillis = 3_600_000L;
+    private int ticksPerSymbol = 100;
+    private long startMillis = DEFAULT_START;
+    private long seed = 42;
+
+    public SyntheticDataGenerator symbols(int symbols) {
+        this.symbols = symbols;
+        return this;
+    }
+
+    public SyntheticDataGenerator tickIntervalMillis(long tickIntervalMillis) {
+        this.tickIntervalMillis = tickIntervalMillis;
+        return this;
+    }
+
+    public SyntheticDataGenerator ticksPerSymbol(int ticksPerSymbol) {
+        this.ticksPerSymbol = ticksPerSymbol;
+        return this;
+    }
+
+    /**
+     * Sets the number of ticks per symbol from a history length and the tick interval.
+     */
+    public SyntheticDataGenerator historyMillis(long historyMillis) {
+        this.ticksPerSymbol = (int) Math.max(1, historyMillis / tickIntervalMillis);
+        return this;
+    }
+
+    public SyntheticDataGenerator startMillis(long startMillis) {
+        this.startMillis = startMillis;
+        return this;
+    }
+
+    public SyntheticDataGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public static String symbolName(int index) {
+        return "SYM" + index;
+    }
+
+    /**
+     * Writes one file per symbol into the directory and returns the generated symbols.
+     */
+    public List<String> writeTo(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Random random = new Random(seed);
+        List<String> written = new ArrayList<>(symbols);
+        for (int s = 0; s < symbols; s++) {
+            PriceSeries series = series(random, s);
+            String symbol = series.getSymbol();
+            try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve(symbol + "_values.csv"))) {
+                writer.write("timestamp,symbol,price\n");
+                StringBuilder line = new StringBuilder(48);
+                for (int t = 0; t < series.size(); t++) {
+                    line.setLength(0);
+                    line.append(series.timestampAt(t)).append(',').append(symbol).append(',')
+                            .append(series.priceAt(t)).append('\n');
+                    writer.append(line);
+                }
+            }
+            written.add(symbol);
+        }
+        return written;
+    }
+
+    /**
+     * Builds the same data as {@link #writeTo(Path)} writes, in memory and without parsing.
+     */
+    public List<PriceSeries> generate() {
+        Random random = new Random(seed);
+        List<PriceSeries> generated = new ArrayList<>(symbols);
+        for (int s = 0; s < symbols; s++) {
+            generated.add(series(random, s));
+        }
+        return generated;
+    }
+
+    private PriceSeries series(Random random, int index) {
+        PriceSeries.Builder builder = PriceSeries.builder(symbolName(index));
+        double basePrice = Math.log(1 + random.nextDouble() * 50_000);
+        double logPrice = basePrice;
+        for (int t = 0; t < ticksPerSymbol; t++) {
+            logPrice += 0.001 * (basePrice - logPrice) + 0.01 * random.nextGaussian();
+            builder.add(startMillis + t * tickIntervalMillis, Math.round(Math.exp(logPrice) * 10_000) / 10_000.0);
+        }
+        return builder.build();
+    }
+}